@@ -0,0 +1,259 @@
+package com.gpetuhov.android.yellowstone;
+
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.gpetuhov.android.yellowstone.dagger.AppModule;
+import com.gpetuhov.android.yellowstone.dagger.DaggerAppComponent;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+
+// End-to-end load test of quake sync.
+// Local stand-in for USGS server returns synthetic catalogs of 1k-100k events
+// to QuakeFetcher built by Dagger with all its real dependencies
+// (OkHttpClient with cache policy and resilience layer, streaming parser, QuakeProvider).
+// Every test makes a cold sync into empty quake table (bulk insert)
+// and then syncs the same catalog again (every quake is unchanged, only the diff is computed).
+// Throughput, stage timings, peak heap and GC counts are written to the log,
+// so that parsers and storage strategies can be compared on the same catalogs.
+// Filter results with: adb logcat -s QuakeSyncLoadBenchmark
+public class QuakeSyncLoadBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = QuakeSyncLoadBenchmark.class.getSimpleName();
+
+    // Events are spread over this span before the start of the current day,
+    // so that all of them are inside the sync window of QuakeFetcher
+    private static final long CATALOG_SPAN_MILLIS = TimeUnit.DAYS.toMillis(28);
+
+    // Interval between heap samples
+    private static final long HEAP_SAMPLE_INTERVAL_MILLIS = 5;
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private UsgsStandInServer mServer;
+
+    private QuakeFetcher mQuakeFetcher;
+
+    private ContentResolver mContentResolver;
+
+    private UtilsPrefs mUtilsPrefs;
+
+    private File mCatalogFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mServer = new UsgsStandInServer();
+        mServer.start();
+
+        // Real fetcher, that calls local server instead of USGS
+        Application application = (Application) mContext.getApplicationContext();
+        mQuakeFetcher = DaggerAppComponent.builder()
+                .appModule(new AppModule(application, mServer.getBaseUrl()))
+                .build()
+                .getQuakeFetcher();
+
+        mContentResolver = mContext.getContentResolver();
+        mUtilsPrefs = new UtilsPrefs(PreferenceManager.getDefaultSharedPreferences(mContext));
+
+        clearSyncState();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mServer.shutdown();
+
+        if (null != mCatalogFile) {
+            mCatalogFile.delete();
+        }
+
+        // Next real sync starts from scratch
+        clearSyncState();
+
+        super.tearDown();
+    }
+
+    public void testSync1000Events() throws Exception {
+        runLoad(1000);
+    }
+
+    public void testSync10000Events() throws Exception {
+        runLoad(10000);
+    }
+
+    public void testSync100000Events() throws Exception {
+        runLoad(100000);
+    }
+
+    // Serve catalog with given number of events, sync it twice and report the numbers
+    private void runLoad(int eventCount) throws Exception {
+        mCatalogFile = writeCatalog(eventCount);
+        mServer.setCatalogFile(mCatalogFile);
+
+        // Cold sync: every quake is new
+        QuakeFetchResult result = measureSync("cold sync", eventCount);
+        assertEquals(eventCount, result.getNumInserts());
+        assertEquals(eventCount, queryQuakeCount());
+
+        // Repeated sync: every quake is unchanged, nothing is written
+        result = measureSync("resync", eventCount);
+        assertEquals(0, result.getNumInserts());
+        assertEquals(0, result.getNumUpdates());
+        assertEquals(0, result.getNumDeletes());
+        assertEquals(eventCount, queryQuakeCount());
+
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    // Sync quakes from the server and log throughput, stage timings, heap and GC numbers
+    private QuakeFetchResult measureSync(String name, int eventCount) throws Exception {
+        // Start from the same heap state for every run
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        System.runFinalization();
+        runtime.gc();
+
+        long baselineHeap = getUsedHeap();
+        long gcCount = getGcStat("art.gc.gc-count");
+        long blockingGcCount = getGcStat("art.gc.blocking-gc-count");
+        long gcTime = getGcStat("art.gc.gc-time");
+
+        HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+
+        SyncRun syncRun = new SyncRun(System.currentTimeMillis(), SyncRun.Trigger.MANUAL_REFRESH);
+        long startTime = SystemClock.elapsedRealtime();
+
+        QuakeFetchResult result = mQuakeFetcher.fetchQuakes(syncRun);
+
+        long elapsedMillis = Math.max(SystemClock.elapsedRealtime() - startTime, 1);
+        long peakHeap = heapSampler.finish();
+
+        assertTrue("Error: sync failed with " + result.getStatus(), result.isSuccessful());
+        assertEquals(eventCount, syncRun.getFeaturesParsed());
+
+        double megabytes = syncRun.getBytesReceived() / MEGABYTE;
+
+        Log.i(LOG_TAG, String.format(Locale.US,
+                "%s of %d events (%.1f MB): %d ms (request %d, parse %d, save %d), "
+                        + "%.0f events/s, %.1f MB/s, peak heap %.1f MB (+%.1f MB), "
+                        + "GC count %s (blocking %s), GC time %s ms",
+                name, eventCount, megabytes, elapsedMillis,
+                syncRun.getRequestMillis(), syncRun.getParseMillis(), syncRun.getSaveMillis(),
+                eventCount * 1000.0 / elapsedMillis, megabytes * 1000 / elapsedMillis,
+                peakHeap / MEGABYTE, (peakHeap - baselineHeap) / MEGABYTE,
+                getGcDelta("art.gc.gc-count", gcCount),
+                getGcDelta("art.gc.blocking-gc-count", blockingGcCount),
+                getGcDelta("art.gc.gc-time", gcTime)));
+
+        return result;
+    }
+
+    // Write GeoJSON catalog into a file in the cache directory.
+    // The catalog is the same for every run of the same day.
+    private File writeCatalog(int eventCount) throws Exception {
+        long startOfDay = System.currentTimeMillis() / TimeUnit.DAYS.toMillis(1) * TimeUnit.DAYS.toMillis(1);
+        SyntheticCatalog catalog = new SyntheticCatalog(
+                eventCount, SyntheticCatalog.DEFAULT_SEED, startOfDay, CATALOG_SPAN_MILLIS);
+
+        File catalogFile = new File(mContext.getCacheDir(), "catalog-" + eventCount + ".json");
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(catalogFile));
+
+        try {
+            catalog.writeGeoJson(outputStream);
+        } finally {
+            outputStream.close();
+        }
+
+        return catalogFile;
+    }
+
+    // Return number of rows in quake table
+    private int queryQuakeCount() {
+        Cursor cursor = mContentResolver.query(QuakeEntry.CONTENT_URI,
+                new String[] { QuakeEntry._ID }, null, null, null);
+        assertNotNull(cursor);
+
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Delete quakes and sync state, so that the next sync is a cold one
+    private void clearSyncState() {
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+        mUtilsPrefs.setLatestUpdateTime(0);
+        mUtilsPrefs.setLastSyncTime(0);
+        mUtilsPrefs.setLastResultId(UtilsPrefs.NO_LAST_RESULT_ID);
+        mUtilsPrefs.setLastResultTime(0);
+        mUtilsPrefs.setNewQuakesFetchedFlag(false);
+    }
+
+    // Return heap used by the app
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Return value of ART garbage collector statistic (-1, if not available before Android 6.0)
+    private static long getGcStat(String name) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return -1;
+        }
+
+        String value = Debug.getRuntimeStat(name);
+        return null == value ? -1 : Long.parseLong(value);
+    }
+
+    // Return change of garbage collector statistic since the start value
+    private static String getGcDelta(String name, long startValue) {
+        long value = getGcStat(name);
+        return value < 0 || startValue < 0 ? "n/a" : String.valueOf(value - startValue);
+    }
+
+    // Samples used heap in background thread and keeps its max value
+    private static class HeapSampler extends Thread {
+
+        private volatile boolean mRunning = true;
+
+        private volatile long mPeakHeap;
+
+        HeapSampler() {
+            super("HeapSampler");
+        }
+
+        @Override
+        public void run() {
+            while (mRunning) {
+                mPeakHeap = Math.max(mPeakHeap, getUsedHeap());
+                SystemClock.sleep(HEAP_SAMPLE_INTERVAL_MILLIS);
+            }
+        }
+
+        // Stop sampling and return peak heap
+        long finish() throws InterruptedException {
+            mRunning = false;
+            join();
+            return Math.max(mPeakHeap, getUsedHeap());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.gpetuhov.android.yellowstone;
+
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.data.QuakeProvider;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+
+// Test binding of quake table rows into reusable QuakeRecord
+public class TestQuakeRecord extends AndroidTestCase {
+
+    // Number of quakes in test cursor
+    private static final int QUAKE_COUNT = 200;
+
+    private QuakeProvider mQuakeProvider;
+
+    private Cursor mCursor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // Create provider directly (onCreate() is called by attachInfo())
+        mQuakeProvider = new QuakeProvider();
+        mQuakeProvider.attachInfo(mContext, null);
+
+        // Fill quake table with test quakes
+        mQuakeProvider.delete(QuakeEntry.CONTENT_URI, null, null);
+        mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_URI, createQuakeValues());
+
+        // Query all quakes the same way as the list does
+        mCursor = mQuakeProvider.query(QuakeEntry.buildFirstPageUri(QUAKE_COUNT), null, null, null, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mCursor.close();
+        mQuakeProvider.delete(QuakeEntry.CONTENT_URI, null, null);
+        super.tearDown();
+    }
+
+    public void testBindMatchesQuakeFormatting() throws Exception {
+        QuakeRecord record = new QuakeRecord();
+        QuakeRecord.Columns columns = new QuakeRecord.Columns(mCursor);
+
+        while (mCursor.moveToNext()) {
+            record.bind(mCursor, columns);
+
+            Quake quake = UtilsQuake.getQuakeFromCursor(mCursor);
+
+            assertEquals(quake.getId(), record.getId());
+            assertEquals(quake.getLocation(),
+                    new String(record.getLocation(), 0, record.getLocationLength()));
+            assertEquals(quake.getFormattedMagnitude(),
+                    new String(record.getFormattedMagnitude(), 0, record.getFormattedMagnitudeLength()));
+            assertEquals(quake.getFormattedDate(),
+                    new String(record.getFormattedDate(), 0, record.getFormattedDateLength()));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testBindDoesNotAllocate() throws Exception {
+        QuakeRecord record = new QuakeRecord();
+        QuakeRecord.Columns columns = new QuakeRecord.Columns(mCursor);
+
+        // First pass fills cursor window and grows buffers of the record
+        bindAllRows(record, columns);
+
+        // Count allocations of this thread during the second pass (steady state scroll)
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        bindAllRows(record, columns);
+        Debug.stopAllocCounting();
+
+        assertEquals("Error: objects were allocated during bind", 0, Debug.getThreadAllocCount());
+    }
+
+    // Bind every row of the cursor into the record
+    private void bindAllRows(QuakeRecord record, QuakeRecord.Columns columns) {
+        for (int i = 0; i < QUAKE_COUNT; i++) {
+            mCursor.moveToPosition(i);
+            record.bind(mCursor, columns);
+        }
+    }
+
+    // Create content values for test quakes (magnitudes, locations and dates of different lengths)
+    private static ContentValues[] createQuakeValues() {
+        ContentValues[] values = new ContentValues[QUAKE_COUNT];
+
+        for (int i = 0; i < QUAKE_COUNT; i++) {
+            Quake quake = new Quake("test" + i, (i - 20) / 7.0, i + "km NE of West Yellowstone, Montana",
+                    1473931342000L - i * 3700000L, "http://earthquake.usgs.gov/earthquakes/eventpage/test" + i,
+                    44.5, -110.6, 5);
+
+            values[i] = UtilsQuake.getQuakeContentValues(quake);
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,162 @@
+package com.gpetuhov.android.yellowstone;
+
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// Local stand-in for USGS event service (http://earthquake.usgs.gov/fdsnws/event/1/).
+// Answers GET fdsnws/event/1/query with the catalog file (query parameters are ignored),
+// other requests with 404.
+// Body is streamed from the file, so the catalog doesn't take heap of the app under test.
+// Connections are served one by one in a background thread.
+class UsgsStandInServer {
+
+    // Path of USGS query (base URL of the server ends before "query")
+    private static final String QUERY_PATH = "/fdsnws/event/1/query";
+
+    // Size of the buffer for copying the catalog into the socket
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final ServerSocket mServerSocket;
+
+    // GeoJSON response for queries (null = 404)
+    private volatile File mCatalogFile;
+
+    // Number of served requests
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    private Thread mThread;
+
+    // Bind server to a free port of the loopback interface
+    UsgsStandInServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    }
+
+    // Start serving connections
+    void start() {
+        mThread = new Thread(() -> {
+            while (!mServerSocket.isClosed()) {
+                try {
+                    serve(mServerSocket.accept());
+                } catch (IOException e) {
+                    // Server is shut down or client has closed connection
+                }
+            }
+        }, "UsgsStandInServer");
+
+        mThread.start();
+    }
+
+    // Stop serving connections and wait for the server thread
+    void shutdown() throws IOException, InterruptedException {
+        mServerSocket.close();
+
+        if (null != mThread) {
+            mThread.join();
+        }
+    }
+
+    // Set file, that is returned for queries
+    void setCatalogFile(File catalogFile) {
+        mCatalogFile = catalogFile;
+    }
+
+    // Return base URL for Retrofit (the same layout as USGS base URL)
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/fdsnws/event/1/";
+    }
+
+    // Return number of served requests
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    // Read request and write response. Every connection serves one request.
+    private void serve(Socket socket) throws IOException {
+        try {
+            InputStream inputStream = socket.getInputStream();
+
+            // Request line, for example: GET /fdsnws/event/1/query?format=geojson HTTP/1.1
+            String[] requestLine = readLine(inputStream).split(" ");
+
+            // Headers are not needed
+            while (!readLine(inputStream).isEmpty()) {
+                // Skip header
+            }
+
+            mRequestCount.incrementAndGet();
+
+            String path = requestLine.length > 1 ? requestLine[1].split("\\?")[0] : "";
+            File catalogFile = mCatalogFile;
+
+            OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+
+            if ("GET".equals(requestLine[0]) && QUERY_PATH.equals(path) && null != catalogFile) {
+                // Response must not be stored in HTTP cache of the app
+                writeHeaders(outputStream, "200 OK", catalogFile.length());
+                copy(catalogFile, outputStream);
+            } else {
+                writeHeaders(outputStream, "404 Not Found", 0);
+            }
+
+            outputStream.flush();
+        } finally {
+            socket.close();
+        }
+    }
+
+    // Write status line and headers
+    private static void writeHeaders(OutputStream outputStream, String status, long contentLength)
+            throws IOException {
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + contentLength + "\r\n"
+                + "Cache-Control: no-store\r\n"
+                + "Connection: close\r\n"
+                + "\r\n";
+
+        outputStream.write(headers.getBytes(US_ASCII));
+    }
+
+    // Copy file into the stream
+    private static void copy(File file, OutputStream outputStream) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    // Return line of request without line break (empty string at the end of the stream)
+    private static String readLine(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        int b;
+        while ((b = inputStream.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        return new String(line.toByteArray(), US_ASCII);
+    }
+}
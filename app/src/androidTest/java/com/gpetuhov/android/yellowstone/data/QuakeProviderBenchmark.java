@@ -0,0 +1,104 @@
+package com.gpetuhov.android.yellowstone.data;
+
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+
+// Measure insert throughput of quake content provider (rows per second).
+// Row-by-row insert (what default ContentProvider.bulkInsert does)
+// is compared with bulkInsert of QuakeProvider (one transaction, compiled statement).
+public class QuakeProviderBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = QuakeProviderBenchmark.class.getName();
+
+    // Number of quakes inserted in every run
+    private static final int ROW_COUNT = 2000;
+
+    private QuakeProvider mQuakeProvider;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // Create provider directly (onCreate() is called by attachInfo())
+        mQuakeProvider = new QuakeProvider();
+        mQuakeProvider.attachInfo(mContext, null);
+
+        clearQuakeTable();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        clearQuakeTable();
+        super.tearDown();
+    }
+
+    public void testBulkInsertThroughput() throws Exception {
+        ContentValues[] values = createQuakeValues(ROW_COUNT);
+
+        // Before: every row is inserted with its own transaction and notification
+        long startTime = SystemClock.elapsedRealtime();
+        for (ContentValues quakeValues : values) {
+            assertNotNull(mQuakeProvider.insert(QuakeEntry.CONTENT_URI, quakeValues));
+        }
+        double rowByRowRate = getRowsPerSecond(ROW_COUNT, SystemClock.elapsedRealtime() - startTime);
+
+        clearQuakeTable();
+
+        // After: all rows are inserted in one transaction with one notification
+        startTime = SystemClock.elapsedRealtime();
+        int insertedRowsNum = mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_URI, values);
+        double bulkRate = getRowsPerSecond(ROW_COUNT, SystemClock.elapsedRealtime() - startTime);
+
+        Log.i(LOG_TAG, "Row by row insert: " + Math.round(rowByRowRate) + " rows/s, "
+                + "bulk insert: " + Math.round(bulkRate) + " rows/s");
+
+        assertEquals(ROW_COUNT, insertedRowsNum);
+        assertTrue("Error: bulk insert is not faster than row by row insert", bulkRate > rowByRowRate);
+    }
+
+    public void testBulkInsertReplacesQuakesWithSameId() throws Exception {
+        ContentValues[] values = createQuakeValues(10);
+
+        // Insert the same quakes twice
+        mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_URI, values);
+        mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_URI, values);
+
+        // Unique USGS ID keeps only one row per quake
+        SQLiteDatabase db = new YellowstoneDbHelper(mContext).getReadableDatabase();
+        assertEquals(10, DatabaseUtils.queryNumEntries(db, QuakeEntry.TABLE_NAME));
+        db.close();
+    }
+
+    // Create content values for given number of dummy quakes
+    private static ContentValues[] createQuakeValues(int count) {
+        ContentValues[] values = new ContentValues[count];
+
+        for (int i = 0; i < count; i++) {
+            Quake quake = new Quake("bench" + i, (i % 50) / 10.0, i + "km NE of West Yellowstone, Montana",
+                    1473931342000L - i * 1000L, "http://earthquake.usgs.gov/earthquakes/eventpage/bench" + i,
+                    44.5 + (i % 13) / 100.0, -110.6 + (i % 11) / 100.0, i % 15);
+
+            values[i] = UtilsQuake.getQuakeContentValues(quake);
+        }
+
+        return values;
+    }
+
+    private static double getRowsPerSecond(int rowCount, long elapsedMillis) {
+        return rowCount * 1000.0 / Math.max(elapsedMillis, 1);
+    }
+
+    private void clearQuakeTable() {
+        mQuakeProvider.delete(QuakeEntry.CONTENT_URI, null, null);
+    }
+}
@@ -6,8 +6,14 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.test.AndroidTestCase;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.PhotoEntry;
 import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.SyncRunEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
 
 
 // Test database
@@ -35,7 +41,7 @@ public class TestDb extends AndroidTestCase {
         Quake testQuake = new Quake(ids, magnitude, location, time, url, latitude, longitude, depth);
 
         // Create ContentValues of test quake
-        ContentValues testValues = testQuake.getQuakeContentValues();
+        ContentValues testValues = UtilsQuake.getQuakeContentValues(testQuake);
 
         // Insert ContentValues into database and get a row ID back
         long quakeRowId;
@@ -61,7 +67,7 @@ public class TestDb extends AndroidTestCase {
         assertTrue( "Error: No Records returned from quake query", cursor.moveToFirst() );
 
         // Get quake from the cursor
-        Quake quakeFromDb = Quake.getQuakeFromCursor(cursor);
+        Quake quakeFromDb = UtilsQuake.getQuakeFromCursor(cursor);
 
         // Check if testQuake and quake from database are equal
         assertTrue("Error: Quake query validation failed", testQuake.equals(quakeFromDb));
@@ -87,4 +93,204 @@ public class TestDb extends AndroidTestCase {
         // Close database
         db.close();
     }
+
+    public void testQuakeIdsAreUnique() throws Exception {
+
+        // Get reference to writable database
+        SQLiteDatabase db = new YellowstoneDbHelper(mContext).getWritableDatabase();
+
+        // Clear quake table
+        db.delete(QuakeEntry.TABLE_NAME, null, null);
+
+        // Create two versions of the same quake (second one is updated by USGS)
+        Quake testQuake = new Quake("1234567890", 2, "Test location", 1000000, "Some URL address", 0, 0, -5);
+        Quake updatedQuake = new Quake("1234567890", 2.5, "Test location", 1000000, "Some URL address", 0, 0, -5, 2000000);
+
+        // Insert first version of the quake
+        assertTrue("Error: test quake was not inserted",
+                db.insert(QuakeEntry.TABLE_NAME, null, UtilsQuake.getQuakeContentValues(testQuake)) != -1);
+
+        // Second row with the same USGS ID must be rejected by the unique index
+        assertTrue("Error: duplicate quake was inserted",
+                db.insert(QuakeEntry.TABLE_NAME, null, UtilsQuake.getQuakeContentValues(updatedQuake)) == -1);
+
+        // Update the quake in place by USGS ID
+        int updatedRowsNum = db.update(
+                QuakeEntry.TABLE_NAME,
+                UtilsQuake.getQuakeContentValues(updatedQuake),
+                QuakeEntry.COLUMN_IDS + " = ?",
+                new String[] { updatedQuake.getId() }
+        );
+
+        // Check if 1 row was updated
+        assertTrue("Error in test quake update operation", updatedRowsNum == 1);
+
+        // Query the database and receive a cursor back
+        Cursor cursor = db.query(QuakeEntry.TABLE_NAME, null, null, null, null, null, null);
+
+        // Check that there is only one row and it contains updated quake
+        assertTrue("Error: No Records returned from quake query", cursor.moveToFirst());
+        Quake quakeFromDb = UtilsQuake.getQuakeFromCursor(cursor);
+        assertTrue("Error: Quake query validation failed", updatedQuake.equals(quakeFromDb));
+        assertEquals(updatedQuake.getUpdatedInMilliseconds(), quakeFromDb.getUpdatedInMilliseconds());
+        assertFalse("Error: More than one record returned from quake query", cursor.moveToNext());
+
+        // Close cursors
+        cursor.close();
+
+        // Clear quake table
+        db.delete(QuakeEntry.TABLE_NAME, null, null);
+
+        // Close database
+        db.close();
+    }
+
+    public void testMigrationsKeepExistingRows() throws Exception {
+
+        // Create in-memory database with the first version of the schema
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        YellowstoneDbHelper.createVersion1Schema(db);
+
+        // Version 1 had no unique index, so the same quake could be stored twice
+        ContentValues oldValues = UtilsQuake.getQuakeContentValues(
+                new Quake("1234567890", 2, "Test location", 1000000, "Some URL address", 0, 0, -5));
+        ContentValues newValues = UtilsQuake.getQuakeContentValues(
+                new Quake("1234567890", 2.5, "Test location", 1000000, "Some URL address", 0, 0, -5));
+        ContentValues otherValues = UtilsQuake.getQuakeContentValues(
+                new Quake("0987654321", 3, "Other location", 2000000, "Other URL address", 1, 1, -7));
+
+        // Version 1 had no update time and display columns
+        for (ContentValues values : new ContentValues[] { oldValues, newValues, otherValues }) {
+            values.remove(QuakeEntry.COLUMN_UPDATED);
+            values.remove(QuakeEntry.COLUMN_DISPLAY_MAGNITUDE);
+            values.remove(QuakeEntry.COLUMN_DISPLAY_DATE);
+        }
+
+        db.insert(QuakeEntry.TABLE_NAME, null, oldValues);
+        db.insert(QuakeEntry.TABLE_NAME, null, newValues);
+        db.insert(QuakeEntry.TABLE_NAME, null, otherValues);
+
+        // Upgrade to the current version
+        YellowstoneDbHelper.migrate(db, 1, YellowstoneDbHelper.DATABASE_VERSION);
+
+        // Query the database and receive a cursor back
+        Cursor cursor = db.query(QuakeEntry.TABLE_NAME, null, null, null, null, null,
+                QuakeEntry.COLUMN_TIME + " DESC");
+
+        // Only the latest row of the duplicated quake is kept, other rows are not touched
+        assertEquals("Error: existing rows were not kept", 2, cursor.getCount());
+
+        cursor.moveToFirst();
+        Quake otherQuake = UtilsQuake.getQuakeFromCursor(cursor);
+        assertEquals("0987654321", otherQuake.getId());
+        assertEquals(2000000, otherQuake.getUpdatedInMilliseconds());
+
+        // Display strings are formatted for existing rows
+        assertEquals(otherQuake.getFormattedMagnitude(),
+                cursor.getString(cursor.getColumnIndex(QuakeEntry.COLUMN_DISPLAY_MAGNITUDE)));
+        assertEquals(otherQuake.getFormattedDate(),
+                cursor.getString(cursor.getColumnIndex(QuakeEntry.COLUMN_DISPLAY_DATE)));
+
+        cursor.moveToNext();
+        Quake duplicatedQuake = UtilsQuake.getQuakeFromCursor(cursor);
+        assertEquals("1234567890", duplicatedQuake.getId());
+        assertEquals(2.5, duplicatedQuake.getMagnitude(), 0);
+        assertEquals(1000000, duplicatedQuake.getUpdatedInMilliseconds());
+
+        // Close cursors
+        cursor.close();
+
+        // Check if all indexes are created
+        List<String> indexes = getIndexNames(db);
+        assertTrue(indexes.contains(QuakeEntry.INDEX_IDS));
+        assertTrue(indexes.contains(QuakeEntry.INDEX_MAGNITUDE_TIME));
+        assertTrue(indexes.contains(QuakeEntry.INDEX_TIME));
+        assertTrue(indexes.contains(PhotoEntry.INDEX_PHOTO_ID));
+        assertTrue(indexes.contains(QuakeEntry.INDEX_STAGING_IDS));
+
+        // Check if sync journal table is created
+        Cursor tableCursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[] { SyncRunEntry.TABLE_NAME });
+        assertTrue(tableCursor.moveToFirst());
+        tableCursor.close();
+
+        // Close database
+        db.close();
+    }
+
+    public void testQueriesUseIndexes() throws Exception {
+
+        // Create in-memory database with the current schema
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        new YellowstoneDbHelper(mContext).onCreate(db);
+
+        // Quake list query (see QuakeCursorLoaderFactory)
+        assertQueryUsesIndex(db,
+                "SELECT * FROM " + QuakeEntry.TABLE_NAME
+                        + " WHERE " + QuakeEntry.COLUMN_MAGNITUDE + " >= ?"
+                        + " ORDER BY " + QuakeEntry.COLUMN_TIME + " DESC",
+                new String[] { "0" },
+                QuakeEntry.INDEX_MAGNITUDE_TIME, QuakeEntry.INDEX_TIME);
+
+        // Next page of quake list (see QuakeProvider)
+        assertQueryUsesIndex(db,
+                "SELECT * FROM " + QuakeEntry.TABLE_NAME
+                        + " WHERE (" + QuakeEntry.COLUMN_MAGNITUDE + " >= ?) AND "
+                        + QuakeEntry.COLUMN_TIME + " <= ? AND ("
+                        + QuakeEntry.COLUMN_TIME + " < ? OR " + QuakeEntry._ID + " > ?)"
+                        + " ORDER BY " + QuakeEntry.PAGE_SORT_ORDER + " LIMIT 50",
+                new String[] { "0", "1000000", "1000000", "10" },
+                QuakeEntry.INDEX_TIME, QuakeEntry.INDEX_MAGNITUDE_TIME);
+
+        // Upsert by USGS ID (see QuakeFetcher)
+        assertQueryUsesIndex(db,
+                "SELECT * FROM " + QuakeEntry.TABLE_NAME + " WHERE " + QuakeEntry.COLUMN_IDS + " = ?",
+                new String[] { "1234567890" },
+                QuakeEntry.INDEX_IDS);
+
+        // Delete expired quakes (see QuakeFetcher)
+        assertQueryUsesIndex(db,
+                "DELETE FROM " + QuakeEntry.TABLE_NAME + " WHERE " + QuakeEntry.COLUMN_TIME + " < ?",
+                new String[] { "1000000" },
+                QuakeEntry.INDEX_TIME, QuakeEntry.INDEX_MAGNITUDE_TIME);
+
+        // Close database
+        db.close();
+    }
+
+    // Check that EXPLAIN QUERY PLAN of the query mentions one of the indexes
+    // (and so the query doesn't scan the whole table)
+    private void assertQueryUsesIndex(SQLiteDatabase db, String sql, String[] selectionArgs, String... indexes) {
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+
+        // Query plan description is in "detail" column
+        StringBuilder plan = new StringBuilder();
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(cursor.getColumnIndex("detail"))).append("\n");
+        }
+
+        cursor.close();
+
+        for (String index : indexes) {
+            if (plan.indexOf(index) != -1) {
+                return;
+            }
+        }
+
+        fail("Error: query doesn't use index: " + sql + "\n" + plan);
+    }
+
+    // Return names of all indexes in the database
+    private List<String> getIndexNames(SQLiteDatabase db) {
+        List<String> indexes = new ArrayList<>();
+
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index'", null);
+        while (cursor.moveToNext()) {
+            indexes.add(cursor.getString(0));
+        }
+
+        cursor.close();
+
+        return indexes;
+    }
 }
@@ -0,0 +1,164 @@
+package com.gpetuhov.android.yellowstone.data;
+
+
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.PhotoListItem;
+import com.gpetuhov.android.yellowstone.PhotoPage;
+import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Test persistent cache of the photo list
+public class TestPhotoCache extends AndroidTestCase {
+
+    // Time of the first fetch in tests
+    private static final long NOW = 1000000000L;
+
+    // Number of photos per page in tests
+    private static final int PER_PAGE = 3;
+
+    private PhotoCache mPhotoCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        UtilsPrefs utilsPrefs = new UtilsPrefs(PreferenceManager.getDefaultSharedPreferences(mContext));
+        mPhotoCache = new PhotoCache(mContext.getContentResolver(), utilsPrefs);
+        mPhotoCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPhotoCache.clear();
+
+        super.tearDown();
+    }
+
+    public void testEmptyCacheIsStale() throws Exception {
+        PhotoPage cachedPhotos = mPhotoCache.getPhotos();
+
+        assertEquals(0, cachedPhotos.getPage());
+        assertTrue(cachedPhotos.getItems().isEmpty());
+        assertTrue(mPhotoCache.isStale(NOW));
+    }
+
+    public void testPagesAreReadInOrderWithoutDuplicates() throws Exception {
+        mPhotoCache.putPage(page(1, 3, "a", "b", "c"), PER_PAGE, NOW);
+
+        // New upload shifted results, so the second page starts with the last photo of the first page
+        mPhotoCache.putPage(page(2, 3, "c", "d", "e"), PER_PAGE, NOW);
+
+        PhotoPage cachedPhotos = mPhotoCache.getPhotos();
+
+        assertEquals(2, cachedPhotos.getPage());
+        assertEquals(3, cachedPhotos.getPageCount());
+        assertTrue(cachedPhotos.hasNextPage());
+        assertEquals("abcde", ids(cachedPhotos));
+
+        // Photo details are kept
+        PhotoListItem item = cachedPhotos.getItems().get(0);
+        assertEquals("Photo a", item.getCaption());
+        assertEquals("https://farm.example/a.jpg", item.getUrl());
+        assertEquals("owner", item.getOwner());
+    }
+
+    public void testCacheIsStaleAfterTtl() throws Exception {
+        mPhotoCache.putPage(page(1, 3, "a"), PER_PAGE, NOW);
+
+        assertFalse(mPhotoCache.isStale(NOW + PhotoCache.TTL));
+        assertTrue(mPhotoCache.isStale(NOW + PhotoCache.TTL + 1));
+
+        // Next pages don't refresh the list
+        mPhotoCache.putPage(page(2, 3, "b"), PER_PAGE, NOW + PhotoCache.TTL);
+        assertTrue(mPhotoCache.isStale(NOW + PhotoCache.TTL + 1));
+    }
+
+    public void testRefreshPutsNewPhotosBeforeCachedOnes() throws Exception {
+        mPhotoCache.putPage(page(1, 3, "c", "d"), PER_PAGE, NOW);
+        mPhotoCache.putPage(page(2, 3, "e", "f"), PER_PAGE, NOW);
+
+        // Two new photos were uploaded
+        mPhotoCache.putPage(page(1, 3, "a", "b", "c"), PER_PAGE, NOW + PhotoCache.TTL + 1);
+
+        PhotoPage cachedPhotos = mPhotoCache.getPhotos();
+
+        assertEquals("abcdef", ids(cachedPhotos));
+        assertEquals(2, cachedPhotos.getPage());
+        assertFalse(mPhotoCache.isStale(NOW + PhotoCache.TTL + 1));
+    }
+
+    public void testRefreshWithoutOverlapStartsOver() throws Exception {
+        mPhotoCache.putPage(page(1, 3, "d", "e", "f"), PER_PAGE, NOW);
+        mPhotoCache.putPage(page(2, 3, "g", "h", "i"), PER_PAGE, NOW);
+
+        // More than a page of photos was uploaded since the last refresh (a, b, c and some more),
+        // so photos between the new first page and the cached ones are unknown
+        mPhotoCache.putPage(page(1, 4, "a", "b", "c"), PER_PAGE, NOW + PhotoCache.TTL + 1);
+
+        PhotoPage cachedPhotos = mPhotoCache.getPhotos();
+
+        assertEquals("abc", ids(cachedPhotos));
+        assertEquals(1, cachedPhotos.getPage());
+        assertEquals(4, cachedPhotos.getPageCount());
+        assertFalse(mPhotoCache.isStale(NOW + PhotoCache.TTL + 1));
+    }
+
+    public void testCacheIsTrimmedToMaxPages() throws Exception {
+        // Fill all cached pages
+        for (int page = 1; page <= PhotoCache.MAX_CACHED_PAGES; page++) {
+            mPhotoCache.putPage(page(page, 10, "p" + page + "a", "p" + page + "b", "p" + page + "c"),
+                    PER_PAGE, NOW);
+        }
+
+        // Two new photos were uploaded
+        mPhotoCache.putPage(page(1, 10, "new1", "new2", "p1a"), PER_PAGE, NOW + PhotoCache.TTL + 1);
+
+        List<PhotoListItem> items = mPhotoCache.getPhotos().getItems();
+
+        // The last two photos are dropped
+        assertEquals(PhotoCache.MAX_CACHED_PAGES * PER_PAGE, items.size());
+        assertEquals("new1", items.get(0).getId());
+        assertEquals("p" + PhotoCache.MAX_CACHED_PAGES + "a", items.get(items.size() - 1).getId());
+    }
+
+    public void testDeepPagesAreNotCached() throws Exception {
+        for (int page = 1; page <= PhotoCache.MAX_CACHED_PAGES + 1; page++) {
+            mPhotoCache.putPage(page(page, 10, "photo" + page), PER_PAGE, NOW);
+        }
+
+        PhotoPage cachedPhotos = mPhotoCache.getPhotos();
+
+        assertEquals(PhotoCache.MAX_CACHED_PAGES, cachedPhotos.getPage());
+        assertEquals(PhotoCache.MAX_CACHED_PAGES, cachedPhotos.getItems().size());
+    }
+
+    // Return page of photos with IDs
+    private static PhotoPage page(int page, int pageCount, String... ids) {
+        List<PhotoListItem> items = new ArrayList<>();
+
+        for (String id : ids) {
+            PhotoListItem item = new PhotoListItem();
+            item.setId(id);
+            item.setCaption("Photo " + id);
+            item.setUrl("https://farm.example/" + id + ".jpg");
+            item.setOwner("owner");
+            items.add(item);
+        }
+
+        return new PhotoPage(page, pageCount, items);
+    }
+
+    // Return IDs of cached photos in one string
+    private static String ids(PhotoPage photoPage) {
+        StringBuilder ids = new StringBuilder();
+        for (PhotoListItem item : photoPage.getItems()) {
+            ids.append(item.getId());
+        }
+        return ids.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.gpetuhov.android.yellowstone.data;
+
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+
+
+// Test shared cache of quakes
+public class TestQuakeCache extends AndroidTestCase {
+
+    // Max time to wait for a change (in seconds)
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private ContentResolver mContentResolver;
+
+    private QuakeCache mQuakeCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mContentResolver = mContext.getContentResolver();
+
+        // Clear quake table
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+
+        mQuakeCache = new QuakeCache(mContentResolver);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Clear quake table
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+
+        super.tearDown();
+    }
+
+    public void testRevisedQuakeIsResolvedAgainAfterChange() throws Exception {
+        mContentResolver.insert(QuakeEntry.CONTENT_URI, UtilsQuake.getQuakeContentValues(
+                new Quake("revised", 2, "Test location", 2000000, "Some URL address", 44.5, -110.6, 5)));
+
+        // Quake is queried once and then taken from cache
+        assertEquals(2, mQuakeCache.get("revised").getMagnitude(), 0);
+        assertNotNull(mQuakeCache.getCached("revised"));
+
+        LinkedBlockingQueue<Object> changes = new LinkedBlockingQueue<>();
+        Subscription subscription = mQuakeCache.getChanges().subscribe(change -> changes.add(new Object()));
+
+        // Sync revises magnitude of the quake
+        ContentValues values = new ContentValues();
+        values.put(QuakeEntry.COLUMN_MAGNITUDE, 3.1);
+        mContentResolver.update(QuakeEntry.CONTENT_URI, values,
+                QuakeEntry.COLUMN_IDS + " = ?", new String[] { "revised" });
+
+        // Cache is cleared, and the screen resolves the revised quake
+        assertNotNull(changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(mQuakeCache.getCached("revised"));
+        assertEquals(3.1, mQuakeCache.get("revised").getMagnitude(), 0);
+
+        subscription.unsubscribe();
+    }
+}
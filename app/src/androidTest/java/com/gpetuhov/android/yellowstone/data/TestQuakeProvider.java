@@ -0,0 +1,192 @@
+package com.gpetuhov.android.yellowstone.data;
+
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+import java.util.ArrayList;
+
+
+// Test quake content provider
+public class TestQuakeProvider extends AndroidTestCase {
+
+    private QuakeProvider mQuakeProvider;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // Create provider directly (onCreate() is called by attachInfo())
+        mQuakeProvider = new QuakeProvider();
+        mQuakeProvider.attachInfo(mContext, null);
+
+        // Clear quake table
+        mQuakeProvider.delete(QuakeEntry.CONTENT_URI, null, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Clear quake table and staging table
+        mQuakeProvider.delete(QuakeEntry.CONTENT_URI, null, null);
+        mQuakeProvider.delete(QuakeEntry.CONTENT_STAGING_URI, null, null);
+
+        super.tearDown();
+    }
+
+    public void testPagesReturnAllQuakesInOrder() throws Exception {
+        // Insert quakes. Some of them have the same time, so pages must be ordered by _id too.
+        int quakeCount = 23;
+        ContentValues[] values = new ContentValues[quakeCount];
+        for (int i = 0; i < quakeCount; i++) {
+            values[i] = UtilsQuake.getQuakeContentValues(new Quake("test" + i, i % 5, "Test location",
+                    1000000 - (i / 3) * 1000, "Some URL address", 0, 0, -5));
+        }
+        mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_URI, values);
+
+        // Read all pages of quakes with magnitude >= 1
+        int pageSize = 4;
+        int rowCount = 0;
+        long lastTime = Long.MAX_VALUE;
+        long lastId = -1;
+
+        Cursor page = query(QuakeEntry.buildFirstPageUri(pageSize));
+
+        while (page.getCount() > 0) {
+            assertTrue("Error: page is larger than limit", page.getCount() <= pageSize);
+
+            while (page.moveToNext()) {
+                long time = page.getLong(page.getColumnIndex(QuakeEntry.COLUMN_TIME));
+                long id = page.getLong(page.getColumnIndex(QuakeEntry._ID));
+
+                // Rows go by time DESC, _id ASC without gaps and duplicates between pages
+                assertTrue("Error: rows are out of order", time < lastTime || (time == lastTime && id > lastId));
+                assertTrue(page.getDouble(page.getColumnIndex(QuakeEntry.COLUMN_MAGNITUDE)) >= 1);
+
+                lastTime = time;
+                lastId = id;
+                rowCount++;
+            }
+
+            page.close();
+            page = query(QuakeEntry.buildNextPageUri(pageSize, lastTime, lastId));
+        }
+
+        page.close();
+
+        // Quakes with magnitude 0 are filtered out
+        assertEquals(quakeCount - (quakeCount + 4) / 5, rowCount);
+    }
+
+    public void testFailedBatchIsRolledBackCompletely() throws Exception {
+        // Batch is larger than the old yield interval (500 operations)
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            operations.add(ContentProviderOperation.newInsert(QuakeEntry.CONTENT_URI)
+                    .withValues(quakeAt("batch" + i, 1, 44.5, -110.5))
+                    .build());
+        }
+
+        // The last operation fails, because it changes no rows
+        operations.add(ContentProviderOperation.newUpdate(QuakeEntry.CONTENT_URI)
+                .withSelection(QuakeEntry.COLUMN_IDS + " = ?", new String[] { "missing" })
+                .withValue(QuakeEntry.COLUMN_MAGNITUDE, 2)
+                .withExpectedCount(1)
+                .build());
+
+        try {
+            mQuakeProvider.applyBatch(operations);
+            fail("Error: batch must fail");
+        } catch (OperationApplicationException e) {
+            // Expected
+        }
+
+        // Nothing of the batch is left in storage
+        assertEquals("", queryIds(QuakeEntry.CONTENT_URI));
+    }
+
+    public void testStagedQuakesAreAppliedAsDiff() throws Exception {
+        mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_URI, new ContentValues[] {
+                quakeAt("kept", 1, 44.5, -110.5),
+                quakeAt("revised", 1, 44.5, -110.5),
+                quakeAt("expired", 1, 44.5, -110.5)
+        });
+        long revisedRowId = queryRowId("revised");
+
+        // Full sync fetched unchanged, revised and new quakes
+        mQuakeProvider.bulkInsert(QuakeEntry.CONTENT_STAGING_URI, new ContentValues[] {
+                quakeAt("kept", 1, 44.5, -110.5),
+                UtilsQuake.getQuakeContentValues(new Quake(
+                        "revised", 2, "Test location", 1000000, "Some URL address", 44.5, -110.5, 5, 2000000)),
+                quakeAt("new", 1, 44.5, -110.5)
+        });
+
+        // Staged quakes are not visible until they are applied
+        assertEquals("expired,kept,revised", queryIds(QuakeEntry.CONTENT_URI));
+
+        Bundle extras = new Bundle();
+        extras.putBoolean(QuakeEntry.EXTRA_DELTA_SYNC, false);
+        extras.putLong(QuakeEntry.EXTRA_WINDOW_START, 0);
+        Bundle result = mQuakeProvider.call(QuakeEntry.METHOD_APPLY_STAGED_QUAKES, null, extras);
+
+        assertEquals(1, result.getInt(QuakeEntry.RESULT_INSERTED));
+        assertEquals(1, result.getInt(QuakeEntry.RESULT_UPDATED));
+        assertEquals(1, result.getInt(QuakeEntry.RESULT_DELETED));
+        assertEquals("kept,new,revised", queryIds(QuakeEntry.CONTENT_URI));
+
+        // Revised quake is updated in place
+        assertEquals(revisedRowId, queryRowId("revised"));
+        Cursor cursor = mQuakeProvider.query(QuakeEntry.CONTENT_URI, new String[] { QuakeEntry.COLUMN_MAGNITUDE },
+                QuakeEntry.COLUMN_IDS + " = ?", new String[] { "revised" }, null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals(2, cursor.getDouble(0), 0);
+        cursor.close();
+
+        // Staging table is cleared by the same transaction
+        assertEquals(0, mQuakeProvider.delete(QuakeEntry.CONTENT_STAGING_URI, null, null));
+    }
+
+    // Return content values of the quake with given position
+    private static ContentValues quakeAt(String id, double magnitude, double latitude, double longitude) {
+        return UtilsQuake.getQuakeContentValues(
+                new Quake(id, magnitude, "Test location", 1000000, "Some URL address", latitude, longitude, 5));
+    }
+
+    // Return _id of the quake with given USGS ID
+    private long queryRowId(String id) {
+        Cursor cursor = mQuakeProvider.query(QuakeEntry.CONTENT_URI, new String[] { QuakeEntry._ID },
+                QuakeEntry.COLUMN_IDS + " = ?", new String[] { id }, null);
+        assertTrue(cursor.moveToFirst());
+        long rowId = cursor.getLong(0);
+        cursor.close();
+
+        return rowId;
+    }
+
+    // Return sorted USGS IDs of quakes returned by the URI joined by commas
+    private String queryIds(Uri uri) {
+        Cursor cursor = mQuakeProvider.query(uri, new String[] { QuakeEntry.COLUMN_IDS },
+                QuakeEntry.COLUMN_MAGNITUDE + " >= ?", new String[] { "1" }, QuakeEntry.COLUMN_IDS);
+
+        StringBuilder ids = new StringBuilder();
+        while (cursor.moveToNext()) {
+            ids.append(ids.length() == 0 ? "" : ",").append(cursor.getString(0));
+        }
+        cursor.close();
+
+        return ids.toString();
+    }
+
+    // Query quakes with magnitude >= 1
+    private Cursor query(Uri uri) {
+        return mQuakeProvider.query(uri, null, QuakeEntry.COLUMN_MAGNITUDE + " >= ?", new String[] { "1" }, null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.gpetuhov.android.yellowstone.data;
+
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.QuakeSnapshot;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+
+
+// Test shared repository of quake snapshots
+public class TestQuakeRepository extends AndroidTestCase {
+
+    // Max time to wait for a snapshot (in seconds)
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private ContentResolver mContentResolver;
+
+    private QuakeRepository mQuakeRepository;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mContentResolver = mContext.getContentResolver();
+
+        // Clear quake table
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+
+        UtilsPrefs utilsPrefs = new UtilsPrefs(PreferenceManager.getDefaultSharedPreferences(mContext));
+        mQuakeRepository = new QuakeRepository(mContentResolver, new QuakeCursorLoaderFactory(mContext, utilsPrefs));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Clear quake table
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+
+        super.tearDown();
+    }
+
+    public void testOneQueryForAllSubscribersAndOneQueryPerChange() throws Exception {
+        insertQuakes(new Quake("first", 2, "Test location", 2000000, "Some URL address", 44.5, -110.6, 5),
+                new Quake("weak", 0.5, "Test location", 3000000, "Some URL address", 44.5, -110.6, 5));
+
+        // Two screens subscribe to the same filter
+        LinkedBlockingQueue<QuakeSnapshot> firstScreen = new LinkedBlockingQueue<>();
+        LinkedBlockingQueue<QuakeSnapshot> secondScreen = new LinkedBlockingQueue<>();
+        Subscription firstSubscription = mQuakeRepository.getQuakes("1").subscribe(firstScreen::add);
+        Subscription secondSubscription = mQuakeRepository.getQuakes("1").subscribe(secondScreen::add);
+
+        // Both get the same snapshot of quakes with magnitude >= 1
+        QuakeSnapshot snapshot = firstScreen.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(snapshot);
+        assertSame(snapshot, secondScreen.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, snapshot.size());
+        assertEquals("first", snapshot.getId(0));
+        assertEquals(1, mQuakeRepository.getQueryCount());
+
+        // One change of quake table (one sync) is one query for both screens
+        insertQuakes(new Quake("second", 3, "Test location", 4000000, "Some URL address", 44.6, -110.7, 5));
+
+        QuakeSnapshot updatedSnapshot = firstScreen.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(updatedSnapshot);
+        assertSame(updatedSnapshot, secondScreen.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // The most recent quake goes first (as in the quake list)
+        assertEquals(2, updatedSnapshot.size());
+        assertEquals(0, updatedSnapshot.getPositionOfQuake("second"));
+        assertEquals(2, mQuakeRepository.getQueryCount());
+
+        // New subscriber gets the latest snapshot without query
+        LinkedBlockingQueue<QuakeSnapshot> thirdScreen = new LinkedBlockingQueue<>();
+        Subscription thirdSubscription = mQuakeRepository.getQuakes("1").subscribe(thirdScreen::add);
+        assertSame(updatedSnapshot, thirdScreen.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, mQuakeRepository.getQueryCount());
+
+        firstSubscription.unsubscribe();
+        secondSubscription.unsubscribe();
+        thirdSubscription.unsubscribe();
+    }
+
+    // Insert quakes into quake table in one batch (provider notifies once)
+    private void insertQuakes(Quake... quakes) {
+        ContentValues[] values = new ContentValues[quakes.length];
+        for (int i = 0; i < quakes.length; i++) {
+            values[i] = UtilsQuake.getQuakeContentValues(quakes[i]);
+        }
+        mContentResolver.bulkInsert(QuakeEntry.CONTENT_URI, values);
+    }
+}
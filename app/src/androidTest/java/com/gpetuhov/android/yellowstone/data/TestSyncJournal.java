@@ -0,0 +1,84 @@
+package com.gpetuhov.android.yellowstone.data;
+
+
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.SyncRun;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.SyncRunEntry;
+
+import java.util.List;
+
+
+// Test persistent journal of sync runs
+public class TestSyncJournal extends AndroidTestCase {
+
+    private SyncJournal mSyncJournal;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mSyncJournal = new SyncJournal(mContext.getContentResolver());
+        mSyncJournal.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mSyncJournal.clear();
+
+        super.tearDown();
+    }
+
+    public void testRunIsReadAsRecorded() throws Exception {
+        SyncRun syncRun = run(1000, SyncRun.Trigger.MANUAL_REFRESH);
+        syncRun.setOutcome("SUCCESS");
+        syncRun.setRequestMillis(120);
+        syncRun.setParseMillis(45);
+        syncRun.setSaveMillis(30);
+        syncRun.setTotalMillis(200);
+        syncRun.setBytesReceived(4096);
+        syncRun.setFeaturesParsed(12);
+        syncRun.setRowsInserted(2);
+        syncRun.setRowsUpdated(1);
+        syncRun.setRowsDeleted(3);
+        mSyncJournal.record(syncRun);
+
+        List<SyncRun> syncRuns = mSyncJournal.getRuns();
+
+        assertEquals(1, syncRuns.size());
+        assertEquals(syncRun.toCsvRow(), syncRuns.get(0).toCsvRow());
+    }
+
+    public void testJournalKeepsOnlyLastRuns() throws Exception {
+        int runs = SyncRunEntry.MAX_RUNS + 10;
+        for (int i = 0; i < runs; i++) {
+            mSyncJournal.record(run(i, SyncRun.Trigger.POLL_SERVICE));
+        }
+
+        List<SyncRun> syncRuns = mSyncJournal.getRuns();
+
+        // The most recent run goes first, the oldest runs are dropped
+        assertEquals(SyncRunEntry.MAX_RUNS, syncRuns.size());
+        assertEquals(runs - 1, syncRuns.get(0).getStartTime());
+        assertEquals(runs - SyncRunEntry.MAX_RUNS, syncRuns.get(syncRuns.size() - 1).getStartTime());
+    }
+
+    public void testExportCsv() throws Exception {
+        mSyncJournal.record(run(1000, SyncRun.Trigger.SYNC_ADAPTER));
+        mSyncJournal.record(run(2000, SyncRun.Trigger.POLL_SERVICE));
+
+        String[] lines = mSyncJournal.exportCsv().split("\n");
+
+        assertEquals(3, lines.length);
+        assertEquals(SyncRun.getCsvHeader(), lines[0]);
+        assertTrue(lines[1].startsWith("2000,POLL_SERVICE,"));
+        assertTrue(lines[2].startsWith("1000,SYNC_ADAPTER,"));
+    }
+
+    // Return failed run started at the time
+    private static SyncRun run(long startTime, SyncRun.Trigger trigger) {
+        SyncRun syncRun = new SyncRun(startTime, trigger);
+        syncRun.setOutcome("IO_ERROR");
+        return syncRun;
+    }
+}
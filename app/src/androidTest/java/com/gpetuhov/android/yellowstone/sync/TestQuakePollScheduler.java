@@ -0,0 +1,92 @@
+package com.gpetuhov.android.yellowstone.sync;
+
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.gpetuhov.android.yellowstone.PollSchedule;
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+import java.util.concurrent.TimeUnit;
+
+
+// Test adaptive quake poll schedule driven by quake table
+public class TestQuakePollScheduler extends AndroidTestCase {
+
+    // Time of the poll in tests
+    private static final long NOW = 1000000000000L;
+
+    private static final long MIN_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+
+    private static final long MAX_INTERVAL = TimeUnit.HOURS.toMillis(4);
+
+    private static final long WINDOW = TimeUnit.HOURS.toMillis(6);
+
+    private ContentResolver mContentResolver;
+
+    private UtilsPrefs mUtilsPrefs;
+
+    private QuakePollScheduler mQuakePollScheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mContentResolver = mContext.getContentResolver();
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+
+        mUtilsPrefs = new UtilsPrefs(PreferenceManager.getDefaultSharedPreferences(mContext));
+        mUtilsPrefs.setPollInterval(0);
+
+        mQuakePollScheduler = new QuakePollScheduler(mContentResolver, mUtilsPrefs,
+                new PollSchedule(MIN_INTERVAL, WINDOW, 1.0, 2.5));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+        mUtilsPrefs.setPollInterval(0);
+
+        super.tearDown();
+    }
+
+    public void testQuietTablePollsAtMaxInterval() throws Exception {
+        // Old strong quake is out of the window
+        insertQuake("old", 4.5, NOW - WINDOW - 1);
+
+        PollSchedule.Decision decision = mQuakePollScheduler.scheduleNextPoll(MAX_INTERVAL, NOW);
+
+        assertEquals(MAX_INTERVAL, decision.getIntervalMillis());
+        assertEquals(MAX_INTERVAL, mUtilsPrefs.getPollInterval());
+    }
+
+    public void testSwarmTightensAndQuietRelaxesGradually() throws Exception {
+        // 100 events in the window, the strongest is M3.1
+        ContentValues[] values = new ContentValues[100];
+        for (int i = 0; i < values.length; i++) {
+            Quake quake = new Quake("swarm" + i, i == 50 ? 3.1 : 1.2, "Test location",
+                    NOW - TimeUnit.MINUTES.toMillis(i), "Some URL address", 44.5, -110.6, 5);
+            values[i] = UtilsQuake.getQuakeContentValues(quake);
+        }
+        mContentResolver.bulkInsert(QuakeEntry.CONTENT_URI, values);
+
+        assertEquals(MIN_INTERVAL, mQuakePollScheduler.scheduleNextPoll(MAX_INTERVAL, NOW).getIntervalMillis());
+
+        // Swarm is over: the next poll relaxes from the kept interval
+        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+
+        assertEquals(2 * MIN_INTERVAL,
+                mQuakePollScheduler.scheduleNextPoll(MAX_INTERVAL, NOW + MIN_INTERVAL).getIntervalMillis());
+    }
+
+    // Insert quake with magnitude and time into quake table
+    private void insertQuake(String id, double magnitude, long time) {
+        Quake quake = new Quake(id, magnitude, "Test location", time, "Some URL address", 44.5, -110.6, 5);
+        mContentResolver.insert(QuakeEntry.CONTENT_URI, UtilsQuake.getQuakeContentValues(quake));
+    }
+}
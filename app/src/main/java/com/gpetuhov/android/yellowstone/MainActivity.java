@@ -176,6 +176,9 @@ public class MainActivity extends VisibleActivity {
             menu.findItem(R.id.action_refresh).setVisible(false);
         }
 
+        // Sync journal is a debug screen, it is hidden in release builds
+        menu.findItem(R.id.action_sync_journal).setVisible(BuildConfig.DEBUG);
+
         return true;
     }
 
@@ -208,6 +211,15 @@ public class MainActivity extends VisibleActivity {
             return true;
         }
 
+        // If user selected sync journal (debug builds only)
+        if (id == R.id.action_sync_journal) {
+
+            // Start sync journal activity
+            startActivity(new Intent(this, SyncJournalActivity.class));
+
+            return true;
+        }
+
         return super.onOptionsItemSelected(item);
     }
 
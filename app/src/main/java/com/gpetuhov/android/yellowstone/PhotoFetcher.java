@@ -1,21 +1,22 @@
 package com.gpetuhov.android.yellowstone;
 
 
-import android.net.Uri;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
-// Fetches list of photos from Flickr
+// Fetches list of photos from Flickr page by page.
+// Every page is parsed token by token right from the response stream,
+// so the whole response is never kept in memory as a string or JSON tree.
 public class PhotoFetcher {
 
     // Flickr URL for queries
@@ -24,125 +25,178 @@ public class PhotoFetcher {
     // OkHttpClient to access network
     private OkHttpClient mOkHttpClient;
 
+    // URL for queries (local stub server in tests)
+    private HttpUrl mQueryUrl;
+
     public PhotoFetcher(OkHttpClient okHttpClient) {
+        this(okHttpClient, HttpUrl.parse(FLICKR_QUERY_URL));
+    }
+
+    public PhotoFetcher(OkHttpClient okHttpClient, HttpUrl queryUrl) {
         mOkHttpClient = okHttpClient;
+        mQueryUrl = queryUrl;
     }
 
-    // Fetch list of photos from Flickr
-    public List<PhotoListItem> fetchPhotos() {
+    // Fetch one page of photos from Flickr (pages start from 1).
+    // Throws IOException, if the page can't be fetched or Flickr returned an error,
+    // so that the caller can load the same page again later.
+    public PhotoPage fetchPhotoPage(int page, int perPage) throws IOException {
 
-        // Build request URL (query to Flickr)
-        String requestURL = buildRequestUrl();
+        // Build new request from request URL (query to Flickr)
+        Request request = new Request.Builder()
+                .url(buildRequestUrl(page, perPage))
+                .build();
+
+        // Get response from server
+        Response response = mOkHttpClient.newCall(request).execute();
 
-        // Get JSON response from Flickr
-        String jsonResponse = getJsonString(requestURL);
+        try {
+            if (!response.isSuccessful()) {
+                throw new IOException("Flickr response code " + response.code());
+            }
 
-        // Parse JSON response and return list of photos
-        return parseJsonString(jsonResponse);
+            // Parse JSON response as it is being downloaded
+            return parsePhotoPage(response.body().charStream(), page);
+        } finally {
+            // Release connection
+            response.close();
+        }
     }
 
     // Build request URL to Flickr with specified parameters
-    private String buildRequestUrl() {
+    private HttpUrl buildRequestUrl(int page, int perPage) {
 
         // For Flickr query parameters see https://www.flickr.com/services/api/
 
-        // Default query: Search text = yellowstone, sorted by date uploaded, returns 100 photos
-        // (this is default sort order and number of photos returned, if not specified)
-        return Uri.parse(FLICKR_QUERY_URL)
-                .buildUpon()
+        // Search text = yellowstone, sorted by date uploaded (default sort order)
+        return mQueryUrl.newBuilder()
                 // Method = search, because we search photos with "yellowstone" keyword
-                .appendQueryParameter("method", "flickr.photos.search")
+                .addQueryParameter("method", "flickr.photos.search")
                 // Flickr API key is added in app build.gradle file from global gradle.properties file
-                .appendQueryParameter("api_key", BuildConfig.FLICKR_API_KEY)
-                .appendQueryParameter("text", "yellowstone")    // Search keyword
-                .appendQueryParameter("format", "json")         // Response format
-                .appendQueryParameter("nojsoncallback", "1")    // Simplified JSON response
-                .appendQueryParameter("extras", "url_s")        // Include image URL
-                .build().toString();
+                .addQueryParameter("api_key", BuildConfig.FLICKR_API_KEY)
+                .addQueryParameter("text", "yellowstone")    // Search keyword
+                .addQueryParameter("format", "json")         // Response format
+                .addQueryParameter("nojsoncallback", "1")    // Simplified JSON response
+                .addQueryParameter("extras", "url_s")        // Include image URL
+                .addQueryParameter("page", String.valueOf(page))          // Number of the page
+                .addQueryParameter("per_page", String.valueOf(perPage))   // Number of photos in the page
+                .build();
     }
 
-    // Get JSON response from the requested URL
-    private String getJsonString(String requestedUrl) {
+    // Parse JSON response from Flickr.
+    // Response looks like: {"photos":{"page":1,"pages":10,"perpage":30,"photo":[...]},"stat":"ok"}
+    // In case of error: {"stat":"fail","code":100,"message":"Invalid API Key"}
+    private PhotoPage parsePhotoPage(Reader reader, int requestedPage) throws IOException {
 
-        // Build new request from requested URL
-        Request request = new Request.Builder()
-                .url(requestedUrl)
-                .build();
+        JsonReader jsonReader = new JsonReader(reader);
 
-        String jsonResponse;  // String contains JSON response
+        PhotoPage photoPage = null;
+        String errorMessage = null;
 
-        Response response;   // OkHttp response
+        jsonReader.beginObject();
 
-        try {
-            // Get response from server
-            response = mOkHttpClient.newCall(request).execute();
-            // Convert response to string
-            jsonResponse = response.body().string();
-        } catch (IOException e) {
-            // In case of error, return empty string
-            jsonResponse = "";
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+
+            if ("photos".equals(name)) {
+                photoPage = readPhotos(jsonReader, requestedPage);
+            } else if ("message".equals(name)) {
+                errorMessage = jsonReader.nextString();
+            } else {
+                jsonReader.skipValue();
+            }
         }
 
-        // Shutdown for OkHttp isn't necessary
+        jsonReader.endObject();
 
-        return jsonResponse;
-    }
+        // Response without photos is an error
+        if (null == photoPage) {
+            throw new IOException("Flickr error: " + errorMessage);
+        }
 
-    // Parse JSON response from Flickr
-    private List<PhotoListItem> parseJsonString(String jsonString) {
+        return photoPage;
+    }
 
-        // Empty ArrayList for the list of photos
+    // Read "photos" object
+    private PhotoPage readPhotos(JsonReader jsonReader, int requestedPage) throws IOException {
+        int page = requestedPage;
+        int pageCount = 0;
         List<PhotoListItem> items = new ArrayList<>();
 
-        try {
-
-            // Create JSONObject from JSON string
-            JSONObject jsonBody = new JSONObject(jsonString);
-
-            // Extract JSONObject with key "photos"
-            JSONObject photosJsonObject = jsonBody.getJSONObject("photos");
-
-            // Extract JSONArray with key "photo" (this array contains photos)
-            JSONArray photoJsonArray = photosJsonObject.getJSONArray("photo");
-
-            // For each photo in photoJsonArray
-            for (int i = 0; i < photoJsonArray.length(); i++) {
-
-                // Extract JSONObject at position i (this is one photo)
-                JSONObject photoJsonObject = photoJsonArray.getJSONObject(i);
+        jsonReader.beginObject();
+
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "page":
+                    page = jsonReader.nextInt();
+                    break;
+                case "pages":
+                    // Flickr sometimes returns numbers as strings, nextInt() reads both
+                    pageCount = jsonReader.nextInt();
+                    break;
+                case "photo":
+                    // This array contains photos
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        PhotoListItem item = readPhoto(jsonReader);
+
+                        // Photos without URL are ignored
+                        if (null != item) {
+                            items.add(item);
+                        }
+                    }
+                    jsonReader.endArray();
+                    break;
+                default:
+                    jsonReader.skipValue();
+                    break;
+            }
+        }
 
-                // Check if tha photo has URL (if not, ignore it)
-                if (photoJsonObject.has("url_s")) {
+        jsonReader.endObject();
 
-                    // Create new PhotoListItem object to store photo details
-                    PhotoListItem item = new PhotoListItem();
+        return new PhotoPage(page, pageCount, items);
+    }
 
-                    // Extract photo ID and store it in PhotoListItem object
-                    item.setId(photoJsonObject.getString("id"));
+    // Read one photo object and return PhotoListItem for it (or null, if the photo has no URL)
+    private PhotoListItem readPhoto(JsonReader jsonReader) throws IOException {
 
-                    // Extract photo Title and store it in PhotoListItem object
-                    item.setCaption(photoJsonObject.getString("title"));
+        // Create new PhotoListItem object to store photo details
+        PhotoListItem item = new PhotoListItem();
 
-                    // Extract photo URL and store it in PhotoListItem object
-                    item.setUrl(photoJsonObject.getString("url_s"));
+        jsonReader.beginObject();
 
-                    // Extract photo owner and store it in PhotoListItem object
-                    item.setOwner(photoJsonObject.getString("owner"));
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
 
-                    // Add PhotoListItem object to photo list
-                    items.add(item);
-                }
+            // Null values are skipped
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.skipValue();
+                continue;
             }
 
-        } catch (JSONException e) {
-            // In case of JSONException, do nothing. Empty list will be returned.
+            switch (name) {
+                case "id":
+                    item.setId(jsonReader.nextString());        // Photo ID
+                    break;
+                case "title":
+                    item.setCaption(jsonReader.nextString());   // Photo title
+                    break;
+                case "url_s":
+                    item.setUrl(jsonReader.nextString());       // Photo URL
+                    break;
+                case "owner":
+                    item.setOwner(jsonReader.nextString());     // Photo owner
+                    break;
+                default:
+                    jsonReader.skipValue();
+                    break;
+            }
         }
 
-        // Return the list of photos
-        return items;
-    }
-
-
-
+        jsonReader.endObject();
 
+        // Check if the photo has URL (if not, ignore it)
+        return null == item.getUrl() ? null : item;
+    }
 }
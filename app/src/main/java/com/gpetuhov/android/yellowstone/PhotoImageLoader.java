@@ -0,0 +1,194 @@
+package com.gpetuhov.android.yellowstone;
+
+import android.widget.ImageView;
+
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.Picasso;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Loads images of the photo grid with Picasso and keeps track of the requests.
+// - Images of visible cells are loaded with high priority, prefetched images with low priority.
+// - All requests can be paused (during fling) and resumed (when scrolling settles).
+// - Request of the cell is cancelled, when its view holder is recycled.
+// - Prefetch is cancelled, when the user starts scrolling again.
+// Visible and prefetched images are resized to the same cell size,
+// so that prefetched images are taken from Picasso memory cache.
+// Must be used only in main thread (Picasso callbacks are called in main thread).
+public class PhotoImageLoader {
+
+    private final Picasso mPicasso;
+
+    // Tag of requests for visible cells
+    private final Object mDisplayTag = new Object();
+
+    // Tag of prefetch requests
+    private final Object mPrefetchTag = new Object();
+
+    // Size of one cell of the grid in pixels
+    private int mImageWidth;
+    private int mImageHeight;
+
+    // Requests, that are not finished yet, by image views of the cells
+    private final Map<ImageView, DisplayCallback> mDisplayRequests = new HashMap<>();
+
+    // URLs of prefetch requests, that are not finished yet
+    private final Set<String> mPrefetchRequests = new HashSet<>();
+
+    // True, if requests are paused
+    private boolean mPaused;
+
+    // Number of images, that were loaded (displayed or prefetched)
+    private int mLoadedCount;
+
+    // Number of requests, that were cancelled before the image was loaded
+    // (the cell left the screen or prefetch was not needed any more)
+    private int mWastedCount;
+
+    // Finishes request of one cell
+    private class DisplayCallback implements Callback {
+        private final ImageView mImageView;
+
+        DisplayCallback(ImageView imageView) {
+            mImageView = imageView;
+        }
+
+        @Override
+        public void onSuccess() {
+            finish();
+            mLoadedCount++;
+        }
+
+        @Override
+        public void onError() {
+            finish();
+        }
+
+        private void finish() {
+            // Cell may already show another image
+            if (mDisplayRequests.get(mImageView) == this) {
+                mDisplayRequests.remove(mImageView);
+            }
+        }
+    }
+
+    public PhotoImageLoader(Picasso picasso) {
+        mPicasso = picasso;
+    }
+
+    // Set size of one cell of the grid (images are resized and cropped to this size)
+    public void setImageSize(int width, int height) {
+        mImageWidth = width;
+        mImageHeight = height;
+    }
+
+    // Load image into the cell with high priority
+    // (previous request of the cell, if not finished, is cancelled).
+    public void display(String url, ImageView imageView) {
+        cancel(imageView);
+
+        DisplayCallback callback = new DisplayCallback(imageView);
+        mDisplayRequests.put(imageView, callback);
+
+        mPicasso.load(url)
+                .resize(mImageWidth, mImageHeight)
+                .centerCrop()
+                .tag(mDisplayTag)
+                .priority(Picasso.Priority.HIGH)
+                .into(imageView, callback);
+    }
+
+    // Cancel request of the cell (when its view holder is recycled)
+    public void cancel(ImageView imageView) {
+        if (null != mDisplayRequests.remove(imageView)) {
+            mPicasso.cancelRequest(imageView);
+            mWastedCount++;
+        }
+    }
+
+    // Load image into Picasso cache with low priority.
+    // Prefetch is not started, while the requests are paused.
+    public void prefetch(final String url) {
+        if (mPaused || mPrefetchRequests.contains(url)) {
+            return;
+        }
+
+        mPrefetchRequests.add(url);
+
+        mPicasso.load(url)
+                .resize(mImageWidth, mImageHeight)
+                .centerCrop()
+                .tag(mPrefetchTag)
+                .priority(Picasso.Priority.LOW)
+                .fetch(new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        // Prefetch may already be cancelled
+                        if (mPrefetchRequests.remove(url)) {
+                            mLoadedCount++;
+                        }
+                    }
+
+                    @Override
+                    public void onError() {
+                        mPrefetchRequests.remove(url);
+                    }
+                });
+    }
+
+    // Cancel all prefetch requests, so that images of visible cells are loaded first
+    public void cancelPrefetch() {
+        mPicasso.cancelTag(mPrefetchTag);
+        mWastedCount += mPrefetchRequests.size();
+        mPrefetchRequests.clear();
+    }
+
+    // Pause all requests (during fling)
+    public void pause() {
+        mPaused = true;
+        mPicasso.pauseTag(mDisplayTag);
+        mPicasso.pauseTag(mPrefetchTag);
+    }
+
+    // Resume all requests (when scrolling settles)
+    public void resume() {
+        mPaused = false;
+        mPicasso.resumeTag(mDisplayTag);
+        mPicasso.resumeTag(mPrefetchTag);
+    }
+
+    // Cancel all requests (when the grid is destroyed)
+    public void cancelAll() {
+        mPicasso.cancelTag(mDisplayTag);
+        mWastedCount += mDisplayRequests.size();
+        mDisplayRequests.clear();
+
+        cancelPrefetch();
+
+        // Paused tags must not stay in Picasso
+        resume();
+    }
+
+    // Return number of requests, that are not finished yet
+    public int getQueueDepth() {
+        return mDisplayRequests.size() + mPrefetchRequests.size();
+    }
+
+    // Return number of prefetch requests, that are not finished yet
+    public int getPrefetchQueueDepth() {
+        return mPrefetchRequests.size();
+    }
+
+    // Return number of loaded images
+    public int getLoadedCount() {
+        return mLoadedCount;
+    }
+
+    // Return number of requests, that were cancelled before the image was loaded
+    public int getWastedCount() {
+        return mWastedCount;
+    }
+}
@@ -4,8 +4,6 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.Loader;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
@@ -14,52 +12,63 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import com.gpetuhov.android.yellowstone.data.PhotoCache;
 import com.gpetuhov.android.yellowstone.utils.UtilsNet;
 import com.squareup.picasso.Picasso;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import javax.inject.Inject;
 
-// Fragment contains list of recent photos from Yellowstone
-// This fragment implements LoaderManager callbacks to update UI with data from loader.
-public class PhotoListFragment extends Fragment
-        implements LoaderManager.LoaderCallbacks<List<PhotoListItem>> {
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+
+
+// Fragment contains list of recent photos from Yellowstone.
+// Photos are displayed from PhotoCache at once (also without network connection),
+// and the first page is loaded from Flickr again only when the cache is stale.
+// Next pages are loaded from Flickr page by page and appended to the same adapter.
+// Next page is loaded in background, when the grid is scrolled to PREFETCH_ROWS rows
+// before the end, so that it is usually ready before the user reaches the end of the grid.
+// Images are loaded by PhotoImageLoader: loading is paused during fling,
+// and images of the next PREFETCH_IMAGE_ROWS rows are prefetched, when scrolling settles.
+public class PhotoListFragment extends Fragment {
 
     // Number of columns in RecyclerView with list of photos
     public static final int PHOTO_LIST_COLUMNS_NUM = 3;
 
-    // Loader ID
-    public static final int PHOTO_LOADER_ID = 3;
+    // Number of photos in one page (small first page is displayed faster)
+    private static final int PAGE_SIZE = 30;
 
-    // Stores list of photos
-    private List<PhotoListItem> mItems = new ArrayList<>();
+    // Next page is loaded, when the grid is scrolled to this number of rows before the end
+    private static final int PREFETCH_ROWS = 4;
 
-    // RecyclerView for the list of photos
-    private RecyclerView mPhotoRecyclerView;
+    // Images of this number of rows after the last visible row are prefetched, when scrolling settles
+    private static final int PREFETCH_IMAGE_ROWS = 2;
 
-    // TextView for empty view (when there is no internet connection)
-    private TextView mPhotoEmptyView;
+    // Keeps instance of PhotoFetcher. Injected by Dagger.
+    @Inject PhotoFetcher mPhotoFetcher;
 
+    // Keeps instance of PhotoCache. Injected by Dagger.
+    @Inject PhotoCache mPhotoCache;
 
-    // Best practice to initialize a loader is in the fragment's onActivityCreated method
-    @Override
-    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
-        super.onActivityCreated(savedInstanceState);
+    // Adapter with all loaded photos
+    // (fragment is retained, so the same adapter is set to the new RecyclerView after rotation).
+    private PhotoAdapter mPhotoAdapter;
 
-        // If there is a network connection, fetch data
-        if (UtilsNet.isNetworkAvailableAndConnected(getActivity())) {
+    // Loads images of the cells
+    private PhotoImageLoader mPhotoImageLoader;
 
-            // Get reference to the LoaderManager
-            LoaderManager loaderManager = getActivity().getSupportLoaderManager();
+    // RecyclerView for the list of photos
+    private RecyclerView mPhotoRecyclerView;
 
-            // Initialize loader and set this fragment as a listener for loader callbacks
-            // If the loader with the passed ID exists and the data is ready,
-            // initLoader immediately pushes data to onLoadFinished callback method.
-            // If not, loader is created and starts loading data.
-            loaderManager.initLoader(PHOTO_LOADER_ID, null, this);
-        }
-    }
+    // TextView for empty view (when there is no internet connection)
+    private TextView mPhotoEmptyView;
 
 
     @Override
@@ -68,6 +77,13 @@ public class PhotoListFragment extends Fragment
 
         // Fragment instance is not destroyed on orientation change
         setRetainInstance(true);
+
+        // Inject PhotoFetcher and PhotoCache into this fragment
+        YellowstoneApp.getAppComponent().inject(this);
+
+        mPhotoAdapter = new PhotoAdapter();
+
+        mPhotoImageLoader = new PhotoImageLoader(Picasso.with(getActivity()));
     }
 
 
@@ -84,66 +100,119 @@ public class PhotoListFragment extends Fragment
         // Set GridLayoutManager and number of columns for our RecyclerView
         mPhotoRecyclerView.setLayoutManager(new GridLayoutManager(getActivity(), PHOTO_LIST_COLUMNS_NUM));
 
+        // Grid takes up the whole width of the screen, so images are resized to this size
+        // (screen width changes on rotation).
+        mPhotoImageLoader.setImageSize(
+                getResources().getDisplayMetrics().widthPixels / PHOTO_LIST_COLUMNS_NUM,
+                getResources().getDimensionPixelSize(R.dimen.photo_list_item_height));
+
+        mPhotoRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                switch (newState) {
+                    case RecyclerView.SCROLL_STATE_SETTLING:
+                        // Fling: cells pass by too fast, their images are not needed
+                        mPhotoImageLoader.pause();
+                        break;
+                    case RecyclerView.SCROLL_STATE_DRAGGING:
+                        // User moves the grid slowly, load visible cells before prefetched ones
+                        mPhotoImageLoader.resume();
+                        mPhotoImageLoader.cancelPrefetch();
+                        break;
+                    case RecyclerView.SCROLL_STATE_IDLE:
+                        mPhotoImageLoader.resume();
+                        prefetchImages();
+                        break;
+                }
+            }
+        });
+
+        // Set the same adapter with already loaded photos
+        mPhotoRecyclerView.setAdapter(mPhotoAdapter);
+
         // Get access to TextView for empty view
         mPhotoEmptyView = (TextView) v.findViewById(R.id.photo_list_empty_view);
 
-        // If there is a network connection, display RecyclerView with photos
-        if (UtilsNet.isNetworkAvailableAndConnected(getActivity())) {
-            // Display RecyclerView
-            mPhotoRecyclerView.setVisibility(View.VISIBLE);
+        // If the fragment is created for the first time, display cached photos
+        // (next pages are loaded, when the grid is scrolled).
+        // If the cache was read, but the first page was not loaded (no network), try again.
+        if (!mPhotoAdapter.isCacheLoaded()) {
+            mPhotoAdapter.loadCache();
+        } else if (mPhotoAdapter.getItemCount() == 0) {
+            mPhotoAdapter.loadNextPage();
+        }
+
+        updateEmptyView();
+
+        return v;
+    }
 
-            // Hide empty view
-            mPhotoEmptyView.setVisibility(View.GONE);
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
 
-            // Set adapter for RecyclerView
-            setupAdapter();
-        } else {
-            // Otherwise, display error
+        // Cells are destroyed together with the view
+        mPhotoImageLoader.cancelAll();
 
-            // Hide RecyclerView
-            mPhotoRecyclerView.setVisibility(View.GONE);
+        mPhotoRecyclerView = null;
+        mPhotoEmptyView = null;
+    }
 
-            // Display empty view
-            mPhotoEmptyView.setVisibility(View.VISIBLE);
-        }
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
 
-        return v;
+        // Page, that is being loaded, is not needed any more
+        mPhotoAdapter.cancelLoading();
     }
 
+    // Display RecyclerView, if there are photos or they can be loaded.
+    // Otherwise (nothing is cached and there is no network connection) display error.
+    private void updateEmptyView() {
+        if (null == mPhotoRecyclerView) {
+            return;
+        }
 
-    // Set adapter for the RecyclerView
-    private void setupAdapter() {
+        boolean empty = mPhotoAdapter.getItemCount() == 0
+                && !mPhotoAdapter.isPageLoading()
+                && !UtilsNet.isNetworkAvailableAndConnected(getActivity());
 
-        // If the fragment is added to a parent activity
-        if (isAdded()) {
+        mPhotoRecyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+        mPhotoEmptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+    }
 
-            // Create new adapter with the list of photos
-            // and set it as adapter for the RecyclerView
-            mPhotoRecyclerView.setAdapter(new PhotoAdapter(mItems));
+    // Prefetch images of PREFETCH_IMAGE_ROWS rows after the last visible row
+    private void prefetchImages() {
+        if (null == mPhotoRecyclerView
+                || mPhotoRecyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
+            return;
         }
-    }
 
+        GridLayoutManager layoutManager = (GridLayoutManager) mPhotoRecyclerView.getLayoutManager();
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
 
-    // Returns new loader
-    @Override
-    public Loader<List<PhotoListItem>> onCreateLoader(int id, Bundle args) {
-        return new PhotoLoader(getActivity());
-    }
+        // Nothing is displayed yet
+        if (lastVisiblePosition == RecyclerView.NO_POSITION) {
+            return;
+        }
 
-    // When load is finished, saves the fetched data and updates UI
-    @Override
-    public void onLoadFinished(Loader<List<PhotoListItem>> loader, List<PhotoListItem> data) {
+        int lastPrefetchPosition = Math.min(
+                mPhotoAdapter.getItemCount() - 1,
+                lastVisiblePosition + PREFETCH_IMAGE_ROWS * PHOTO_LIST_COLUMNS_NUM);
 
-        // Store fetched list of photos in mItems field
-        mItems = data;
+        for (int position = lastVisiblePosition + 1; position <= lastPrefetchPosition; position++) {
+            mPhotoImageLoader.prefetch(mPhotoAdapter.getPhoto(position).getUrl());
+        }
+    }
 
-        // Create new adapter for RecyclerView with new list of photos
-        setupAdapter();
+    // Return number of image requests, that are not finished yet
+    public int getImageQueueDepth() {
+        return mPhotoImageLoader.getQueueDepth();
     }
 
-    // Method is called when data from loader is no longer valid
-    @Override
-    public void onLoaderReset(Loader<List<PhotoListItem>> loader) {
+    // Return number of image requests, that were cancelled before the image was loaded
+    public int getWastedImageCount() {
+        return mPhotoImageLoader.getWastedCount();
     }
 
 
@@ -176,10 +245,8 @@ public class PhotoListFragment extends Fragment
             mPhotoListItem = photo;
 
             // Download photo image from its URL and place it into ImageView
-            // using Picasso library.
-            Picasso.with(getActivity())
-                    .load(mPhotoListItem.getUrl())
-                    .into(mItemImageView);
+            // (previous request of this holder is cancelled).
+            mPhotoImageLoader.display(mPhotoListItem.getUrl(), mItemImageView);
         }
 
         // Handle clicks on list items
@@ -195,15 +262,30 @@ public class PhotoListFragment extends Fragment
     }
 
 
-    // Adapter for the RecyclerView with list of photos
+    // Adapter for the RecyclerView with list of photos.
+    // Photos are first read from the cache, then pages from Flickr are added:
+    // the first page (refresh) is inserted at the top, next pages are appended,
+    // so RecyclerView is notified only about inserted items.
     private class PhotoAdapter extends RecyclerView.Adapter<PhotoHolder> {
 
-        // Empty list for the list of photos
-        private List<PhotoListItem> mItems;
+        // All loaded photos
+        private final List<PhotoListItem> mItems = new ArrayList<>();
 
-        public PhotoAdapter(List<PhotoListItem> items) {
-            mItems = items;
-        }
+        // IDs of loaded photos. New uploads shift search results,
+        // so the next page may start with photos, that are already in the list.
+        private final Set<String> mItemIds = new HashSet<>();
+
+        // True, if cached photos are read
+        private boolean mCacheLoaded;
+
+        // Number of loaded pages
+        private int mLoadedPageCount;
+
+        // True, if the last page is loaded
+        private boolean mEndReached;
+
+        // Reading of the cache or loading of a page in background (null if nothing is being loaded)
+        private Subscription mPageSubscription;
 
         @Override
         public PhotoHolder onCreateViewHolder(ViewGroup parent, int viewType) {
@@ -224,6 +306,17 @@ public class PhotoListFragment extends Fragment
 
             // Set ViewHolder of list item according to photo at "position"
             holder.bindPhoto(photo);
+
+            // If the grid is scrolled close to the end, load next page
+            if (position >= mItems.size() - PREFETCH_ROWS * PHOTO_LIST_COLUMNS_NUM) {
+                loadNextPage();
+            }
+        }
+
+        // Image of the holder, that left the screen, is not needed any more
+        @Override
+        public void onViewRecycled(PhotoHolder holder) {
+            mPhotoImageLoader.cancel(holder.mItemImageView);
         }
 
         @Override
@@ -231,6 +324,175 @@ public class PhotoListFragment extends Fragment
             // Return size of list of photos
             return mItems.size();
         }
+
+        // Return photo at the position
+        public PhotoListItem getPhoto(int position) {
+            return mItems.get(position);
+        }
+
+        // Return true, if the cache or a page is being loaded
+        public boolean isPageLoading() {
+            return null != mPageSubscription;
+        }
+
+        // Return true, if cached photos are read
+        public boolean isCacheLoaded() {
+            return mCacheLoaded;
+        }
+
+        // Read cached photos in background (doesn't need network)
+        public void loadCache() {
+            if (mCacheLoaded || isPageLoading()) {
+                return;
+            }
+
+            mPageSubscription = Observable.fromCallable(mPhotoCache::getPhotos)
+                    .subscribeOn(Schedulers.io())   // Cache is read in background thread
+                    .observeOn(AndroidSchedulers.mainThread())  // and displayed in main thread
+                    .subscribe(
+                            this::onCacheLoaded,
+                            error -> onCacheLoaded(null));
+        }
+
+        // Load next page of photos in background
+        public void loadNextPage() {
+            // Next page number is known only after the cache is read
+            if (mCacheLoaded && !mEndReached) {
+                loadPage(mLoadedPageCount + 1);
+            }
+        }
+
+        // Stop loading of the cache or the page
+        public void cancelLoading() {
+            if (null != mPageSubscription) {
+                mPageSubscription.unsubscribe();
+                mPageSubscription = null;
+            }
+        }
+
+        // Display cached photos and refresh them, if they are stale
+        private void onCacheLoaded(PhotoPage cachedPhotos) {
+            mPageSubscription = null;
+            mCacheLoaded = true;
+
+            // Cache can't be read, photos will be loaded from Flickr
+            if (null != cachedPhotos) {
+                mLoadedPageCount = cachedPhotos.getPage();
+                mEndReached = mLoadedPageCount > 0 && !cachedPhotos.hasNextPage();
+
+                addItems(cachedPhotos.getItems(), false);
+            }
+
+            updateEmptyView();
+
+            // Empty cache is always stale, so the first page is loaded
+            if (mItems.isEmpty() || mPhotoCache.isStale()) {
+                loadPage(1);
+            }
+        }
+
+        // Load page of photos in background and store it in the cache
+        private void loadPage(int page) {
+            // Page is already being loaded
+            if (isPageLoading()) {
+                return;
+            }
+
+            // There is no network connection, page will be loaded, when the fragment is displayed again
+            if (!UtilsNet.isNetworkAvailableAndConnected(getActivity())) {
+                return;
+            }
+
+            mPageSubscription = Observable.fromCallable(() -> {
+                        PhotoPage photoPage = mPhotoFetcher.fetchPhotoPage(page, PAGE_SIZE);
+                        mPhotoCache.putPage(photoPage, PAGE_SIZE);
+                        return photoPage;
+                    })
+                    .subscribeOn(Schedulers.io())   // Page is fetched in background thread
+                    .observeOn(AndroidSchedulers.mainThread())  // and added in main thread
+                    .subscribe(
+                            this::onPageLoaded,
+                            error -> onPageLoaded(null));
+        }
+
+        // Add photos of the loaded page to the list
+        private void onPageLoaded(PhotoPage photoPage) {
+            mPageSubscription = null;
+
+            // Fetch failed. Page will be loaded again, when the grid is scrolled or displayed again.
+            if (null == photoPage) {
+                updateEmptyView();
+                return;
+            }
+
+            // First page contains the most recent photos
+            boolean refresh = photoPage.getPage() == 1;
+
+            // If the first page has no photos in common with the list, photos between them are unknown,
+            // so the list starts over from this page (the cache does the same)
+            if (refresh && !mItems.isEmpty() && !photoPage.getItems().isEmpty()
+                    && !containsAny(photoPage.getItems())) {
+                clearItems();
+            }
+
+            // First page refreshes the list, so it doesn't change the number of loaded pages
+            mLoadedPageCount = Math.max(mLoadedPageCount, photoPage.getPage());
+            mEndReached = mLoadedPageCount >= photoPage.getPageCount();
+
+            int addedCount = addItems(photoPage.getItems(), refresh);
+
+            updateEmptyView();
+
+            // New cells may be right after the visible ones,
+            // prefetch their images after RecyclerView lays them out.
+            if (null != mPhotoRecyclerView) {
+                mPhotoRecyclerView.post(PhotoListFragment.this::prefetchImages);
+            }
+
+            // If the page added nothing to bind (all photos were duplicates or without URL),
+            // onBindViewHolder will not be called, so the next page is loaded here.
+            if (addedCount == 0 && (!refresh || mItems.isEmpty())) {
+                loadNextPage();
+            }
+        }
+
+        // Return true, if any of the photos is in the list
+        private boolean containsAny(List<PhotoListItem> items) {
+            for (PhotoListItem item : items) {
+                if (mItemIds.contains(item.getId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Remove all photos from the list
+        private void clearItems() {
+            mItems.clear();
+            mItemIds.clear();
+            mLoadedPageCount = 0;
+            notifyDataSetChanged();
+        }
+
+        // Add photos, that are not in the list yet, to the top or to the end of the list.
+        // Return number of added photos.
+        private int addItems(List<PhotoListItem> items, boolean toTop) {
+            List<PhotoListItem> newItems = new ArrayList<>();
+
+            for (PhotoListItem item : items) {
+                if (mItemIds.add(item.getId())) {
+                    newItems.add(item);
+                }
+            }
+
+            int position = toTop ? 0 : mItems.size();
+
+            mItems.addAll(position, newItems);
+
+            notifyItemRangeInserted(position, newItems.size());
+
+            return newItems.size();
+        }
     }
 
 }
@@ -0,0 +1,39 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.List;
+
+// One page of photos from Flickr search
+public class PhotoPage {
+
+    // Number of this page (starts from 1)
+    private final int mPage;
+
+    // Total number of pages in search results
+    private final int mPageCount;
+
+    // Photos of this page (photos without image URL are not included)
+    private final List<PhotoListItem> mItems;
+
+    public PhotoPage(int page, int pageCount, List<PhotoListItem> items) {
+        mPage = page;
+        mPageCount = pageCount;
+        mItems = items;
+    }
+
+    public int getPage() {
+        return mPage;
+    }
+
+    public int getPageCount() {
+        return mPageCount;
+    }
+
+    public List<PhotoListItem> getItems() {
+        return mItems;
+    }
+
+    // Return true, if there are more pages after this one
+    public boolean hasNextPage() {
+        return mPage < mPageCount;
+    }
+}
@@ -0,0 +1,94 @@
+package com.gpetuhov.android.yellowstone;
+
+// Result of one quake sync: status and numbers of changed rows.
+// Sync adapter reports it to the framework in SyncResult.stats,
+// so that the framework can back off after network errors.
+public class QuakeFetchResult {
+
+    // Status of the sync
+    public enum Status {
+        // Fetched data was saved
+        SUCCESS,
+        // USGS server is not available (network error, server error or open circuit breaker)
+        IO_ERROR,
+        // Response is malformed
+        PARSE_ERROR,
+        // Fetched data was not saved
+        DATABASE_ERROR,
+        // Sync was interrupted
+        CANCELLED
+    }
+
+    private final Status mStatus;
+
+    // Number of fetched quakes
+    private final int mNumEntries;
+
+    // Numbers of inserted, updated and deleted quakes
+    private final int mNumInserts;
+    private final int mNumUpdates;
+    private final int mNumDeletes;
+
+    // How long the server must not be called (in milliseconds, 0 if there is no such limit)
+    private final long mRetryAfterMillis;
+
+    private QuakeFetchResult(Status status, int numEntries, int numInserts, int numUpdates, int numDeletes,
+                             long retryAfterMillis) {
+        mStatus = status;
+        mNumEntries = numEntries;
+        mNumInserts = numInserts;
+        mNumUpdates = numUpdates;
+        mNumDeletes = numDeletes;
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    // Return result of successful sync
+    public static QuakeFetchResult success(int numEntries, int numInserts, int numUpdates, int numDeletes) {
+        return new QuakeFetchResult(Status.SUCCESS, numEntries, numInserts, numUpdates, numDeletes, 0);
+    }
+
+    // Return result of failed sync
+    public static QuakeFetchResult failure(Status status) {
+        return new QuakeFetchResult(status, 0, 0, 0, 0, 0);
+    }
+
+    // Return result of sync, that failed because the server must not be called for some time
+    public static QuakeFetchResult ioError(long retryAfterMillis) {
+        return new QuakeFetchResult(Status.IO_ERROR, 0, 0, 0, 0, retryAfterMillis);
+    }
+
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    // Return true, if fetched data was saved
+    public boolean isSuccessful() {
+        return mStatus == Status.SUCCESS;
+    }
+
+    public int getNumEntries() {
+        return mNumEntries;
+    }
+
+    public int getNumInserts() {
+        return mNumInserts;
+    }
+
+    public int getNumUpdates() {
+        return mNumUpdates;
+    }
+
+    public int getNumDeletes() {
+        return mNumDeletes;
+    }
+
+    public long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+
+    @Override
+    public String toString() {
+        return mStatus + " entries=" + mNumEntries + " inserts=" + mNumInserts
+                + " updates=" + mNumUpdates + " deletes=" + mNumDeletes + " retryAfter=" + mRetryAfterMillis;
+    }
+}
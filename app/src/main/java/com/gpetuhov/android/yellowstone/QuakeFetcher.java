@@ -2,18 +2,25 @@ package com.gpetuhov.android.yellowstone;
 
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.database.Cursor;
+import android.os.Bundle;
 
+import com.google.gson.stream.MalformedJsonException;
 import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.CircuitOpenException;
+import com.gpetuhov.android.yellowstone.utils.CountingInputStream;
 import com.gpetuhov.android.yellowstone.utils.UtilsMap;
 import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
 
 import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.ResponseBody;
 import retrofit2.Call;
@@ -21,11 +28,26 @@ import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 
-// Fetches JSON string with list of earthquakes from requested URL
+// Fetches JSON response with list of earthquakes from USGS server.
+// Fetched quakes are staged in the staging table of the provider, which is shared by all calls,
+// so syncs must not overlap. Concurrent syncs are deduplicated by QuakeSyncCoordinator.
 public class QuakeFetcher {
 
+    // Sync window. Quakes older than this are not fetched and are removed from storage.
+    // This is the same as the default window of USGS server (30 days).
+    public static final long SYNC_WINDOW_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    // Start of the sync window is rounded down to this step (1 hour),
+    // so that query URLs of syncs during the same hour are the same
+    // and their responses can be served from HTTP cache.
+    static final long WINDOW_START_STEP_MILLIS = 60L * 60 * 1000;
+
+    // Number of fetched quakes staged with one bulk insert while the response is parsed
+    private static final int INSERT_CHUNK_SIZE = 500;
+
     // Keeps instance of Retrofit
     private Retrofit mRetrofit;
 
@@ -35,192 +57,391 @@ public class QuakeFetcher {
     // Keeps instance of UtilsPrefs
     private UtilsPrefs mUtilsPrefs;
 
-    // JSON response from USGS server
-    private String mJsonResponse;
+    // Streaming parser for JSON response from USGS server
+    private QuakeJsonParser mQuakeJsonParser;
+
+    // Quakes fetched by one call of fetchQuakes().
+    // Parsed quakes are not collected into one list, so memory doesn't grow with the catalog:
+    // they are staged in chunks while the response is parsed, and the provider applies
+    // the whole staging table to quake table in one transaction after the response is parsed.
+    // Until then quake table (and the UI) sees nothing of this sync.
+    private class FetchedQuakes implements QuakeJsonParser.Callback {
+        // Chunk of fetched quakes, that are not staged yet
+        final List<ContentValues> mPendingInserts = new ArrayList<>();
+
+        // Number of fetched quakes
+        int mNumEntries;
+
+        // Content values of the most recent quake
+        // (USGS server returns quakes ordered by time, most recent first)
+        ContentValues mMostRecentQuake;
+
+        // Latest update time of the fetched quakes
+        long mLatestUpdateTime;
+
+        // Time spent on staging while the response was parsed
+        long mSaveNanos;
+
+        @Override
+        public void onQuakeParsed(Quake quake) {
+            ContentValues values = UtilsQuake.getQuakeContentValues(quake);
+
+            if (null == mMostRecentQuake) {
+                mMostRecentQuake = values;
+            }
+
+            mNumEntries++;
+            mLatestUpdateTime = Math.max(mLatestUpdateTime, quake.getUpdatedInMilliseconds());
+
+            mPendingInserts.add(values);
+            if (mPendingInserts.size() >= INSERT_CHUNK_SIZE) {
+                stagePending();
+            }
+        }
+
+        // Stage pending chunk of fetched quakes.
+        // Failure of storage is thrown as StorageException, so that it is not taken for parse error.
+        void stagePending() {
+            if (mPendingInserts.isEmpty()) {
+                return;
+            }
 
-    // List of quakes content values
-    private List<ContentValues> mQuakeListContentValues;
+            long start = System.nanoTime();
+
+            try {
+                bulkInsertQuakes(mPendingInserts);
+            } catch (RuntimeException e) {
+                throw new StorageException(e);
+            }
+
+            mPendingInserts.clear();
+            mSaveNanos += System.nanoTime() - start;
+        }
+    }
+
+    // Failure of storage while fetched quakes are staged
+    private static class StorageException extends RuntimeException {
+        StorageException(Throwable cause) {
+            super(cause);
+        }
+    }
 
     // USGS API interface to be used in Retrofit
     private interface QuakeFetchService {
         // For USGS query parameters see http://earthquake.usgs.gov/fdsnws/event/1/
         // If magnitude and number of days are not specified,
         // the server returns all magnitudes for the last 30 days.
+        // Null parameters are not added to the query by Retrofit.
 
+        @Streaming
         @GET("query")   // USGS URL for queries is http://earthquake.usgs.gov/fdsnws/event/1/query
         Call<ResponseBody> getQuakes(
                 @Query("format") String format,             // Response format
                 @Query("latitude") String latitude,         // Area latitude
                 @Query("longitude") String longitude,       // Area longitude
-                @Query("maxradiuskm") String maxradiuskm);  // Area radius in kilometers
+                @Query("maxradiuskm") String maxradiuskm,   // Area radius in kilometers
+                @Query("starttime") String starttime,       // Limit to events on or after this time
+                @Query("updatedafter") String updatedafter);  // Limit to events updated after this time
     }
 
     public QuakeFetcher(Retrofit retrofit, ContentResolver contentResolver, UtilsPrefs utilsPrefs) {
         mRetrofit = retrofit;
         mContentResolver = contentResolver;
         mUtilsPrefs = utilsPrefs;
+        mQuakeJsonParser = new QuakeJsonParser();
     }
 
-    // Fetch list of earthquakes from USGS server
-    public void fetchQuakes() {
-        mJsonResponse = getJsonResponse();
-        parseJsonResponse();
-        saveData();
-    }
+    // Fetch list of earthquakes from USGS server.
+    // If there is previously synced data, fetch only earthquakes updated since the last sync.
+    // Otherwise fetch the whole window.
+    // Fetched data is applied to storage as a diff (only new, changed and expired rows are touched)
+    // in one transaction.
+    // Return result of the sync (status and numbers of changed rows).
+    // Wall time of every stage, size of the response and number of parsed features
+    // are recorded into the sync run.
+    public QuakeFetchResult fetchQuakes(SyncRun syncRun) {
+        long now = System.currentTimeMillis();
 
-    // Return JSON response from USGS server
-    private String getJsonResponse() {
-        // String for the JSON response
-        String jsonResponse = "";
+        // Start of the sync window
+        long windowStart = getSyncWindowStart(now);
+
+        // Latest update time of previously fetched quakes (high-water mark)
+        long latestUpdateTime = mUtilsPrefs.getLatestUpdateTime();
+
+        // Delta sync is possible only if storage contains previously fetched quakes,
+        // and the last sync is still inside the sync window.
+        boolean deltaSync = !mUtilsPrefs.isPreviouslyFetchedQuakeNotExist()
+                && latestUpdateTime > 0
+                && mUtilsPrefs.getLastSyncTime() > windowStart
+                && isQuakeStored();
+
+        // Discard quakes staged by interrupted sync (if process was killed before they were applied)
+        discardStagedQuakes();
+
+        ResponseBody responseBody;
+
+        long requestStart = System.nanoTime();
 
         try {
-            // Create instance of the USGS API interface implementation
-            QuakeFetchService service = mRetrofit.create(QuakeFetchService.class);
-
-            // Create call to USGS server
-            Call<ResponseBody> call = service.getQuakes(
-                    "geojson",                      // Response format = GeoJSON
-                    UtilsMap.CALDERA_LATITUDE,    // Latitude of caldera
-                    UtilsMap.CALDERA_LONGITUDE,   // Longitude of caldera
-                    UtilsMap.CALDERA_RADIUS       // Radius of caldera
-            );
-
-            // Execute call synchronously (all QuakeFetcher must be run in background thread).
-            // If no converter is specified, Retrofit returns OkHttp ResponseBody.
-            Response<ResponseBody> response = call.execute();
-
-            // Check if the call returned something
-            if (response != null) {
-                // Get OkHttp ResponseBody from Retrofit Response and convert it to String
-                jsonResponse = response.body().string();
-            }
+            responseBody = getJsonResponse(createCall(deltaSync, windowStart, latestUpdateTime));
+        } catch (CircuitOpenException e) {
+            // USGS server has been failing, it is not called until the circuit breaker allows
+            return QuakeFetchResult.ioError(e.getRetryAfterMillis());
         } catch (IOException e) {
-            // If the call failed, return empty string
-            jsonResponse = "";
+            // Network error or server error after all retries
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.IO_ERROR);
+        } finally {
+            syncRun.setRequestMillis(getElapsedMillis(requestStart));
         }
 
-        return jsonResponse;
-    }
+        // Fetched quakes are staged while parsed
+        FetchedQuakes fetchedQuakes = new FetchedQuakes();
 
-    // Parse JSON response from USGS server,
-    // save fetched data into list
-    private void parseJsonResponse() {
-        // Create new empty ArrayList for ContentValues of the earthquakes
-        mQuakeListContentValues = new ArrayList<>();
+        long parseStart = System.nanoTime();
 
         try {
-            // Create JSONObject from JSON string
-            JSONObject jsonBody = new JSONObject(mJsonResponse);
+            parseJsonResponse(responseBody, fetchedQuakes, syncRun);
+        } catch (StorageException e) {
+            // Chunk of fetched quakes could not be staged
+            discardStagedQuakes();
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.DATABASE_ERROR);
+        } catch (MalformedJsonException | RuntimeException e) {
+            // Response is malformed (parser throws IllegalStateException and NumberFormatException
+            // for unexpected tokens)
+            discardStagedQuakes();
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.PARSE_ERROR);
+        } catch (IOException e) {
+            // Response is truncated (connection was lost while streaming)
+            discardStagedQuakes();
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.IO_ERROR);
+        } finally {
+            // Staging made while parsing belongs to save stage
+            syncRun.setParseMillis(TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - parseStart - fetchedQuakes.mSaveNanos));
+        }
 
-            // Extract JSONArray associated with the key called "features" (feature = earthquake)
-            JSONArray quakeJsonArray = jsonBody.getJSONArray("features");
+        long saveStart = System.nanoTime();
 
-            // For each earthquake in the quakeArray create a Quake object
-            for (int i = 0; i < quakeJsonArray.length(); i++) {
+        // Response was received and parsed successfully, save fetched data
+        QuakeFetchResult result = saveData(fetchedQuakes, deltaSync, windowStart);
 
-                // Get a single earthquake at position i
-                JSONObject quakeJsonObject = quakeJsonArray.getJSONObject(i);
+        syncRun.setSaveMillis(getElapsedMillis(saveStart) + TimeUnit.NANOSECONDS.toMillis(fetchedQuakes.mSaveNanos));
 
-                // Extract ID
-                String id = quakeJsonObject.getString("id");
+        if (result.isSuccessful()) {
+            // Move high-water mark forward (it never goes back,
+            // because empty delta response doesn't contain update times).
+            mUtilsPrefs.setLatestUpdateTime(Math.max(latestUpdateTime, fetchedQuakes.mLatestUpdateTime));
+            mUtilsPrefs.setLastSyncTime(now);
+        }
 
-                // JSONObject with key "properties" represents a list of all properties for the earthquake
-                JSONObject quakePropertiesJsonObject = quakeJsonObject.getJSONObject("properties");
+        return result;
+    }
 
-                // Extract magnitude
-                double magnitude = quakePropertiesJsonObject.getDouble("mag");
+    // Return wall time since the start (System.nanoTime) in milliseconds
+    private static long getElapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
 
-                // Extract location name
-                String location = quakePropertiesJsonObject.getString("place");
+    // Return start of the sync window at the moment (rounded down to WINDOW_START_STEP_MILLIS).
+    // The window is up to one step longer than SYNC_WINDOW_MILLIS.
+    static long getSyncWindowStart(long now) {
+        long windowStart = now - SYNC_WINDOW_MILLIS;
+        return windowStart - windowStart % WINDOW_START_STEP_MILLIS;
+    }
 
-                // Extract time
-                long time = quakePropertiesJsonObject.getLong("time");
+    // Create call to USGS server.
+    // Delta call asks only for quakes of the window updated after the high-water mark,
+    // full call has no time parameters, so the server returns its default window.
+    Call<ResponseBody> createCall(boolean deltaSync, long windowStart, long latestUpdateTime) {
+        // Create instance of the USGS API interface implementation
+        QuakeFetchService service = mRetrofit.create(QuakeFetchService.class);
+
+        return service.getQuakes(
+                "geojson",                      // Response format = GeoJSON
+                UtilsMap.CALDERA_LATITUDE,    // Latitude of caldera
+                UtilsMap.CALDERA_LONGITUDE,   // Longitude of caldera
+                UtilsMap.CALDERA_RADIUS,      // Radius of caldera
+                deltaSync ? formatQueryTime(windowStart) : null,       // Start of the window (null = default)
+                deltaSync ? formatQueryTime(latestUpdateTime) : null   // High-water mark (null = all events)
+        );
+    }
 
-                // Extract URL with earthquake details
-                String url = quakePropertiesJsonObject.getString("url");
+    // Return body of JSON response from USGS server.
+    // Body is not read here, it is streamed by the parser.
+    // Failed requests are retried by the resilience layer of OkHttpClient,
+    // IOException is thrown, if the call failed after all retries or the server returned error.
+    private ResponseBody getJsonResponse(Call<ResponseBody> call) throws IOException {
+        // Execute call synchronously (all QuakeFetcher must be run in background thread).
+        // If no converter is specified, Retrofit returns OkHttp ResponseBody.
+        // getQuakes is annotated with @Streaming, so the body is not buffered into memory.
+        Response<ResponseBody> response = call.execute();
+
+        // Body is null, if the server returned error
+        if (!response.isSuccessful() || null == response.body()) {
+            if (null != response.errorBody()) {
+                response.errorBody().close();
+            }
+            throw new IOException("USGS server returned " + response.code());
+        }
 
-                // JSONObject with key "geometry" represents point of the earthquake
-                JSONObject quakeGeometryJsonObject = quakeJsonObject.getJSONObject("geometry");
+        return response.body();
+    }
 
-                // JSONArray with key "coordinates" represents coordinates of the earthquake
-                // [longitude, latitude, depth]
-                JSONArray quakeCoordinatesJsonArray = quakeGeometryJsonObject.getJSONArray("coordinates");
+    // Format time for USGS query (ISO8601 in UTC, for example 2016-09-15T09:42:22.000)
+    private static String formatQueryTime(long timeInMilliseconds) {
+        SimpleDateFormat queryTimeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
+        queryTimeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return queryTimeFormat.format(new Date(timeInMilliseconds));
+    }
 
-                // Extract longitude
-                double longitude = quakeCoordinatesJsonArray.getDouble(0);
+    // Parse JSON response from USGS server feature by feature into fetched quakes.
+    // If response is truncated or malformed, exception is thrown, and staged quakes must be discarded,
+    // because quakes missing from them would be deleted.
+    // Size of the response and number of parsed features are recorded into the sync run.
+    private void parseJsonResponse(ResponseBody responseBody, FetchedQuakes fetchedQuakes, SyncRun syncRun)
+            throws IOException {
+        // Count bytes as they are streamed (content length is unknown for chunked responses)
+        CountingInputStream inputStream = new CountingInputStream(responseBody.byteStream());
 
-                // Extract latitude
-                double latitude = quakeCoordinatesJsonArray.getDouble(1);
+        try {
+            // Stream response body through the parser
+            mQuakeJsonParser.parse(inputStream, fetchedQuakes);
+        } finally {
+            syncRun.setBytesReceived(inputStream.getCount());
+            syncRun.setFeaturesParsed(fetchedQuakes.mNumEntries);
+
+            // Release connection
+            responseBody.close();
+        }
+    }
 
-                // Extract depth
-                double depth = quakeCoordinatesJsonArray.getDouble(2);
+    // Delete staged quakes (quake table is not touched, so it stays as it was before the sync)
+    private void discardStagedQuakes() {
+        mContentResolver.delete(QuakeEntry.CONTENT_STAGING_URI, null, null);
+    }
 
-                // Create new Quake object with data from from the JSON response
-                Quake quake = new Quake(id, magnitude, location, time, url, latitude, longitude, depth);
+    // Set new quakes fetched flag in SharedPreferences
+    // (this is needed for new earthquakes notifications)
+    // and apply fetched data to storage.
+    // Return result of the sync.
+    private QuakeFetchResult saveData(FetchedQuakes fetchedQuakes, boolean deltaSync, long windowStart) {
+        // Updated quakes may be fetched without new ones,
+        // so storage is updated even if there are no new quakes.
+        updateNewQuakesFetchedFlag(fetchedQuakes.mMostRecentQuake);
 
-                // Add ContentValues for the new Quake object into the list
-                mQuakeListContentValues.add(quake.getQuakeContentValues());
-            }
+        return updateQuakeStorage(fetchedQuakes, deltaSync, windowStart);
+    }
 
-        } catch (JSONException e) {
-            // We don't have to catch JSONExceptions specifically,
-            // because later we check if quakes content values list is not empty.
+    // Compare the most recent fetched quake with the most recent quake fetched last time,
+    // set new quakes fetched flag in SharedPreferences and return its value.
+    private boolean updateNewQuakesFetchedFlag(ContentValues mostRecentQuakeCV) {
+        // If no quakes are fetched, there are no new quakes
+        if (null == mostRecentQuakeCV) {
+            mUtilsPrefs.setNewQuakesFetchedFlag(false);
+            return false;
         }
-    }
 
-    // Save fetched data and
-    // and set new quakes fetched flag in SharedPreferences
-    // (this is needed for new earthquakes notifications).
-    private void saveData() {
-        // If quakes content values list is not empty
-        if (mQuakeListContentValues.size() > 0) {
-            // Get content values of the most recent quake
-            ContentValues mostRecentQuakeCV = mQuakeListContentValues.get(0);
+        // Get ID and time of the most recent quake
+        String resultId = mostRecentQuakeCV.getAsString(QuakeEntry.COLUMN_IDS);
+        long resultTime = mostRecentQuakeCV.getAsLong(QuakeEntry.COLUMN_TIME);
 
-            // Get ID of the most recent quake
-            String resultId = mostRecentQuakeCV.getAsString(QuakeEntry.COLUMN_IDS);
+        // If ID of the most recent quake is null, nothing can be compared
+        if (resultId == null) {
+            return false;
+        }
 
-            // If ID of the most recent quake is not null
-            if (resultId != null) {
+        // Get ID of the most recent earthquake from SharedPreferences
+        String lastResultID = mUtilsPrefs.getLastResultId();
 
-                // Get ID of the most recent earthquake from SharedPreferences
-                String lastResultID = mUtilsPrefs.getLastResultId();
+        // Delta response may contain only updated old quakes,
+        // so the most recent fetched quake must also be more recent than the last one.
+        boolean newQuakesFetched = !resultId.equals(lastResultID)
+                && resultTime >= mUtilsPrefs.getLastResultTime();
 
-                // If ID of the most recent earthquake in just fetched list
-                // is not equal to the ID of the most recent earthquake in last time fetched list
-                if (!resultId.equals(lastResultID)) {
-                    // New quakes fetched
+        // Set new quakes fetched flag in SharedPreferences
+        mUtilsPrefs.setNewQuakesFetchedFlag(newQuakesFetched);
 
-                    // Set new quakes fetched flag in SharedPreferences to "true"
-                    mUtilsPrefs.setNewQuakesFetchedFlag(true);
+        if (newQuakesFetched || lastResultID.equals(UtilsPrefs.NO_LAST_RESULT_ID)) {
+            // Update ID and time of the most recent quake in SharedPreferences (replace with new values)
+            mUtilsPrefs.setLastResultId(resultId);
+            mUtilsPrefs.setLastResultTime(resultTime);
+        }
 
-                    // Save fetched data
-                    updateQuakeStorage();
-                } else {
-                    // No new quakes fetched
-                    // Set new quakes fetched flag in SharedPreferences to "false"
-                    mUtilsPrefs.setNewQuakesFetchedFlag(false);
-                }
+        return newQuakesFetched;
+    }
 
-                // Update ID of the most recent quake in SharedPreferences (replace with new value)
-                mUtilsPrefs.setLastResultId(resultId);
-            }
+    // Return true, if quake table contains at least one quake
+    // (only the first row of the first page is queried)
+    private boolean isQuakeStored() {
+        Cursor cursor = mContentResolver.query(
+                QuakeEntry.buildFirstPageUri(1),
+                new String[] { QuakeEntry._ID },
+                null,
+                null,
+                null);
+
+        if (null == cursor) {
+            return false;
+        }
+
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
         }
     }
 
-    // Replace old data in quake table with new fetched list
-    private void updateQuakeStorage() {
-        // Delete all rows from quake table (remove previously fetched data).
-        // Method returns number of rows deleted, but we don't use it.
-        mContentResolver.delete(QuakeEntry.CONTENT_URI, null, null);
+    // Apply staged quakes to quake table:
+    // - insert fetched quakes, that are not in the table,
+    // - update fetched quakes, that have changed since they were stored,
+    // - delete quakes, that are out of the sync window.
+    // The diff is computed by the provider in SQL, unchanged rows are not touched.
+    // All changes are applied in one transaction with one change notification.
+    // Return result with numbers of changed rows.
+    private QuakeFetchResult updateQuakeStorage(FetchedQuakes fetchedQuakes, boolean deltaSync, long windowStart) {
+        Bundle extras = new Bundle();
+        extras.putBoolean(QuakeEntry.EXTRA_DELTA_SYNC, deltaSync);
+        extras.putLong(QuakeEntry.EXTRA_WINDOW_START, windowStart);
+
+        Bundle result;
+
+        try {
+            // Only the last chunk is left to stage
+            fetchedQuakes.stagePending();
+
+            result = mContentResolver.call(
+                    QuakeEntry.CONTENT_URI, QuakeEntry.METHOD_APPLY_STAGED_QUAKES, null, extras);
+        } catch (RuntimeException e) {
+            // Apply transaction is rolled back, so quake table stays as it was
+            discardStagedQuakes();
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.DATABASE_ERROR);
+        }
+
+        if (null == result) {
+            discardStagedQuakes();
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.DATABASE_ERROR);
+        }
+
+        return QuakeFetchResult.success(fetchedQuakes.mNumEntries,
+                result.getInt(QuakeEntry.RESULT_INSERTED),
+                result.getInt(QuakeEntry.RESULT_UPDATED),
+                result.getInt(QuakeEntry.RESULT_DELETED));
+    }
+
+    // Bulk insert fetched list into staging table and return number of staged rows
+    private int bulkInsertQuakes(List<ContentValues> quakeListContentValues) {
+        // Nothing to insert
+        if (quakeListContentValues.size() == 0) {
+            return 0;
+        }
 
         // Create new array of ContentValues of the proper size
-        ContentValues[] quakesContentValuesArray = new ContentValues[mQuakeListContentValues.size()];
+        ContentValues[] quakesContentValuesArray = new ContentValues[quakeListContentValues.size()];
 
         // Convert list of quake content values to array of quake content values
-        mQuakeListContentValues.toArray(quakesContentValuesArray);
+        quakeListContentValues.toArray(quakesContentValuesArray);
 
-        // Bulk insert this array into quake table
-        mContentResolver.bulkInsert(QuakeEntry.CONTENT_URI, quakesContentValuesArray);
+        // Bulk insert this array into staging table (in one transaction without notification)
+        return mContentResolver.bulkInsert(QuakeEntry.CONTENT_STAGING_URI, quakesContentValuesArray);
     }
 }
@@ -17,26 +17,47 @@ import android.widget.TextView;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.OnMapReadyCallback;
+import com.google.android.gms.maps.model.Marker;
+import com.gpetuhov.android.yellowstone.data.QuakeCache;
 import com.gpetuhov.android.yellowstone.utils.UtilsMap;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
 
 import javax.inject.Inject;
 
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+
 
 // Fragment displays details of earthquake
 public class QuakeFragment extends Fragment {
 
-    // Key for fragment's argument with quake to display
-    public static final String ARG_KEY_QUAKE = "quake_key";
+    // Key for fragment's argument with USGS ID of the quake to display
+    public static final String ARG_KEY_QUAKE_ID = "quake_id_key";
+
+    // Key for the flag, that camera was moved to the quake, in saved instance state
+    private static final String STATE_KEY_CAMERA_MOVED = "camera_moved_state_key";
 
     // Keeps instance of UtilsQuakeList. Injected by Dagger.
     @Inject UtilsMap mUtilsMap;
 
-    // Stores details of earthquake to display
+    // Keeps instance of QuakeCache. Injected by Dagger.
+    @Inject QuakeCache mQuakeCache;
+
+    // USGS ID of the earthquake to display
+    private String mQuakeId;
+
+    // Stores details of earthquake to display (null, until the quake is resolved)
     private Quake mQuake;
 
+    // Query of the quake, if it is not cached
+    private Subscription mQuakeSubscription;
+
+    // Changes of quake table, after which the quake is resolved again
+    private Subscription mChangesSubscription;
+
     // TextView for earthquake location
     private TextView mQuakeLocationTextView;
 
@@ -67,14 +88,27 @@ public class QuakeFragment extends Fragment {
     // (onCreate(), onResume() etc.)
     private MapView mMapView;
 
+    // True, if the map is loaded (camera can be moved to bounds only after that)
+    private boolean mMapLoaded;
+
+    // Marker of the quake on the map
+    private final QuakeMarkerReconciler<Marker> mMarkerReconciler = new QuakeMarkerReconciler<>();
+
+    // True, if the camera was moved to the quake
+    // (MapView restores camera position itself, when the fragment is recreated).
+    private boolean mCameraMoved;
+
+    // Calculation of camera bounds in background thread
+    private Subscription mBoundsSubscription;
+
     // Return new instance of this fragment and attach arguments to it
-    public static QuakeFragment newInstance(Quake quake) {
+    public static QuakeFragment newInstance(String quakeId) {
 
         // Create new empty Bundle object for fragment arguments
         Bundle args = new Bundle();
 
         // Put earthquake ID into Bundle object
-        args.putSerializable(ARG_KEY_QUAKE, quake);
+        args.putString(ARG_KEY_QUAKE_ID, quakeId);
 
         // Create new instance of this fragment
         QuakeFragment fragment = new QuakeFragment();
@@ -93,12 +127,42 @@ public class QuakeFragment extends Fragment {
         // Inject UtilsQuakeList into this fragment
         YellowstoneApp.getAppComponent().inject(this);
 
-        // Get quake from the fragment's arguments
-        mQuake = (Quake) getArguments().getSerializable(ARG_KEY_QUAKE);
+        // Get USGS ID of the quake from the fragment's arguments
+        mQuakeId = getArguments().getString(ARG_KEY_QUAKE_ID);
+
+        if (null != savedInstanceState) {
+            mCameraMoved = savedInstanceState.getBoolean(STATE_KEY_CAMERA_MOVED);
+        }
+
+        // Take the quake from shared cache (quake is put there by the screen, that opens details).
+        // If it is not cached (after the fragment is recreated), it is queried by USGS ID.
+        mQuake = mQuakeCache.getCached(mQuakeId);
 
         setupShareIntent();
     }
 
+    // Query the quake in background, if it was not in cache
+    private void loadQuake() {
+        // Previous query may return outdated quake
+        if (null != mQuakeSubscription) {
+            mQuakeSubscription.unsubscribe();
+        }
+
+        mQuakeSubscription = Observable.fromCallable(() -> mQuakeCache.get(mQuakeId))
+                .subscribeOn(Schedulers.io())   // Query executes in background thread
+                .observeOn(AndroidSchedulers.mainThread())  // Quake is displayed in main thread
+                .subscribe(
+                        quake -> {
+                            // Quake may have been deleted from the database
+                            if (null != quake) {
+                                mQuake = quake;
+                                setupShareIntent();
+                                displayQuake();
+                            }
+                        },
+                        error -> { });
+    }
+
     // Store data from quake in share intent
     private void setupShareIntent() {
         if (null != mQuake) {
@@ -113,6 +177,11 @@ public class QuakeFragment extends Fragment {
             mShareIntent.setAction(Intent.ACTION_SEND);
             mShareIntent.setType("text/plain");
             mShareIntent.putExtra(Intent.EXTRA_TEXT, textToShare);
+
+            // Menu may have been created before the quake was loaded
+            if (null != mShareActionProvider) {
+                mShareActionProvider.setShareIntent(mShareIntent);
+            }
         }
     }
 
@@ -138,21 +207,6 @@ public class QuakeFragment extends Fragment {
         // Get access to TextView for earthquake coordinates
         mQuakeCoordinatesTextView = (TextView) v.findViewById(R.id.quake_coordinates_text_view);
 
-        // Display earthquake location
-        mQuakeLocationTextView.setText(mQuake.getLocation());
-
-        // Display earthquake magnitude
-        mQuakeMagnitudeTextView.setText("Magnitude " + mQuake.getFormattedMagnitude());
-
-        // Display earthquake date
-        mQuakeDateTextView.setText(mQuake.getFormattedDate());
-
-        // Display earthquake depth
-        mQuakeDepthTextView.setText("Depth " + mQuake.getFormattedDepth() + " km");
-
-        // Display earthquake coordinates
-        mQuakeCoordinatesTextView.setText(mQuake.getFormattedLatitude() + ", " + mQuake.getFormattedLongitude());
-
         // Get access to MapView for displaying map with the earthquake
         mMapView = (MapView) v.findViewById(R.id.quake_detail_mapview);
 
@@ -172,28 +226,90 @@ public class QuakeFragment extends Fragment {
                 // Enable zoom buttons
                 mGoogleMap.getUiSettings().setZoomControlsEnabled(true);
 
-                // When the map is loaded, update it with new camera position and the marker of the earthquake.
+                // When the map is loaded, update it with the marker of the earthquake.
                 // To do this, we must set OnMapLoadedCallback listener for the map
                 // and override its onMapLoaded method.
                 mGoogleMap.setOnMapLoadedCallback(new GoogleMap.OnMapLoadedCallback() {
                     @Override
                     public void onMapLoaded() {
-                        // Create new empty list of quakes
-                        List<Quake> quakes = new ArrayList<Quake>();
+                        mMapLoaded = true;
 
-                        // Add quake to display on map into list
-                        quakes.add(mQuake);
-
-                        // Update map with this quake
-                        mUtilsMap.updateMap(mGoogleMap, quakes);
+                        // Quake may be still loading, then it is displayed, when it is loaded
+                        if (null != mQuake) {
+                            displayQuakeOnMap();
+                        }
                     }
                 });
             }
         });
 
+        // Display the quake now, if it is already resolved, otherwise query it
+        if (null != mQuake) {
+            displayQuake();
+        } else {
+            loadQuake();
+        }
+
+        // Sync may revise the quake, then it is queried again
+        mChangesSubscription = mQuakeCache.getChanges()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(change -> loadQuake());
+
         return v;
     }
 
+    // Display details of the quake and the quake on map
+    private void displayQuake() {
+        // Display earthquake location
+        mQuakeLocationTextView.setText(mQuake.getLocation());
+
+        // Display earthquake magnitude
+        mQuakeMagnitudeTextView.setText("Magnitude " + mQuake.getFormattedMagnitude());
+
+        // Display earthquake date
+        mQuakeDateTextView.setText(mQuake.getFormattedDate());
+
+        // Display earthquake depth
+        mQuakeDepthTextView.setText("Depth " + mQuake.getFormattedDepth() + " km");
+
+        // Display earthquake coordinates
+        mQuakeCoordinatesTextView.setText(mQuake.getFormattedLatitude() + ", " + mQuake.getFormattedLongitude());
+
+        // Display the quake on the map, if it is already loaded
+        if (mMapLoaded) {
+            displayQuakeOnMap();
+        }
+    }
+
+    // Display marker of the quake and move camera to it, if it was not moved yet
+    private void displayQuakeOnMap() {
+        // Only the marker of changed quake is updated, if the quake is displayed again
+        mUtilsMap.updateMarkers(mGoogleMap, mMarkerReconciler, Collections.singletonList(
+                new QuakeCluster(mQuake.getId(), mQuake.getId(), mQuake.getLatitude(), mQuake.getLongitude(),
+                        1, mQuake.getMagnitude())));
+
+        // Camera was already moved, keep position chosen by the user
+        if (mCameraMoved) {
+            return;
+        }
+
+        if (null != mBoundsSubscription) {
+            mBoundsSubscription.unsubscribe();
+        }
+
+        final QuakePoints quakePoints = QuakePoints.of(mQuake);
+
+        mBoundsSubscription = Observable.fromCallable(() -> UtilsMap.calculateBounds(quakePoints))
+                .subscribeOn(Schedulers.computation())  // Bounds are calculated in background thread
+                .observeOn(AndroidSchedulers.mainThread())  // and camera is moved in main thread
+                .subscribe(
+                        bounds -> {
+                            mUtilsMap.moveCamera(mGoogleMap, bounds);
+                            mCameraMoved = true;
+                        },
+                        error -> { });
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         // Inflate menu
@@ -232,6 +348,35 @@ public class QuakeFragment extends Fragment {
         mMapView.onPause();
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        // Views are destroyed, so the quake can't be displayed when the query completes
+        if (null != mQuakeSubscription) {
+            mQuakeSubscription.unsubscribe();
+            mQuakeSubscription = null;
+        }
+
+        if (null != mBoundsSubscription) {
+            mBoundsSubscription.unsubscribe();
+            mBoundsSubscription = null;
+        }
+
+        if (null != mChangesSubscription) {
+            mChangesSubscription.unsubscribe();
+            mChangesSubscription = null;
+        }
+
+        // New view has new map, so markers of this map are forgotten
+        // and the camera of the new map must be moved to the quake again
+        // (unless the camera position is restored from saved instance state).
+        mMarkerReconciler.reset();
+        mMapLoaded = false;
+        mGoogleMap = null;
+        mCameraMoved = false;
+    }
+
     // Callback must be forwarded for prover MapView lifecycle
     @Override
     public void onDestroy() {
@@ -244,6 +389,9 @@ public class QuakeFragment extends Fragment {
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         mMapView.onSaveInstanceState(outState);
+
+        // Quake is not saved: USGS ID is in the arguments, and the quake is resolved again
+        outState.putBoolean(STATE_KEY_CAMERA_MOVED, mCameraMoved);
     }
 
     // Callback must be forwarded for prover MapView lifecycle
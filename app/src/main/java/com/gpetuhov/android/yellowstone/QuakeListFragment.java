@@ -14,15 +14,28 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import com.gpetuhov.android.yellowstone.data.QuakeCache;
 import com.gpetuhov.android.yellowstone.data.QuakeCursorLoaderFactory;
+import com.gpetuhov.android.yellowstone.data.QuakeListLoader;
+import com.gpetuhov.android.yellowstone.data.QuakePageCursor;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
 import com.gpetuhov.android.yellowstone.utils.UtilsNet;
 import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import javax.inject.Inject;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import butterknife.Unbinder;
+import rx.Observable;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
 
 // Fragment contains list of earthquakes.
 // This fragment implements LoaderManager callbacks to update UI with data from loader.
@@ -33,12 +46,21 @@ public class QuakeListFragment extends Fragment {
     // Quake list loader ID
     public static final int QUAKE_LIST_LOADER_ID = 1;
 
+    // Number of quakes in one page of the list
+    private static final int PAGE_SIZE = 50;
+
+    // Next page is loaded, when the list is scrolled to this number of items before the end
+    private static final int PREFETCH_DISTANCE = 15;
+
     // Keeps instance of UtilsPrefs. Injected by Dagger.
     @Inject UtilsPrefs mUtilsPrefs;
 
     // Keeps instance of QuakeCursorLoaderFactory. Injected by Dagger.
     @Inject QuakeCursorLoaderFactory mQuakeCursorLoaderFactory;
 
+    // Keeps instance of QuakeCache. Injected by Dagger.
+    @Inject QuakeCache mQuakeCache;
+
     // RecyclerView for the list of earthquakes
     @BindView(R.id.quake_recycler_view) RecyclerView mQuakeRecyclerView;
 
@@ -60,8 +82,9 @@ public class QuakeListFragment extends Fragment {
 
     // This interface must be implemented by the host (activity or parent fragment) that uses this fragment
     public interface Callbacks {
-        // The host must override this method
-        void onQuakeSelected(Quake quake);
+        // The host must override this method.
+        // Quake itself is in QuakeCache, only its USGS ID is passed.
+        void onQuakeSelected(String quakeId);
     }
 
     // Host that uses this fragment must call this method and pass reference to itself
@@ -159,6 +182,9 @@ public class QuakeListFragment extends Fragment {
 
         // This is recommended to do here when using Butterknife in fragments
         mUnbinder.unbind();
+
+        // Close pages loaded by the adapter
+        mQuakeAdapter.close();
     }
 
     // === Inner classes =====================
@@ -168,8 +194,8 @@ public class QuakeListFragment extends Fragment {
     class QuakeHolder extends RecyclerView.ViewHolder
             implements View.OnClickListener {
 
-        // Stores earthquake for this ViewHolder
-        private Quake mQuake;
+        // Stores earthquake row for this ViewHolder (reused for every bind)
+        private final QuakeRecord mQuakeRecord = new QuakeRecord();
 
         // TextView for the magnitude of the earthquake
         @BindView(R.id.magnitude) public TextView mMagnitudeTextView;
@@ -190,27 +216,42 @@ public class QuakeListFragment extends Fragment {
             ButterKnife.bind(this, itemView);
         }
 
-        public void bindQuake(Quake quake) {
+        // Bind the current row of the cursor.
+        // Row is read into the record of this ViewHolder and displayed from its char arrays,
+        // so no objects are created during scroll.
+        public void bindQuake(Cursor cursor, QuakeRecord.Columns columns) {
 
-            // Store quake object in private field
-            mQuake = quake;
+            // Read quake row into the record
+            mQuakeRecord.bind(cursor, columns);
 
-            // Get magnitude from the Quake object and display it in TextView
-            mMagnitudeTextView.setText(mQuake.getFormattedMagnitude());
+            // Display magnitude in TextView
+            mMagnitudeTextView.setText(
+                    mQuakeRecord.getFormattedMagnitude(), 0, mQuakeRecord.getFormattedMagnitudeLength());
 
-            // Get location from the Quake object and display it in TextView
-            mLocationTextView.setText(mQuake.getLocation());
+            // Display location in TextView
+            mLocationTextView.setText(mQuakeRecord.getLocation(), 0, mQuakeRecord.getLocationLength());
 
-            // Get date from the Quake object and display it in TextView
-            mDateTextView.setText(mQuake.getFormattedDate());
+            // Display date in TextView
+            mDateTextView.setText(mQuakeRecord.getFormattedDate(), 0, mQuakeRecord.getFormattedDateLength());
         }
 
         // Handle clicks on list items
         @Override
         public void onClick(View v) {
+            int position = getAdapterPosition();
+
+            // Item is being removed from the list
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+
+            // Put clicked quake into shared cache, so that details are displayed without database query
+            Quake quake = mQuakeAdapter.getQuake(position);
+            mQuakeCache.put(quake);
+
             // Forward callback to the host, that uses this fragment, by calling its onQuakeSelected method.
             // All real action is implemented by the host.
-            mCallbacks.onQuakeSelected(mQuake);
+            mCallbacks.onQuakeSelected(quake.getId());
         }
     }
 
@@ -218,10 +259,49 @@ public class QuakeListFragment extends Fragment {
     // Adapter for our RecyclerView with list of earthquakes.
     // RecyclerView doesn't have CursorAdapter, so we have to
     // implement elements of CursorAdapter in our QuakeAdapter ourselves.
-    private class QuakeAdapter extends RecyclerView.Adapter<QuakeHolder> {
+    // Quakes are loaded page by page: the first page comes from the loader,
+    // next pages are queried in background, when the list is scrolled close to the end.
+    // So the number of rows loaded at start doesn't depend on the size of quake table.
+    // When quake table changes, the loader reloads the displayed pages up to the one
+    // after the last bound page by keyset and diffs every page with the displayed one
+    // by USGS ID in background (see QuakeListLoader),
+    // so only inserted, removed and changed items are bound again.
+    // Pages after the reloaded ones are dropped and loaded again, when the list is scrolled.
+    private class QuakeAdapter extends RecyclerView.Adapter<QuakeHolder>
+            implements QuakeListLoader.Source, QuakeListDiff.Callback {
+
+        // Loaded pages. The first page is owned by the loader,
+        // next pages are owned by the adapter (and closed by it).
+        private final List<QuakePageCursor> mPages = new ArrayList<>();
+
+        // Positions of the first items of the pages in the list
+        private int[] mPageStarts = new int[0];
+
+        // Column indices of the pages (resolved once per page)
+        private final List<QuakeRecord.Columns> mPageColumns = new ArrayList<>();
 
-        // Keeps cursor with the quakes table
-        private Cursor mCursor;
+        // Total number of loaded items
+        private int mItemCount;
+
+        // USGS IDs and update times of the items of every loaded page.
+        // Immutable, read by the loader in background thread.
+        private volatile List<QuakeListDiff.Snapshot> mPageSnapshots = Collections.emptyList();
+
+        // Index of the page of the last bound item (read by the loader in background thread)
+        private volatile int mLastBoundPage;
+
+        // Position of the page, whose diff is being dispatched
+        private int mDispatchOffset;
+
+        // True, if there are no more rows after the last loaded page
+        private boolean mEndReached = true;
+
+        // True, if next page is being loaded
+        private boolean mPageLoading;
+
+        // Incremented every time loaded pages become invalid (first page is swapped).
+        // Pages, that were being loaded for older generation, are discarded.
+        private int mGeneration;
 
         public QuakeAdapter() {
         }
@@ -242,35 +322,236 @@ public class QuakeListFragment extends Fragment {
         // Method is called, when the view holder must be connected with data
         @Override
         public void onBindViewHolder(QuakeHolder holder, int position) {
-            // Move cursor to the passed in position
-            mCursor.moveToPosition(position);
-
-            // Get earthquake at "position" from the cursor
-            Quake quake = Quake.getQuakeFromCursor(mCursor);
+            // Find the page, that contains the passed in position, and move its cursor to this position
+            int page = moveToPosition(position);
 
             // Set ViewHolder of list item according to earthquake at "position"
-            holder.bindQuake(quake);
+            holder.bindQuake(mPages.get(page), mPageColumns.get(page));
+            mLastBoundPage = page;
+
+            // If the list is scrolled close to the end, load next page
+            if (position >= mItemCount - PREFETCH_DISTANCE) {
+                loadNextPage();
+            }
         }
 
         // Return number of elements in RecyclerView
         @Override
         public int getItemCount() {
-            // If the cursor is null, then number of items is 0
-            if (null == mCursor) {
-                return 0;
-            }
+            // Return number of rows in all loaded pages
+            return mItemCount;
+        }
 
-            // Otherwise return number of rows in the cursor
-            return mCursor.getCount();
+        // Return the pages to reload (called by the loader in background thread).
+        // Visible items are in the page of the last bound item or next to it,
+        // so the pages after the next one are not reloaded.
+        @Override
+        public List<QuakeListDiff.Snapshot> getDisplayedPages() {
+            List<QuakeListDiff.Snapshot> pageSnapshots = mPageSnapshots;
+            return pageSnapshots.subList(0, Math.min(pageSnapshots.size(), mLastBoundPage + 2));
         }
 
-        // Swap cursor with new one
+        // Replace all pages with new cursor from the loader (null to release all pages)
         public void swapCursor(Cursor newCursor) {
-            // Create new quake cursor wrapper upon the passed in cursor
-            mCursor = newCursor;
+            // Pages, that are being loaded, don't match new first page
+            mGeneration++;
+            mPageLoading = false;
+
+            // Pages displayed before the swap
+            List<QuakeListDiff.Snapshot> previousPages = mPageSnapshots;
+
+            // Next pages are replaced by the pages, that the loader has reloaded
+            closeNextPages();
+            mPages.clear();
+
+            QuakePageCursor pageCursor = (QuakePageCursor) newCursor;
+
+            if (null != pageCursor) {
+                // Previous cursor is closed by the loader, next pages are closed by the adapter
+                mPages.add(pageCursor);
+                mPages.addAll(pageCursor.takeNextPages());
+            }
+
+            mEndReached = mPages.isEmpty() || mPages.get(mPages.size() - 1).isLastPage();
+
+            updatePageStarts();
+
+            // If every page was diffed with the page, that is displayed at its place now,
+            // notify RecyclerView only about updated items.
+            // Otherwise (the list changed while the pages were loading) rebind everything.
+            if (isDiffedWith(previousPages)) {
+                dispatchPageDiffs(previousPages);
+            } else {
+                notifyDataSetChanged();
+            }
+        }
+
+        // Return true, if every page was diffed with the page at its place in the previous pages
+        private boolean isDiffedWith(List<QuakeListDiff.Snapshot> previousPages) {
+            if (mPages.isEmpty()) {
+                return false;
+            }
+
+            for (int i = 0; i < mPages.size(); i++) {
+                QuakeListDiff diff = mPages.get(i).getDiff();
+                QuakeListDiff.Snapshot previousPage =
+                        i < previousPages.size() ? previousPages.get(i) : QuakeListDiff.Snapshot.EMPTY;
+
+                if (null == diff || diff.getOldSnapshot() != previousPage) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        // Dispatch diffs of the pages one by one. When the diff of a page is dispatched,
+        // the previous pages are already updated, so the page starts at its new position.
+        private void dispatchPageDiffs(List<QuakeListDiff.Snapshot> previousPages) {
+            int previousItemCount = 0;
+            for (QuakeListDiff.Snapshot previousPage : previousPages) {
+                previousItemCount += previousPage.size();
+            }
+
+            int reloadedItemCount = 0;
+
+            for (int i = 0; i < mPages.size(); i++) {
+                QuakeListDiff diff = mPages.get(i).getDiff();
+                mDispatchOffset = mPageStarts[i];
+                diff.dispatchUpdatesTo(this);
+                reloadedItemCount += diff.getOldSnapshot().size();
+            }
+
+            mDispatchOffset = 0;
+
+            // Items of the previous pages, that were not reloaded, are removed
+            if (previousItemCount > reloadedItemCount) {
+                notifyItemRangeRemoved(mItemCount, previousItemCount - reloadedItemCount);
+            }
+        }
+
+        // Diff callbacks (called in main thread by swapCursor)
+
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(mDispatchOffset + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(mDispatchOffset + position, count);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            notifyItemRangeChanged(mDispatchOffset + position, count);
+        }
+
+        // Return earthquake at the position (new Quake object is created)
+        public Quake getQuake(int position) {
+            return UtilsQuake.getQuakeFromCursor(mPages.get(moveToPosition(position)));
+        }
+
+        // Close all pages owned by the adapter (must be called, when the adapter is not needed)
+        public void close() {
+            swapCursor(null);
+        }
+
+        // Load next page of quakes in background
+        private void loadNextPage() {
+            // Nothing to load or next page is already being loaded
+            if (mEndReached || mPageLoading || mPages.isEmpty()) {
+                return;
+            }
+
+            // Last loaded row, after which the page starts
+            Cursor lastPage = mPages.get(mPages.size() - 1);
+            lastPage.moveToLast();
+            final long lastTime = lastPage.getLong(lastPage.getColumnIndexOrThrow(QuakeEntry.COLUMN_TIME));
+            final long lastId = lastPage.getLong(lastPage.getColumnIndexOrThrow(QuakeEntry._ID));
+
+            final int generation = mGeneration;
+            mPageLoading = true;
+
+            // Page and its snapshot are read in background thread
+            Observable.fromCallable(() ->
+                            mQuakeCursorLoaderFactory.queryNextQuakePage(PAGE_SIZE, lastTime, lastId))
+                    .subscribeOn(Schedulers.io())   // Query executes in background thread
+                    .observeOn(AndroidSchedulers.mainThread())  // Page is added in main thread
+                    .subscribe(
+                            cursor -> onPageLoaded(generation, cursor),
+                            error -> onPageLoaded(generation, null));
+        }
+
+        // Add loaded page to the list
+        private void onPageLoaded(int generation, QuakePageCursor cursor) {
+            // If the first page was swapped while the page was loading, the page is not needed
+            if (generation != mGeneration) {
+                if (null != cursor) {
+                    cursor.close();
+                }
+                return;
+            }
+
+            mPageLoading = false;
+
+            // Query failed. Page will be loaded again, when the list is scrolled or reloaded.
+            if (null == cursor) {
+                return;
+            }
+
+            // Number of items before the page is added
+            int previousItemCount = mItemCount;
+
+            mPages.add(cursor);
+            mEndReached = cursor.isLastPage();
+
+            updatePageStarts();
+
+            notifyItemRangeInserted(previousItemCount, cursor.getCount());
+        }
+
+        // Close and remove all pages except the first one
+        private void closeNextPages() {
+            while (mPages.size() > 1) {
+                mPages.remove(mPages.size() - 1).close();
+            }
+        }
+
+        // Recalculate positions and column indices of the pages and total number of items
+        private void updatePageStarts() {
+            mPageStarts = new int[mPages.size()];
+            mPageColumns.clear();
+            mItemCount = 0;
+
+            List<QuakeListDiff.Snapshot> pageSnapshots = new ArrayList<>(mPages.size());
+
+            for (int i = 0; i < mPages.size(); i++) {
+                mPageStarts[i] = mItemCount;
+                mPageColumns.add(new QuakeRecord.Columns(mPages.get(i)));
+                pageSnapshots.add(mPages.get(i).getSnapshot());
+                mItemCount += mPages.get(i).getCount();
+            }
+
+            mPageSnapshots = Collections.unmodifiableList(pageSnapshots);
+        }
+
+        // Move cursor of the page, that contains the position, to this position
+        // and return index of the page
+        private int moveToPosition(int position) {
+            // Find the last page, that starts at or before the position
+            int page = Arrays.binarySearch(mPageStarts, position);
+            if (page < 0) {
+                page = -page - 2;
+            }
+
+            // Pages may be empty (and start at the same position as the next one)
+            while (page < mPages.size() - 1 && mPageStarts[page + 1] <= position) {
+                page++;
+            }
 
-            // Notify RecyclerView, that data has changed
-            notifyDataSetChanged();
+            mPages.get(page).moveToPosition(position - mPageStarts[page]);
+            return page;
         }
     }
 
@@ -281,8 +562,9 @@ public class QuakeListFragment extends Fragment {
         // Returns new quake list loader
         @Override
         public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-            // Create and return new cursor loader that loads quakes from quake table
-            return mQuakeCursorLoaderFactory.createQuakeCursorLoader();
+            // Create and return new loader that loads the first page of quakes from quake table
+            // (and next pages displayed by the adapter) and diffs them with the displayed pages
+            return mQuakeCursorLoaderFactory.createQuakeListLoader(PAGE_SIZE, mQuakeAdapter);
         }
 
         // Method is called, when load is finished
@@ -1,42 +1,81 @@
 package com.gpetuhov.android.yellowstone;
 
-import android.database.Cursor;
 import android.os.Bundle;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.Loader;
 
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.SupportMapFragment;
-import com.gpetuhov.android.yellowstone.data.QuakeCursorLoaderFactory;
+import com.google.android.gms.maps.model.Marker;
+import com.gpetuhov.android.yellowstone.data.QuakeRepository;
+import com.gpetuhov.android.yellowstone.utils.GeoMath;
 import com.gpetuhov.android.yellowstone.utils.UtilsMap;
 
-import java.util.List;
-
 import javax.inject.Inject;
 
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+
 
 // Fragment contains map with earthquakes.
 // Here we use SupportMapFragment, because the map takes up the whole screen.
 // For SupportMapFragment we don't have to forward lifecycle callbacks.
+// Quakes are displayed in clusters (one marker per cluster with number of quakes).
+// Clusters are calculated in background thread and only when zoom level changes,
+// so the map stays smooth with tens of thousands of quakes.
+// When quakes are reloaded, only changed markers are updated, and the camera is moved
+// to the quakes only on first load, so the user doesn't lose position on the map.
+// Quakes are taken from the shared snapshot (see QuakeRepository), and only quakes
+// inside the visible area of the map (with margins) are clustered. They are clustered again,
+// when the camera stops outside the clustered area.
 public class QuakeMapFragment extends SupportMapFragment {
 
-    // This fragment's CursorLoader ID
-    private static final int QUAKE_MAP_LOADER_ID = 2;
+    // Key for the flag, that camera was moved to the quakes, in saved instance state
+    private static final String STATE_KEY_CAMERA_MOVED = "camera_moved_state_key";
+
+    // Clustered area is larger than visible area by this fraction of its size on every side,
+    // so that small pans of the map don't recalculate clusters.
+    private static final double VIEWPORT_MARGIN = 0.5;
 
     // Keeps instance of UtilsQuakeList. Injected by Dagger.
     @Inject UtilsMap mUtilsMap;
 
-    // Keeps instance of QuakeCursorLoaderFactory. Injected by Dagger.
-    @Inject QuakeCursorLoaderFactory mQuakeCursorLoaderFactory;
+    // Keeps instance of QuakeRepository. Injected by Dagger.
+    @Inject QuakeRepository mQuakeRepository;
 
     // Reference to Google Map
     private GoogleMap mGoogleMap;
 
-    // Keeps list of quakes
-    private List<Quake> mQuakes;
+    // True, if the map is loaded (camera can be moved to bounds only after that)
+    private boolean mMapLoaded;
+
+    // Coordinates of all quakes from the latest snapshot
+    private QuakePoints mQuakePoints = QuakePoints.EMPTY;
+
+    // Subscription to quake snapshots (while the fragment is resumed)
+    private Subscription mSnapshotSubscription;
+
+    // Area of the map, that the displayed clusters were calculated for
+    private GeoMath.Viewport mClusterViewport;
+
+    // Groups quakes into clusters
+    private final QuakeClusterer mQuakeClusterer = new QuakeClusterer(UtilsMap.CLUSTER_CELL_SIZE);
+
+    // Zoom level, that the displayed clusters were calculated for (-1 if there are no clusters)
+    private int mClusterZoom = -1;
+
+    // Clustering in background thread
+    private Subscription mClusterSubscription;
+
+    // Markers, that are displayed on the map
+    private final QuakeMarkerReconciler<Marker> mMarkerReconciler = new QuakeMarkerReconciler<>();
 
-    // Listener to LoaderManager callbacks for quake list loader
-    private QuakeMapCursorLoaderListener mQuakeMapCursorLoaderListener;
+    // True, if the camera was moved to the quakes
+    // (map restores camera position itself, when the fragment is recreated).
+    private boolean mCameraMoved;
+
+    // Calculation of camera bounds in background thread
+    private Subscription mBoundsSubscription;
 
     @Override
     public void onCreate(Bundle bundle) {
@@ -45,7 +84,9 @@ public class QuakeMapFragment extends SupportMapFragment {
         // Inject UtilsQuakeList into this fragment
         YellowstoneApp.getAppComponent().inject(this);
 
-        mQuakeMapCursorLoaderListener = new QuakeMapCursorLoaderListener();
+        if (null != bundle) {
+            mCameraMoved = bundle.getBoolean(STATE_KEY_CAMERA_MOVED);
+        }
 
         // Asynchronously get reference to the map
         getMapAsync(googleMap -> {
@@ -55,58 +96,141 @@ public class QuakeMapFragment extends SupportMapFragment {
             // Enable zoom buttons
             mGoogleMap.getUiSettings().setZoomControlsEnabled(true);
 
-            // When the map is loaded, update it with all earthquakes from quake table.
+            // When the camera stops, recalculate clusters, if the user zoomed the map
+            // to another zoom level or moved it outside the clustered area.
+            // (OnCameraChangeListener is called, when the camera stops after a gesture or animation)
+            mGoogleMap.setOnCameraChangeListener(cameraPosition -> updateClusters(false));
+
+            // When the map is loaded, update it with earthquakes from the snapshot.
             // To do this, we must set OnMapLoadedCallback listener for the map
             // and override its onMapLoaded method.
-            mGoogleMap.setOnMapLoadedCallback(() -> mUtilsMap.updateMap(mGoogleMap, mQuakes));
+            mGoogleMap.setOnMapLoadedCallback(() -> {
+                mMapLoaded = true;
+                updateMap();
+            });
         });
     }
 
-    // Best practice to initialize a loader is in the fragment's onActivityCreated method,
-    // but we do it in onResume, because we must reload data every time the fragment becomes visible
-    // (user may return from Settings after changing query parameters).
+    // We subscribe to snapshots in onResume, because the filter may change every time
+    // the fragment becomes visible (user may return from Settings after changing query parameters).
+    // Snapshot is not queried again, if quake table and filter didn't change.
     @Override
     public void onResume() {
         super.onResume();
 
-        // Get reference to the LoaderManager
-        LoaderManager loaderManager = getActivity().getSupportLoaderManager();
+        mSnapshotSubscription = mQuakeRepository.getQuakes()
+                .observeOn(AndroidSchedulers.mainThread())  // Map is updated in main thread
+                .subscribe(snapshot -> {
+                    mQuakePoints = snapshot.getPoints();
+
+                    // If the map is not loaded yet, it is updated, when it is loaded
+                    updateMap();
+                });
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
 
-        // Initialize quake list loader and set a listener for loader callbacks.
-        // restartLoader always reloads data.
-        loaderManager.restartLoader(QUAKE_MAP_LOADER_ID, null, mQuakeMapCursorLoaderListener);
+        // Snapshots are not needed, while the map is not visible
+        mSnapshotSubscription.unsubscribe();
     }
 
-    // Updates quake list field
-    private void updateQuakeList(Cursor data) {
-        // Get list of quakes from the cursor and save it to the field
-        mQuakes = Quake.getQuakeListFromCursor(data);
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_KEY_CAMERA_MOVED, mCameraMoved);
     }
 
-    // Listens to LoaderManager callbacks for quake list loader
-    private class QuakeMapCursorLoaderListener implements LoaderManager.LoaderCallbacks<Cursor> {
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
 
-        // Returns new quake list loader
-        @Override
-        public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-            // Create and return new cursor loader that loads quakes from quake table
-            return mQuakeCursorLoaderFactory.createQuakeCursorLoader();
+        // Clusters and bounds can't be displayed any more
+        if (null != mClusterSubscription) {
+            mClusterSubscription.unsubscribe();
+        }
+        if (null != mBoundsSubscription) {
+            mBoundsSubscription.unsubscribe();
+        }
+    }
+
+    // Move camera to all quakes on first load and display their clusters
+    private void updateMap() {
+        // Map is not ready yet, it will be updated when it is loaded
+        if (null == mGoogleMap || !mMapLoaded) {
+            return;
         }
 
-        // Method is called, when load is finished
-        @Override
-        public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-            // Update quake list field with new cursor
-            updateQuakeList(data);
+        // Camera was already moved, keep position chosen by the user
+        if (mCameraMoved) {
+            // Quakes changed, so clusters must be recalculated even if zoom level is the same
+            updateClusters(true);
+        } else {
+            moveCameraToQuakes();
+        }
+    }
 
-            // Update map with new list of quakes
-            mUtilsMap.updateMap(mGoogleMap, mQuakes);
+    // Calculate bounds of all quakes in background and move camera to them
+    private void moveCameraToQuakes() {
+        if (null != mBoundsSubscription) {
+            mBoundsSubscription.unsubscribe();
         }
 
-        // Method is called when data from loader is no longer valid
-        @Override
-        public void onLoaderReset(Loader<Cursor> loader) {
-            // Do nothing, keep map with previously loaded list of quakes
+        final QuakePoints quakePoints = mQuakePoints;
+
+        mBoundsSubscription = Observable.fromCallable(() -> UtilsMap.calculateBounds(quakePoints))
+                .subscribeOn(Schedulers.computation())  // Bounds are calculated in background thread
+                .observeOn(AndroidSchedulers.mainThread())  // and camera is moved in main thread
+                .subscribe(
+                        bounds -> {
+                            // If there are no quakes yet (before the first sync), camera is moved again
+                            // when the quakes are loaded.
+                            mCameraMoved = quakePoints.size() > 0;
+
+                            mUtilsMap.moveCamera(mGoogleMap, bounds);
+
+                            // Display clusters for new visible area
+                            updateClusters(true);
+                        },
+                        error -> { });
+    }
+
+    // Calculate clusters of visible quakes for the current zoom level in background and display them
+    private void updateClusters(boolean quakesChanged) {
+        if (null == mGoogleMap || !mMapLoaded) {
+            return;
         }
+
+        int zoom = (int) mGoogleMap.getCameraPosition().zoom;
+        GeoMath.Viewport visibleViewport = UtilsMap.getVisibleViewport(mGoogleMap);
+
+        // Camera moved inside clustered area, but zoom level didn't change, so the clusters are the same
+        if (!quakesChanged && zoom == mClusterZoom
+                && null != mClusterViewport && mClusterViewport.contains(visibleViewport)) {
+            return;
+        }
+
+        mClusterZoom = zoom;
+
+        // Area with margins, so that small pans don't recalculate clusters
+        final GeoMath.Viewport clusterViewport = visibleViewport.expand(VIEWPORT_MARGIN);
+        mClusterViewport = clusterViewport;
+
+        // Previous clusters are outdated
+        if (null != mClusterSubscription) {
+            mClusterSubscription.unsubscribe();
+        }
+
+        final QuakePoints quakePoints = mQuakePoints;
+
+        // Render cost depends on the number of visible quakes, not on the size of the catalog
+        mClusterSubscription = Observable.fromCallable(
+                        () -> mQuakeClusterer.cluster(quakePoints.within(clusterViewport), zoom))
+                .subscribeOn(Schedulers.computation())  // Clusters are calculated in background thread
+                .observeOn(AndroidSchedulers.mainThread())  // and displayed in main thread
+                .subscribe(
+                        clusters -> mUtilsMap.updateMarkers(mGoogleMap, mMarkerReconciler, clusters),
+                        error -> mClusterViewport = null);
     }
 }
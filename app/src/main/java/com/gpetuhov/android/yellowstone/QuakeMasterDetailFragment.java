@@ -68,7 +68,7 @@ public class QuakeMasterDetailFragment extends Fragment
     // we must either start new activity with quake details (on phone),
     // or display new child fragment with quake details in the corresponding FrameLayout.
     @Override
-    public void onQuakeSelected(Quake quake) {
+    public void onQuakeSelected(String quakeId) {
 
         // Check if the container (FrameLayout) for the child fragment with quake details exists
         // (on phone XML layout there is no such resource id, on tablet XML it is present).
@@ -77,7 +77,7 @@ public class QuakeMasterDetailFragment extends Fragment
             // If resource id does not exist, then we are on phone and must start new activity
 
             // Create explicit intent to start activity with details of the earthquake
-            Intent intent = QuakePagerActivity.newIntent(getActivity(), quake);
+            Intent intent = QuakePagerActivity.newIntent(getActivity(), quakeId);
 
             // Start activity with details of the earthquake
             startActivity(intent);
@@ -85,8 +85,8 @@ public class QuakeMasterDetailFragment extends Fragment
         } else {
             // If resource id exists, then we are on tablet and must create new child fragment and add it
 
-            // Create new fragment and pass quake as the fragment argument
-            Fragment newDetail = QuakeFragment.newInstance(quake);
+            // Create new fragment and pass USGS ID of the quake as the fragment argument
+            Fragment newDetail = QuakeFragment.newInstance(quakeId);
 
             // Get reference to fragment manager and replace fragment in the corresponding container
             // by the new fragment (this is done, because fragment container may already contain
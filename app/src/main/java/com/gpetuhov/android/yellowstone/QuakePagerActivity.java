@@ -2,53 +2,51 @@ package com.gpetuhov.android.yellowstone;
 
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentStatePagerAdapter;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.Loader;
 import android.support.v4.view.ViewPager;
 
-import com.gpetuhov.android.yellowstone.data.QuakeCursorLoaderFactory;
-
-import java.util.List;
+import com.gpetuhov.android.yellowstone.data.QuakeRepository;
 
 import javax.inject.Inject;
 
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+
 
 // Activity for details of the earthquake.
 // Uses ViewPager to swipe between earthquakes.
+// Pages are backed by the shared quake snapshot (see QuakeRepository): only USGS IDs
+// of the quakes are needed for the pages, and position of the quake is found by USGS ID
+// in constant time, so opening the pager doesn't depend on the number of quakes.
 public class QuakePagerActivity extends VisibleActivity {
 
-    // This activity's CursorLoader ID
-    private static final int QUAKE_PAGER_LOADER_ID = 4;
-
-    // Key for extra data in intent
-    private static final String EXTRA_KEY_QUAKE = "quake_extra_key";
+    // Key for extra data in intent (USGS ID of the quake)
+    private static final String EXTRA_KEY_QUAKE_ID = "quake_id_extra_key";
 
-    // Keeps instance of QuakeCursorLoaderFactory. Injected by Dagger.
-    @Inject QuakeCursorLoaderFactory mQuakeCursorLoaderFactory;
+    // Keeps instance of QuakeRepository. Injected by Dagger.
+    @Inject QuakeRepository mQuakeRepository;
 
     // Stores view pager to swipe between earthquakes
     private ViewPager mViewPager;
 
-    // List of earthquakes
-    private List<Quake> mQuakes;
+    // Snapshot of earthquakes (null, until the first snapshot is received)
+    private QuakeSnapshot mSnapshot;
 
-    // Listener to LoaderManager callbacks for quake list loader
-    private QuakePagerCursorLoaderListener mQuakePagerCursorLoaderListener;
+    // Subscription to quake snapshots
+    private Subscription mSnapshotSubscription;
 
     // Return new intent with extra data to start this activity
-    public static Intent newIntent(Context packageContext, Quake quake) {
+    public static Intent newIntent(Context packageContext, String quakeId) {
 
         // Create explicit intent to start this activity
         Intent intent = new Intent(packageContext, QuakePagerActivity.class);
 
-        // Put ID of earthquake as extra data in intent
-        intent.putExtra(EXTRA_KEY_QUAKE, quake);
+        // Put USGS ID of earthquake as extra data in intent
+        intent.putExtra(EXTRA_KEY_QUAKE_ID, quakeId);
 
         return intent;
     }
@@ -60,19 +58,43 @@ public class QuakePagerActivity extends VisibleActivity {
         // Inject UtilsQuakeList into this activity
         YellowstoneApp.getAppComponent().inject(this);
 
-        mQuakePagerCursorLoaderListener = new QuakePagerCursorLoaderListener();
-
         // Set layout for the activity
         setContentView(R.layout.activtiy_quake_pager);
 
         // Get reference to view pager
         mViewPager = (ViewPager) findViewById(R.id.activity_quake_pager_viewpager);
 
-        // Get reference to the LoaderManager
-        LoaderManager loaderManager = getSupportLoaderManager();
+        // Receive snapshots of quakes (the same snapshot, that other screens use,
+        // and new one after every change of quake table).
+        mSnapshotSubscription = mQuakeRepository.getQuakes()
+                .observeOn(AndroidSchedulers.mainThread())  // Pages are updated in main thread
+                .subscribe(this::onSnapshotReceived);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Activity doesn't need snapshots any more
+        mSnapshotSubscription.unsubscribe();
+    }
+
+    // Update pages with new snapshot of quakes
+    private void onSnapshotReceived(QuakeSnapshot snapshot) {
+        // If the snapshot is updated, stay on the quake, that is displayed now.
+        // Otherwise get USGS ID of the quake from extra data of the intent, that started this activity.
+        String quakeId = getCurrentQuakeId();
+        if (null == quakeId) {
+            quakeId = getIntent().getStringExtra(EXTRA_KEY_QUAKE_ID);
+        }
+
+        mSnapshot = snapshot;
+
+        // Update ViewPager with new snapshot
+        updateViewPager();
 
-        // Initialize quake list loader and set a listener for loader callbacks
-        loaderManager.initLoader(QUAKE_PAGER_LOADER_ID, null, mQuakePagerCursorLoaderListener);
+        // Set position of this quake as the position of current item for the ViewPager.
+        mViewPager.setCurrentItem(getPositionOfQuake(quakeId));
     }
 
     // Updates ViewPager with new data
@@ -87,53 +109,32 @@ public class QuakePagerActivity extends VisibleActivity {
         mViewPager.setAdapter(new FragmentStatePagerAdapter(fragmentManager) {
             @Override
             public Fragment getItem(int position) {
-                // Get quake at "position" from the list
-                Quake quake = mQuakes.get(position);
-
                 // Return QuakeFragment with details of the quake at "position".
-                // Quake to display is passed to the instance of QuakeFragment
-                // as a fragment argument.
-                return QuakeFragment.newInstance(quake);
+                // Only USGS ID of the quake is passed to the instance of QuakeFragment
+                // as a fragment argument (QuakeFragment resolves the quake in QuakeCache).
+                return QuakeFragment.newInstance(mSnapshot.getId(position));
             }
 
             @Override
             public int getCount() {
-                // Return size of the list of quakes
-                return mQuakes.size();
+                // Return number of quakes in the snapshot
+                return null == mSnapshot ? 0 : mSnapshot.size();
             }
         });
     }
 
-    // Listens to LoaderManager callbacks for quake list loader
-    private class QuakePagerCursorLoaderListener implements LoaderManager.LoaderCallbacks<Cursor> {
-
-        // Returns new quake list loader
-        @Override
-        public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-            // Create and return new cursor loader that loads quakes from quake table
-            return mQuakeCursorLoaderFactory.createQuakeCursorLoader();
-        }
-
-        // Method is called, when load is finished
-        @Override
-        public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-            // Get quake list from the loaded cursor
-            mQuakes = Quake.getQuakeListFromCursor(data);
-
-            // Update ViewPager with new quake list
-            updateViewPager();
-
-            // Get quake from extra data of the received intent, that started this activity
-            Quake quake = (Quake) getIntent().getSerializableExtra(EXTRA_KEY_QUAKE);
-
-            // Set position of this quake as the position of current item for the ViewPager.
-            mViewPager.setCurrentItem(mQuakes.indexOf(quake));
+    // Return USGS ID of the quake on the current page (or null, if there are no pages)
+    private String getCurrentQuakeId() {
+        int position = mViewPager.getCurrentItem();
+        if (null == mSnapshot || position >= mSnapshot.size()) {
+            return null;
         }
+        return mSnapshot.getId(position);
+    }
 
-        // Method is called when data from loader is no longer valid
-        @Override
-        public void onLoaderReset(Loader<Cursor> loader) {
-            // Do nothing, keep ViewPager with previously loaded list of quakes
-        }
+    // Return position of the quake with USGS ID in the snapshot (or 0, if there is no such quake)
+    private int getPositionOfQuake(String quakeId) {
+        int position = mSnapshot.getPositionOfQuake(quakeId);
+        return position == -1 ? 0 : position;
     }
 }
@@ -9,9 +9,12 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
 import android.os.SystemClock;
+import android.util.Log;
 import android.support.v4.app.NotificationCompat;
 import android.support.v7.preference.PreferenceManager;
 
+import com.gpetuhov.android.yellowstone.sync.QuakePollScheduler;
+import com.gpetuhov.android.yellowstone.sync.QuakeSyncCoordinator;
 import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
 
 import javax.inject.Inject;
@@ -29,7 +32,8 @@ public class QuakePollService extends IntentService {
     public static final String PERM_PRIVATE =
             "com.gpetuhov.android.yellowstone.PRIVATE";
 
-    // Polling interval 1 hour (for release)
+    // Polling interval 1 hour (for release).
+    // Interval from settings is the max interval (during quiet periods).
     public static final long POLL_INTERVAL_HOUR = AlarmManager.INTERVAL_HOUR;
 
     // Key for notification request code in outgoing intent
@@ -41,23 +45,71 @@ public class QuakePollService extends IntentService {
     // ID of new quake notification. Older notifications are replaced by new with the same ID.
     public static final int QUAKE_NOTIFICATION_ID = 0;
 
+    // Request code of pending intent for repeating alarm at the max interval
+    private static final int REQUEST_CODE_REPEATING_POLL = 0;
+
+    // Request code of pending intent for one-shot alarm at shorter interval
+    // (pending intents with different request codes are different, so the alarms don't replace each other)
+    private static final int REQUEST_CODE_NEXT_POLL = 1;
+
     // Tag for logging
     private static final String LOG_TAG = QuakePollService.class.getName();
 
-    // Keeps instance of QuakeFetcher. Injected by Dagger.
-    @Inject QuakeFetcher mQuakeFetcher;
+    // Keeps instance of QuakeSyncCoordinator. Injected by Dagger.
+    @Inject QuakeSyncCoordinator mQuakeSyncCoordinator;
 
     // Keeps instance of UtilPrefs. Injected by Dagger.
     @Inject UtilsPrefs mUtilsPrefs;
 
+    // Keeps instance of QuakePollScheduler. Injected by Dagger.
+    @Inject QuakePollScheduler mQuakePollScheduler;
+
     // Create new intent to start this service
     public static Intent newIntent(Context context) {
         return new Intent(context, QuakePollService.class);
     }
 
-    // Set AlarmManager to start or stop this service depending on settings in SharedPreferences
+    // Set AlarmManager to start or stop this service depending on settings in SharedPreferences.
+    // If polling is on, the service is started at once and then repeatedly at the max interval.
+    // Repeating alarm is kept by AlarmManager, so polling goes on, even if the process dies during a poll.
+    // During seismic activity the service also schedules one-shot poll after shorter interval
+    // (see scheduleNextPoll).
     public static void setServiceAlarm(Context context) {
+        long maxPollIntervalMillis = getMaxPollIntervalMillis(context);
+
+        // If quake poll interval != 0 (not set to "never")
+        if (maxPollIntervalMillis != 0) {
+            // Get reference to AlarmManager
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+            // Turn on AlarmManager for inexact repeating
+            // (every max poll interval AlarmManager will send pending request to start this service).
+            // Time based is set to elapsed time since last system startup.
+            // First poll is now.
+            alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                    SystemClock.elapsedRealtime(), maxPollIntervalMillis,
+                    getServicePendingIntent(context, REQUEST_CODE_REPEATING_POLL));
+        } else {
+            // Otherwise (poll interval is set to "never") turn AlarmManager off
+            cancelServiceAlarm(context);
+        }
+    }
 
+    // Return max interval between polls from settings in milliseconds (0, if polling is off).
+    // Interval is shorter during seismic activity.
+    private static long getMaxPollIntervalMillis(Context context) {
+        // Get quake poll interval (in hours) from SharedPreferences
+        int pollInterval = Integer.parseInt(
+                PreferenceManager.getDefaultSharedPreferences(context)
+                        .getString(context.getString(R.string.pref_refresh_quake_key),
+                                context.getString(R.string.pref_refresh_quake_value_1))
+        );
+
+        return pollInterval * POLL_INTERVAL_HOUR;
+    }
+
+    // Return pending intent with given request code to start this service
+    private static PendingIntent getServicePendingIntent(Context context, int requestCode) {
         // Create new intent to start this service
         Intent i = QuakePollService.newIntent(context);
 
@@ -65,40 +117,39 @@ public class QuakePollService extends IntentService {
         // If pending intent for such intent already exists,
         // getService returns reference to it.
         // Otherwise new pending intent is created.
-        PendingIntent pi = PendingIntent.getService(context, 0, i, 0);
+        return PendingIntent.getService(context, requestCode, i, 0);
+    }
 
+    // Set AlarmManager to start this service once after the interval (in milliseconds).
+    // Previous one-shot alarm for this service is replaced (repeating alarm is kept).
+    private static void setNextPollAlarm(Context context, long intervalMillis) {
         // Get reference to AlarmManager
         AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
 
-        // Get quake poll interval (in hours) from SharedPreferences
-        int pollInterval = Integer.parseInt(
-                PreferenceManager.getDefaultSharedPreferences(context)
-                        .getString(context.getString(R.string.pref_refresh_quake_key),
-                                context.getString(R.string.pref_refresh_quake_value_1))
-        );
+        // Time based is set to elapsed time since last system startup.
+        // Alarm is not exact, so that the system can batch wake-ups.
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + intervalMillis,
+                getServicePendingIntent(context, REQUEST_CODE_NEXT_POLL));
+    }
 
-        // If quake poll interval != 0 (not set to "never")
-        if (pollInterval != 0) {
+    // Turn AlarmManager off for this service (both repeating and one-shot alarms)
+    private static void cancelServiceAlarm(Context context) {
+        cancelAlarm(context, REQUEST_CODE_REPEATING_POLL);
+        cancelAlarm(context, REQUEST_CODE_NEXT_POLL);
+    }
 
-            // Poll interval in milliseconds
-            long pollIntervalMillis = pollInterval * POLL_INTERVAL_HOUR;
+    // Turn AlarmManager off for pending intent with given request code
+    private static void cancelAlarm(Context context, int requestCode) {
+        PendingIntent pi = getServicePendingIntent(context, requestCode);
 
-            // Turn on AlarmManager for inexact repeating
-            // (every poll interval AlarmManager will send pending request to start this service).
-            // Time based is set to elapsed time since last system startup.
-            // First time AlarmManager will trigger after first poll interval from current time.
-            alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
-                    SystemClock.elapsedRealtime(), pollIntervalMillis, pi);
-
-        } else {
-            // Otherwise (poll interval is set to "never") turn AlarmManager off
+        // Get reference to AlarmManager
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
 
-            // Cancel AlarmManager
-            alarmManager.cancel(pi);
+        // Cancel AlarmManager
+        alarmManager.cancel(pi);
 
-            // Cancel pending intent
-            pi.cancel();
-        }
+        // Cancel pending intent
+        pi.cancel();
     }
 
     public QuakePollService() {
@@ -109,19 +160,34 @@ public class QuakePollService extends IntentService {
     public void onCreate() {
         super.onCreate();
 
-        // Inject QuakeFetcher instance into this service field
+        // Inject QuakeSyncCoordinator instance into this service field
         YellowstoneApp.getAppComponent().inject(this);
     }
 
     // Method is called when new intent from the queue is ready to be handled
     @Override
     protected void onHandleIntent(Intent intent) {
+        try {
+            pollQuakes();
+        } finally {
+            // Adaptive polling goes on, even if this poll failed
+            // (if the process dies here, the repeating alarm still polls at the max interval)
+            scheduleNextPoll();
+        }
+    }
+
+    // Fetch quakes and notify user about new ones
+    private void pollQuakes() {
 
-        // Fetch new list of quakes from the network.
-        mQuakeFetcher.fetchQuakes();
+        // Fetch new list of quakes from the network
+        // (or wait for the sync adapter, if it is fetching quakes now).
+        // If USGS server has been failing, its circuit breaker is open
+        // and the poll fails at once without network call.
+        QuakeFetchResult result = mQuakeSyncCoordinator.sync(SyncRun.Trigger.POLL_SERVICE);
 
+        // If sync failed, the flag is left from the previous sync and must not be shown again.
         // If new quakes fetched flag in SharedPreferences is "true"
-        if (mUtilsPrefs.getNewQuakesFetchedFlag()) {
+        if (result.isSuccessful() && mUtilsPrefs.getNewQuakesFetchedFlag()) {
             // Got a new result
 
             // Get reference to resources
@@ -148,6 +214,29 @@ public class QuakePollService extends IntentService {
         }
     }
 
+    // Decide interval until the next poll from recent seismicity in quake table,
+    // set AlarmManager and log the decision (so that the schedule can be tuned).
+    // Only interval shorter than the max one needs one-shot alarm,
+    // otherwise the repeating alarm is enough.
+    private void scheduleNextPoll() {
+        long maxPollIntervalMillis = getMaxPollIntervalMillis(this);
+
+        // Polling was turned off while this poll was running
+        if (maxPollIntervalMillis == 0) {
+            return;
+        }
+
+        PollSchedule.Decision decision = mQuakePollScheduler.scheduleNextPoll(maxPollIntervalMillis);
+
+        Log.i(LOG_TAG, "Quake poll schedule: " + decision);
+
+        if (decision.getIntervalMillis() < maxPollIntervalMillis) {
+            setNextPollAlarm(this, decision.getIntervalMillis());
+        } else {
+            cancelAlarm(this, REQUEST_CODE_NEXT_POLL);
+        }
+    }
+
     // Create new outgoing broadcast intent and send ordered broadcast with it
     private void showBackgroundNotification(int requestCode, Notification notification) {
 
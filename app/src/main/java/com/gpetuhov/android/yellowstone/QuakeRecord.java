@@ -0,0 +1,116 @@
+package com.gpetuhov.android.yellowstone;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+
+// Reusable holder for one quake table row, that is displayed in the list.
+// Unlike Quake object, the record is created once (for example, once per ViewHolder)
+// and filled from cursor rows again and again. Strings (including display strings,
+// that are formatted when quakes are stored) are copied into char buffers,
+// so binding a row into the record neither formats nor allocates anything in steady state
+// (after buffers have grown to the needed size).
+public class QuakeRecord {
+
+    // Column indices of quake table in a cursor.
+    // Resolved once per cursor instead of looking up column names for every row.
+    public static class Columns {
+        final int mRowId;
+        final int mIds;
+        final int mMagnitude;
+        final int mLocation;
+        final int mTime;
+        final int mDisplayMagnitude;
+        final int mDisplayDate;
+
+        public Columns(Cursor cursor) {
+            mRowId = cursor.getColumnIndexOrThrow(QuakeEntry._ID);
+            mIds = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_IDS);
+            mMagnitude = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_MAGNITUDE);
+            mLocation = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_LOCATION);
+            mTime = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_TIME);
+            mDisplayMagnitude = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_DISPLAY_MAGNITUDE);
+            mDisplayDate = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_DISPLAY_DATE);
+        }
+    }
+
+    // Row ID of the quake in quake table
+    private long mRowId;
+
+    // ID of the earthquake that comes from USGS server
+    private final CharArrayBuffer mIds = new CharArrayBuffer(16);
+
+    // Location name of the earthquake
+    private final CharArrayBuffer mLocation = new CharArrayBuffer(64);
+
+    // Magnitude of the earthquake
+    private double mMagnitude;
+
+    // Time of the earthquake (in milliseconds)
+    private long mTimeInMilliseconds;
+
+    // Formatted magnitude (ex. 2.5)
+    private final CharArrayBuffer mFormattedMagnitude = new CharArrayBuffer(8);
+
+    // Formatted date (ex. 2016-09-15 09:42:22 (UTC))
+    private final CharArrayBuffer mFormattedDate = new CharArrayBuffer(32);
+
+    // Fill the record with the current row of the cursor
+    public void bind(Cursor cursor, Columns columns) {
+        mRowId = cursor.getLong(columns.mRowId);
+        cursor.copyStringToBuffer(columns.mIds, mIds);
+        cursor.copyStringToBuffer(columns.mLocation, mLocation);
+        mMagnitude = cursor.getDouble(columns.mMagnitude);
+        mTimeInMilliseconds = cursor.getLong(columns.mTime);
+        cursor.copyStringToBuffer(columns.mDisplayMagnitude, mFormattedMagnitude);
+        cursor.copyStringToBuffer(columns.mDisplayDate, mFormattedDate);
+    }
+
+    // Return row ID of the quake in quake table
+    public long getRowId() {
+        return mRowId;
+    }
+
+    // Return the magnitude of the earthquake
+    public double getMagnitude() {
+        return mMagnitude;
+    }
+
+    // Return the time of the earthquake
+    public long getTimeInMilliseconds() {
+        return mTimeInMilliseconds;
+    }
+
+    // Return USGS ID of the earthquake (creates new String, don't call it during scroll)
+    public String getId() {
+        return new String(mIds.data, 0, mIds.sizeCopied);
+    }
+
+    // Return location name of the earthquake (use with getLocationLength())
+    public char[] getLocation() {
+        return mLocation.data;
+    }
+
+    public int getLocationLength() {
+        return mLocation.sizeCopied;
+    }
+
+    // Return magnitude in char array (use with getFormattedMagnitudeLength())
+    public char[] getFormattedMagnitude() {
+        return mFormattedMagnitude.data;
+    }
+
+    public int getFormattedMagnitudeLength() {
+        return mFormattedMagnitude.sizeCopied;
+    }
+
+    // Return date in char array (use with getFormattedDateLength())
+    public char[] getFormattedDate() {
+        return mFormattedDate.data;
+    }
+
+    public int getFormattedDateLength() {
+        return mFormattedDate.sizeCopied;
+    }
+}
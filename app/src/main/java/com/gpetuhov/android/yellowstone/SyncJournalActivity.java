@@ -0,0 +1,24 @@
+package com.gpetuhov.android.yellowstone;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+
+// Debug screen with journal of sync runs.
+// Available in debug builds only (the menu item is hidden in release builds,
+// and the activity closes at once, if it is started anyway).
+public class SyncJournalActivity extends SingleFragmentActivity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        if (!BuildConfig.DEBUG) {
+            finish();
+        }
+    }
+
+    @Override
+    protected Fragment createFragment() {
+        return new SyncJournalFragment();
+    }
+}
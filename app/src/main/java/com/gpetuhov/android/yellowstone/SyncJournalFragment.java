@@ -0,0 +1,199 @@
+package com.gpetuhov.android.yellowstone;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.gpetuhov.android.yellowstone.data.SyncJournal;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+
+// Displays journal of sync runs with per-stage timings.
+// The journal can be exported as CSV (sent to another app) and cleared.
+public class SyncJournalFragment extends Fragment {
+
+    // Keeps instance of SyncJournal. Injected by Dagger.
+    @Inject SyncJournal mSyncJournal;
+
+    // Displays the journal
+    private TextView mJournalTextView;
+
+    // Journal is read, exported or cleared in background thread
+    private Subscription mJournalSubscription;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // Fragment has its own menu items
+        setHasOptionsMenu(true);
+
+        // Inject SyncJournal into this fragment
+        YellowstoneApp.getAppComponent().inject(this);
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View v = inflater.inflate(R.layout.fragment_sync_journal, container, false);
+
+        mJournalTextView = (TextView) v.findViewById(R.id.sync_journal_text_view);
+
+        return v;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        // New runs may have been recorded while the screen was not visible
+        loadJournal();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        unsubscribe();
+        mJournalTextView = null;
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        super.onCreateOptionsMenu(menu, inflater);
+        inflater.inflate(R.menu.menu_sync_journal, menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+
+        if (id == R.id.action_export) {
+            exportJournal();
+            return true;
+        }
+
+        if (id == R.id.action_clear) {
+            clearJournal();
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
+
+    // Read the journal and display it
+    private void loadJournal() {
+        unsubscribe();
+        mJournalSubscription = Observable.fromCallable(mSyncJournal::getRuns)
+                .subscribeOn(Schedulers.io())   // Journal is read in background thread
+                .observeOn(AndroidSchedulers.mainThread())  // and displayed in main thread
+                .subscribe(this::displayJournal, error -> displayJournal(new ArrayList<>()));
+    }
+
+    // Clear the journal and display it empty
+    private void clearJournal() {
+        unsubscribe();
+        mJournalSubscription = Observable.fromCallable(() -> {
+                    mSyncJournal.clear();
+                    return mSyncJournal.getRuns();
+                })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::displayJournal, error -> loadJournal());
+    }
+
+    // Send the journal as CSV to another app (mail, messenger, drive)
+    private void exportJournal() {
+        unsubscribe();
+        mJournalSubscription = Observable.fromCallable(mSyncJournal::exportCsv)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(csv -> {
+                    Intent intent = new Intent(Intent.ACTION_SEND);
+                    intent.setType("text/plain");
+                    intent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.sync_journal_export_subject));
+                    intent.putExtra(Intent.EXTRA_TEXT, csv);
+                    startActivity(Intent.createChooser(intent, getString(R.string.action_export)));
+                }, error -> { });
+    }
+
+    // Display summary and all runs (the most recent run first)
+    private void displayJournal(List<SyncRun> syncRuns) {
+        mJournalSubscription = null;
+
+        if (null == mJournalTextView) {
+            return;
+        }
+
+        if (syncRuns.isEmpty()) {
+            mJournalTextView.setText(R.string.sync_journal_empty);
+            return;
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        StringBuilder text = new StringBuilder(formatSummary(syncRuns)).append("\n\n");
+
+        for (SyncRun syncRun : syncRuns) {
+            text.append(dateFormat.format(new Date(syncRun.getStartTime())))
+                    .append(' ').append(syncRun.getTrigger())
+                    .append(' ').append(syncRun.getOutcome())
+                    .append(String.format(Locale.US,
+                            "\n  request %d ms, parse %d ms, save %d ms, total %d ms",
+                            syncRun.getRequestMillis(), syncRun.getParseMillis(),
+                            syncRun.getSaveMillis(), syncRun.getTotalMillis()))
+                    .append(String.format(Locale.US,
+                            "\n  %d bytes, %d features, +%d ~%d -%d rows\n\n",
+                            syncRun.getBytesReceived(), syncRun.getFeaturesParsed(),
+                            syncRun.getRowsInserted(), syncRun.getRowsUpdated(), syncRun.getRowsDeleted()));
+        }
+
+        mJournalTextView.setText(text);
+    }
+
+    // Return number of runs and median and max total time of successful runs
+    private static String formatSummary(List<SyncRun> syncRuns) {
+        List<Long> totalTimes = new ArrayList<>();
+        for (SyncRun syncRun : syncRuns) {
+            if (QuakeFetchResult.Status.SUCCESS.name().equals(syncRun.getOutcome())) {
+                totalTimes.add(syncRun.getTotalMillis());
+            }
+        }
+
+        if (totalTimes.isEmpty()) {
+            return String.format(Locale.US, "%d runs, none successful", syncRuns.size());
+        }
+
+        Collections.sort(totalTimes);
+
+        return String.format(Locale.US, "%d runs, %d successful: median total %d ms, max %d ms",
+                syncRuns.size(), totalTimes.size(),
+                totalTimes.get(totalTimes.size() / 2), totalTimes.get(totalTimes.size() - 1));
+    }
+
+    // Stop reading, exporting or clearing the journal
+    private void unsubscribe() {
+        if (null != mJournalSubscription) {
+            mJournalSubscription.unsubscribe();
+            mJournalSubscription = null;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.gpetuhov.android.yellowstone.dagger;
 
 import com.gpetuhov.android.yellowstone.MainActivity;
-import com.gpetuhov.android.yellowstone.PhotoLoader;
+import com.gpetuhov.android.yellowstone.PhotoListFragment;
+import com.gpetuhov.android.yellowstone.QuakeFetcher;
 import com.gpetuhov.android.yellowstone.QuakeFragment;
 import com.gpetuhov.android.yellowstone.QuakeListFragment;
 import com.gpetuhov.android.yellowstone.QuakeMapFragment;
 import com.gpetuhov.android.yellowstone.QuakePagerActivity;
 import com.gpetuhov.android.yellowstone.QuakePollService;
+import com.gpetuhov.android.yellowstone.SyncJournalFragment;
 import com.gpetuhov.android.yellowstone.sync.YellowstoneSyncAdapter;
 
 import javax.inject.Singleton;
@@ -21,8 +23,12 @@ public interface AppComponent {
     void inject(YellowstoneSyncAdapter syncAdapter);
     void inject(QuakePollService pollService);
     void inject(QuakeListFragment quakeListFragment);
-    void inject(PhotoLoader photoLoader);
+    void inject(PhotoListFragment photoListFragment);
     void inject(QuakePagerActivity quakePagerActivity);
     void inject(QuakeFragment quakeFragment);
     void inject(QuakeMapFragment quakeMapFragment);
+    void inject(SyncJournalFragment syncJournalFragment);
+
+    // Quake fetcher built with all its dependencies (used by sync load tests)
+    QuakeFetcher getQuakeFetcher();
 }
@@ -6,15 +6,29 @@ import android.content.SharedPreferences;
 import android.support.v7.preference.PreferenceManager;
 
 import com.gpetuhov.android.yellowstone.PhotoFetcher;
+import com.gpetuhov.android.yellowstone.PollSchedule;
 import com.gpetuhov.android.yellowstone.QuakeFetcher;
+import com.gpetuhov.android.yellowstone.RetryPolicy;
+import com.gpetuhov.android.yellowstone.data.PhotoCache;
+import com.gpetuhov.android.yellowstone.data.QuakeCache;
 import com.gpetuhov.android.yellowstone.data.QuakeCursorLoaderFactory;
+import com.gpetuhov.android.yellowstone.data.QuakeRepository;
+import com.gpetuhov.android.yellowstone.data.SyncJournal;
+import com.gpetuhov.android.yellowstone.sync.QuakePollScheduler;
+import com.gpetuhov.android.yellowstone.sync.QuakeSyncCoordinator;
+import com.gpetuhov.android.yellowstone.utils.HttpCachePolicy;
+import com.gpetuhov.android.yellowstone.utils.ResilienceInterceptor;
 import com.gpetuhov.android.yellowstone.utils.UtilsMap;
 import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
 
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 
@@ -25,10 +39,63 @@ public class AppModule {
     // USGS base URL
     public static final String USGS_BASE_URL = "http://earthquake.usgs.gov/fdsnws/event/1/";
 
+    // USGS host (for HTTP cache policy)
+    public static final String USGS_HOST = "earthquake.usgs.gov";
+
+    // Flickr host (for HTTP cache policy)
+    public static final String FLICKR_HOST = "api.flickr.com";
+
+    // HTTP disk cache directory name (inside application cache directory)
+    public static final String HTTP_CACHE_DIR = "http";
+
+    // HTTP disk cache size (10 MB)
+    public static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
+    // Max age for USGS responses without freshness information (1 minute)
+    // and how long stale USGS response may be served while it is revalidated (5 minutes).
+    private static final int USGS_MAX_AGE_SECONDS = 60;
+    private static final int USGS_STALE_SECONDS = 5 * 60;
+
+    // Max age for Flickr responses without freshness information (10 minutes)
+    // and how long stale Flickr response may be served while it is revalidated (1 day).
+    private static final int FLICKR_MAX_AGE_SECONDS = 10 * 60;
+    private static final int FLICKR_STALE_SECONDS = 24 * 60 * 60;
+
+    // Max number of attempts of a failed request (the first attempt and retries),
+    // delay before the first retry and max delay between retries (in milliseconds)
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MILLIS = 1000;
+    private static final long RETRY_MAX_DELAY_MILLIS = 8000;
+
+    // Number of consecutive failed requests to a host, that opens its circuit breaker,
+    // and how long the breaker stays open (doubled after every failed trial up to max)
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 3;
+    private static final long CIRCUIT_OPEN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long CIRCUIT_MAX_OPEN_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    // Bounds of adaptive quake poll interval: the min interval is used during swarms,
+    // the max interval (quiet periods) is set in settings.
+    private static final long POLL_MIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    // Recent seismicity is read from this window.
+    // Event rate (per hour) and magnitude, that start to tighten the poll schedule.
+    private static final long POLL_ACTIVITY_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(6);
+    private static final double POLL_BASE_RATE_PER_HOUR = 1.0;
+    private static final double POLL_BASE_MAGNITUDE = 2.5;
+
     Application mApplication;
 
+    // Base URL of USGS event service (replaced by local server in load tests)
+    private String mUsgsBaseUrl;
+
     public AppModule(Application application) {
+        this(application, USGS_BASE_URL);
+    }
+
+    // Module, that fetches quakes from another server with the same API as USGS
+    public AppModule(Application application, String usgsBaseUrl) {
         mApplication = application;
+        mUsgsBaseUrl = usgsBaseUrl;
     }
 
     // Returns instance of Application class
@@ -69,11 +136,51 @@ public class AppModule {
         return  utilsMap;
     }
 
-    // Returns instance of OkHttpClient
+    // Returns HTTP disk cache
     @Provides
     @Singleton
-    OkHttpClient provideOkHttpClient() {
-        OkHttpClient client = new OkHttpClient();
+    Cache provideHttpCache(Application application) {
+        Cache cache = new Cache(new File(application.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE);
+        return cache;
+    }
+
+    // Returns HTTP cache policy with counters of cache hits, misses and revalidations
+    @Provides
+    @Singleton
+    HttpCachePolicy provideHttpCachePolicy() {
+        HttpCachePolicy httpCachePolicy = new HttpCachePolicy()
+                .addHost(USGS_HOST, USGS_MAX_AGE_SECONDS, USGS_STALE_SECONDS)
+                .addHost(FLICKR_HOST, FLICKR_MAX_AGE_SECONDS, FLICKR_STALE_SECONDS);
+        return httpCachePolicy;
+    }
+
+    // Returns resilience layer with retries and circuit breakers per host
+    @Provides
+    @Singleton
+    ResilienceInterceptor provideResilienceInterceptor() {
+        RetryPolicy retryPolicy = new RetryPolicy(MAX_ATTEMPTS, RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS);
+        ResilienceInterceptor resilienceInterceptor = new ResilienceInterceptor(retryPolicy,
+                CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS, CIRCUIT_MAX_OPEN_MILLIS);
+        return resilienceInterceptor;
+    }
+
+    // Returns instance of OkHttpClient with HTTP disk cache.
+    // Resilience layer is the outermost interceptor, so responses served from cache
+    // never count as failures, and every retry goes through the cache policy again.
+    @Provides
+    @Singleton
+    OkHttpClient provideOkHttpClient(Cache cache, HttpCachePolicy httpCachePolicy,
+                                     ResilienceInterceptor resilienceInterceptor) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(cache)
+                .addInterceptor(resilienceInterceptor)
+                .addInterceptor(httpCachePolicy.getApplicationInterceptor())
+                .addNetworkInterceptor(httpCachePolicy.getNetworkInterceptor())
+                .build();
+
+        // Stale responses are revalidated in background with the same client
+        httpCachePolicy.setCallFactory(client);
+
         return client;
     }
 
@@ -82,7 +189,7 @@ public class AppModule {
     @Singleton
     Retrofit provideRetrofitForQuakes(OkHttpClient okHttpClient) {
         Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(USGS_BASE_URL)
+                .baseUrl(mUsgsBaseUrl)
                 .client(okHttpClient)
                 .build();
         return retrofit;
@@ -96,6 +203,32 @@ public class AppModule {
         return quakeFetcher;
     }
 
+    // Returns single entry point for quake sync (shared by poll service and sync adapter)
+    @Provides
+    @Singleton
+    QuakeSyncCoordinator providesQuakeSyncCoordinator(QuakeFetcher quakeFetcher, SyncJournal syncJournal) {
+        QuakeSyncCoordinator quakeSyncCoordinator = new QuakeSyncCoordinator(quakeFetcher, syncJournal);
+        return quakeSyncCoordinator;
+    }
+
+    // Returns journal of sync runs
+    @Provides
+    @Singleton
+    SyncJournal providesSyncJournal(ContentResolver contentResolver) {
+        SyncJournal syncJournal = new SyncJournal(contentResolver);
+        return syncJournal;
+    }
+
+    // Returns adaptive scheduler of quake polls
+    @Provides
+    @Singleton
+    QuakePollScheduler providesQuakePollScheduler(ContentResolver contentResolver, UtilsPrefs utilsPrefs) {
+        PollSchedule pollSchedule = new PollSchedule(POLL_MIN_INTERVAL_MILLIS, POLL_ACTIVITY_WINDOW_MILLIS,
+                POLL_BASE_RATE_PER_HOUR, POLL_BASE_MAGNITUDE);
+        QuakePollScheduler quakePollScheduler = new QuakePollScheduler(contentResolver, utilsPrefs, pollSchedule);
+        return quakePollScheduler;
+    }
+
     // Returns instance of PhotoFetcher
     @Provides
     @Singleton
@@ -104,6 +237,14 @@ public class AppModule {
         return photoFetcher;
     }
 
+    // Returns persistent cache of the photo list
+    @Provides
+    @Singleton
+    PhotoCache providesPhotoCache(ContentResolver contentResolver, UtilsPrefs utilsPrefs) {
+        PhotoCache photoCache = new PhotoCache(contentResolver, utilsPrefs);
+        return photoCache;
+    }
+
     // Returns instance of QuakeCursorLoaderFactory
     @Provides
     @Singleton
@@ -111,4 +252,21 @@ public class AppModule {
         QuakeCursorLoaderFactory quakeCursorLoaderFactory = new QuakeCursorLoaderFactory(application, utilsPrefs);
         return quakeCursorLoaderFactory;
     }
+
+    // Returns shared in-memory cache of quakes
+    @Provides
+    @Singleton
+    QuakeCache providesQuakeCache(ContentResolver contentResolver) {
+        QuakeCache quakeCache = new QuakeCache(contentResolver);
+        return quakeCache;
+    }
+
+    // Returns shared repository of quake snapshots for all screens
+    @Provides
+    @Singleton
+    QuakeRepository providesQuakeRepository(ContentResolver contentResolver,
+                                            QuakeCursorLoaderFactory quakeCursorLoaderFactory) {
+        QuakeRepository quakeRepository = new QuakeRepository(contentResolver, quakeCursorLoaderFactory);
+        return quakeRepository;
+    }
 }
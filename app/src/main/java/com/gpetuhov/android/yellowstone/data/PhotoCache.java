@@ -0,0 +1,211 @@
+package com.gpetuhov.android.yellowstone.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.gpetuhov.android.yellowstone.PhotoListItem;
+import com.gpetuhov.android.yellowstone.PhotoPage;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.PhotoEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Persistent cache of the photo list (photo details, not images) in photos table.
+// Photo list is displayed from the cache at once (also without network)
+// and refreshed from Flickr only when the cache is older than TTL.
+// Refresh fetches the first page again, and new photos are put before cached ones.
+// If the first page has no photos in common with the cache, more than a page of photos
+// was uploaded since the last refresh, so the cache starts over from this page.
+// Only the first MAX_CACHED_PAGES pages are cached, deeper pages are fetched again when needed.
+// Time of the last refresh and number of pages are kept in SharedPreferences.
+// Methods query the database, so they must be called in background thread.
+public class PhotoCache {
+
+    // Cached photo list is refreshed, if it is older than this
+    public static final long TTL = TimeUnit.MINUTES.toMillis(30);
+
+    // Max number of cached pages
+    public static final int MAX_CACHED_PAGES = 5;
+
+    // Columns of cached photos
+    private static final String[] PHOTO_PROJECTION = {
+            PhotoEntry.COLUMN_PHOTO_ID,
+            PhotoEntry.COLUMN_CAPTION,
+            PhotoEntry.COLUMN_URL,
+            PhotoEntry.COLUMN_OWNER
+    };
+
+    private final ContentResolver mContentResolver;
+
+    private final UtilsPrefs mUtilsPrefs;
+
+    public PhotoCache(ContentResolver contentResolver, UtilsPrefs utilsPrefs) {
+        mContentResolver = contentResolver;
+        mUtilsPrefs = utilsPrefs;
+    }
+
+    // Return all cached photos as one page (its number is the number of cached pages)
+    public PhotoPage getPhotos() {
+        List<PhotoListItem> items = new ArrayList<>();
+
+        Cursor cursor = mContentResolver.query(
+                PhotoEntry.CONTENT_URI, PHOTO_PROJECTION, null, null, PhotoEntry.SORT_ORDER);
+
+        if (null != cursor) {
+            try {
+                while (cursor.moveToNext()) {
+                    PhotoListItem item = new PhotoListItem();
+                    item.setId(cursor.getString(0));
+                    item.setCaption(cursor.getString(1));
+                    item.setUrl(cursor.getString(2));
+                    item.setOwner(cursor.getString(3));
+                    items.add(item);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return new PhotoPage(mUtilsPrefs.getPhotoCachedPageCount(), mUtilsPrefs.getPhotoPageCount(), items);
+    }
+
+    // Return true, if the cached photo list must be refreshed
+    public boolean isStale() {
+        return isStale(System.currentTimeMillis());
+    }
+
+    // Return true, if the cached photo list must be refreshed at the moment
+    // (never refreshed, older than TTL or refreshed "in the future" after clock change)
+    boolean isStale(long now) {
+        long refreshTime = mUtilsPrefs.getPhotoRefreshTime();
+        return refreshTime == 0 || now - refreshTime > TTL || now < refreshTime;
+    }
+
+    // Store page fetched from Flickr with given number of photos per page
+    public void putPage(PhotoPage photoPage, int perPage) {
+        putPage(photoPage, perPage, System.currentTimeMillis());
+    }
+
+    // Store page fetched from Flickr at the moment.
+    // First page is a refresh: its photos are put before cached ones
+    // (or replace them, if the page doesn't overlap with the cache).
+    // Other pages are put after cached ones.
+    // The cache is trimmed to MAX_CACHED_PAGES pages.
+    void putPage(PhotoPage photoPage, int perPage, long now) {
+        int page = photoPage.getPage();
+
+        // Deep pages are not cached
+        if (page > MAX_CACHED_PAGES) {
+            return;
+        }
+
+        List<PhotoListItem> items = photoPage.getItems();
+
+        // Photos between the new first page and the cached ones are unknown,
+        // and page numbers of cached pages have shifted, so the cache starts over
+        if (page == 1 && !items.isEmpty() && !isAnyCached(items)) {
+            clear();
+        }
+
+        // Position of the first photo of the page
+        int firstPosition = page == 1
+                ? queryPosition("MIN") - items.size()
+                : queryPosition("MAX") + 1;
+
+        ContentValues[] values = new ContentValues[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            values[i] = getPhotoContentValues(items.get(i), firstPosition + i);
+        }
+
+        // Photos, that are already cached, keep their positions
+        mContentResolver.bulkInsert(PhotoEntry.CONTENT_URI, values);
+
+        if (page == 1) {
+            mUtilsPrefs.setPhotoRefreshTime(now);
+        }
+
+        mUtilsPrefs.setPhotoCachedPageCount(Math.max(page, mUtilsPrefs.getPhotoCachedPageCount()));
+        mUtilsPrefs.setPhotoPageCount(photoPage.getPageCount());
+
+        // Refresh puts new photos on top, so the last ones are dropped
+        trim(MAX_CACHED_PAGES * perPage);
+    }
+
+    // Return true, if any of the photos is cached
+    private boolean isAnyCached(List<PhotoListItem> items) {
+        String[] ids = new String[items.size()];
+        StringBuilder selection = new StringBuilder(PhotoEntry.COLUMN_PHOTO_ID + " IN (");
+
+        for (int i = 0; i < items.size(); i++) {
+            ids[i] = items.get(i).getId();
+            selection.append(i == 0 ? "?" : ",?");
+        }
+
+        selection.append(")");
+
+        Cursor cursor = mContentResolver.query(PhotoEntry.CONTENT_URI,
+                new String[] { PhotoEntry.COLUMN_PHOTO_ID }, selection.toString(), ids, null);
+
+        if (null == cursor) {
+            return false;
+        }
+
+        try {
+            return cursor.getCount() > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Delete photos after the first maxCount ones
+    private void trim(int maxCount) {
+        // If there are no more than maxCount photos, subquery returns NULL and nothing is deleted
+        mContentResolver.delete(PhotoEntry.CONTENT_URI,
+                PhotoEntry.COLUMN_POSITION + " > (SELECT " + PhotoEntry.COLUMN_POSITION
+                        + " FROM " + PhotoEntry.TABLE_NAME
+                        + " ORDER BY " + PhotoEntry.SORT_ORDER + " LIMIT 1 OFFSET ?)",
+                new String[] { String.valueOf(maxCount - 1) });
+    }
+
+    // Delete all cached photos
+    public void clear() {
+        mContentResolver.delete(PhotoEntry.CONTENT_URI, null, null);
+        mUtilsPrefs.setPhotoRefreshTime(0);
+        mUtilsPrefs.setPhotoCachedPageCount(0);
+        mUtilsPrefs.setPhotoPageCount(0);
+    }
+
+    // Return MIN or MAX position of cached photos (0, if there are no cached photos)
+    private int queryPosition(String function) {
+        Cursor cursor = mContentResolver.query(PhotoEntry.CONTENT_URI,
+                new String[] { function + "(" + PhotoEntry.COLUMN_POSITION + ")" }, null, null, null);
+
+        int position = 0;
+
+        if (null != cursor) {
+            try {
+                if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                    position = cursor.getInt(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return position;
+    }
+
+    // Return content values of the photo at the position
+    private static ContentValues getPhotoContentValues(PhotoListItem item, int position) {
+        ContentValues values = new ContentValues();
+        values.put(PhotoEntry.COLUMN_PHOTO_ID, item.getId());
+        values.put(PhotoEntry.COLUMN_CAPTION, item.getCaption());
+        values.put(PhotoEntry.COLUMN_URL, item.getUrl());
+        values.put(PhotoEntry.COLUMN_OWNER, item.getOwner());
+        values.put(PhotoEntry.COLUMN_POSITION, position);
+        return values;
+    }
+}
@@ -0,0 +1,111 @@
+package com.gpetuhov.android.yellowstone.data;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.util.LruCache;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+// Shared in-memory cache of recently displayed quakes, keyed by USGS ID.
+// Screens pass only USGS ID of the quake to each other (in intents and fragment arguments)
+// and resolve the quake here. USGS ID is used instead of _id, because upserted rows get new _id.
+// If the quake is not cached (for example, after process death),
+// it is queried from quake table by USGS ID (the column has unique index).
+// When quake table changes (sync may revise quakes), the cache is cleared,
+// and screens, that display quakes, are notified to resolve them again (see getChanges()).
+public class QuakeCache {
+
+    // Max number of cached quakes
+    private static final int MAX_SIZE = 256;
+
+    // Selection (WHERE clause) for the quake with USGS ID
+    private static final String IDS_SELECTION = QuakeEntry.COLUMN_IDS + " = ?";
+
+    private final ContentResolver mContentResolver;
+
+    private final LruCache<String, Quake> mQuakes = new LruCache<>(MAX_SIZE);
+
+    // Incremented every time the cache is cleared.
+    // Quakes, that were queried before the change of quake table, are not cached.
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    // Emits after the cache is cleared (in background thread)
+    private final PublishSubject<Void> mChanges = PublishSubject.create();
+
+    // Clears the cache, when quake table changes (provider notifies once per sync)
+    private final ContentObserver mContentObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            mGeneration.incrementAndGet();
+            mQuakes.evictAll();
+            mChanges.onNext(null);
+        }
+    };
+
+    public QuakeCache(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+
+        // Cache is a singleton, so the observer is never unregistered
+        mContentResolver.registerContentObserver(QuakeEntry.CONTENT_URI, true, mContentObserver);
+    }
+
+    // Put quake into cache (replaces previously cached version of the same quake)
+    public void put(Quake quake) {
+        if (null != quake && null != quake.getId()) {
+            mQuakes.put(quake.getId(), quake);
+        }
+    }
+
+    // Return stream, that emits after quake table has changed and the cache is cleared
+    // (in background thread). Displayed quakes must be resolved again with get().
+    public Observable<Void> getChanges() {
+        return mChanges.asObservable();
+    }
+
+    // Return cached quake or null, if the quake is not cached. Doesn't touch the database.
+    public Quake getCached(String quakeId) {
+        return null == quakeId ? null : mQuakes.get(quakeId);
+    }
+
+    // Return quake with USGS ID from cache or from quake table (or null, if there is no such quake).
+    // Queries the database if the quake is not cached, so must be called in background thread.
+    public Quake get(String quakeId) {
+        Quake quake = getCached(quakeId);
+
+        if (null == quake && null != quakeId) {
+            int generation = mGeneration.get();
+            quake = query(quakeId);
+
+            // If quake table changed during the query, the quake may be already outdated
+            if (generation == mGeneration.get()) {
+                put(quake);
+            }
+        }
+
+        return quake;
+    }
+
+    // Query quake with USGS ID from quake table
+    private Quake query(String quakeId) {
+        Cursor cursor = mContentResolver.query(
+                QuakeEntry.CONTENT_URI, null, IDS_SELECTION, new String[] { quakeId }, null);
+
+        if (null == cursor) {
+            return null;
+        }
+
+        try {
+            return cursor.moveToFirst() ? UtilsQuake.getQuakeFromCursor(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package com.gpetuhov.android.yellowstone.data;
 
 import android.content.Context;
-import android.support.v4.content.CursorLoader;
+import android.database.Cursor;
 
+import com.gpetuhov.android.yellowstone.QuakePoints;
+import com.gpetuhov.android.yellowstone.QuakeSnapshot;
 import com.gpetuhov.android.yellowstone.R;
 import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
 import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+import com.gpetuhov.android.yellowstone.utils.UtilsQuake;
 
 public class QuakeCursorLoaderFactory {
 
+    // Selection (WHERE clause) for quakes with minimum magnitude from SharedPreferences
+    private static final String MAGNITUDE_SELECTION = QuakeEntry.COLUMN_MAGNITUDE + " >= ?";    // WHERE mag >=
+
+    // Columns of quake snapshot (see QuakeRepository)
+    private static final String[] SNAPSHOT_PROJECTION = {
+            QuakeEntry.COLUMN_IDS,
+            QuakeEntry.COLUMN_LATITUDE,
+            QuakeEntry.COLUMN_LONGITUDE,
+            QuakeEntry.COLUMN_MAGNITUDE,
+            QuakeEntry.COLUMN_UPDATED
+    };
+
     private Context mContext;
     private UtilsPrefs mUtilsPrefs;
 
@@ -17,25 +32,62 @@ public class QuakeCursorLoaderFactory {
         mUtilsPrefs = utilsPrefs;
     }
 
-    public CursorLoader createQuakeCursorLoader() {
+    // Return new loader that loads the first page of quakes with given page size
+    // (and reloads next pages, that the source displays now) and diffs them with the displayed pages.
+    // Next pages are queried with queryNextQuakePage().
+    public QuakeListLoader createQuakeListLoader(int pageSize, QuakeListLoader.Source source) {
+        return new QuakeListLoader(mContext,
+                MAGNITUDE_SELECTION,
+                getMagnitudeSelectionArgs(),
+                pageSize,
+                source);  // Pages are always sorted by time
+    }
+
+    // Query the page of quakes with given page size, that starts after the row
+    // with given time and _id. Must be called in background thread.
+    public QuakePageCursor queryNextQuakePage(int pageSize, long lastTime, long lastId) {
+        Cursor cursor = mContext.getContentResolver().query(
+                QuakeEntry.buildNextPageUri(pageSize, lastTime, lastId),
+                null,
+                MAGNITUDE_SELECTION,
+                getMagnitudeSelectionArgs(),
+                null);
+
+        return null == cursor ? null : new QuakePageCursor(cursor, pageSize);
+    }
+
+    // Query snapshot of all quakes with minimum magnitude in the order of the quake list.
+    // Only the columns, that all screens need, are read. Must be called in background thread.
+    public QuakeSnapshot querySnapshot(String minMagnitude) {
+        Cursor cursor = mContext.getContentResolver().query(
+                QuakeEntry.CONTENT_URI,
+                SNAPSHOT_PROJECTION,
+                MAGNITUDE_SELECTION,
+                new String[] { minMagnitude },
+                QuakeEntry.PAGE_SORT_ORDER);
+
+        if (null == cursor) {
+            return new QuakeSnapshot(minMagnitude, QuakePoints.EMPTY);
+        }
+
+        try {
+            return new QuakeSnapshot(minMagnitude, UtilsQuake.getQuakePointsFromCursor(cursor));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Return minimum magnitude of quakes to display (from SharedPreferences)
+    public String getMinMagnitude() {
         // Get magnitude preference value from SharedPreference by the key
         // (default value is value_1 (minimum magnitude = 0, that is all magnitudes)
-        String minMagnitude = mUtilsPrefs.getStringFromSharedPreferences(
+        return mUtilsPrefs.getStringFromSharedPreferences(
                 mContext.getString(R.string.pref_magnitude_key),
                 mContext.getString(R.string.pref_magnitude_value_1));
+    }
 
-        // Build selection (WHERE clause)
-        String selection = QuakeEntry.COLUMN_MAGNITUDE + " >= ?";    // WHERE mag >=
-
-        // Build selection arguments (arguments of the condition of WHERE clause).
-        String[] selectionArgs = new String[] { minMagnitude };
-
-        // Create and return new cursor loader that loads quakes from quake table in the database
-        return new CursorLoader(mContext,
-                QuakeEntry.CONTENT_URI,
-                null,
-                selection,
-                selectionArgs,
-                null);
+    // Return selection arguments (arguments of the condition of WHERE clause)
+    private String[] getMagnitudeSelectionArgs() {
+        return new String[] { getMinMagnitude() };
     }
 }
@@ -0,0 +1,112 @@
+package com.gpetuhov.android.yellowstone.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v4.content.CursorLoader;
+
+import com.gpetuhov.android.yellowstone.QuakeListDiff;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+
+import java.util.List;
+
+// Reloads the pages of the quake list, that are displayed now, and diffs every page
+// with the page, that is displayed at its place.
+// Everything is done in loader background thread, main thread only dispatches the updates.
+// The first page is queried by CursorLoader (and watched for changes of quake table),
+// next pages are queried by keyset one by one: every page starts after the last row
+// of the reloaded previous page. So every query and every diff covers one page only.
+// Reloaded next pages are attached to the first page (see QuakePageCursor.takeNextPages()).
+public class QuakeListLoader extends CursorLoader {
+
+    // Provides the pages, that are displayed now
+    public interface Source {
+        // Return snapshots of the displayed pages to reload (the first page first).
+        // Method is called in loader background thread, so the list and snapshots must be immutable.
+        List<QuakeListDiff.Snapshot> getDisplayedPages();
+    }
+
+    private final int mPageSize;
+
+    private final Source mSource;
+
+    QuakeListLoader(Context context, String selection, String[] selectionArgs, int pageSize, Source source) {
+        super(context, QuakeEntry.buildFirstPageUri(pageSize), null, selection, selectionArgs, null);
+        mPageSize = pageSize;
+        mSource = source;
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        List<QuakeListDiff.Snapshot> displayedPages = mSource.getDisplayedPages();
+
+        Cursor cursor = super.loadInBackground();
+        if (null == cursor) {
+            return null;
+        }
+
+        QuakePageCursor firstPage = new QuakePageCursor(cursor, mPageSize);
+        firstPage.setDiff(QuakeListDiff.calculate(
+                displayedPages.isEmpty() ? QuakeListDiff.Snapshot.EMPTY : displayedPages.get(0),
+                firstPage.getSnapshot()));
+
+        try {
+            // If there are fewer rows now, less pages are reloaded
+            QuakePageCursor lastPage = firstPage;
+            for (int i = 1; i < displayedPages.size() && !lastPage.isLastPage(); i++) {
+                QuakePageCursor page = queryNextPage(lastPage);
+                if (null == page) {
+                    break;
+                }
+
+                page.setDiff(QuakeListDiff.calculate(displayedPages.get(i), page.getSnapshot()));
+                firstPage.addNextPage(page);
+                lastPage = page;
+            }
+        } catch (RuntimeException e) {
+            firstPage.closeNextPages();
+            firstPage.close();
+            throw e;
+        }
+
+        return firstPage;
+    }
+
+    @Override
+    public void deliverResult(Cursor cursor) {
+        // Result of the reset loader is closed by CursorLoader,
+        // and its next pages are never taken by the adapter
+        if (isReset()) {
+            closeNextPages(cursor);
+        }
+        super.deliverResult(cursor);
+    }
+
+    @Override
+    public void onCanceled(Cursor cursor) {
+        closeNextPages(cursor);
+        super.onCanceled(cursor);
+    }
+
+    // Query the page, that starts after the last row of the previous page
+    private QuakePageCursor queryNextPage(QuakePageCursor previousPage) {
+        previousPage.moveToLast();
+        long lastTime = previousPage.getLong(previousPage.getColumnIndexOrThrow(QuakeEntry.COLUMN_TIME));
+        long lastId = previousPage.getLong(previousPage.getColumnIndexOrThrow(QuakeEntry._ID));
+        previousPage.moveToPosition(-1);
+
+        Cursor cursor = getContext().getContentResolver().query(
+                QuakeEntry.buildNextPageUri(mPageSize, lastTime, lastId),
+                getProjection(),
+                getSelection(),
+                getSelectionArgs(),
+                null);
+
+        return null == cursor ? null : new QuakePageCursor(cursor, mPageSize);
+    }
+
+    private static void closeNextPages(Cursor cursor) {
+        if (cursor instanceof QuakePageCursor) {
+            ((QuakePageCursor) cursor).closeNextPages();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.gpetuhov.android.yellowstone.data;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+import com.gpetuhov.android.yellowstone.QuakeListDiff;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Page of the quake list with its snapshot (USGS IDs and update times of the rows).
+// Snapshot is read when the page is created (in background thread),
+// so the list can be diffed without touching cursors in main thread.
+public class QuakePageCursor extends CursorWrapper {
+
+    // Max number of rows, that was requested for the page
+    private final int mLimit;
+
+    private final QuakeListDiff.Snapshot mSnapshot;
+
+    // Difference from the list, that was displayed when the page was loaded (or null)
+    private QuakeListDiff mDiff;
+
+    // Next pages, that were reloaded together with this (first) page,
+    // until they are taken by the adapter (see QuakeListLoader)
+    private final List<QuakePageCursor> mNextPages = new ArrayList<>();
+
+    public QuakePageCursor(Cursor cursor, int limit) {
+        super(cursor);
+
+        mLimit = limit;
+
+        int count = cursor.getCount();
+        String[] ids = new String[count];
+        long[] versions = new long[count];
+
+        int idsColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_IDS);
+        int updatedColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_UPDATED);
+
+        // This also fills cursor window in background thread
+        for (int position = 0; cursor.moveToPosition(position); position++) {
+            ids[position] = cursor.getString(idsColumn);
+            versions[position] = cursor.getLong(updatedColumn);
+        }
+
+        cursor.moveToPosition(-1);
+
+        mSnapshot = new QuakeListDiff.Snapshot(ids, versions);
+    }
+
+    // Return true, if there are no more rows after this page
+    public boolean isLastPage() {
+        return getCount() < mLimit;
+    }
+
+    public QuakeListDiff.Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    public QuakeListDiff getDiff() {
+        return mDiff;
+    }
+
+    void setDiff(QuakeListDiff diff) {
+        mDiff = diff;
+    }
+
+    // Return next pages, that were reloaded together with this page.
+    // Caller becomes their owner (and closes them), so they are returned only once.
+    public List<QuakePageCursor> takeNextPages() {
+        List<QuakePageCursor> nextPages = new ArrayList<>(mNextPages);
+        mNextPages.clear();
+        return nextPages;
+    }
+
+    void addNextPage(QuakePageCursor page) {
+        mNextPages.add(page);
+    }
+
+    // Close next pages, that were not taken
+    void closeNextPages() {
+        for (QuakePageCursor page : mNextPages) {
+            page.close();
+        }
+        mNextPages.clear();
+    }
+}
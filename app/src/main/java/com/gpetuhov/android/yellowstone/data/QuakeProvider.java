@@ -1,18 +1,28 @@
 package com.gpetuhov.android.yellowstone.data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
 
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.PhotoEntry;
 import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.SyncRunEntry;
+
+import java.util.ArrayList;
 
 
 // Quake content provider.
 // Abstraction layer between quake database and UI.
+// Also gives access to cached list of photos (photos table) and sync journal (sync_runs table).
 public class QuakeProvider extends ContentProvider {
 
     // URI matcher code for the content URI for the quakes table
@@ -21,6 +31,37 @@ public class QuakeProvider extends ContentProvider {
     // URI matcher code for the content URI for a single quake in the quakes table
     private static final int QUAKE_ID = 101;
 
+    // URI matcher code for the content URI for one page of the quakes table
+    private static final int QUAKES_PAGE = 102;
+
+    // URI matcher code for the content URI for the staging table of fetched quakes
+    private static final int QUAKES_STAGING = 103;
+
+    // URI matcher code for the content URI for the photos table
+    private static final int PHOTOS = 200;
+
+    // URI matcher code for the content URI for the sync journal table
+    private static final int SYNC_RUNS = 300;
+
+    // Number of rows inserted by bulkInsert() between yields of the transaction
+    // (long transaction must not block other threads, that access the database, for too long).
+    private static final int BULK_INSERT_YIELD_INTERVAL = 500;
+
+    // Columns of quake table in the order they are bound to compiled insert statement
+    private static final String[] INSERT_COLUMNS = {
+            QuakeEntry.COLUMN_IDS,
+            QuakeEntry.COLUMN_MAGNITUDE,
+            QuakeEntry.COLUMN_LOCATION,
+            QuakeEntry.COLUMN_LATITUDE,
+            QuakeEntry.COLUMN_LONGITUDE,
+            QuakeEntry.COLUMN_DEPTH,
+            QuakeEntry.COLUMN_TIME,
+            QuakeEntry.COLUMN_URL,
+            QuakeEntry.COLUMN_UPDATED,
+            QuakeEntry.COLUMN_DISPLAY_MAGNITUDE,
+            QuakeEntry.COLUMN_DISPLAY_DATE
+    };
+
     // UriMatcher object to match a content URI to a corresponding code.
     // The input passed into the constructor represents the code to return for the root URI.
     // It's common to use NO_MATCH as the input for this case.
@@ -46,12 +87,50 @@ public class QuakeProvider extends ContentProvider {
                 YellowstoneContract.PATH_QUAKES + "/#",
                 QUAKE_ID
         );
+
+        // Add URI for one page of the quakes table
+        sUriMatcher.addURI(
+                YellowstoneContract.CONTENT_AUTHORITY,
+                YellowstoneContract.PATH_QUAKES + "/" + YellowstoneContract.PATH_PAGE,
+                QUAKES_PAGE
+        );
+
+        // Add URI for the staging table of fetched quakes
+        sUriMatcher.addURI(
+                YellowstoneContract.CONTENT_AUTHORITY,
+                YellowstoneContract.PATH_QUAKES + "/" + YellowstoneContract.PATH_STAGING,
+                QUAKES_STAGING
+        );
+
+        // Add URI for the photos table
+        sUriMatcher.addURI(
+                YellowstoneContract.CONTENT_AUTHORITY,
+                YellowstoneContract.PATH_PHOTOS,
+                PHOTOS
+        );
+
+        // Add URI for the sync journal table
+        sUriMatcher.addURI(
+                YellowstoneContract.CONTENT_AUTHORITY,
+                YellowstoneContract.PATH_SYNC_RUNS,
+                SYNC_RUNS
+        );
     }
 
 
     // Reference to database helper object
     private YellowstoneDbHelper mDbHelper;
 
+    // True, if the current thread is applying a batch of operations.
+    // Change notifications are not sent for every operation of the batch,
+    // only one notification is sent after the whole batch.
+    private final ThreadLocal<Boolean> mApplyingBatch = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
 
     // Initialize the provider and the database helper object
     @Override
@@ -120,6 +199,29 @@ public class QuakeProvider extends ContentProvider {
 
                 break;
 
+            case QUAKES_PAGE:
+                // Query for one page of quakes
+                cursor = queryQuakePage(database, uri, projection, selection, selectionArgs);
+
+                // Any change of quake table may change the page
+                uri = QuakeEntry.CONTENT_URI;
+
+                break;
+
+            case PHOTOS:
+                // Query for cached photos
+                cursor = database.query(
+                        PhotoEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, sortOrder);
+
+                break;
+
+            case SYNC_RUNS:
+                // Query for sync journal
+                cursor = database.query(
+                        SyncRunEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, sortOrder);
+
+                break;
+
             default:
                 // URI didn't match any of the codes. Nothing to return.
                 return null;
@@ -132,6 +234,55 @@ public class QuakeProvider extends ContentProvider {
         return cursor;
     }
 
+    // Query for one page of quakes, that match the selection.
+    // Page is found by keyset (time and _id of the last row of the previous page) instead of offset,
+    // so every page is an index range search, no matter how deep in the history it is.
+    private Cursor queryQuakePage(SQLiteDatabase database, Uri uri, String[] projection,
+                                  String selection, String[] selectionArgs) {
+
+        // Page size (must be a number, because it is put into SQL statement)
+        String limit = String.valueOf(Integer.parseInt(uri.getQueryParameter(QuakeEntry.QUERY_PARAMETER_LIMIT)));
+
+        // Time and _id of the last row of the previous page (null for the first page)
+        String lastTime = uri.getQueryParameter(QuakeEntry.QUERY_PARAMETER_LAST_TIME);
+        String lastId = uri.getQueryParameter(QuakeEntry.QUERY_PARAMETER_LAST_ID);
+
+        if (null != lastTime && null != lastId) {
+            // Rows are sorted by time DESC and _id ASC, so the page starts
+            // with earlier rows or rows with the same time and greater _id.
+            // (time <= ? is separate, so that SQLite can use it as a range on time index)
+            String keyset = QuakeEntry.COLUMN_TIME + " <= ? AND ("
+                    + QuakeEntry.COLUMN_TIME + " < ? OR " + QuakeEntry._ID + " > ?)";
+
+            // Add keyset condition to WHERE clause
+            selection = null == selection ? keyset : "(" + selection + ") AND " + keyset;
+
+            // Add keyset arguments to the arguments of WHERE clause
+            String[] keysetArgs = new String[] { lastTime, lastTime, lastId };
+            selectionArgs = null == selectionArgs ? keysetArgs : concat(selectionArgs, keysetArgs);
+        }
+
+        // Query database and return result in a cursor
+        return database.query(
+                QuakeEntry.TABLE_NAME,          // Table name
+                projection,                     // Columns - if null, select all columns
+                selection,                      // WHERE clause (with keyset condition)
+                selectionArgs,                  // Arguments of WHERE clause
+                null,                           // GROUP BY statement
+                null,                           // HAVING clause
+                QuakeEntry.PAGE_SORT_ORDER,     // ORDER BY clause (pages are always sorted the same way)
+                limit                           // LIMIT clause
+        );
+    }
+
+    // Return new array with elements of the first array followed by elements of the second one
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
     // Insert new data into the provider with the given ContentValues
     @Override
     public Uri insert(Uri uri, ContentValues contentValues) {
@@ -145,6 +296,10 @@ public class QuakeProvider extends ContentProvider {
                 // Insert new quake in the quake table
                 return insertQuake(uri, contentValues);
 
+            case SYNC_RUNS:
+                // Insert new run into the sync journal
+                return insertSyncRun(uri, contentValues);
+
             default:
                 // URI addresses specific row or didn't match any of the codes.
                 // Cannot insert new quake.
@@ -159,8 +314,10 @@ public class QuakeProvider extends ContentProvider {
         // Get writable database
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
 
-        // Insert new quake into quake table and get new row ID
-        long newRowId = database.insert(QuakeEntry.TABLE_NAME, null, values);
+        // Insert new quake into quake table and get new row ID.
+        // USGS ID is unique, so if the quake is already in the table, its row is replaced.
+        long newRowId = database.insertWithOnConflict(
+                QuakeEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
 
         // If new row ID is -1, an error occurred
         if (newRowId == -1) {
@@ -169,17 +326,417 @@ public class QuakeProvider extends ContentProvider {
         }
 
         // Notify listeners, that data has changed
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
 
         // Build new row URI by appending new row ID to the quake table URI and return it
         return ContentUris.withAppendedId(uri, newRowId);
     }
 
+    // Insert run into the sync journal and delete the oldest runs,
+    // so that only the last MAX_RUNS runs are kept (ring buffer).
+    // Return the new content URI for that specific row in the table.
+    private Uri insertSyncRun(Uri uri, ContentValues values) {
+
+        // Get writable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        long newRowId;
+
+        database.beginTransaction();
+        try {
+            newRowId = database.insert(SyncRunEntry.TABLE_NAME, null, values);
+
+            // IDs are AUTOINCREMENT, so they grow with every run and are never reused
+            if (newRowId != -1) {
+                database.delete(SyncRunEntry.TABLE_NAME, SyncRunEntry._ID + " <= ?",
+                        new String[] { String.valueOf(newRowId - SyncRunEntry.MAX_RUNS) });
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // If new row ID is -1, an error occurred
+        if (newRowId == -1) {
+            return null;
+        }
+
+        // Notify listeners, that data has changed
+        notifyChange(uri);
+
+        return ContentUris.withAppendedId(uri, newRowId);
+    }
+
+    // Insert array of quakes into the quake table (or staging table) in one transaction.
+    // Default implementation calls insert() for every row, so every row gets its own transaction
+    // and its own change notification. Here one precompiled statement is reused for all rows
+    // and listeners are notified once. Return number of inserted rows.
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+
+        // Match URI to a code and save it to a variable
+        final int match = sUriMatcher.match(uri);
+
+        // Photos are inserted separately
+        if (match == PHOTOS) {
+            return bulkInsertPhotos(uri, values);
+        }
+
+        // Only the whole quake table or staging table can be inserted into
+        if (match != QUAKES && match != QUAKES_STAGING) {
+            return 0;
+        }
+
+        String tableName = match == QUAKES ? QuakeEntry.TABLE_NAME : QuakeEntry.STAGING_TABLE_NAME;
+
+        // Get writable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        // Number of rows inserted
+        int numRowsInserted = 0;
+
+        // USGS ID is unique, so if the quake is already in the table, its row is replaced
+        SQLiteStatement statement = database.compileStatement(buildInsertSql(tableName));
+
+        database.beginTransaction();
+
+        try {
+            for (int i = 0; i < values.length; i++) {
+                // Let other threads access the database during very large inserts
+                if (i > 0 && i % BULK_INSERT_YIELD_INTERVAL == 0) {
+                    database.yieldIfContendedSafely();
+                }
+
+                bindQuakeValues(statement, values[i]);
+
+                // Row ID is -1, if an error occurred
+                if (statement.executeInsert() != -1) {
+                    numRowsInserted++;
+                }
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            statement.close();
+        }
+
+        // If some rows were inserted (staged quakes are not visible to listeners)
+        if (numRowsInserted != 0 && match == QUAKES) {
+            // Notify listeners, that data has changed
+            notifyChange(uri);
+        }
+
+        // Return number of rows inserted
+        return numRowsInserted;
+    }
+
+    // Insert array of photos into the photos table in one transaction.
+    // Photos, that are already in the table, are not inserted again (they keep their position).
+    // Return number of inserted rows.
+    private int bulkInsertPhotos(Uri uri, ContentValues[] values) {
+
+        // Get writable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        // Number of rows inserted
+        int numRowsInserted = 0;
+
+        database.beginTransaction();
+
+        try {
+            for (ContentValues photoValues : values) {
+                // Row ID is -1, if the photo is already in the table
+                if (database.insertWithOnConflict(PhotoEntry.TABLE_NAME, null, photoValues,
+                        SQLiteDatabase.CONFLICT_IGNORE) != -1) {
+                    numRowsInserted++;
+                }
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // If some rows were inserted
+        if (numRowsInserted != 0) {
+            // Notify listeners, that data has changed
+            notifyChange(uri);
+        }
+
+        // Return number of rows inserted
+        return numRowsInserted;
+    }
+
+    // Return SQL statement to insert one quake into given table with positional arguments
+    // (INSERT OR REPLACE INTO quakes (ids, magnitude, ...) VALUES (?, ?, ...))
+    private static String buildInsertSql(String tableName) {
+        StringBuilder arguments = new StringBuilder();
+
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            arguments.append(i == 0 ? "?" : ", ?");
+        }
+
+        return "INSERT OR REPLACE INTO " + tableName
+                + " (" + joinInsertColumns("") + ") VALUES (" + arguments + ")";
+    }
+
+    // Return comma separated list of insert columns with given prefix (for example, "s.ids, s.magnitude, ...")
+    private static String joinInsertColumns(String prefix) {
+        StringBuilder columns = new StringBuilder();
+
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            columns.append(i == 0 ? "" : ", ").append(prefix).append(INSERT_COLUMNS[i]);
+        }
+
+        return columns.toString();
+    }
+
+    // Bind values of one quake to compiled insert statement by position
+    private static void bindQuakeValues(SQLiteStatement statement, ContentValues values) {
+        statement.clearBindings();
+
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            // Statement arguments are numbered from 1
+            int index = i + 1;
+
+            Object value = values.get(INSERT_COLUMNS[i]);
+
+            if (null == value) {
+                statement.bindNull(index);
+            } else if (value instanceof Double || value instanceof Float) {
+                statement.bindDouble(index, ((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                statement.bindLong(index, ((Number) value).longValue());
+            } else {
+                statement.bindString(index, value.toString());
+            }
+        }
+    }
+
     // Updates the data at the given selection and selection arguments, with the new ContentValues.
     @Override
     public int update(Uri uri, ContentValues contentValues, String selection, String[] selectionArgs) {
-        // We don't use this method in our app, so we leave it blank.
-        return 0;
+
+        // Get writable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        // Match URI to a code and save it to a variable
+        final int match = sUriMatcher.match(uri);
+
+        // Number of rows updated
+        int numRowsUpdated;
+
+        // Depending on the code, update all matching quakes or the specific quake
+        switch (match) {
+            case QUAKES:
+                // Update all rows that match the selection and selection args
+                numRowsUpdated = database.update(QuakeEntry.TABLE_NAME, contentValues, selection, selectionArgs);
+
+                break;
+
+            case QUAKE_ID:
+                // Update a single row given by the ID in the URI
+
+                // Build selection (WHERE clause)
+                selection = QuakeEntry._ID + " = ?";    // WHERE _id =
+
+                // Build selection arguments (ID from the last part of URI)
+                selectionArgs = new String[] { String.valueOf(ContentUris.parseId(uri)) };
+
+                // Perform update operation and save number of rows updated
+                numRowsUpdated = database.update(QuakeEntry.TABLE_NAME, contentValues, selection, selectionArgs);
+
+                break;
+
+            default:
+                // URI didn't match any of the codes. No rows were updated.
+                numRowsUpdated = 0;
+        }
+
+        // If some rows were updated
+        if (numRowsUpdated != 0) {
+            // Notify listeners, that data has changed
+            notifyChange(uri);
+        }
+
+        // Return number of rows updated
+        return numRowsUpdated;
+    }
+
+    // Call provider method. Only METHOD_APPLY_STAGED_QUAKES is supported.
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (!QuakeEntry.METHOD_APPLY_STAGED_QUAKES.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+
+        return applyStagedQuakes(
+                extras.getBoolean(QuakeEntry.EXTRA_DELTA_SYNC),
+                extras.getLong(QuakeEntry.EXTRA_WINDOW_START));
+    }
+
+    // Apply the difference between staging table and quake table to quake table:
+    // - update staged quakes, that have changed since they were stored,
+    // - insert staged quakes, that are not in the table,
+    // - delete quakes, that are out of the sync window.
+    // Diff is computed by SQL joins on USGS ID indexes, so stored quakes are never loaded into memory.
+    // Unchanged rows are not touched. All changes (and clearing of staging table) are applied
+    // in one transaction with one change notification, so listeners never see half-applied sync.
+    // Return numbers of changed rows.
+    private Bundle applyStagedQuakes(boolean deltaSync, long windowStart) {
+
+        // Get writable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        int numRowsUpdated;
+        int numRowsInserted;
+        int numRowsDeleted;
+
+        database.beginTransaction();
+
+        try {
+            // Changed quakes are updated in place, so their _id stays the same
+            numRowsUpdated = executeUpdateDelete(database, buildApplyUpdatesSql());
+
+            numRowsInserted = executeUpdateDelete(database, "INSERT INTO " + QuakeEntry.TABLE_NAME
+                    + " (" + joinInsertColumns("") + ")"
+                    + " SELECT " + joinInsertColumns("s.") + " FROM " + QuakeEntry.STAGING_TABLE_NAME + " s"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM " + QuakeEntry.TABLE_NAME + " q"
+                    + " WHERE q." + QuakeEntry.COLUMN_IDS + " = s." + QuakeEntry.COLUMN_IDS + ")");
+
+            if (deltaSync) {
+                // Delta contains only updated quakes, so expired quakes are found by time
+                numRowsDeleted = database.delete(QuakeEntry.TABLE_NAME, QuakeEntry.COLUMN_TIME + " < ?",
+                        new String[] { String.valueOf(windowStart) });
+            } else {
+                // Whole window is staged, so quakes, that were not fetched, are expired
+                numRowsDeleted = database.delete(QuakeEntry.TABLE_NAME,
+                        "NOT EXISTS (SELECT 1 FROM " + QuakeEntry.STAGING_TABLE_NAME + " s"
+                                + " WHERE s." + QuakeEntry.COLUMN_IDS
+                                + " = " + QuakeEntry.TABLE_NAME + "." + QuakeEntry.COLUMN_IDS + ")",
+                        null);
+            }
+
+            database.delete(QuakeEntry.STAGING_TABLE_NAME, null, null);
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // If something has changed, notify listeners once
+        if (numRowsUpdated + numRowsInserted + numRowsDeleted != 0) {
+            notifyChange(QuakeEntry.CONTENT_URI);
+        }
+
+        Bundle result = new Bundle();
+        result.putInt(QuakeEntry.RESULT_INSERTED, numRowsInserted);
+        result.putInt(QuakeEntry.RESULT_UPDATED, numRowsUpdated);
+        result.putInt(QuakeEntry.RESULT_DELETED, numRowsDeleted);
+        return result;
+    }
+
+    // Return SQL statement to update stored quakes with staged quakes of the same USGS ID,
+    // if their update time differs. Changed quakes are found by scanning staging table
+    // (it is small for delta syncs), not quake table.
+    // (UPDATE quakes SET magnitude = (SELECT s.magnitude FROM quakes_staging s WHERE s.ids = quakes.ids), ...
+    // WHERE ids IN (SELECT s.ids FROM quakes_staging s JOIN quakes q ON q.ids = s.ids
+    // WHERE s.updated IS NOT q.updated))
+    private static String buildApplyUpdatesSql() {
+        String stagedQuake = " FROM " + QuakeEntry.STAGING_TABLE_NAME + " s"
+                + " WHERE s." + QuakeEntry.COLUMN_IDS + " = " + QuakeEntry.TABLE_NAME + "." + QuakeEntry.COLUMN_IDS;
+
+        StringBuilder sql = new StringBuilder("UPDATE " + QuakeEntry.TABLE_NAME + " SET ");
+
+        // USGS ID (the first insert column) is the same, so it is not updated
+        for (int i = 1; i < INSERT_COLUMNS.length; i++) {
+            sql.append(i == 1 ? "" : ", ").append(INSERT_COLUMNS[i])
+                    .append(" = (SELECT s.").append(INSERT_COLUMNS[i]).append(stagedQuake).append(")");
+        }
+
+        sql.append(" WHERE ").append(QuakeEntry.COLUMN_IDS).append(" IN (SELECT s.").append(QuakeEntry.COLUMN_IDS)
+                .append(" FROM ").append(QuakeEntry.STAGING_TABLE_NAME).append(" s")
+                .append(" JOIN ").append(QuakeEntry.TABLE_NAME).append(" q")
+                .append(" ON q.").append(QuakeEntry.COLUMN_IDS).append(" = s.").append(QuakeEntry.COLUMN_IDS)
+                .append(" WHERE s.").append(QuakeEntry.COLUMN_UPDATED)
+                .append(" IS NOT q.").append(QuakeEntry.COLUMN_UPDATED).append(")");
+
+        return sql.toString();
+    }
+
+    // Execute SQL statement and return number of rows it changed
+    private static int executeUpdateDelete(SQLiteDatabase database, String sql) {
+        SQLiteStatement statement = database.compileStatement(sql);
+        try {
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+
+    // Apply a batch of insert, update and delete operations in one transaction.
+    // Either all operations are applied or none of them
+    // (if some operations are built with withYieldAllowed(true), the transaction is committed
+    // and started again before them, so this is true only for the operations between yield points).
+    // Listeners are notified once after the whole batch (if something has changed),
+    // so that loaders reload the data once and never see half-applied changes.
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+
+        // Get writable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+
+        database.beginTransaction();
+        mApplyingBatch.set(true);
+
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                ContentProviderOperation operation = operations.get(i);
+
+                // Let other threads access the database during very large batches
+                if (i > 0 && operation.isYieldAllowed()) {
+                    database.yieldIfContendedSafely();
+                }
+
+                // Operation calls insert(), update() or delete() of this provider
+                results[i] = operation.apply(this, results, i);
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            mApplyingBatch.set(false);
+            database.endTransaction();
+        }
+
+        // If any operation changed something, notify listeners once
+        if (isDataChanged(results)) {
+            notifyChange(QuakeEntry.CONTENT_URI);
+        }
+
+        return results;
+    }
+
+    // Return true, if any of the batch operations inserted, updated or deleted something
+    private static boolean isDataChanged(ContentProviderResult[] results) {
+        for (ContentProviderResult result : results) {
+            if (result.uri != null || (result.count != null && result.count > 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Notify listeners, that data has changed
+    // (notifications are postponed until the end of the batch, if batch is being applied).
+    private void notifyChange(Uri uri) {
+        if (!mApplyingBatch.get()) {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
     }
 
     // Delete the data at the given selection and selection arguments.
@@ -221,6 +778,22 @@ public class QuakeProvider extends ContentProvider {
 
                 break;
 
+            case PHOTOS:
+                // Delete cached photos that match the selection and selection args
+                numRowsDeleted = database.delete(PhotoEntry.TABLE_NAME, selection, selectionArgs);
+
+                break;
+
+            case SYNC_RUNS:
+                // Delete sync runs that match the selection and selection args
+                numRowsDeleted = database.delete(SyncRunEntry.TABLE_NAME, selection, selectionArgs);
+
+                break;
+
+            case QUAKES_STAGING:
+                // Discard staged quakes (listeners are not notified, staged quakes are not visible to them)
+                return database.delete(QuakeEntry.STAGING_TABLE_NAME, selection, selectionArgs);
+
             default:
                 // URI didn't match any of the codes. No rows were deleted.
                 numRowsDeleted = 0;
@@ -229,7 +802,7 @@ public class QuakeProvider extends ContentProvider {
         // If some rows were deleted
         if (numRowsDeleted != 0) {
             // Notify listeners, that data has changed
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
 
         // Return number of rows deleted
@@ -246,6 +819,8 @@ public class QuakeProvider extends ContentProvider {
         // Depending on the code, return MIME type of a list of quakes or a single quake
         switch (match) {
             case QUAKES:
+            case QUAKES_PAGE:
+            case QUAKES_STAGING:
                 // Return MIME type of a list of quakes
                 return QuakeEntry.CONTENT_LIST_TYPE;
 
@@ -253,6 +828,14 @@ public class QuakeProvider extends ContentProvider {
                 // Return MIME type of a single quake
                 return QuakeEntry.CONTENT_ITEM_TYPE;
 
+            case PHOTOS:
+                // Return MIME type of a list of photos
+                return PhotoEntry.CONTENT_LIST_TYPE;
+
+            case SYNC_RUNS:
+                // Return MIME type of a list of sync runs
+                return SyncRunEntry.CONTENT_LIST_TYPE;
+
             default:
                 // URI didn't match any of the codes. Return null.
                 return null;
@@ -0,0 +1,186 @@
+package com.gpetuhov.android.yellowstone.data;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+
+import com.gpetuhov.android.yellowstone.QuakeSnapshot;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.subjects.BehaviorSubject;
+
+// Shared repository of quake snapshots for all screens.
+// Keeps one immutable snapshot per magnitude filter. Snapshot is queried in background thread
+// once, and every screen, that subscribes to the same filter, gets the same snapshot.
+// When quake table changes (provider notifies once per sync), snapshots are queried again
+// and emitted to all subscribers, so one sync costs one query, not one query per screen.
+// Screens keep receiving the previous snapshot, until the new one is ready.
+public class QuakeRepository {
+
+    private final ContentResolver mContentResolver;
+
+    private final QuakeCursorLoaderFactory mQuakeCursorLoaderFactory;
+
+    // Snapshots by minimum magnitude (guarded by this)
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    // Invalidates snapshots, when quake table changes
+    private final ContentObserver mContentObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+
+    // True, if content observer is registered (guarded by this)
+    private boolean mObserverRegistered;
+
+    // Number of snapshot queries since the repository was created
+    private final AtomicInteger mQueryCount = new AtomicInteger();
+
+    // Snapshot of one filter and its subscribers
+    private static class Entry {
+        final String mMinMagnitude;
+
+        // Emits the latest snapshot to every new subscriber
+        final BehaviorSubject<QuakeSnapshot> mSubject = BehaviorSubject.create();
+
+        // Number of active subscribers
+        int mSubscriberCount;
+
+        // True, if the latest snapshot (or the snapshot being queried) matches quake table
+        boolean mValid;
+
+        // True, if the snapshot is being queried
+        boolean mLoading;
+
+        Entry(String minMagnitude) {
+            mMinMagnitude = minMagnitude;
+        }
+    }
+
+    public QuakeRepository(ContentResolver contentResolver, QuakeCursorLoaderFactory quakeCursorLoaderFactory) {
+        mContentResolver = contentResolver;
+        mQuakeCursorLoaderFactory = quakeCursorLoaderFactory;
+    }
+
+    // Return stream of snapshots for minimum magnitude from SharedPreferences
+    // (preference is read on every subscription, so that screens get new filter after Settings).
+    // Snapshots are emitted in background thread.
+    public Observable<QuakeSnapshot> getQuakes() {
+        return Observable.defer(() -> getQuakes(mQuakeCursorLoaderFactory.getMinMagnitude()));
+    }
+
+    // Return stream of snapshots of quakes with minimum magnitude.
+    // The latest snapshot is emitted immediately (if it is already queried),
+    // new snapshot is emitted after every change of quake table.
+    public Observable<QuakeSnapshot> getQuakes(String minMagnitude) {
+        return Observable.defer(() -> {
+            Entry entry = acquire(minMagnitude);
+            return entry.mSubject.doOnUnsubscribe(() -> release(entry));
+        });
+    }
+
+    // Return number of snapshot queries since the repository was created
+    public int getQueryCount() {
+        return mQueryCount.get();
+    }
+
+    // Add subscriber to the snapshot of the filter and query the snapshot, if needed
+    private synchronized Entry acquire(String minMagnitude) {
+        if (!mObserverRegistered) {
+            mContentResolver.registerContentObserver(QuakeEntry.CONTENT_URI, true, mContentObserver);
+            mObserverRegistered = true;
+        }
+
+        // Snapshots of other filters, that nobody uses, are not kept (they may be large)
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.mSubscriberCount == 0 && !entry.mMinMagnitude.equals(minMagnitude)) {
+                iterator.remove();
+            }
+        }
+
+        Entry entry = mEntries.get(minMagnitude);
+        if (null == entry) {
+            entry = new Entry(minMagnitude);
+            mEntries.put(minMagnitude, entry);
+        }
+
+        entry.mSubscriberCount++;
+
+        if (!entry.mValid) {
+            load(entry);
+        }
+
+        return entry;
+    }
+
+    // Remove subscriber from the snapshot (snapshot is kept until quake table changes)
+    private synchronized void release(Entry entry) {
+        entry.mSubscriberCount--;
+    }
+
+    // Mark all snapshots as outdated and query again those, that have subscribers
+    private synchronized void invalidate() {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            if (entry.mSubscriberCount == 0) {
+                // Nobody needs this snapshot now, it will be queried on next subscription
+                iterator.remove();
+            } else {
+                entry.mValid = false;
+                load(entry);
+            }
+        }
+    }
+
+    // Query snapshot in background thread (only one query per filter at a time).
+    // If quake table changes during the query, snapshot is queried again after it.
+    private void load(Entry entry) {
+        if (entry.mLoading) {
+            return;
+        }
+
+        entry.mLoading = true;
+        entry.mValid = true;
+
+        Observable.fromCallable(() -> {
+                    mQueryCount.incrementAndGet();
+                    return mQuakeCursorLoaderFactory.querySnapshot(entry.mMinMagnitude);
+                })
+                .subscribeOn(Schedulers.io())   // Query executes in background thread
+                .subscribe(
+                        snapshot -> onLoaded(entry, snapshot),
+                        error -> onLoadFailed(entry));
+    }
+
+    // Emit new snapshot and query it again, if it is already outdated
+    private void onLoaded(Entry entry, QuakeSnapshot snapshot) {
+        // Emitted outside of the lock (only one query per filter emits at a time)
+        entry.mSubject.onNext(snapshot);
+
+        synchronized (this) {
+            entry.mLoading = false;
+
+            if (!entry.mValid && entry.mSubscriberCount > 0) {
+                load(entry);
+            }
+        }
+    }
+
+    // Keep the previous snapshot, the query is repeated on next subscription or change
+    private synchronized void onLoadFailed(Entry entry) {
+        entry.mLoading = false;
+        entry.mValid = false;
+    }
+}
@@ -0,0 +1,127 @@
+package com.gpetuhov.android.yellowstone.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.gpetuhov.android.yellowstone.SyncRun;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.SyncRunEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Persistent journal of quake sync runs (sync_runs table).
+// Keeps the last SyncRunEntry.MAX_RUNS runs with per-stage timings,
+// so that sync performance can be compared on real devices.
+// Methods query the database, so they must be called in background thread.
+public class SyncJournal {
+
+    // Columns of sync runs in the order they are read
+    private static final String[] SYNC_RUN_PROJECTION = {
+            SyncRunEntry.COLUMN_START_TIME,
+            SyncRunEntry.COLUMN_TRIGGER,
+            SyncRunEntry.COLUMN_OUTCOME,
+            SyncRunEntry.COLUMN_REQUEST_MILLIS,
+            SyncRunEntry.COLUMN_PARSE_MILLIS,
+            SyncRunEntry.COLUMN_SAVE_MILLIS,
+            SyncRunEntry.COLUMN_TOTAL_MILLIS,
+            SyncRunEntry.COLUMN_BYTES_RECEIVED,
+            SyncRunEntry.COLUMN_FEATURES_PARSED,
+            SyncRunEntry.COLUMN_ROWS_INSERTED,
+            SyncRunEntry.COLUMN_ROWS_UPDATED,
+            SyncRunEntry.COLUMN_ROWS_DELETED
+    };
+
+    private final ContentResolver mContentResolver;
+
+    public SyncJournal(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    // Add run to the journal (the oldest run is dropped, if the journal is full)
+    public void record(SyncRun syncRun) {
+        mContentResolver.insert(SyncRunEntry.CONTENT_URI, getSyncRunContentValues(syncRun));
+    }
+
+    // Return runs in the journal (the most recent run first)
+    public List<SyncRun> getRuns() {
+        List<SyncRun> syncRuns = new ArrayList<>();
+
+        Cursor cursor = mContentResolver.query(
+                SyncRunEntry.CONTENT_URI, SYNC_RUN_PROJECTION, null, null, SyncRunEntry.SORT_ORDER);
+
+        if (null != cursor) {
+            try {
+                while (cursor.moveToNext()) {
+                    syncRuns.add(getSyncRun(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return syncRuns;
+    }
+
+    // Return the journal as CSV (header and one row per run, the most recent run first)
+    public String exportCsv() {
+        StringBuilder csv = new StringBuilder(SyncRun.getCsvHeader()).append('\n');
+
+        for (SyncRun syncRun : getRuns()) {
+            csv.append(syncRun.toCsvRow()).append('\n');
+        }
+
+        return csv.toString();
+    }
+
+    // Delete all runs from the journal
+    public void clear() {
+        mContentResolver.delete(SyncRunEntry.CONTENT_URI, null, null);
+    }
+
+    // Return sync run from the current row of the cursor with SYNC_RUN_PROJECTION
+    private static SyncRun getSyncRun(Cursor cursor) {
+        SyncRun syncRun = new SyncRun();
+        syncRun.setStartTime(cursor.getLong(0));
+        syncRun.setTrigger(parseTrigger(cursor.getString(1)));
+        syncRun.setOutcome(cursor.getString(2));
+        syncRun.setRequestMillis(cursor.getLong(3));
+        syncRun.setParseMillis(cursor.getLong(4));
+        syncRun.setSaveMillis(cursor.getLong(5));
+        syncRun.setTotalMillis(cursor.getLong(6));
+        syncRun.setBytesReceived(cursor.getLong(7));
+        syncRun.setFeaturesParsed(cursor.getInt(8));
+        syncRun.setRowsInserted(cursor.getInt(9));
+        syncRun.setRowsUpdated(cursor.getInt(10));
+        syncRun.setRowsDeleted(cursor.getInt(11));
+        return syncRun;
+    }
+
+    // Return trigger by its name (null, if the name is unknown, for example written by a newer version)
+    private static SyncRun.Trigger parseTrigger(String name) {
+        try {
+            return null == name ? null : SyncRun.Trigger.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Return content values of the sync run
+    private static ContentValues getSyncRunContentValues(SyncRun syncRun) {
+        ContentValues values = new ContentValues();
+        values.put(SyncRunEntry.COLUMN_START_TIME, syncRun.getStartTime());
+        values.put(SyncRunEntry.COLUMN_TRIGGER,
+                null == syncRun.getTrigger() ? null : syncRun.getTrigger().name());
+        values.put(SyncRunEntry.COLUMN_OUTCOME, syncRun.getOutcome());
+        values.put(SyncRunEntry.COLUMN_REQUEST_MILLIS, syncRun.getRequestMillis());
+        values.put(SyncRunEntry.COLUMN_PARSE_MILLIS, syncRun.getParseMillis());
+        values.put(SyncRunEntry.COLUMN_SAVE_MILLIS, syncRun.getSaveMillis());
+        values.put(SyncRunEntry.COLUMN_TOTAL_MILLIS, syncRun.getTotalMillis());
+        values.put(SyncRunEntry.COLUMN_BYTES_RECEIVED, syncRun.getBytesReceived());
+        values.put(SyncRunEntry.COLUMN_FEATURES_PARSED, syncRun.getFeaturesParsed());
+        values.put(SyncRunEntry.COLUMN_ROWS_INSERTED, syncRun.getRowsInserted());
+        values.put(SyncRunEntry.COLUMN_ROWS_UPDATED, syncRun.getRowsUpdated());
+        values.put(SyncRunEntry.COLUMN_ROWS_DELETED, syncRun.getRowsDeleted());
+        return values;
+    }
+}
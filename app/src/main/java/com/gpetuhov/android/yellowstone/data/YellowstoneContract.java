@@ -5,9 +5,12 @@ import android.content.ContentResolver;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
+import com.gpetuhov.android.yellowstone.QuakeColumns;
+
 
 // Defines quake database schema.
-// Database has 1 table for storing earthquakes.
+// Database has 3 tables: earthquakes, cached list of Flickr photos and sync journal
+// (and staging table for fetched earthquakes, that are not applied yet).
 public final class YellowstoneContract {
 
     // Content authority part of URI to access quake content provider.
@@ -20,6 +23,18 @@ public final class YellowstoneContract {
     // Path for quake table which will be appended to the base content URI
     public static final String PATH_QUAKES = "quakes";
 
+    // Path for one page of quake table which will be appended to quake table path
+    public static final String PATH_PAGE = "page";
+
+    // Path for staging table of fetched quakes which will be appended to quake table path
+    public static final String PATH_STAGING = "staging";
+
+    // Path for photo table which will be appended to the base content URI
+    public static final String PATH_PHOTOS = "photos";
+
+    // Path for sync journal table which will be appended to the base content URI
+    public static final String PATH_SYNC_RUNS = "sync_runs";
+
 
     // Defines constant values for the quakes table
     // BaseColumns already has _id column name defined
@@ -28,6 +43,45 @@ public final class YellowstoneContract {
         // Full content URI to access quake data in the content provider
         public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_QUAKES);
 
+        // Content URI to access quake data page by page (keyset pagination).
+        // Rows are sorted by time (most recent first) and by _id.
+        // Page size is set by "limit" parameter. Page starts after the row given by
+        // "last_time" and "last_id" parameters (if they are absent, this is the first page).
+        public static final Uri CONTENT_PAGE_URI = Uri.withAppendedPath(CONTENT_URI, PATH_PAGE);
+
+        // Content URI to stage fetched quakes (bulk insert) and to discard them (delete).
+        // Staged quakes are not visible in quake table and changes of staging table are not notified,
+        // until they are applied by METHOD_APPLY_STAGED_QUAKES.
+        public static final Uri CONTENT_STAGING_URI = Uri.withAppendedPath(CONTENT_URI, PATH_STAGING);
+
+        // Provider method to apply staged quakes to quake table in one transaction
+        // (call it with CONTENT_URI, EXTRA_DELTA_SYNC and EXTRA_WINDOW_START).
+        // Returns numbers of changed rows in RESULT_INSERTED, RESULT_UPDATED and RESULT_DELETED.
+        public static final String METHOD_APPLY_STAGED_QUAKES = "apply_staged_quakes";
+
+        // True, if staged quakes are the delta since the last sync
+        // (quakes are expired by time), false, if they are the whole window
+        // (quakes, that are not staged, are expired).
+        public static final String EXTRA_DELTA_SYNC = "delta_sync";
+
+        // Start of the sync window (in milliseconds)
+        public static final String EXTRA_WINDOW_START = "window_start";
+
+        // Numbers of inserted, updated and deleted quakes
+        public static final String RESULT_INSERTED = "inserted";
+        public static final String RESULT_UPDATED = "updated";
+        public static final String RESULT_DELETED = "deleted";
+
+
+        // Query parameter for page size
+        public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+        // Query parameter for time of the last row of the previous page
+        public static final String QUERY_PARAMETER_LAST_TIME = "last_time";
+
+        // Query parameter for _id of the last row of the previous page
+        public static final String QUERY_PARAMETER_LAST_ID = "last_id";
+
         // The MIME type of the URI for a list of quakes
         public static final String CONTENT_LIST_TYPE =
                 ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_QUAKES;
@@ -39,37 +93,183 @@ public final class YellowstoneContract {
         // Name of the database table for quakes
         public final static String TABLE_NAME = "quakes";
 
+        // Name of the unique index on USGS ID column
+        public final static String INDEX_IDS = "quakes_ids";
+
+        // Name of the index on magnitude and time columns
+        public final static String INDEX_MAGNITUDE_TIME = "quakes_magnitude_time";
+
+        // Name of the index on time column (most recent first)
+        public final static String INDEX_TIME = "quakes_time";
+
+        // Name of the database table for fetched quakes, that are not applied yet
+        // (it has the same columns as quake table, except _id)
+        public final static String STAGING_TABLE_NAME = "quakes_staging";
+
+        // Name of the unique index on USGS ID column of staging table
+        public final static String INDEX_STAGING_IDS = "quakes_staging_ids";
+
         // ID of the earthquake in USGS database (comes in JSON response)
         // (this column is different from _id)
         // Type: TEXT
-        public final static String COLUMN_IDS = "ids";
+        public final static String COLUMN_IDS = QuakeColumns.IDS;
 
         // Magnitude of the earthquake
         // Type: REAL
-        public final static String COLUMN_MAGNITUDE = "magnitude";
+        public final static String COLUMN_MAGNITUDE = QuakeColumns.MAGNITUDE;
 
         // Location name of the earthquake
         // Type: TEXT
-        public final static String COLUMN_LOCATION = "location";
+        public final static String COLUMN_LOCATION = QuakeColumns.LOCATION;
 
         // Latitude of the earthquake
         // Type: REAL
-        public final static String COLUMN_LATITUDE = "latitude";
+        public final static String COLUMN_LATITUDE = QuakeColumns.LATITUDE;
 
         // Longitude of the earthquake
         // Type: REAL
-        public final static String COLUMN_LONGITUDE = "longitude";
+        public final static String COLUMN_LONGITUDE = QuakeColumns.LONGITUDE;
 
         // Depth of the earthquake (in kilometers)
         // Type: REAL
-        public final static String COLUMN_DEPTH = "depth";
+        public final static String COLUMN_DEPTH = QuakeColumns.DEPTH;
 
         // Time of the earthquake (in milliseconds)
         // Type: INTEGER
-        public final static String COLUMN_TIME = "time";
+        public final static String COLUMN_TIME = QuakeColumns.TIME;
 
         // Website URL of the earthquake
         // Type: TEXT
+        public final static String COLUMN_URL = QuakeColumns.URL;
+
+        // Time of the last update of the earthquake in USGS database (in milliseconds)
+        // Type: INTEGER
+        public final static String COLUMN_UPDATED = QuakeColumns.UPDATED;
+
+        // Magnitude formatted for display (computed when the quake is stored)
+        // Type: TEXT
+        public final static String COLUMN_DISPLAY_MAGNITUDE = "display_magnitude";
+
+        // Date formatted for display (computed when the quake is stored)
+        // Type: TEXT
+        public final static String COLUMN_DISPLAY_DATE = "display_date";
+
+        // Sort order of the pages (most recent first)
+        public static final String PAGE_SORT_ORDER = COLUMN_TIME + " DESC, " + _ID + " ASC";
+
+        // Return URI for the first page of quakes with given page size
+        public static Uri buildFirstPageUri(int limit) {
+            return CONTENT_PAGE_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+
+        // Return URI for the page of quakes with given page size,
+        // that starts after the row with given time and _id.
+        public static Uri buildNextPageUri(int limit, long lastTime, long lastId) {
+            return buildFirstPageUri(limit).buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_LAST_TIME, String.valueOf(lastTime))
+                    .appendQueryParameter(QUERY_PARAMETER_LAST_ID, String.valueOf(lastId))
+                    .build();
+        }
+    }
+
+
+    // Defines constant values for the photos table.
+    // Photo table keeps details of the recent photos from Flickr (not images),
+    // so that photo list is displayed without network.
+    public static final class PhotoEntry implements BaseColumns {
+
+        // Full content URI to access photo data in the content provider
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_PHOTOS);
+
+        // The MIME type of the URI for a list of photos
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_PHOTOS;
+
+        // Name of the database table for photos
+        public final static String TABLE_NAME = "photos";
+
+        // Name of the unique index on Flickr photo ID column
+        public final static String INDEX_PHOTO_ID = "photos_photo_id";
+
+        // ID of the photo in Flickr
+        // Type: TEXT
+        public final static String COLUMN_PHOTO_ID = "photo_id";
+
+        // Photo title
+        // Type: TEXT
+        public final static String COLUMN_CAPTION = "caption";
+
+        // Photo URL (link to the image)
+        // Type: TEXT
         public final static String COLUMN_URL = "url";
+
+        // Owner of the photo
+        // Type: TEXT
+        public final static String COLUMN_OWNER = "owner";
+
+        // Position of the photo in the list
+        // (new photos get positions before the first one, so they may be negative)
+        // Type: INTEGER
+        public final static String COLUMN_POSITION = "position";
+
+        // Sort order of the photo list
+        public static final String SORT_ORDER = COLUMN_POSITION + " ASC";
+    }
+
+    // Defines constant values for the sync journal table.
+    // Journal is a ring buffer: only the last MAX_RUNS runs are kept.
+    public static final class SyncRunEntry implements BaseColumns {
+
+        // Full content URI to access sync journal in the content provider
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_SYNC_RUNS);
+
+        // The MIME type of the URI for a list of sync runs
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SYNC_RUNS;
+
+        // Name of the database table for sync runs
+        public final static String TABLE_NAME = "sync_runs";
+
+        // Max number of runs in the journal
+        public static final int MAX_RUNS = 200;
+
+        // Start time of the run in milliseconds
+        // Type: INTEGER
+        public final static String COLUMN_START_TIME = "start_time";
+
+        // What started the sync (poll service, sync adapter, manual refresh)
+        // Type: TEXT
+        public final static String COLUMN_TRIGGER = "trigger";
+
+        // Outcome of the run
+        // Type: TEXT
+        public final static String COLUMN_OUTCOME = "outcome";
+
+        // Wall time of request, parse and save stages and of the whole run in milliseconds
+        // (-1, if the stage was not reached)
+        // Type: INTEGER
+        public final static String COLUMN_REQUEST_MILLIS = "request_millis";
+        public final static String COLUMN_PARSE_MILLIS = "parse_millis";
+        public final static String COLUMN_SAVE_MILLIS = "save_millis";
+        public final static String COLUMN_TOTAL_MILLIS = "total_millis";
+
+        // Size of response body in bytes
+        // Type: INTEGER
+        public final static String COLUMN_BYTES_RECEIVED = "bytes_received";
+
+        // Number of parsed GeoJSON features
+        // Type: INTEGER
+        public final static String COLUMN_FEATURES_PARSED = "features_parsed";
+
+        // Numbers of inserted, updated and deleted quakes
+        // Type: INTEGER
+        public final static String COLUMN_ROWS_INSERTED = "rows_inserted";
+        public final static String COLUMN_ROWS_UPDATED = "rows_updated";
+        public final static String COLUMN_ROWS_DELETED = "rows_deleted";
+
+        // Sort order of the journal (the most recent run first)
+        public static final String SORT_ORDER = _ID + " DESC";
     }
 }
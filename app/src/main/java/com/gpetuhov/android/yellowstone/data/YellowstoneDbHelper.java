@@ -1,20 +1,141 @@
 package com.gpetuhov.android.yellowstone.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.PhotoEntry;
 import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.SyncRunEntry;
+import com.gpetuhov.android.yellowstone.utils.QuakeFormatter;
 
 
-// Manages database creation and version management
+// Manages database creation and version management.
+// Schema is changed only by migrations. New database is created with the first version
+// of the schema and upgraded by all migrations, so new and upgraded databases
+// always have the same schema, and existing rows are kept on upgrade.
 public class YellowstoneDbHelper extends SQLiteOpenHelper {
 
     // Name of the database file
     private static final String DATABASE_NAME = "yellowstone.db";
 
-    // Database version
-    private static final int DATABASE_VERSION = 1;
+    // Database version (version of the first schema + number of migrations)
+    static final int DATABASE_VERSION = 7;
+
+    // One step of schema upgrade
+    interface Migration {
+        // Upgrade schema from previous version to the next one
+        void migrate(SQLiteDatabase db);
+    }
+
+    // Ordered migration steps.
+    // Migration with index i upgrades database from version i + 1 to version i + 2.
+    // Never change existing migrations, add new ones to the end and increment DATABASE_VERSION.
+    private static final Migration[] MIGRATIONS = {
+            // 1 -> 2: add update time, make USGS ID unique
+            db -> {
+                // Create a String that contains the SQL statement to add update time column
+                db.execSQL("ALTER TABLE " + QuakeEntry.TABLE_NAME
+                        + " ADD COLUMN " + QuakeEntry.COLUMN_UPDATED + " INTEGER");
+
+                // Existing quakes are considered not updated since they happened
+                db.execSQL("UPDATE " + QuakeEntry.TABLE_NAME
+                        + " SET " + QuakeEntry.COLUMN_UPDATED + " = " + QuakeEntry.COLUMN_TIME);
+
+                // Keep only the latest row of every quake, otherwise unique index can't be created
+                db.execSQL("DELETE FROM " + QuakeEntry.TABLE_NAME
+                        + " WHERE " + QuakeEntry._ID + " NOT IN (SELECT MAX(" + QuakeEntry._ID + ")"
+                        + " FROM " + QuakeEntry.TABLE_NAME + " GROUP BY " + QuakeEntry.COLUMN_IDS + ")");
+
+                // Quakes are upserted by USGS ID, so there must be only one row for every earthquake,
+                // and lookups by USGS ID must not scan the whole table.
+                db.execSQL("CREATE UNIQUE INDEX " + QuakeEntry.INDEX_IDS
+                        + " ON " + QuakeEntry.TABLE_NAME + " (" + QuakeEntry.COLUMN_IDS + ")");
+            },
+
+            // 2 -> 3: indexes for quake list queries
+            db -> {
+                // Quake list is filtered by minimum magnitude and sorted by time
+                db.execSQL("CREATE INDEX " + QuakeEntry.INDEX_MAGNITUDE_TIME
+                        + " ON " + QuakeEntry.TABLE_NAME
+                        + " (" + QuakeEntry.COLUMN_MAGNITUDE + ", " + QuakeEntry.COLUMN_TIME + ")");
+
+                // Quake list is sorted by time (most recent first),
+                // and expired quakes are deleted by time.
+                db.execSQL("CREATE INDEX " + QuakeEntry.INDEX_TIME
+                        + " ON " + QuakeEntry.TABLE_NAME + " (" + QuakeEntry.COLUMN_TIME + " DESC)");
+            },
+
+            // 3 -> 4: display strings for quake list
+            db -> {
+                db.execSQL("ALTER TABLE " + QuakeEntry.TABLE_NAME
+                        + " ADD COLUMN " + QuakeEntry.COLUMN_DISPLAY_MAGNITUDE + " TEXT");
+                db.execSQL("ALTER TABLE " + QuakeEntry.TABLE_NAME
+                        + " ADD COLUMN " + QuakeEntry.COLUMN_DISPLAY_DATE + " TEXT");
+
+                // Format display strings for existing quakes
+                fillDisplayColumns(db);
+            },
+
+            // 4 -> 5: cached list of Flickr photos
+            db -> {
+                db.execSQL("CREATE TABLE " + PhotoEntry.TABLE_NAME + " ("
+                        + PhotoEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                        + PhotoEntry.COLUMN_PHOTO_ID + " TEXT NOT NULL, "
+                        + PhotoEntry.COLUMN_CAPTION + " TEXT, "
+                        + PhotoEntry.COLUMN_URL + " TEXT NOT NULL, "
+                        + PhotoEntry.COLUMN_OWNER + " TEXT, "
+                        + PhotoEntry.COLUMN_POSITION + " INTEGER NOT NULL"
+                        + " );");
+
+                // Photo is stored only once, even if Flickr returns it in several pages
+                db.execSQL("CREATE UNIQUE INDEX " + PhotoEntry.INDEX_PHOTO_ID
+                        + " ON " + PhotoEntry.TABLE_NAME + " (" + PhotoEntry.COLUMN_PHOTO_ID + ")");
+            },
+
+            // 5 -> 6: journal of sync runs
+            db -> db.execSQL("CREATE TABLE " + SyncRunEntry.TABLE_NAME + " ("
+                    + SyncRunEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + SyncRunEntry.COLUMN_START_TIME + " INTEGER NOT NULL, "
+                    + SyncRunEntry.COLUMN_TRIGGER + " TEXT, "
+                    + SyncRunEntry.COLUMN_OUTCOME + " TEXT, "
+                    + SyncRunEntry.COLUMN_REQUEST_MILLIS + " INTEGER, "
+                    + SyncRunEntry.COLUMN_PARSE_MILLIS + " INTEGER, "
+                    + SyncRunEntry.COLUMN_SAVE_MILLIS + " INTEGER, "
+                    + SyncRunEntry.COLUMN_TOTAL_MILLIS + " INTEGER, "
+                    + SyncRunEntry.COLUMN_BYTES_RECEIVED + " INTEGER, "
+                    + SyncRunEntry.COLUMN_FEATURES_PARSED + " INTEGER, "
+                    + SyncRunEntry.COLUMN_ROWS_INSERTED + " INTEGER, "
+                    + SyncRunEntry.COLUMN_ROWS_UPDATED + " INTEGER, "
+                    + SyncRunEntry.COLUMN_ROWS_DELETED + " INTEGER"
+                    + " );"),
+
+            // 6 -> 7: staging table for fetched quakes
+            db -> {
+                // Fetched quakes are streamed into staging table while the response is parsed,
+                // and applied to quake table in one transaction after the whole response is parsed.
+                db.execSQL("CREATE TABLE " + QuakeEntry.STAGING_TABLE_NAME + " ("
+                        + QuakeEntry.COLUMN_IDS + " TEXT, "
+                        + QuakeEntry.COLUMN_MAGNITUDE + " REAL, "
+                        + QuakeEntry.COLUMN_LOCATION + " TEXT, "
+                        + QuakeEntry.COLUMN_LATITUDE + " REAL, "
+                        + QuakeEntry.COLUMN_LONGITUDE + " REAL, "
+                        + QuakeEntry.COLUMN_DEPTH + " REAL, "
+                        + QuakeEntry.COLUMN_TIME + " INTEGER, "
+                        + QuakeEntry.COLUMN_URL + " TEXT, "
+                        + QuakeEntry.COLUMN_UPDATED + " INTEGER, "
+                        + QuakeEntry.COLUMN_DISPLAY_MAGNITUDE + " TEXT, "
+                        + QuakeEntry.COLUMN_DISPLAY_DATE + " TEXT"
+                        + " );");
+
+                // Staged quakes are joined with quake table by USGS ID,
+                // and quake fetched twice is staged only once.
+                db.execSQL("CREATE UNIQUE INDEX " + QuakeEntry.INDEX_STAGING_IDS
+                        + " ON " + QuakeEntry.STAGING_TABLE_NAME + " (" + QuakeEntry.COLUMN_IDS + ")");
+            }
+    };
 
     public YellowstoneDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
@@ -23,6 +144,45 @@ public class YellowstoneDbHelper extends SQLiteOpenHelper {
     // Method is called when the database is created for the first time
     @Override
     public void onCreate(SQLiteDatabase db) {
+        // Create the first version of the schema
+        createVersion1Schema(db);
+
+        // Upgrade it to the current version
+        migrate(db, 1, DATABASE_VERSION);
+    }
+
+    // Method is called when the database needs to be upgraded (when database version changes)
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Apply migrations one by one (onUpgrade is run in transaction by SQLiteOpenHelper,
+        // so if any migration fails, database stays in the old version).
+        migrate(db, oldVersion, newVersion);
+    }
+
+    // Method is called when the database needs to be downgraded (when the app is downgraded)
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Older app doesn't know newer schema.
+        // This database is only a cache for online data, so the data is discarded and started over.
+
+        // Create a String that contains the SQL statement to delete the quakes table
+        // (indexes are deleted together with the table)
+        String SQL_DELETE_QUAKES_TABLE = "DROP TABLE IF EXISTS " + QuakeEntry.TABLE_NAME;
+
+        // Execute the SQL statement to delete quake table
+        db.execSQL(SQL_DELETE_QUAKES_TABLE);
+
+        // Photo table, sync journal and staging table are also created by migrations
+        db.execSQL("DROP TABLE IF EXISTS " + PhotoEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + SyncRunEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + QuakeEntry.STAGING_TABLE_NAME);
+
+        // Call onCreate method to create new quake table
+        onCreate(db);
+    }
+
+    // Create quake table as it was in the first version of the database
+    static void createVersion1Schema(SQLiteDatabase db) {
 
         // Create a String that contains the SQL statement to create the quakes table
         String SQL_CREATE_QUAKES_TABLE = "CREATE TABLE " + QuakeEntry.TABLE_NAME + " ("
@@ -41,20 +201,33 @@ public class YellowstoneDbHelper extends SQLiteOpenHelper {
         db.execSQL(SQL_CREATE_QUAKES_TABLE);
     }
 
+    // Format display strings for all quakes in quake table
+    private static void fillDisplayColumns(SQLiteDatabase db) {
+        SQLiteStatement statement = db.compileStatement("UPDATE " + QuakeEntry.TABLE_NAME
+                + " SET " + QuakeEntry.COLUMN_DISPLAY_MAGNITUDE + " = ?, " + QuakeEntry.COLUMN_DISPLAY_DATE + " = ?"
+                + " WHERE " + QuakeEntry._ID + " = ?");
 
-    // Method is called when the database needs to be upgraded (when database version changes)
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // This database is only a cache for online data, so its upgrade policy is
-        // simply to discard the data and start over
-
-        // Create a String that contains the SQL statement to delete the quakes table
-        String SQL_DELETE_QUAKES_TABLE = "DROP TABLE IF EXISTS " + QuakeEntry.TABLE_NAME;
+        Cursor cursor = db.query(QuakeEntry.TABLE_NAME,
+                new String[] { QuakeEntry._ID, QuakeEntry.COLUMN_MAGNITUDE, QuakeEntry.COLUMN_TIME },
+                null, null, null, null, null);
 
-        // Execute the SQL statement to delete quake table
-        db.execSQL(SQL_DELETE_QUAKES_TABLE);
+        try {
+            while (cursor.moveToNext()) {
+                statement.bindString(1, QuakeFormatter.formatMagnitude(cursor.getDouble(1)));
+                statement.bindString(2, QuakeFormatter.formatDate(cursor.getLong(2)));
+                statement.bindLong(3, cursor.getLong(0));
+                statement.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            statement.close();
+        }
+    }
 
-        // Call onCreate method to create new quake table
-        onCreate(db);
+    // Apply migrations to upgrade database from old version to new version
+    static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion; version < newVersion; version++) {
+            MIGRATIONS[version - 1].migrate(db);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.gpetuhov.android.yellowstone.sync;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+
+import com.gpetuhov.android.yellowstone.PollSchedule;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+import com.gpetuhov.android.yellowstone.utils.UtilsPrefs;
+
+// Decides, when QuakePollService polls next time.
+// Reads number of events and max magnitude of the recent window from quake table
+// and passes them to PollSchedule. The decided interval is kept in SharedPreferences,
+// because the schedule relaxes relative to the previous interval.
+// Queries the database, so it must be called in background thread.
+public class QuakePollScheduler {
+
+    private final ContentResolver mContentResolver;
+
+    private final UtilsPrefs mUtilsPrefs;
+
+    private final PollSchedule mPollSchedule;
+
+    public QuakePollScheduler(ContentResolver contentResolver, UtilsPrefs utilsPrefs, PollSchedule pollSchedule) {
+        mContentResolver = contentResolver;
+        mUtilsPrefs = utilsPrefs;
+        mPollSchedule = pollSchedule;
+    }
+
+    // Decide interval until the next poll (not longer than max interval from settings) and keep it
+    public PollSchedule.Decision scheduleNextPoll(long maxIntervalMillis) {
+        return scheduleNextPoll(maxIntervalMillis, System.currentTimeMillis());
+    }
+
+    // Decide interval until the next poll at the moment and keep it
+    PollSchedule.Decision scheduleNextPoll(long maxIntervalMillis, long now) {
+        int eventCount = 0;
+        double maxMagnitude = 0;
+
+        // Aggregate in SQL, so that rows of a large swarm are not read one by one
+        // (quake table has index on time)
+        Cursor cursor = mContentResolver.query(
+                QuakeEntry.CONTENT_URI,
+                new String[] { "COUNT(*)", "MAX(" + QuakeEntry.COLUMN_MAGNITUDE + ")" },
+                QuakeEntry.COLUMN_TIME + " > ?",
+                new String[] { String.valueOf(now - mPollSchedule.getWindowMillis()) },
+                null);
+
+        if (null != cursor) {
+            try {
+                if (cursor.moveToFirst()) {
+                    eventCount = cursor.getInt(0);
+                    maxMagnitude = cursor.isNull(1) ? 0 : cursor.getDouble(1);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        PollSchedule.Decision decision =
+                mPollSchedule.decide(eventCount, maxMagnitude, maxIntervalMillis, mUtilsPrefs.getPollInterval());
+
+        mUtilsPrefs.setPollInterval(decision.getIntervalMillis());
+
+        return decision;
+    }
+}
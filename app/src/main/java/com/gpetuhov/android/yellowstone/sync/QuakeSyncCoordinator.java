@@ -0,0 +1,96 @@
+package com.gpetuhov.android.yellowstone.sync;
+
+import com.gpetuhov.android.yellowstone.QuakeFetchResult;
+import com.gpetuhov.android.yellowstone.QuakeFetcher;
+import com.gpetuhov.android.yellowstone.SingleFlight;
+import com.gpetuhov.android.yellowstone.SyncRun;
+import com.gpetuhov.android.yellowstone.data.SyncJournal;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Single entry point for quake sync, shared by QuakePollService and YellowstoneSyncAdapter.
+// Only one fetch runs at a time: if sync is requested while another sync is running,
+// the caller doesn't download the same data again, it waits for the running sync
+// and gets its result. Every fetch is recorded in sync journal. Must be called in background thread.
+public class QuakeSyncCoordinator {
+
+    // Keeps instance of QuakeFetcher
+    private final QuakeFetcher mQuakeFetcher;
+
+    // Keeps instance of SyncJournal
+    private final SyncJournal mSyncJournal;
+
+    // Deduplicates concurrent syncs
+    private final SingleFlight<QuakeFetchResult> mSingleFlight = new SingleFlight<>();
+
+    public QuakeSyncCoordinator(QuakeFetcher quakeFetcher, SyncJournal syncJournal) {
+        mQuakeFetcher = quakeFetcher;
+        mSyncJournal = syncJournal;
+    }
+
+    // Fetch quakes or wait for the sync in flight.
+    // Trigger is recorded in sync journal, if this call starts the fetch.
+    // Return result of the sync.
+    public QuakeFetchResult sync(SyncRun.Trigger trigger) {
+        try {
+            return mSingleFlight.run(() -> fetchAndRecord(trigger));
+        } catch (ExecutionException e) {
+            // Network and parse errors are handled by QuakeFetcher,
+            // so unexpected failure comes from storage (for example, SQLiteException).
+            // Storage stays as it was.
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.DATABASE_ERROR);
+        } catch (InterruptedException e) {
+            // Caller is cancelled (for example, sync is cancelled by the system)
+            Thread.currentThread().interrupt();
+            return QuakeFetchResult.failure(QuakeFetchResult.Status.CANCELLED);
+        }
+    }
+
+    // Fetch quakes and record the run in sync journal
+    private QuakeFetchResult fetchAndRecord(SyncRun.Trigger trigger) {
+        SyncRun syncRun = new SyncRun(System.currentTimeMillis(), trigger);
+        long start = System.nanoTime();
+
+        QuakeFetchResult result = null;
+
+        try {
+            result = mQuakeFetcher.fetchQuakes(syncRun);
+            return result;
+        } finally {
+            syncRun.setTotalMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            if (null != result) {
+                syncRun.setOutcome(result.getStatus().name());
+                syncRun.setRowsInserted(result.getNumInserts());
+                syncRun.setRowsUpdated(result.getNumUpdates());
+                syncRun.setRowsDeleted(result.getNumDeletes());
+            } else {
+                // Fetch failed with unexpected exception
+                syncRun.setOutcome(QuakeFetchResult.Status.DATABASE_ERROR.name());
+            }
+
+            recordQuietly(syncRun);
+        }
+    }
+
+    // Record the run in sync journal.
+    // Failure of the journal must not turn successful sync into failed one.
+    private void recordQuietly(SyncRun syncRun) {
+        try {
+            mSyncJournal.record(syncRun);
+        } catch (RuntimeException e) {
+            // Journal is diagnostics only
+        }
+    }
+
+    // Return number of fetches since the app started
+    public int getFetchCount() {
+        return mSingleFlight.getRunCount();
+    }
+
+    // Return number of sync requests, that joined the fetch in flight
+    public int getJoinedCount() {
+        return mSingleFlight.getJoinCount();
+    }
+}
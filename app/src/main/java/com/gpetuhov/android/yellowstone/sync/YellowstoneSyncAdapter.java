@@ -9,18 +9,21 @@ import android.content.Context;
 import android.content.SyncResult;
 import android.os.Bundle;
 
-import com.gpetuhov.android.yellowstone.QuakeFetcher;
+import com.gpetuhov.android.yellowstone.QuakeFetchResult;
 import com.gpetuhov.android.yellowstone.R;
+import com.gpetuhov.android.yellowstone.SyncRun;
 import com.gpetuhov.android.yellowstone.YellowstoneApp;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 
 
 // SyncAdapter handles the transfer of data between a server and the app
 public class YellowstoneSyncAdapter extends AbstractThreadedSyncAdapter {
 
-    // Keeps instance of QuakeFetcher. Injected by Dagger.
-    @Inject QuakeFetcher mQuakeFetcher;
+    // Keeps instance of QuakeSyncCoordinator. Injected by Dagger.
+    @Inject QuakeSyncCoordinator mQuakeSyncCoordinator;
 
     public YellowstoneSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
@@ -32,7 +35,51 @@ public class YellowstoneSyncAdapter extends AbstractThreadedSyncAdapter {
     // Performs data transfer. The entire sync adapter runs in a background thread.
     @Override
     public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
-        mQuakeFetcher.fetchQuakes();
+        // Sync requested by the user (refresh button) is marked as manual
+        SyncRun.Trigger trigger = extras.getBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, false)
+                ? SyncRun.Trigger.MANUAL_REFRESH
+                : SyncRun.Trigger.SYNC_ADAPTER;
+
+        // If poll service is fetching quakes now, wait for its result instead of fetching again
+        QuakeFetchResult result = mQuakeSyncCoordinator.sync(trigger);
+
+        // Report the result, so that the framework backs off after errors
+        fillSyncResult(result, syncResult, System.currentTimeMillis());
+    }
+
+    // Copy result of quake sync into SyncResult.
+    // IO errors are soft errors (the framework retries with backoff),
+    // parse and database errors are hard errors (the framework doesn't retry).
+    // If circuit breaker of USGS server is open, the framework must not sync until it closes.
+    static void fillSyncResult(QuakeFetchResult result, SyncResult syncResult, long now) {
+        switch (result.getStatus()) {
+            case SUCCESS:
+                syncResult.stats.numEntries += result.getNumEntries();
+                syncResult.stats.numInserts += result.getNumInserts();
+                syncResult.stats.numUpdates += result.getNumUpdates();
+                syncResult.stats.numDeletes += result.getNumDeletes();
+                break;
+
+            case IO_ERROR:
+                syncResult.stats.numIoExceptions++;
+                if (result.getRetryAfterMillis() > 0) {
+                    // Time in seconds since epoch
+                    syncResult.delayUntil = TimeUnit.MILLISECONDS.toSeconds(now + result.getRetryAfterMillis());
+                }
+                break;
+
+            case PARSE_ERROR:
+                syncResult.stats.numParseExceptions++;
+                break;
+
+            case DATABASE_ERROR:
+                syncResult.databaseError = true;
+                break;
+
+            default:
+                // Cancelled sync is not an error
+                break;
+        }
     }
 
     // Immediately sync the sync adapter
@@ -0,0 +1,20 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import java.io.IOException;
+
+// Thrown instead of a network call, if circuit breaker of the host is open
+public class CircuitOpenException extends IOException {
+
+    // Time left until the breaker allows a trial call (in milliseconds)
+    private final long mRetryAfterMillis;
+
+    public CircuitOpenException(String host, long retryAfterMillis) {
+        super("Circuit breaker is open for " + host + ", retry after " + retryAfterMillis + " ms");
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    // Return time left until the breaker allows a trial call (in milliseconds)
+    public long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+}
@@ -0,0 +1,247 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Okio;
+
+// Cache policy layer for OkHttpClient with HTTP disk cache.
+// Revalidation with ETag / Last-Modified is done by OkHttp cache itself.
+// This class adds per-host policies on top of it:
+// - max age for responses, that come without freshness information,
+// - stale-while-revalidate: stale cached response is returned at once
+//   and revalidated in background, so the next request gets fresh data.
+// Also counts cache hits, misses and revalidations.
+public class HttpCachePolicy {
+
+    // Header that marks background revalidation requests (never sent to server)
+    private static final String HEADER_REVALIDATION = "X-Cache-Revalidation";
+
+    // Warning code that OkHttp adds to stale responses served from cache
+    private static final String WARNING_STALE = "110";
+
+    // Policies for hosts. Requests to other hosts use plain HTTP caching.
+    private final Map<String, HostPolicy> mHostPolicies = new HashMap<>();
+
+    // URLs with background revalidation in progress
+    private final Set<String> mRevalidatingUrls = Collections.synchronizedSet(new HashSet<String>());
+
+    // Responses served from cache without network
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    // Responses downloaded from network without cached response
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    // Responses revalidated by conditional request (cached response existed, network was used)
+    private final AtomicLong mRevalidateCount = new AtomicLong();
+
+    // Stale responses served from cache (counted in hits too)
+    private final AtomicLong mStaleCount = new AtomicLong();
+
+    // Used to execute background revalidation requests
+    private volatile Call.Factory mCallFactory;
+
+    // Cache policy for one host
+    private static class HostPolicy {
+        // Max age for responses without freshness information (in seconds)
+        final int mMaxAgeSeconds;
+
+        // How long stale response may be served while it is revalidated (in seconds)
+        final int mStaleWhileRevalidateSeconds;
+
+        HostPolicy(int maxAgeSeconds, int staleWhileRevalidateSeconds) {
+            mMaxAgeSeconds = maxAgeSeconds;
+            mStaleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
+        }
+    }
+
+    // Add policy for the host. Return this object to chain calls.
+    public HttpCachePolicy addHost(String host, int maxAgeSeconds, int staleWhileRevalidateSeconds) {
+        mHostPolicies.put(host, new HostPolicy(maxAgeSeconds, staleWhileRevalidateSeconds));
+        return this;
+    }
+
+    // Set call factory (usually OkHttpClient, that uses this policy) for background revalidation.
+    // Without it stale responses are served, but not revalidated.
+    public void setCallFactory(Call.Factory callFactory) {
+        mCallFactory = callFactory;
+    }
+
+    // Return interceptor to be added to OkHttpClient with addInterceptor()
+    public Interceptor getApplicationInterceptor() {
+        return this::interceptApplication;
+    }
+
+    // Return interceptor to be added to OkHttpClient with addNetworkInterceptor()
+    public Interceptor getNetworkInterceptor() {
+        return this::interceptNetwork;
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public long getRevalidateCount() {
+        return mRevalidateCount.get();
+    }
+
+    public long getStaleCount() {
+        return mStaleCount.get();
+    }
+
+    // Reset all counters
+    public void resetCounters() {
+        mHitCount.set(0);
+        mMissCount.set(0);
+        mRevalidateCount.set(0);
+        mStaleCount.set(0);
+    }
+
+    // Return counters in readable form (for logs and debug screens)
+    @Override
+    public String toString() {
+        return "HTTP cache: hits " + getHitCount()
+                + " (stale " + getStaleCount() + ")"
+                + ", misses " + getMissCount()
+                + ", revalidations " + getRevalidateCount();
+    }
+
+    // Apply stale-while-revalidate policy and count cache usage
+    private Response interceptApplication(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+
+        HostPolicy hostPolicy = mHostPolicies.get(request.url().host());
+
+        boolean revalidation = request.header(HEADER_REVALIDATION) != null;
+
+        // Stale responses may be served only for plain GET requests to hosts with the policy.
+        // Revalidation requests and requests with their own cache control go as they are.
+        if (revalidation
+                || null == hostPolicy
+                || hostPolicy.mStaleWhileRevalidateSeconds <= 0
+                || !"GET".equals(request.method())
+                || request.header("Cache-Control") != null) {
+
+            Response response = chain.proceed(request.newBuilder().removeHeader(HEADER_REVALIDATION).build());
+            countResponse(response);
+            return response;
+        }
+
+        // Allow cache to return stale response
+        Request staleRequest = request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .maxStale(hostPolicy.mStaleWhileRevalidateSeconds, TimeUnit.SECONDS)
+                        .build())
+                .build();
+
+        Response response = chain.proceed(staleRequest);
+        countResponse(response);
+
+        // If stale response was served, revalidate it in background
+        if (isStale(response)) {
+            mStaleCount.incrementAndGet();
+            revalidateInBackground(request);
+        }
+
+        return response;
+    }
+
+    // Add max age to responses without freshness information from hosts with the policy,
+    // so that OkHttp cache can store them.
+    private Response interceptNetwork(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        HostPolicy hostPolicy = mHostPolicies.get(request.url().host());
+
+        if (null != hostPolicy
+                && hostPolicy.mMaxAgeSeconds > 0
+                && response.isSuccessful()
+                && response.cacheControl().maxAgeSeconds() == -1
+                && response.header("Expires") == null) {
+
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "max-age=" + hostPolicy.mMaxAgeSeconds)
+                    .build();
+        }
+
+        return response;
+    }
+
+    // Update counters depending on where the response came from
+    private void countResponse(Response response) {
+        boolean fromCache = response.cacheResponse() != null;
+        boolean fromNetwork = response.networkResponse() != null;
+
+        if (fromCache && fromNetwork) {
+            // Conditional request (If-None-Match / If-Modified-Since) was sent for cached response
+            mRevalidateCount.incrementAndGet();
+        } else if (fromCache) {
+            mHitCount.incrementAndGet();
+        } else if (fromNetwork) {
+            mMissCount.incrementAndGet();
+        }
+    }
+
+    // True, if the response is stale response served from cache without network
+    private static boolean isStale(Response response) {
+        if (response.networkResponse() != null || response.cacheResponse() == null) {
+            return false;
+        }
+
+        String warning = response.header("Warning");
+        return warning != null && warning.startsWith(WARNING_STALE);
+    }
+
+    // Send the request once more without max-stale, so that the cache revalidates stale response
+    // and stores fresh one. Only one revalidation per URL is in progress at a time.
+    private void revalidateInBackground(Request request) {
+        Call.Factory callFactory = mCallFactory;
+
+        final String url = request.url().toString();
+
+        if (null == callFactory || !mRevalidatingUrls.add(url)) {
+            return;
+        }
+
+        Request revalidationRequest = request.newBuilder()
+                .header(HEADER_REVALIDATION, "1")
+                .build();
+
+        callFactory.newCall(revalidationRequest).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                // Stale response stays in cache and will be revalidated next time
+                mRevalidatingUrls.remove(url);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try {
+                    // Body must be read to the end to be written into cache
+                    response.body().source().readAll(Okio.blackhole());
+                } finally {
+                    response.close();
+                    mRevalidatingUrls.remove(url);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,191 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import com.gpetuhov.android.yellowstone.CircuitBreaker;
+import com.gpetuhov.android.yellowstone.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Resilience layer for OkHttpClient (application interceptor).
+// - Idempotent (GET and HEAD) requests, that fail with IOException or server error
+//   (5xx or 429), are retried with exponential backoff and jitter.
+//   Retry-After header of the server is respected, if it is not longer than max delay.
+// - Every host has its own circuit breaker. Request counts as failed, if it failed after all retries.
+//   While the breaker is open, requests to the host fail at once with CircuitOpenException
+//   (so that periodic syncs don't keep hitting a failing server).
+// Client errors (4xx) are not retried and don't open the breaker (the server is up).
+// Retries sleep in the calling thread, so requests must be executed in background thread.
+public class ResilienceInterceptor implements Interceptor {
+
+    // HTTP status "Too Many Requests"
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final RetryPolicy mRetryPolicy;
+
+    // Settings of circuit breakers
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+    private final long mMaxOpenMillis;
+
+    // Circuit breakers of hosts, guarded by itself
+    private final Map<String, CircuitBreaker> mCircuitBreakers = new HashMap<>();
+
+    // Number of retries
+    private final AtomicLong mRetryCount = new AtomicLong();
+
+    // Number of requests rejected by open circuit breakers
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    public ResilienceInterceptor(RetryPolicy retryPolicy, int failureThreshold, long openMillis, long maxOpenMillis) {
+        mRetryPolicy = retryPolicy;
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mMaxOpenMillis = maxOpenMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String host = request.url().host();
+        CircuitBreaker circuitBreaker = getCircuitBreaker(host);
+
+        if (!circuitBreaker.allowRequest()) {
+            mRejectedCount.incrementAndGet();
+            throw new CircuitOpenException(host, circuitBreaker.getRemainingOpenMillis());
+        }
+
+        boolean retryAllowed = isIdempotent(request);
+        int attempts = 0;
+
+        // Result of the request is reported to the breaker in any case
+        // (also if the thread is interrupted), so that HALF_OPEN breaker doesn't wait
+        // for the result of its trial call forever.
+        boolean succeeded = false;
+
+        try {
+            while (true) {
+                attempts++;
+
+                Response response = null;
+                IOException exception = null;
+
+                try {
+                    response = chain.proceed(request);
+                } catch (IOException e) {
+                    exception = e;
+                }
+
+                boolean failed = null != exception || isServerError(response);
+
+                // Delay before the next attempt (negative, if there will be no next attempt)
+                long delayMillis = -1;
+
+                if (failed && retryAllowed && mRetryPolicy.canRetry(attempts)) {
+                    delayMillis = mRetryPolicy.getDelayMillis(attempts);
+
+                    // Server asked to wait. If it asked to wait too long, don't retry.
+                    long retryAfterMillis = getRetryAfterMillis(response);
+                    if (retryAfterMillis > mRetryPolicy.getMaxDelayMillis()) {
+                        delayMillis = -1;
+                    } else {
+                        delayMillis = Math.max(delayMillis, retryAfterMillis);
+                    }
+                }
+
+                if (delayMillis < 0) {
+                    // Final attempt
+                    succeeded = !failed;
+
+                    if (null != exception) {
+                        throw exception;
+                    }
+
+                    return response;
+                }
+
+                // Release connection of the failed response before the retry
+                if (null != response) {
+                    response.close();
+                }
+
+                mRetryCount.incrementAndGet();
+                sleep(delayMillis);
+            }
+        } finally {
+            if (succeeded) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        }
+    }
+
+    // Return circuit breaker of the host
+    public CircuitBreaker getCircuitBreaker(String host) {
+        synchronized (mCircuitBreakers) {
+            CircuitBreaker circuitBreaker = mCircuitBreakers.get(host);
+            if (null == circuitBreaker) {
+                circuitBreaker = new CircuitBreaker(mFailureThreshold, mOpenMillis, mMaxOpenMillis);
+                mCircuitBreakers.put(host, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+    }
+
+    // Return number of retries
+    public long getRetryCount() {
+        return mRetryCount.get();
+    }
+
+    // Return number of requests rejected by open circuit breakers
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    // Return true, if the request may be repeated without side effects
+    private static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    // Return true, if the server failed to handle the request (it may succeed later)
+    private static boolean isServerError(Response response) {
+        return response.code() >= 500 || response.code() == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    // Return delay from Retry-After header in milliseconds (0, if there is none)
+    private static long getRetryAfterMillis(Response response) {
+        if (null == response) {
+            return 0;
+        }
+
+        String retryAfter = response.header("Retry-After");
+        if (null == retryAfter) {
+            return 0;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            // HTTP date is not supported, use own delay
+            return 0;
+        }
+    }
+
+    // Wait before the next attempt
+    private static void sleep(long delayMillis) throws InterruptedIOException {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for retry");
+        }
+    }
+}
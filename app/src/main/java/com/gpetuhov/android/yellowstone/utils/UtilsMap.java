@@ -1,14 +1,24 @@
 package com.gpetuhov.android.yellowstone.utils;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v4.content.ContextCompat;
+import android.util.SparseArray;
 
 import com.google.android.gms.maps.CameraUpdate;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
-import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.QuakeCluster;
+import com.gpetuhov.android.yellowstone.QuakeMarkerReconciler;
+import com.gpetuhov.android.yellowstone.QuakePoints;
 import com.gpetuhov.android.yellowstone.R;
 
 import java.util.List;
@@ -25,81 +35,183 @@ public class UtilsMap {
     private static final double LAT_SHIFT = 0.5;
     private static final double LNG_SHIFT = 0.6;
 
+    // Size of grid cell for clustering quakes on the map (in map pixels)
+    public static final int CLUSTER_CELL_SIZE = 64;
+
+    // Cluster sizes, that have their own icons (cluster of 37 quakes is displayed as "20+").
+    // Few icons are created and reused, instead of new icon for every cluster.
+    private static final int[] CLUSTER_BUCKETS = { 10, 20, 50, 100, 200, 500, 1000 };
+
     private Context mContext;
 
+    // Cluster icons for cluster sizes (created when needed, used only in main thread)
+    private final SparseArray<BitmapDescriptor> mClusterIcons = new SparseArray<>();
+
     public UtilsMap(Context context) {
         mContext = context;
     }
 
-    // Updates map with bounds including Caldera and points earthquakes,
-    // displays list of quakes on map.
-    public void updateMap(GoogleMap googleMap, List<Quake> quakes) {
+    // Return bounds including Caldera and all quakes.
+    // Doesn't touch the map, so it is called in background thread.
+    public static GeoMath.Bounds calculateBounds(QuakePoints points) {
+        GeoMath.Bounds quakeBounds = new GeoMath.Bounds();
+
+        // Include all quakes to bounds
+        for (int i = 0; i < points.size(); i++) {
+            quakeBounds.include(points.getLatitude(i), points.getLongitude(i));
+        }
+
+        return includeCaldera(quakeBounds);
+    }
+
+    // Extend bounds to include Caldera. Return the same bounds to chain calls.
+    public static GeoMath.Bounds includeCaldera(GeoMath.Bounds quakeBounds) {
+
+        // Coordinates of Caldera
+        double calderaLat = getCalderaLatDouble();
+        double calderaLng = getCalderaLngDouble();
+
+        // Include shifts from Caldera to bounds
+        return quakeBounds
+                .include(calderaLat + LAT_SHIFT, calderaLng)
+                .include(calderaLat - LAT_SHIFT, calderaLng)
+                .include(calderaLat, calderaLng - LNG_SHIFT)
+                .include(calderaLat, calderaLng + LNG_SHIFT);
+    }
+
+    // Return visible area of the map
+    public static GeoMath.Viewport getVisibleViewport(GoogleMap googleMap) {
+        LatLngBounds bounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        return new GeoMath.Viewport(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+    }
+
+    // Moves camera to bounds (see calculateBounds() and includeCaldera())
+    public void moveCamera(GoogleMap googleMap, GeoMath.Bounds quakeBounds) {
 
         // Do nothing, if map is not ready
         if (null == googleMap) {
             return;
         }
 
-        // Do nothing, if list is null
-        if (null == quakes) {
+        // Build bounds from south-west and north-east corners
+        LatLngBounds bounds = new LatLngBounds(
+                new LatLng(quakeBounds.getSouth(), quakeBounds.getWest()),
+                new LatLng(quakeBounds.getNorth(), quakeBounds.getEast()));
+
+        // Get map margin size from XML
+        int margin = mContext.getResources().getDimensionPixelSize(R.dimen.map_inset_margin);
+
+        // Build camera update with the bounds built above and map margins
+        CameraUpdate cameraUpdate = CameraUpdateFactory.newLatLngBounds(bounds, margin);
+
+        // Move camera to the update built above
+        googleMap.moveCamera(cameraUpdate);
+    }
+
+    // Displays clusters of quakes on map (one marker per cluster).
+    // Markers, that are already on the map, are kept by the reconciler,
+    // so only markers of added, removed and changed clusters are touched.
+    public void updateMarkers(GoogleMap googleMap, QuakeMarkerReconciler<Marker> reconciler, List<QuakeCluster> clusters) {
+
+        // Do nothing, if map is not ready
+        if (null == googleMap) {
             return;
         }
 
-        // Coordinates of Caldera
-        double calderaLat = getCalderaLatDouble();
-        double calderaLng = getCalderaLngDouble();
+        reconciler.reconcile(clusters, new MapMarkers(googleMap));
+    }
+
+    // Creates, updates and removes markers of clusters on the map
+    private class MapMarkers implements QuakeMarkerReconciler.Markers<Marker> {
 
-        // North shift from Caldera
-        LatLng northOfCaldera = new LatLng(calderaLat + LAT_SHIFT, calderaLng);
+        private final GoogleMap mGoogleMap;
 
-        // South shift from Caldera
-        LatLng southOfCaldera = new LatLng(calderaLat - LAT_SHIFT, calderaLng);
+        MapMarkers(GoogleMap googleMap) {
+            mGoogleMap = googleMap;
+        }
 
-        // West shift from Caldera
-        LatLng westOfCaldera = new LatLng(calderaLat, calderaLng - LNG_SHIFT);
+        @Override
+        public Marker add(QuakeCluster cluster) {
+            MarkerOptions markerOptions = new MarkerOptions()
+                    .position(new LatLng(cluster.getLatitude(), cluster.getLongitude()));
 
-        // East shift from Caldera
-        LatLng eastOfCaldera = new LatLng(calderaLat, calderaLng + LNG_SHIFT);
+            // Single quake is displayed with default marker, cluster - with number of quakes
+            if (cluster.getCount() > 1) {
+                markerOptions
+                        .icon(getClusterIcon(cluster.getCount()))
+                        .anchor(0.5f, 0.5f)
+                        .title(getClusterTitle(cluster));
+            }
 
-        // Clear map
-        googleMap.clear();
+            return mGoogleMap.addMarker(markerOptions);
+        }
 
-        // New latitude longitude bounds builder
-        LatLngBounds.Builder latLngBoundsBuilder = new LatLngBounds.Builder();
+        @Override
+        public void update(Marker marker, QuakeCluster cluster) {
+            marker.setPosition(new LatLng(cluster.getLatitude(), cluster.getLongitude()));
 
-        // Include shifts from Caldera to bounds builder
-        latLngBoundsBuilder
-                .include(northOfCaldera)
-                .include(southOfCaldera)
-                .include(westOfCaldera)
-                .include(eastOfCaldera);
+            // Markers are keyed by USGS ID or by grid cell, so the marker stays single or cluster
+            if (cluster.getCount() > 1) {
+                marker.setIcon(getClusterIcon(cluster.getCount()));
+                marker.setTitle(getClusterTitle(cluster));
+            }
+        }
 
-        // For each earthquake from the list
-        for (Quake quakeToDisplay : quakes) {
+        @Override
+        public void remove(Marker marker) {
+            marker.remove();
+        }
+    }
 
-            // Create point of the earthquake
-            LatLng pointOfQuake = new LatLng(quakeToDisplay.getLatitude(), quakeToDisplay.getLongitude());
+    // Return title of the cluster marker
+    private String getClusterTitle(QuakeCluster cluster) {
+        return mContext.getString(R.string.map_cluster_title, cluster.getCount());
+    }
 
-            // Build marker for the point of the earthquake
-            MarkerOptions quakeMarker = new MarkerOptions().position(pointOfQuake);
+    // Return icon for the cluster with given number of quakes
+    private BitmapDescriptor getClusterIcon(int count) {
+        // Find the largest bucket, that is not greater than the count
+        int bucket = count;
+        for (int i = CLUSTER_BUCKETS.length - 1; i >= 0; i--) {
+            if (count >= CLUSTER_BUCKETS[i]) {
+                bucket = CLUSTER_BUCKETS[i];
+                break;
+            }
+        }
 
-            // Add marker for the earthquake to map
-            googleMap.addMarker(quakeMarker);
+        BitmapDescriptor icon = mClusterIcons.get(bucket);
 
-            latLngBoundsBuilder.include(pointOfQuake);
+        if (null == icon) {
+            String text = bucket < CLUSTER_BUCKETS[0] ? String.valueOf(bucket) : bucket + "+";
+            icon = BitmapDescriptorFactory.fromBitmap(createClusterBitmap(text));
+            mClusterIcons.put(bucket, icon);
         }
 
-        // Build bounds from bounds builder
-        LatLngBounds bounds = latLngBoundsBuilder.build();
+        return icon;
+    }
 
-        // Get map margin size from XML
-        int margin = mContext.getResources().getDimensionPixelSize(R.dimen.map_inset_margin);
+    // Draw circle with text for cluster icon
+    private Bitmap createClusterBitmap(String text) {
+        int size = mContext.getResources().getDimensionPixelSize(R.dimen.map_cluster_size);
 
-        // Build camera update with the bounds built above and map margins
-        CameraUpdate cameraUpdate = CameraUpdateFactory.newLatLngBounds(bounds, margin);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
 
-        // Move camera to the update built above
-        googleMap.moveCamera(cameraUpdate);
+        Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        circlePaint.setColor(ContextCompat.getColor(mContext, R.color.map_cluster));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, circlePaint);
+
+        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(ContextCompat.getColor(mContext, R.color.map_cluster_text));
+        textPaint.setTextSize(mContext.getResources().getDimension(R.dimen.map_cluster_text_size));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+
+        // Center text vertically
+        float textY = size / 2f - (textPaint.descent() + textPaint.ascent()) / 2;
+        canvas.drawText(text, size / 2f, textY, textPaint);
+
+        return bitmap;
     }
 
     // Return Caldera latitude converted to double
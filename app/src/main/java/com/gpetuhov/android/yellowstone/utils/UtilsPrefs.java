@@ -13,6 +13,28 @@ public class UtilsPrefs {
     // Key for the new quakes fetched flag in SharedPreferences
     private static final String PREF_KEY_NEW_QUAKES_FETCHED_FLAG = "new_quakes_fetched_flag";
 
+    // Key for the time of the most recent earthquake in SharedPreferences
+    private static final String PREF_KEY_LAST_RESULT_TIME = "last_result_time";
+
+    // Key for the time of the last successful sync in SharedPreferences
+    private static final String PREF_KEY_LAST_SYNC_TIME = "last_sync_time";
+
+    // Key for the latest update time of fetched earthquakes in SharedPreferences
+    // (high-water mark for delta sync)
+    private static final String PREF_KEY_LATEST_UPDATE_TIME = "latest_update_time";
+
+    // Key for the time of the last refresh of cached photo list in SharedPreferences
+    private static final String PREF_KEY_PHOTO_REFRESH_TIME = "photo_refresh_time";
+
+    // Key for the number of cached pages of photo list in SharedPreferences
+    private static final String PREF_KEY_PHOTO_CACHED_PAGE_COUNT = "photo_cached_page_count";
+
+    // Key for the total number of pages of photo search results in SharedPreferences
+    private static final String PREF_KEY_PHOTO_PAGE_COUNT = "photo_page_count";
+
+    // Key for the interval until the next quake poll in SharedPreferences
+    private static final String PREF_KEY_POLL_INTERVAL = "poll_interval";
+
     private SharedPreferences mSharedPreferences;
 
     public UtilsPrefs(SharedPreferences sharedPreferences) {
@@ -46,6 +68,76 @@ public class UtilsPrefs {
                 .apply();
     }
 
+    // Return time of the most recent fetched earthquake from SharedPreferences
+    public long getLastResultTime() {
+        return getLongFromSharedPreferences(PREF_KEY_LAST_RESULT_TIME, 0);
+    }
+
+    // Set new value for the time of the most recent fetched earthquake in SharedPreferences
+    public void setLastResultTime(long lastResultTime) {
+        putLongToSharedPreferences(PREF_KEY_LAST_RESULT_TIME, lastResultTime);
+    }
+
+    // Return time of the last successful sync from SharedPreferences (0, if never synced)
+    public long getLastSyncTime() {
+        return getLongFromSharedPreferences(PREF_KEY_LAST_SYNC_TIME, 0);
+    }
+
+    // Set new value for the time of the last successful sync in SharedPreferences
+    public void setLastSyncTime(long lastSyncTime) {
+        putLongToSharedPreferences(PREF_KEY_LAST_SYNC_TIME, lastSyncTime);
+    }
+
+    // Return latest update time of fetched earthquakes from SharedPreferences (0, if never synced)
+    public long getLatestUpdateTime() {
+        return getLongFromSharedPreferences(PREF_KEY_LATEST_UPDATE_TIME, 0);
+    }
+
+    // Set new value for the latest update time of fetched earthquakes in SharedPreferences
+    public void setLatestUpdateTime(long latestUpdateTime) {
+        putLongToSharedPreferences(PREF_KEY_LATEST_UPDATE_TIME, latestUpdateTime);
+    }
+
+    // Return time of the last refresh of cached photo list from SharedPreferences (0, if never refreshed)
+    public long getPhotoRefreshTime() {
+        return getLongFromSharedPreferences(PREF_KEY_PHOTO_REFRESH_TIME, 0);
+    }
+
+    // Set new value for the time of the last refresh of cached photo list in SharedPreferences
+    public void setPhotoRefreshTime(long photoRefreshTime) {
+        putLongToSharedPreferences(PREF_KEY_PHOTO_REFRESH_TIME, photoRefreshTime);
+    }
+
+    // Return number of cached pages of photo list from SharedPreferences
+    public int getPhotoCachedPageCount() {
+        return getIntFromSharedPreferences(PREF_KEY_PHOTO_CACHED_PAGE_COUNT, 0);
+    }
+
+    // Set new value for the number of cached pages of photo list in SharedPreferences
+    public void setPhotoCachedPageCount(int photoCachedPageCount) {
+        putIntToSharedPreferences(PREF_KEY_PHOTO_CACHED_PAGE_COUNT, photoCachedPageCount);
+    }
+
+    // Return total number of pages of photo search results from SharedPreferences
+    public int getPhotoPageCount() {
+        return getIntFromSharedPreferences(PREF_KEY_PHOTO_PAGE_COUNT, 0);
+    }
+
+    // Set new value for the total number of pages of photo search results in SharedPreferences
+    public void setPhotoPageCount(int photoPageCount) {
+        putIntToSharedPreferences(PREF_KEY_PHOTO_PAGE_COUNT, photoPageCount);
+    }
+
+    // Return interval until the next quake poll in milliseconds from SharedPreferences (0, if never scheduled)
+    public long getPollInterval() {
+        return getLongFromSharedPreferences(PREF_KEY_POLL_INTERVAL, 0);
+    }
+
+    // Set new value for the interval until the next quake poll in SharedPreferences
+    public void setPollInterval(long pollInterval) {
+        putLongToSharedPreferences(PREF_KEY_POLL_INTERVAL, pollInterval);
+    }
+
     // Return new quakes fetched flag from SharedPreferences
     public boolean getNewQuakesFetchedFlag() {
         return getBooleanFromSharedPreferences(PREF_KEY_NEW_QUAKES_FETCHED_FLAG, false);
@@ -77,4 +169,15 @@ public class UtilsPrefs {
                 .putInt(key, value)
                 .apply();
     }
+
+    public long getLongFromSharedPreferences(String key, long defValue) {
+        return mSharedPreferences.getLong(key, defValue);
+    }
+
+    public void putLongToSharedPreferences(String key, long value) {
+        mSharedPreferences
+                .edit()
+                .putLong(key, value)
+                .apply();
+    }
 }
@@ -0,0 +1,135 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.QuakeMapper;
+import com.gpetuhov.android.yellowstone.QuakePoints;
+import com.gpetuhov.android.yellowstone.data.YellowstoneContract.QuakeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Conversions between Quake objects and Android database classes
+// (Quake itself is in core module and doesn't depend on Android)
+public class UtilsQuake {
+
+    // Return Quake object with data extracted from the current cursor row
+    public static Quake getQuakeFromCursor(Cursor cursor) {
+        CursorRow row = new CursorRow(cursor);
+        return new QuakeMapper(row).map(row);
+    }
+
+    // Return list of quakes from cursor
+    public static List<Quake> getQuakeListFromCursor(Cursor cursor) {
+        // Create new empty list of quakes
+        List<Quake> quakes = new ArrayList<>();
+
+        // If the cursor is null, return empty list of quakes
+        if (null == cursor) {
+            return quakes;
+        }
+
+        // Column indices are resolved once for all rows
+        CursorRow row = new CursorRow(cursor);
+        QuakeMapper quakeMapper = new QuakeMapper(row);
+
+        // Move to the first row of the cursor
+        cursor.moveToFirst();
+
+        // While we didn't move after the last row of the cursor
+        while (!cursor.isAfterLast()) {
+            // Extract Quake object from the cursor row and add it to list of quakes
+            quakes.add(quakeMapper.map(row));
+
+            // Move to the next row of the cursor
+            cursor.moveToNext();
+        }
+
+        return quakes;
+
+        // Do not close cursor, because cursor is managed by CursorLoader
+    }
+
+    // Return coordinates, magnitudes and versions of all quakes from cursor
+    // (cursor must have USGS ID, latitude, longitude, magnitude and update time columns)
+    public static QuakePoints getQuakePointsFromCursor(Cursor cursor) {
+        int count = cursor.getCount();
+        String[] ids = new String[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] magnitudes = new double[count];
+        long[] versions = new long[count];
+
+        int idsColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_IDS);
+        int latitudeColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_LATITUDE);
+        int longitudeColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_LONGITUDE);
+        int magnitudeColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_MAGNITUDE);
+        int updatedColumn = cursor.getColumnIndexOrThrow(QuakeEntry.COLUMN_UPDATED);
+
+        for (int position = 0; cursor.moveToPosition(position); position++) {
+            ids[position] = cursor.getString(idsColumn);
+            latitudes[position] = cursor.getDouble(latitudeColumn);
+            longitudes[position] = cursor.getDouble(longitudeColumn);
+            magnitudes[position] = cursor.getDouble(magnitudeColumn);
+            versions[position] = cursor.getLong(updatedColumn);
+        }
+
+        return new QuakePoints(ids, latitudes, longitudes, magnitudes, versions);
+    }
+
+    // Return content values to write Quake object into database
+    public static ContentValues getQuakeContentValues(Quake quake) {
+
+        // Create new content values
+        ContentValues values = new ContentValues();
+
+        // Put data from Quake object fields into content values
+        values.put(QuakeEntry.COLUMN_IDS, quake.getId());
+        values.put(QuakeEntry.COLUMN_MAGNITUDE, quake.getMagnitude());
+        values.put(QuakeEntry.COLUMN_LOCATION, quake.getLocation());
+        values.put(QuakeEntry.COLUMN_LATITUDE, quake.getLatitude());
+        values.put(QuakeEntry.COLUMN_LONGITUDE, quake.getLongitude());
+        values.put(QuakeEntry.COLUMN_DEPTH, quake.getDepth());
+        values.put(QuakeEntry.COLUMN_TIME, quake.getTimeInMilliseconds());
+        values.put(QuakeEntry.COLUMN_URL, quake.getUrl());
+        values.put(QuakeEntry.COLUMN_UPDATED, quake.getUpdatedInMilliseconds());
+
+        // Display strings are formatted once here (in sync thread), not when the list is scrolled
+        values.put(QuakeEntry.COLUMN_DISPLAY_MAGNITUDE, quake.getFormattedMagnitude());
+        values.put(QuakeEntry.COLUMN_DISPLAY_DATE, quake.getFormattedDate());
+
+        return values;
+    }
+
+    // Cursor wrapped into QuakeMapper.Row interface
+    private static class CursorRow implements QuakeMapper.Row {
+
+        private final Cursor mCursor;
+
+        CursorRow(Cursor cursor) {
+            mCursor = cursor;
+        }
+
+        @Override
+        public int getColumnIndex(String columnName) {
+            return mCursor.getColumnIndex(columnName);
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            return mCursor.getString(columnIndex);
+        }
+
+        @Override
+        public double getDouble(int columnIndex) {
+            return mCursor.getDouble(columnIndex);
+        }
+
+        @Override
+        public long getLong(int columnIndex) {
+            return mCursor.getLong(columnIndex);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+// Tests for paged Flickr photo fetcher against local stub of Flickr search
+public class PhotoFetcherTest {
+
+    // Number of photos in the stub search results
+    private static final int TOTAL_PHOTOS = 70;
+
+    private MockWebServer mServer;
+
+    private PhotoFetcher mPhotoFetcher;
+
+    // Stub of flickr.photos.search, that serves TOTAL_PHOTOS photos
+    // according to "page" and "per_page" query parameters (like Flickr does).
+    // Every tenth photo has no image URL.
+    private static class FlickrStubDispatcher extends Dispatcher {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            HttpUrl url = requestUrl(request);
+
+            if (!"flickr.photos.search".equals(url.queryParameter("method"))) {
+                return new MockResponse().setBody(
+                        "{\"stat\":\"fail\",\"code\":112,\"message\":\"Method not found\"}");
+            }
+
+            int page = Integer.parseInt(url.queryParameter("page"));
+            int perPage = Integer.parseInt(url.queryParameter("per_page"));
+            int pages = (TOTAL_PHOTOS + perPage - 1) / perPage;
+
+            StringBuilder photos = new StringBuilder();
+            for (int i = (page - 1) * perPage; i < Math.min(page * perPage, TOTAL_PHOTOS); i++) {
+                if (photos.length() > 0) {
+                    photos.append(',');
+                }
+                photos.append(String.format(Locale.US,
+                        "{\"id\":\"%d\",\"owner\":\"owner%d\",\"secret\":\"s\",\"title\":\"Photo %d\",\"ispublic\":1",
+                        i, i, i));
+                if (i % 10 != 9) {
+                    photos.append(String.format(Locale.US, ",\"url_s\":\"https://farm.example/%d.jpg\"", i));
+                }
+                photos.append('}');
+            }
+
+            // Flickr returns "pages" and "total" as strings
+            return new MockResponse().setBody(String.format(Locale.US,
+                    "{\"photos\":{\"page\":%d,\"pages\":\"%d\",\"perpage\":%d,\"total\":\"%d\",\"photo\":[%s]},\"stat\":\"ok\"}",
+                    page, pages, perPage, TOTAL_PHOTOS, photos));
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new FlickrStubDispatcher());
+        mServer.start();
+        mPhotoFetcher = new PhotoFetcher(new OkHttpClient(), mServer.url("/services/rest/"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void firstPage_isParsed() throws Exception {
+        PhotoPage photoPage = mPhotoFetcher.fetchPhotoPage(1, 30);
+
+        assertEquals(1, photoPage.getPage());
+        assertEquals(3, photoPage.getPageCount());
+        assertTrue(photoPage.hasNextPage());
+
+        // 3 of 30 photos have no URL
+        assertEquals(27, photoPage.getItems().size());
+
+        PhotoListItem item = photoPage.getItems().get(0);
+        assertEquals("0", item.getId());
+        assertEquals("owner0", item.getOwner());
+        assertEquals("Photo 0", item.getCaption());
+        assertEquals("https://farm.example/0.jpg", item.getUrl());
+    }
+
+    @Test
+    public void pageParameters_areSent() throws Exception {
+        mPhotoFetcher.fetchPhotoPage(2, 30);
+
+        HttpUrl url = requestUrl(mServer.takeRequest());
+        assertEquals("/services/rest/", url.encodedPath());
+        assertEquals("2", url.queryParameter("page"));
+        assertEquals("30", url.queryParameter("per_page"));
+        assertEquals("yellowstone", url.queryParameter("text"));
+        assertEquals("url_s", url.queryParameter("extras"));
+    }
+
+    @Test
+    public void allPages_containAllPhotosWithUrl() throws Exception {
+        int count = 0;
+        int page = 0;
+        PhotoPage photoPage;
+
+        do {
+            photoPage = mPhotoFetcher.fetchPhotoPage(++page, 30);
+            count += photoPage.getItems().size();
+        } while (photoPage.hasNextPage());
+
+        assertEquals(3, page);
+        assertEquals(TOTAL_PHOTOS - TOTAL_PHOTOS / 10, count);
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void flickrError_throwsIOException() throws Exception {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                return new MockResponse().setBody(
+                        "{\"stat\":\"fail\",\"code\":100,\"message\":\"Invalid API Key\"}");
+            }
+        });
+
+        mPhotoFetcher.fetchPhotoPage(1, 30);
+    }
+
+    @Test(expected = IOException.class)
+    public void serverError_throwsIOException() throws Exception {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                return new MockResponse().setResponseCode(500);
+            }
+        });
+
+        mPhotoFetcher.fetchPhotoPage(1, 30);
+    }
+
+    // Return URL of the recorded request (path and query)
+    private static HttpUrl requestUrl(RecordedRequest request) {
+        return HttpUrl.parse("http://localhost" + request.getPath());
+    }
+}
@@ -0,0 +1,111 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.*;
+
+// Tests for USGS query URLs built by QuakeFetcher (storage is not needed for them)
+public class QuakeFetcherTest {
+
+    // 2016-09-15 09:42:22 UTC
+    private static final long NOW = 1473932542000L;
+
+    // High-water mark of the previous sync
+    private static final long LATEST_UPDATE_TIME = 1473931342000L;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+
+    private OkHttpClient mClient;
+
+    private QuakeFetcher mQuakeFetcher;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+
+        mClient = new OkHttpClient.Builder()
+                .cache(new Cache(mTemporaryFolder.newFolder(), 1024 * 1024))
+                .build();
+
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(mServer.url("/fdsnws/event/1/"))
+                .client(mClient)
+                .build();
+
+        // Storage is not touched while calls are created
+        mQuakeFetcher = new QuakeFetcher(retrofit, null, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void windowStart_isRoundedDownToTheHour() {
+        long windowStart = QuakeFetcher.getSyncWindowStart(NOW);
+
+        assertEquals(0, windowStart % QuakeFetcher.WINDOW_START_STEP_MILLIS);
+        assertTrue(windowStart <= NOW - QuakeFetcher.SYNC_WINDOW_MILLIS);
+        assertTrue(windowStart > NOW - QuakeFetcher.SYNC_WINDOW_MILLIS - QuakeFetcher.WINDOW_START_STEP_MILLIS);
+    }
+
+    @Test
+    public void syncsInTheSameMinute_haveTheSameCacheKey() {
+        String first = cacheKey(NOW);
+        String second = cacheKey(NOW + TimeUnit.SECONDS.toMillis(59));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void syncsInDifferentHours_haveDifferentCacheKeys() {
+        assertNotEquals(cacheKey(NOW), cacheKey(NOW + TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @Test
+    public void secondSyncInTheSameMinute_isServedFromCache() throws Exception {
+        mServer.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setBody("{\"features\":[]}"));
+
+        execute(NOW);
+        execute(NOW + TimeUnit.SECONDS.toMillis(30));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, mClient.cache().hitCount());
+    }
+
+    // Return HTTP cache key of the delta sync started at the moment
+    private String cacheKey(long now) {
+        return Cache.key(createDeltaCall(now).request().url());
+    }
+
+    // Execute delta sync call started at the moment and read its body
+    private void execute(long now) throws Exception {
+        ResponseBody body = createDeltaCall(now).execute().body();
+        body.string();
+    }
+
+    private Call<ResponseBody> createDeltaCall(long now) {
+        return mQuakeFetcher.createCall(true, QuakeFetcher.getSyncWindowStart(now), LATEST_UPDATE_TIME);
+    }
+}
@@ -0,0 +1,189 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+// Tests for HTTP cache policy against local MockWebServer
+public class HttpCachePolicyTest {
+
+    @Rule public TemporaryFolder mCacheDir = new TemporaryFolder();
+
+    private MockWebServer mServer;
+
+    private HttpCachePolicy mHttpCachePolicy;
+
+    private OkHttpClient mClient;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mHttpCachePolicy = new HttpCachePolicy();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void freshResponse_isServedFromCache() throws Exception {
+        buildClient(0, 0);
+        mServer.enqueue(new MockResponse().setBody("quakes").addHeader("Cache-Control", "max-age=60"));
+
+        assertEquals("quakes", get("/query"));
+        assertEquals("quakes", get("/query"));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, mHttpCachePolicy.getMissCount());
+        assertEquals(1, mHttpCachePolicy.getHitCount());
+    }
+
+    @Test
+    public void expiredResponse_isRevalidatedWithETag() throws Exception {
+        buildClient(0, 0);
+        mServer.enqueue(new MockResponse().setBody("quakes")
+                .addHeader("Cache-Control", "max-age=0")
+                .addHeader("ETag", "\"v1\""));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("quakes", get("/query"));
+        assertEquals("quakes", get("/query"));
+
+        mServer.takeRequest();
+        RecordedRequest conditionalRequest = mServer.takeRequest();
+        assertEquals("\"v1\"", conditionalRequest.getHeader("If-None-Match"));
+
+        assertEquals(1, mHttpCachePolicy.getMissCount());
+        assertEquals(1, mHttpCachePolicy.getRevalidateCount());
+    }
+
+    @Test
+    public void expiredResponse_isRevalidatedWithLastModified() throws Exception {
+        buildClient(0, 0);
+        mServer.enqueue(new MockResponse().setBody("photos")
+                .addHeader("Cache-Control", "max-age=0")
+                .addHeader("Last-Modified", "Thu, 15 Sep 2016 09:42:22 GMT"));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("photos", get("/photos"));
+        assertEquals("photos", get("/photos"));
+
+        mServer.takeRequest();
+        RecordedRequest conditionalRequest = mServer.takeRequest();
+        assertEquals("Thu, 15 Sep 2016 09:42:22 GMT", conditionalRequest.getHeader("If-Modified-Since"));
+        assertEquals(1, mHttpCachePolicy.getRevalidateCount());
+    }
+
+    @Test
+    public void staleResponse_isServedAndRevalidatedInBackground() throws Exception {
+        buildClient(0, 60);
+        mServer.enqueue(new MockResponse().setBody("old")
+                .addHeader("Cache-Control", "max-age=0")
+                .addHeader("ETag", "\"v1\""));
+        mServer.enqueue(new MockResponse().setBody("new")
+                .addHeader("Cache-Control", "max-age=60")
+                .addHeader("ETag", "\"v2\""));
+
+        assertEquals("old", get("/photos"));
+
+        // Stale response is returned without waiting for the network
+        assertEquals("old", get("/photos"));
+        assertEquals(1, mHttpCachePolicy.getStaleCount());
+
+        // Background revalidation is sent as a conditional request
+        mServer.takeRequest();
+        RecordedRequest revalidationRequest = mServer.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull("Stale response was not revalidated", revalidationRequest);
+        assertEquals("\"v1\"", revalidationRequest.getHeader("If-None-Match"));
+        assertNull(revalidationRequest.getHeader("X-Cache-Revalidation"));
+
+        // Wait until revalidated response is written to cache
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"new".equals(getFreshFromCache("/photos")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Next request gets fresh response from cache
+        assertEquals("new", get("/photos"));
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void responseWithoutFreshnessInformation_getsMaxAgeFromPolicy() throws Exception {
+        buildClient(60, 0);
+        mServer.enqueue(new MockResponse().setBody("photos"));
+
+        assertEquals("photos", get("/photos"));
+        assertEquals("photos", get("/photos"));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, mHttpCachePolicy.getHitCount());
+    }
+
+    @Test
+    public void hostWithoutPolicy_usesPlainHttpCaching() throws Exception {
+        mHttpCachePolicy.addHost("api.flickr.com", 60, 60);
+        createClient();
+        mServer.enqueue(new MockResponse().setBody("a"));
+        mServer.enqueue(new MockResponse().setBody("b"));
+
+        assertEquals("a", get("/query"));
+        assertEquals("b", get("/query"));
+
+        assertEquals(2, mHttpCachePolicy.getMissCount());
+    }
+
+    // Build client with the policy for MockWebServer host
+    private void buildClient(int maxAgeSeconds, int staleWhileRevalidateSeconds) throws IOException {
+        mHttpCachePolicy.addHost(mServer.getHostName(), maxAgeSeconds, staleWhileRevalidateSeconds);
+        createClient();
+    }
+
+    private void createClient() throws IOException {
+        mClient = new OkHttpClient.Builder()
+                .cache(new Cache(mCacheDir.newFolder(), 1024 * 1024))
+                .addInterceptor(mHttpCachePolicy.getApplicationInterceptor())
+                .addNetworkInterceptor(mHttpCachePolicy.getNetworkInterceptor())
+                .build();
+
+        mHttpCachePolicy.setCallFactory(mClient);
+    }
+
+    private String get(String path) throws IOException {
+        return execute(new Request.Builder().url(mServer.url(path)).build());
+    }
+
+    // Return body of fresh cached response (or null, if there is no such response)
+    private String getFreshFromCache(String path) throws IOException {
+        return execute(new Request.Builder()
+                .url(mServer.url(path))
+                .header("Cache-Control", "only-if-cached, max-stale=0")
+                .build());
+    }
+
+    private String execute(Request request) throws IOException {
+        Response response = mClient.newCall(request).execute();
+        try {
+            return response.isSuccessful() ? response.body().string() : null;
+        } finally {
+            response.close();
+        }
+    }
+}
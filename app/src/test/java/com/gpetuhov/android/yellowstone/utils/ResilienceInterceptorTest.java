@@ -0,0 +1,257 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import com.gpetuhov.android.yellowstone.CircuitBreaker;
+import com.gpetuhov.android.yellowstone.RetryPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+// Tests for retries and circuit breakers against local stub server, that injects faults
+public class ResilienceInterceptorTest {
+
+    // Small delays, so that tests run fast
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_DELAY_MILLIS = 10;
+    private static final long MAX_DELAY_MILLIS = 40;
+
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final long OPEN_MILLIS = 200;
+
+    // Faults, that the stub server can inject
+    private enum Fault { SERVER_ERROR, TOO_MANY_REQUESTS, DISCONNECT, NO_RESPONSE, NOT_FOUND }
+
+    private MockWebServer mServer;
+
+    private FaultInjectingDispatcher mDispatcher;
+
+    private ResilienceInterceptor mResilienceInterceptor;
+
+    private OkHttpClient mClient;
+
+    // Stub server, that injects queued faults first and then serves healthy responses.
+    // If failing forever, every response is server error.
+    private static class FaultInjectingDispatcher extends Dispatcher {
+        private final Queue<Fault> mFaults = new LinkedList<>();
+
+        private volatile boolean mFailingForever;
+
+        synchronized void inject(Fault... faults) {
+            for (Fault fault : faults) {
+                mFaults.add(fault);
+            }
+        }
+
+        void setFailingForever(boolean failingForever) {
+            mFailingForever = failingForever;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            Fault fault;
+            synchronized (this) {
+                fault = mFaults.poll();
+            }
+
+            if (null == fault && mFailingForever) {
+                fault = Fault.SERVER_ERROR;
+            }
+
+            if (null == fault) {
+                return new MockResponse().setBody("quakes");
+            }
+
+            switch (fault) {
+                case SERVER_ERROR:
+                    return new MockResponse().setResponseCode(503).setBody("down");
+                case TOO_MANY_REQUESTS:
+                    return new MockResponse().setResponseCode(429).addHeader("Retry-After", "3600");
+                case DISCONNECT:
+                    return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+                case NO_RESPONSE:
+                    return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+                default:
+                    return new MockResponse().setResponseCode(404);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mDispatcher = new FaultInjectingDispatcher();
+        mServer = new MockWebServer();
+        mServer.setDispatcher(mDispatcher);
+        mServer.start();
+
+        RetryPolicy retryPolicy = new RetryPolicy(MAX_ATTEMPTS, BASE_DELAY_MILLIS, MAX_DELAY_MILLIS, new Random(42));
+        mResilienceInterceptor = new ResilienceInterceptor(retryPolicy, FAILURE_THRESHOLD, OPEN_MILLIS, OPEN_MILLIS * 4);
+
+        // OkHttp's own silent retry of a lost connection is turned off,
+        // so that every injected fault reaches the resilience layer
+        mClient = new OkHttpClient.Builder()
+                .addInterceptor(mResilienceInterceptor)
+                .retryOnConnectionFailure(false)
+                .readTimeout(200, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void transientFaults_areRetried() throws Exception {
+        mDispatcher.inject(Fault.SERVER_ERROR, Fault.DISCONNECT);
+
+        assertEquals("quakes", get(mServer.url("/query")));
+
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, mResilienceInterceptor.getRetryCount());
+        assertEquals(CircuitBreaker.State.CLOSED, getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void timeout_isRetried() throws Exception {
+        mDispatcher.inject(Fault.NO_RESPONSE);
+
+        assertEquals("quakes", get(mServer.url("/query")));
+
+        assertEquals(1, mResilienceInterceptor.getRetryCount());
+    }
+
+    @Test
+    public void clientError_isNotRetriedAndDoesNotOpenBreaker() throws Exception {
+        for (int i = 0; i < FAILURE_THRESHOLD + 1; i++) {
+            mDispatcher.inject(Fault.NOT_FOUND);
+            assertEquals(404, code(mServer.url("/query")));
+        }
+
+        assertEquals(FAILURE_THRESHOLD + 1, mServer.getRequestCount());
+        assertEquals(0, mResilienceInterceptor.getRetryCount());
+        assertEquals(CircuitBreaker.State.CLOSED, getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void tooLongRetryAfter_isNotWaited() throws Exception {
+        mDispatcher.inject(Fault.TOO_MANY_REQUESTS);
+
+        assertEquals(429, code(mServer.url("/query")));
+
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void post_isNotRetried() throws Exception {
+        mDispatcher.inject(Fault.SERVER_ERROR);
+
+        Request request = new Request.Builder()
+                .url(mServer.url("/query"))
+                .post(RequestBody.create(MediaType.parse("text/plain"), "quake"))
+                .build();
+
+        Response response = mClient.newCall(request).execute();
+        response.close();
+
+        assertEquals(503, response.code());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void persistentFailure_opensBreaker() throws Exception {
+        mDispatcher.setFailingForever(true);
+
+        // Every call fails after all attempts
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertEquals(503, code(mServer.url("/query")));
+        }
+
+        assertEquals(FAILURE_THRESHOLD * MAX_ATTEMPTS, mServer.getRequestCount());
+        assertEquals(CircuitBreaker.State.OPEN, getCircuitBreaker().getState());
+
+        // Open breaker rejects calls without touching the network
+        try {
+            get(mServer.url("/query"));
+            fail("CircuitOpenException expected");
+        } catch (CircuitOpenException e) {
+            assertTrue(e.getRetryAfterMillis() > 0);
+            assertTrue(e.getRetryAfterMillis() <= OPEN_MILLIS);
+        }
+
+        assertEquals(FAILURE_THRESHOLD * MAX_ATTEMPTS, mServer.getRequestCount());
+        assertEquals(1, mResilienceInterceptor.getRejectedCount());
+    }
+
+    @Test
+    public void afterOpenTime_successfulTrialClosesBreaker() throws Exception {
+        mDispatcher.setFailingForever(true);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            code(mServer.url("/query"));
+        }
+
+        // Server recovers
+        mDispatcher.setFailingForever(false);
+        Thread.sleep(OPEN_MILLIS + 50);
+
+        assertEquals("quakes", get(mServer.url("/query")));
+        assertEquals(CircuitBreaker.State.CLOSED, getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void breakers_arePerHost() throws Exception {
+        mDispatcher.setFailingForever(true);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            code(mServer.url("/query"));
+        }
+        mDispatcher.setFailingForever(false);
+
+        // The same server by other host name has its own breaker
+        HttpUrl otherHostUrl = mServer.url("/query").newBuilder().host("127.0.0.1").build();
+        assertFalse(otherHostUrl.host().equals(mServer.url("/").host()));
+
+        assertEquals("quakes", get(otherHostUrl));
+        assertEquals(CircuitBreaker.State.OPEN, getCircuitBreaker().getState());
+    }
+
+    // Return circuit breaker of the stub server
+    private CircuitBreaker getCircuitBreaker() {
+        return mResilienceInterceptor.getCircuitBreaker(mServer.url("/").host());
+    }
+
+    // Execute GET request and return response body
+    private String get(HttpUrl url) throws IOException {
+        Response response = mClient.newCall(new Request.Builder().url(url).build()).execute();
+        try {
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+
+    // Execute GET request and return response code
+    private int code(HttpUrl url) throws IOException {
+        Response response = mClient.newCall(new Request.Builder().url(url).build()).execute();
+        response.close();
+        return response.code();
+    }
+}
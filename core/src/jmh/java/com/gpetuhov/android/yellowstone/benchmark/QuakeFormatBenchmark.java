@@ -0,0 +1,65 @@
+package com.gpetuhov.android.yellowstone.benchmark;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.SyntheticCatalog;
+import com.gpetuhov.android.yellowstone.utils.QuakeFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Formatting of display strings of quakes (magnitude, date, depth and coordinates),
+// as done when quakes are stored and when quake details are displayed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QuakeFormatBenchmark {
+
+    // Number of quakes to format
+    @Param({"1000", "10000", "100000"})
+    public int eventCount;
+
+    private List<Quake> mQuakes;
+
+    @Setup
+    public void setUp() {
+        mQuakes = new SyntheticCatalog(eventCount).getQuakes();
+    }
+
+    // Formatters are cached per thread (current implementation)
+    @Benchmark
+    public void formatWithCachedFormatters(Blackhole blackhole) {
+        for (Quake quake : mQuakes) {
+            blackhole.consume(QuakeFormatter.formatMagnitude(quake.getMagnitude()));
+            blackhole.consume(QuakeFormatter.formatDate(quake.getTimeInMilliseconds()));
+            blackhole.consume(QuakeFormatter.formatDepth(quake.getDepth()));
+            blackhole.consume(QuakeFormatter.formatCoordinate(quake.getLatitude()));
+            blackhole.consume(QuakeFormatter.formatCoordinate(quake.getLongitude()));
+        }
+    }
+
+    // New formatter is created for every value (baseline, how Quake formatted values before)
+    @Benchmark
+    public void formatWithNewFormatters(Blackhole blackhole) {
+        for (Quake quake : mQuakes) {
+            blackhole.consume(new DecimalFormat("0.0").format(quake.getMagnitude()));
+            blackhole.consume(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
+                    .format(new Date(quake.getTimeInMilliseconds())) + " (UTC)");
+            blackhole.consume(new DecimalFormat("0.0").format(quake.getDepth()));
+            blackhole.consume(new DecimalFormat("0.000").format(quake.getLatitude()));
+            blackhole.consume(new DecimalFormat("0.000").format(quake.getLongitude()));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.gpetuhov.android.yellowstone.benchmark;
+
+import com.gpetuhov.android.yellowstone.Quake;
+import com.gpetuhov.android.yellowstone.QuakeColumns;
+import com.gpetuhov.android.yellowstone.QuakeMapper;
+import com.gpetuhov.android.yellowstone.SyntheticCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mapping of quake table rows to Quake objects, as done by UtilsQuake for a cursor.
+// Cursor is Android-only, so rows are kept in memory behind the same QuakeMapper.Row interface.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QuakeMappingBenchmark {
+
+    // Number of rows in the result set
+    @Param({"1000", "10000", "100000"})
+    public int eventCount;
+
+    private MatrixRow mRow;
+
+    @Setup
+    public void setUp() {
+        mRow = new MatrixRow(new SyntheticCatalog(eventCount).getQuakes());
+    }
+
+    // Column indices are resolved once per result set (current implementation)
+    @Benchmark
+    public void mapWithResolvedColumns(Blackhole blackhole) {
+        QuakeMapper quakeMapper = new QuakeMapper(mRow);
+
+        for (int i = 0; i < eventCount; i++) {
+            mRow.moveToPosition(i);
+            blackhole.consume(quakeMapper.map(mRow));
+        }
+    }
+
+    // Column indices are looked up by name for every row (baseline)
+    @Benchmark
+    public void mapResolvingColumnsPerRow(Blackhole blackhole) {
+        for (int i = 0; i < eventCount; i++) {
+            mRow.moveToPosition(i);
+            blackhole.consume(new QuakeMapper(mRow).map(mRow));
+        }
+    }
+
+    // In-memory result set with the columns of quake table (in the same order as in the table)
+    static class MatrixRow implements QuakeMapper.Row {
+
+        private static final String[] COLUMN_NAMES = {
+                "_id",
+                QuakeColumns.IDS,
+                QuakeColumns.MAGNITUDE,
+                QuakeColumns.LOCATION,
+                QuakeColumns.LATITUDE,
+                QuakeColumns.LONGITUDE,
+                QuakeColumns.DEPTH,
+                QuakeColumns.TIME,
+                QuakeColumns.URL,
+                QuakeColumns.UPDATED
+        };
+
+        private final Object[][] mRows;
+
+        private Object[] mCurrentRow;
+
+        MatrixRow(List<Quake> quakes) {
+            mRows = new Object[quakes.size()][];
+
+            for (int i = 0; i < quakes.size(); i++) {
+                Quake quake = quakes.get(i);
+                mRows[i] = new Object[] {
+                        (long) i + 1,
+                        quake.getId(),
+                        quake.getMagnitude(),
+                        quake.getLocation(),
+                        quake.getLatitude(),
+                        quake.getLongitude(),
+                        quake.getDepth(),
+                        quake.getTimeInMilliseconds(),
+                        quake.getUrl(),
+                        quake.getUpdatedInMilliseconds()
+                };
+            }
+        }
+
+        void moveToPosition(int position) {
+            mCurrentRow = mRows[position];
+        }
+
+        @Override
+        public int getColumnIndex(String columnName) {
+            for (int i = 0; i < COLUMN_NAMES.length; i++) {
+                if (COLUMN_NAMES[i].equalsIgnoreCase(columnName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            return (String) mCurrentRow[columnIndex];
+        }
+
+        @Override
+        public double getDouble(int columnIndex) {
+            return ((Number) mCurrentRow[columnIndex]).doubleValue();
+        }
+
+        @Override
+        public long getLong(int columnIndex) {
+            return ((Number) mCurrentRow[columnIndex]).longValue();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.gpetuhov.android.yellowstone.benchmark;
+
+import com.gpetuhov.android.yellowstone.QuakeJsonParser;
+import com.gpetuhov.android.yellowstone.SyntheticCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Parsing of USGS GeoJSON response, as done by QuakeFetcher
+// (response body stream -> QuakeJsonParser -> Quake objects).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QuakeParseBenchmark {
+
+    // Number of events in the response
+    @Param({"1000", "10000", "100000"})
+    public int eventCount;
+
+    // Response body (generated once per trial, so only parsing is measured)
+    private byte[] mResponse;
+
+    private QuakeJsonParser mParser;
+
+    @Setup
+    public void setUp() {
+        mResponse = new SyntheticCatalog(eventCount).toGeoJson();
+        mParser = new QuakeJsonParser();
+    }
+
+    @Benchmark
+    public int parseResponse(Blackhole blackhole) throws IOException {
+        return mParser.parse(new ByteArrayInputStream(mResponse), blackhole::consume);
+    }
+}
@@ -0,0 +1,154 @@
+package com.gpetuhov.android.yellowstone;
+
+// Circuit breaker for calls to one host.
+// CLOSED: calls are allowed, consecutive failures are counted.
+// After failure threshold is reached, the breaker is OPEN: calls are rejected
+// without touching the network until open time passes.
+// Then the breaker is HALF_OPEN: one trial call is allowed.
+// If it succeeds, the breaker is CLOSED again. If it fails, the breaker is OPEN again
+// for twice as long (but not longer than max open time).
+// Methods with time parameter are for tests, others use current time.
+// Thread-safe.
+public class CircuitBreaker {
+
+    // Breaker states
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // Number of consecutive failures, that opens the breaker
+    private final int mFailureThreshold;
+
+    // Open time after the breaker opens for the first time (in milliseconds)
+    private final long mOpenMillis;
+
+    // Max open time (in milliseconds)
+    private final long mMaxOpenMillis;
+
+    // State of the breaker, guarded by this
+    private State mState = State.CLOSED;
+
+    // Number of consecutive failures in CLOSED state
+    private int mFailureCount;
+
+    // Time, when OPEN breaker allows a trial call
+    private long mOpenUntil;
+
+    // Current open time (grows after failed trial calls)
+    private long mCurrentOpenMillis;
+
+    // True, if trial call is in progress in HALF_OPEN state
+    private boolean mTrialInProgress;
+
+    // Number of calls rejected by the breaker
+    private int mRejectedCount;
+
+    public CircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis) {
+        if (failureThreshold < 1 || openMillis < 0 || maxOpenMillis < openMillis) {
+            throw new IllegalArgumentException(
+                    "Wrong breaker settings: " + failureThreshold + ", " + openMillis + ", " + maxOpenMillis);
+        }
+
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mMaxOpenMillis = maxOpenMillis;
+        mCurrentOpenMillis = openMillis;
+    }
+
+    // Return true, if call is allowed now
+    public boolean allowRequest() {
+        return allowRequest(System.currentTimeMillis());
+    }
+
+    // Return true, if call is allowed at the moment.
+    // Caller must report the result of allowed call with onSuccess() or onFailure().
+    public synchronized boolean allowRequest(long now) {
+        if (mState == State.OPEN && now >= mOpenUntil) {
+            mState = State.HALF_OPEN;
+            mTrialInProgress = false;
+        }
+
+        switch (mState) {
+            case CLOSED:
+                return true;
+
+            case HALF_OPEN:
+                // Only one trial call at a time
+                if (!mTrialInProgress) {
+                    mTrialInProgress = true;
+                    return true;
+                }
+                break;
+
+            default:
+                break;
+        }
+
+        mRejectedCount++;
+        return false;
+    }
+
+    // Report successful call
+    public synchronized void onSuccess() {
+        mState = State.CLOSED;
+        mFailureCount = 0;
+        mTrialInProgress = false;
+        mCurrentOpenMillis = mOpenMillis;
+    }
+
+    // Report failed call
+    public void onFailure() {
+        onFailure(System.currentTimeMillis());
+    }
+
+    // Report call failed at the moment
+    public synchronized void onFailure(long now) {
+        if (mState == State.HALF_OPEN) {
+            // Host is still down, wait longer before the next trial
+            mCurrentOpenMillis = Math.min(mMaxOpenMillis, mCurrentOpenMillis * 2);
+            open(now);
+            return;
+        }
+
+        if (mState == State.CLOSED) {
+            mFailureCount++;
+            if (mFailureCount >= mFailureThreshold) {
+                open(now);
+            }
+        }
+    }
+
+    // Return state of the breaker
+    public State getState() {
+        return getState(System.currentTimeMillis());
+    }
+
+    // Return state of the breaker at the moment (OPEN breaker is HALF_OPEN after open time)
+    public synchronized State getState(long now) {
+        if (mState == State.OPEN && now >= mOpenUntil) {
+            return State.HALF_OPEN;
+        }
+        return mState;
+    }
+
+    // Return time left until the breaker allows a trial call (0, if calls are allowed)
+    public long getRemainingOpenMillis() {
+        return getRemainingOpenMillis(System.currentTimeMillis());
+    }
+
+    // Return time left at the moment until the breaker allows a trial call
+    public synchronized long getRemainingOpenMillis(long now) {
+        return mState == State.OPEN ? Math.max(0, mOpenUntil - now) : 0;
+    }
+
+    // Return number of calls rejected by the breaker
+    public synchronized int getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    // Open the breaker for current open time
+    private void open(long now) {
+        mState = State.OPEN;
+        mOpenUntil = now + mCurrentOpenMillis;
+        mFailureCount = 0;
+        mTrialInProgress = false;
+    }
+}
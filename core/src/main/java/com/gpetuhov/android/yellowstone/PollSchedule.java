@@ -0,0 +1,158 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Adaptive interval between quake polls, driven by recent seismicity.
+// Activity level is computed from the number of events and the max magnitude
+// in the recent window:
+// - every rate step (base rate, 4 x base rate, 16 x base rate...) adds one level,
+// - every magnitude step (base magnitude, base magnitude + 1...) adds one level.
+// Every level halves the interval, starting from the max interval (quiet),
+// but the interval is never shorter than the min interval.
+// The schedule tightens at once, when activity spikes,
+// and relaxes gradually (the interval at most doubles per poll), when activity calms down.
+public class PollSchedule {
+
+    // Every next rate step is this many times higher than the previous one
+    private static final double RATE_STEP_FACTOR = 4;
+
+    // Interval grows at most this many times per poll
+    private static final long RELAX_FACTOR = 2;
+
+    // Max activity level (more levels would not change the interval anyway)
+    private static final int MAX_LEVEL = 16;
+
+    // Min interval between polls (in milliseconds)
+    private final long mMinIntervalMillis;
+
+    // Window of recent events (in milliseconds)
+    private final long mWindowMillis;
+
+    // Event rate (per hour), that starts the first activity level
+    private final double mBaseRatePerHour;
+
+    // Magnitude, that starts the first activity level
+    private final double mBaseMagnitude;
+
+    // Scheduling decision (kept for logging, so that the schedule can be tuned)
+    public static class Decision {
+        private final long mIntervalMillis;
+        private final long mTargetIntervalMillis;
+        private final long mPreviousIntervalMillis;
+        private final int mEventCount;
+        private final double mRatePerHour;
+        private final double mMaxMagnitude;
+        private final int mLevel;
+
+        Decision(long intervalMillis, long targetIntervalMillis, long previousIntervalMillis,
+                 int eventCount, double ratePerHour, double maxMagnitude, int level) {
+            mIntervalMillis = intervalMillis;
+            mTargetIntervalMillis = targetIntervalMillis;
+            mPreviousIntervalMillis = previousIntervalMillis;
+            mEventCount = eventCount;
+            mRatePerHour = ratePerHour;
+            mMaxMagnitude = maxMagnitude;
+            mLevel = level;
+        }
+
+        // Return interval until the next poll (in milliseconds)
+        public long getIntervalMillis() {
+            return mIntervalMillis;
+        }
+
+        // Return interval for current activity (the interval may be shorter, while the schedule relaxes)
+        public long getTargetIntervalMillis() {
+            return mTargetIntervalMillis;
+        }
+
+        // Return activity level (0 = quiet)
+        public int getLevel() {
+            return mLevel;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "next poll in %d min (target %d min, previous %d min): level %d, "
+                            + "%d events (%.2f/h), max magnitude %.1f",
+                    TimeUnit.MILLISECONDS.toMinutes(mIntervalMillis),
+                    TimeUnit.MILLISECONDS.toMinutes(mTargetIntervalMillis),
+                    TimeUnit.MILLISECONDS.toMinutes(mPreviousIntervalMillis),
+                    mLevel, mEventCount, mRatePerHour, mMaxMagnitude);
+        }
+    }
+
+    public PollSchedule(long minIntervalMillis, long windowMillis, double baseRatePerHour, double baseMagnitude) {
+        if (minIntervalMillis <= 0 || windowMillis <= 0 || baseRatePerHour <= 0) {
+            throw new IllegalArgumentException("Wrong schedule settings: "
+                    + minIntervalMillis + ", " + windowMillis + ", " + baseRatePerHour);
+        }
+
+        mMinIntervalMillis = minIntervalMillis;
+        mWindowMillis = windowMillis;
+        mBaseRatePerHour = baseRatePerHour;
+        mBaseMagnitude = baseMagnitude;
+    }
+
+    // Return window of recent events (in milliseconds)
+    public long getWindowMillis() {
+        return mWindowMillis;
+    }
+
+    // Return min interval between polls (in milliseconds)
+    public long getMinIntervalMillis() {
+        return mMinIntervalMillis;
+    }
+
+    // Decide interval until the next poll.
+    // eventCount and maxMagnitude describe events in the recent window
+    // (maxMagnitude is ignored, if there are no events).
+    // Max interval is the interval for quiet periods.
+    // Previous interval is 0, if there was no previous decision.
+    public Decision decide(int eventCount, double maxMagnitude, long maxIntervalMillis, long previousIntervalMillis) {
+        long maxInterval = Math.max(mMinIntervalMillis, maxIntervalMillis);
+
+        double ratePerHour = eventCount / ((double) mWindowMillis / TimeUnit.HOURS.toMillis(1));
+
+        int level = getRateLevel(ratePerHour) + (eventCount > 0 ? getMagnitudeLevel(maxMagnitude) : 0);
+        level = Math.min(level, MAX_LEVEL);
+
+        long targetInterval = Math.max(mMinIntervalMillis, maxInterval >> level);
+
+        long interval = targetInterval;
+
+        // Relax gradually: a single quiet window after a swarm may be a pause in the swarm
+        if (previousIntervalMillis > 0 && targetInterval > previousIntervalMillis) {
+            interval = Math.min(targetInterval, previousIntervalMillis * RELAX_FACTOR);
+        }
+
+        // Max interval may have been changed in settings since the previous decision
+        interval = Math.max(mMinIntervalMillis, Math.min(interval, maxInterval));
+
+        return new Decision(interval, targetInterval, previousIntervalMillis,
+                eventCount, ratePerHour, eventCount > 0 ? maxMagnitude : 0, level);
+    }
+
+    // Return number of rate steps reached by the rate
+    private int getRateLevel(double ratePerHour) {
+        int level = 0;
+        double step = mBaseRatePerHour;
+
+        while (ratePerHour >= step && level < MAX_LEVEL) {
+            level++;
+            step *= RATE_STEP_FACTOR;
+        }
+
+        return level;
+    }
+
+    // Return number of magnitude steps reached by the magnitude
+    private int getMagnitudeLevel(double maxMagnitude) {
+        if (maxMagnitude < mBaseMagnitude) {
+            return 0;
+        }
+
+        return Math.min(MAX_LEVEL, 1 + (int) Math.floor(maxMagnitude - mBaseMagnitude));
+    }
+}
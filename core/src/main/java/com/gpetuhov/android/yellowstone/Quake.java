@@ -0,0 +1,185 @@
+package com.gpetuhov.android.yellowstone;
+
+import com.gpetuhov.android.yellowstone.utils.QuakeFormatter;
+
+// Stores information about one earthquake.
+// This class doesn't depend on Android (see UtilsQuake for cursor and content values).
+// Screens pass USGS ID of the quake to each other, not the quake itself
+// (see QuakeCache in the app).
+public class Quake {
+
+    // ID of the earthquake that comes from USGS server
+    private String mId;
+
+    // Magnitude of the earthquake
+    private double mMagnitude;
+
+    // Location name of the earthquake
+    private String mLocation;
+
+    // Latitude of the earthquake
+    private double mLatitude;
+
+    // Longitude of the earthquake
+    private double mLongitude;
+
+    // Depth of the earthquake (in kilometers)
+    private double mDepth;
+
+    // Time of the earthquake (in milliseconds)
+    private long mTimeInMilliseconds;
+
+    // Website URL of the earthquake
+    private String mUrl;
+
+    // Time of the last update of the earthquake in USGS database (in milliseconds)
+    private long mUpdatedInMilliseconds;
+
+    public Quake(String id, double magnitude, String location, long timeInMilliseconds,
+                 String url, double latitude, double longitude, double depth) {
+        // If update time is unknown, the earthquake is considered not updated since it happened
+        this(id, magnitude, location, timeInMilliseconds, url, latitude, longitude, depth, timeInMilliseconds);
+    }
+
+    public Quake(String id, double magnitude, String location, long timeInMilliseconds,
+                 String url, double latitude, double longitude, double depth, long updatedInMilliseconds) {
+        mId = id;
+        mMagnitude = magnitude;
+        mLocation = location;
+        mTimeInMilliseconds = timeInMilliseconds;
+        mUrl = url;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mDepth = depth;
+        mUpdatedInMilliseconds = updatedInMilliseconds;
+    }
+
+    // Return the ID of the earthquake
+    public String getId() {
+        return mId;
+    }
+
+    // Return the magnitude of the earthquake
+    public double getMagnitude() {
+        return mMagnitude;
+    }
+
+    // Return the location name of the earthquake
+    public String getLocation() {
+        return mLocation;
+    }
+
+    // Return the time of the earthquake
+    public long getTimeInMilliseconds() {
+        return mTimeInMilliseconds;
+    }
+
+    // Return the time of the last update of the earthquake
+    public long getUpdatedInMilliseconds() {
+        return mUpdatedInMilliseconds;
+    }
+
+    // Return the website URL to find more information about the earthquake
+    public String getUrl() {
+        return mUrl;
+    }
+
+    // Return latitude of the earthquake
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    // Return longitude of the earthquake
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    // Return depth of the earthquake
+    public double getDepth() {
+        return mDepth;
+    }
+
+    // Return magnitude in String format
+    public String getFormattedMagnitude() {
+        return QuakeFormatter.formatMagnitude(mMagnitude);
+    }
+
+    // Return date in String format
+    public String getFormattedDate() {
+        return QuakeFormatter.formatDate(mTimeInMilliseconds);
+    }
+
+    // Return depth in String format
+    public String getFormattedDepth() {
+        return QuakeFormatter.formatDepth(mDepth);
+    }
+
+    // Return latitude in String format
+    public String getFormattedLatitude() {
+        return QuakeFormatter.formatCoordinate(mLatitude);
+    }
+
+    // Return longitude in String format
+    public String getFormattedLongitude() {
+        return QuakeFormatter.formatCoordinate(mLongitude);
+    }
+
+    // Check if value of fields of this Quake object equal to values of fields of passed Quake object
+    @Override
+    public boolean equals(Object o) {
+
+        // If passed object is instance of Quake class
+        if (o instanceof Quake) {
+
+            // Cast passed object to Quake object
+            Quake quake = (Quake) o;
+
+            // Get values of fields of passed in Quake object
+            String ids = quake.getId();
+            double magnitude = quake.getMagnitude();
+            String location = quake.getLocation();
+            double latitude = quake.getLatitude();
+            double longitude = quake.getLongitude();
+            double depth = quake.getDepth();
+            long time = quake.getTimeInMilliseconds();
+            String url = quake.getUrl();
+
+            // If any of the fields are not equal, then quakes are not equal. Return false
+            if (!ids.equals(getId())) { return false; }
+            if (magnitude != getMagnitude()) { return false; }
+            if (!location.equals(getLocation())) { return false; }
+            if (latitude != getLatitude()) { return false; }
+            if (longitude != getLongitude()) { return false; }
+            if (depth != getDepth()) { return false; }
+            if (time != getTimeInMilliseconds()) { return false; }
+            if (!url.equals(getUrl())) { return false; }
+
+            // Otherwise quakes are equal. Return true
+            return true;
+
+        } else {
+            // Otherwise passed object is not instance of Quake class,
+            // so this quake definitely is not equal to it.
+            return false;
+        }
+    }
+
+    // Hash code consistent with equals() (quakes, that are equal, have the same hash code)
+    @Override
+    public int hashCode() {
+        int result = mId.hashCode();
+        result = 31 * result + hashCode(mMagnitude);
+        result = 31 * result + mLocation.hashCode();
+        result = 31 * result + hashCode(mLatitude);
+        result = 31 * result + hashCode(mLongitude);
+        result = 31 * result + hashCode(mDepth);
+        result = 31 * result + (int) (mTimeInMilliseconds ^ (mTimeInMilliseconds >>> 32));
+        result = 31 * result + mUrl.hashCode();
+        return result;
+    }
+
+    // equals() compares doubles with ==, so 0.0 and -0.0 must have the same hash code
+    private static int hashCode(double value) {
+        return value == 0 ? 0 : Double.valueOf(value).hashCode();
+    }
+}
@@ -0,0 +1,54 @@
+package com.gpetuhov.android.yellowstone;
+
+// Group of quakes, that are displayed on the map as one marker
+public class QuakeCluster {
+
+    // Key of the cluster (USGS ID for a single quake, grid cell for a group of quakes)
+    private final String mKey;
+
+    // USGS ID of the quake, if the cluster contains only one quake (otherwise null)
+    private final String mQuakeId;
+
+    // Center of the cluster (mean of coordinates of the quakes)
+    private final double mLatitude;
+    private final double mLongitude;
+
+    // Number of quakes in the cluster
+    private final int mCount;
+
+    // Max magnitude of the quakes in the cluster
+    private final double mMaxMagnitude;
+
+    public QuakeCluster(String key, String quakeId, double latitude, double longitude, int count, double maxMagnitude) {
+        mKey = key;
+        mQuakeId = quakeId;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mCount = count;
+        mMaxMagnitude = maxMagnitude;
+    }
+
+    public String getKey() {
+        return mKey;
+    }
+
+    public String getQuakeId() {
+        return mQuakeId;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public double getMaxMagnitude() {
+        return mMaxMagnitude;
+    }
+}
@@ -0,0 +1,101 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Groups quakes into clusters for the given zoom level of the map.
+// Quake coordinates are projected to map pixels (Web Mercator, as in Google Maps),
+// and quakes, that fall into the same square cell of the grid, form one cluster.
+// Takes O(n) time and is meant to be run in background thread.
+public class QuakeClusterer {
+
+    // Size of the map tile (in pixels at zoom level 0)
+    private static final int TILE_SIZE = 256;
+
+    // Max latitude of Web Mercator projection
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    // Size of grid cell (in pixels of the map)
+    private final int mCellSize;
+
+    public QuakeClusterer(int cellSize) {
+        mCellSize = cellSize;
+    }
+
+    // Quakes, that fall into one cell of the grid
+    private static class Cell {
+        final long mX;
+        final long mY;
+
+        // Index of the first quake in the cell
+        final int mFirstIndex;
+
+        int mCount;
+        double mLatitudeSum;
+        double mLongitudeSum;
+        double mMaxMagnitude = Double.NEGATIVE_INFINITY;
+
+        Cell(long x, long y, int firstIndex) {
+            mX = x;
+            mY = y;
+            mFirstIndex = firstIndex;
+        }
+    }
+
+    // Return clusters of the quakes for the zoom level
+    public List<QuakeCluster> cluster(QuakePoints points, int zoom) {
+        // Map size in cells at this zoom level
+        double mapSizeInCells = TILE_SIZE * Math.pow(2, zoom) / mCellSize;
+
+        // Occupied cells (in order of their first quakes, so that the result is stable)
+        Map<Long, Cell> cells = new LinkedHashMap<>();
+
+        for (int i = 0; i < points.size(); i++) {
+            long x = (long) Math.floor(projectX(points.getLongitude(i)) * mapSizeInCells);
+            long y = (long) Math.floor(projectY(points.getLatitude(i)) * mapSizeInCells);
+            Long key = (x << 32) | (y & 0xffffffffL);
+
+            Cell cell = cells.get(key);
+            if (null == cell) {
+                cell = new Cell(x, y, i);
+                cells.put(key, cell);
+            }
+
+            cell.mCount++;
+            cell.mLatitudeSum += points.getLatitude(i);
+            cell.mLongitudeSum += points.getLongitude(i);
+            cell.mMaxMagnitude = Math.max(cell.mMaxMagnitude, points.getMagnitude(i));
+        }
+
+        List<QuakeCluster> clusters = new ArrayList<>(cells.size());
+
+        for (Cell cell : cells.values()) {
+            if (cell.mCount == 1) {
+                // Single quake is displayed at its own position and is keyed by USGS ID
+                int i = cell.mFirstIndex;
+                clusters.add(new QuakeCluster(points.getId(i), points.getId(i),
+                        points.getLatitude(i), points.getLongitude(i), 1, points.getMagnitude(i)));
+            } else {
+                clusters.add(new QuakeCluster(zoom + "/" + cell.mX + "/" + cell.mY, null,
+                        cell.mLatitudeSum / cell.mCount, cell.mLongitudeSum / cell.mCount,
+                        cell.mCount, cell.mMaxMagnitude));
+            }
+        }
+
+        return clusters;
+    }
+
+    // Return x coordinate of the longitude on the map of size 1
+    static double projectX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    // Return y coordinate of the latitude on the map of size 1
+    static double projectY(double latitude) {
+        double limitedLatitude = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        double sinLatitude = Math.sin(Math.toRadians(limitedLatitude));
+        return 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+    }
+}
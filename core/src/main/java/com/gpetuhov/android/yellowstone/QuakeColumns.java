@@ -0,0 +1,37 @@
+package com.gpetuhov.android.yellowstone;
+
+// Names of the columns, that store Quake fields in quake table.
+// Defined here (and not only in YellowstoneContract), so that QuakeMapper
+// can map table rows without depending on Android.
+public final class QuakeColumns {
+
+    // ID of the earthquake in USGS database (Type: TEXT)
+    public static final String IDS = "ids";
+
+    // Magnitude of the earthquake (Type: REAL)
+    public static final String MAGNITUDE = "magnitude";
+
+    // Location name of the earthquake (Type: TEXT)
+    public static final String LOCATION = "location";
+
+    // Latitude of the earthquake (Type: REAL)
+    public static final String LATITUDE = "latitude";
+
+    // Longitude of the earthquake (Type: REAL)
+    public static final String LONGITUDE = "longitude";
+
+    // Depth of the earthquake in kilometers (Type: REAL)
+    public static final String DEPTH = "depth";
+
+    // Time of the earthquake in milliseconds (Type: INTEGER)
+    public static final String TIME = "time";
+
+    // Website URL of the earthquake (Type: TEXT)
+    public static final String URL = "url";
+
+    // Time of the last update of the earthquake in USGS database in milliseconds (Type: INTEGER)
+    public static final String UPDATED = "updated";
+
+    private QuakeColumns() {
+    }
+}
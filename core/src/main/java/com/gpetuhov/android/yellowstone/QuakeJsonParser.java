@@ -0,0 +1,192 @@
+package com.gpetuhov.android.yellowstone;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+// Streaming parser for GeoJSON response from USGS server.
+// Reads the response token by token and emits Quake objects one feature at a time,
+// so the whole response is never kept in memory.
+// For GeoJSON format see http://earthquake.usgs.gov/earthquakes/feed/v1.0/geojson.php
+public class QuakeJsonParser {
+
+    // Charset of USGS response
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Receives quakes parsed from the response
+    public interface Callback {
+        // Method is called for every feature (earthquake) in the response
+        void onQuakeParsed(Quake quake);
+    }
+
+    // Parse GeoJSON from input stream and pass every parsed quake to the callback.
+    // Return number of parsed quakes.
+    // Input stream is not closed by this method.
+    public int parse(InputStream inputStream, Callback callback) throws IOException {
+        return parse(new InputStreamReader(inputStream, UTF_8), callback);
+    }
+
+    // Parse GeoJSON from reader and pass every parsed quake to the callback.
+    // Return number of parsed quakes.
+    public int parse(Reader reader, Callback callback) throws IOException {
+        // Number of parsed quakes
+        int quakeCount = 0;
+
+        JsonReader jsonReader = new JsonReader(reader);
+
+        jsonReader.beginObject();
+
+        while (jsonReader.hasNext()) {
+            // Only "features" array is needed (feature = earthquake), skip everything else
+            if ("features".equals(jsonReader.nextName())) {
+                jsonReader.beginArray();
+
+                while (jsonReader.hasNext()) {
+                    Quake quake = readFeature(jsonReader);
+
+                    // Features without ID or coordinates can't be stored, skip them
+                    if (null != quake) {
+                        callback.onQuakeParsed(quake);
+                        quakeCount++;
+                    }
+                }
+
+                jsonReader.endArray();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+
+        jsonReader.endObject();
+
+        return quakeCount;
+    }
+
+    // Read one feature object and return Quake object for it
+    // (or null, if the feature has no ID or coordinates).
+    private Quake readFeature(JsonReader jsonReader) throws IOException {
+        String id = null;
+        double magnitude = 0;
+        String location = "";
+        long time = 0;
+        long updated = 0;
+        String url = "";
+        double[] coordinates = null;
+
+        jsonReader.beginObject();
+
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+
+            if ("id".equals(name)) {
+                id = nextStringOrDefault(jsonReader, null);
+
+            } else if ("properties".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                // Object with key "properties" represents a list of all properties for the earthquake
+                jsonReader.beginObject();
+
+                while (jsonReader.hasNext()) {
+                    String propertyName = jsonReader.nextName();
+
+                    if ("mag".equals(propertyName)) {
+                        magnitude = nextDoubleOrDefault(jsonReader, 0);
+                    } else if ("place".equals(propertyName)) {
+                        location = nextStringOrDefault(jsonReader, "");
+                    } else if ("time".equals(propertyName)) {
+                        time = nextLongOrDefault(jsonReader, 0);
+                    } else if ("updated".equals(propertyName)) {
+                        updated = nextLongOrDefault(jsonReader, 0);
+                    } else if ("url".equals(propertyName)) {
+                        url = nextStringOrDefault(jsonReader, "");
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+
+                jsonReader.endObject();
+
+            } else if ("geometry".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                // Object with key "geometry" represents point of the earthquake
+                jsonReader.beginObject();
+
+                while (jsonReader.hasNext()) {
+                    if ("coordinates".equals(jsonReader.nextName())
+                            && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                        coordinates = readCoordinates(jsonReader);
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+
+                jsonReader.endObject();
+
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+
+        jsonReader.endObject();
+
+        if (null == id || null == coordinates) {
+            return null;
+        }
+
+        // Coordinates are [longitude, latitude, depth]
+        return new Quake(id, magnitude, location, time, url,
+                coordinates[1], coordinates[0], coordinates[2], Math.max(updated, time));
+    }
+
+    // Read array of coordinates [longitude, latitude, depth]
+    // (or null, if there are less than 3 coordinates).
+    private double[] readCoordinates(JsonReader jsonReader) throws IOException {
+        double[] coordinates = new double[3];
+        int count = 0;
+
+        jsonReader.beginArray();
+
+        while (jsonReader.hasNext()) {
+            if (count < coordinates.length) {
+                coordinates[count] = nextDoubleOrDefault(jsonReader, 0);
+                count++;
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+
+        jsonReader.endArray();
+
+        return count == coordinates.length ? coordinates : null;
+    }
+
+    // USGS returns null for unknown values (for example, magnitude of some events),
+    // so these methods return default value instead of failing the whole response.
+
+    private static String nextStringOrDefault(JsonReader jsonReader, String defValue) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return defValue;
+        }
+        return jsonReader.nextString();
+    }
+
+    private static double nextDoubleOrDefault(JsonReader jsonReader, double defValue) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return defValue;
+        }
+        return jsonReader.nextDouble();
+    }
+
+    private static long nextLongOrDefault(JsonReader jsonReader, long defValue) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return defValue;
+        }
+        return jsonReader.nextLong();
+    }
+}
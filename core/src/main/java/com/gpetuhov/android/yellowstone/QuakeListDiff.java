@@ -0,0 +1,228 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Difference between two snapshots of the quake list, keyed by USGS ID.
+// Calculated in background thread, then dispatched in main thread
+// as fine-grained insert, remove and change notifications (like DiffUtil,
+// that is not available in RecyclerView 23).
+// USGS IDs in a snapshot are unique, so quakes, that are kept in place, are found
+// as the longest increasing subsequence of old positions (O(n log n)).
+// Quakes, that moved, are removed and inserted again.
+public class QuakeListDiff {
+
+    // Receives updates, that transform old list into new list.
+    // Positions are valid at the time of the call (updates are applied one after another).
+    public interface Callback {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count);
+    }
+
+    // Immutable list of quakes: USGS ID and version (update time) of every quake
+    public static class Snapshot {
+
+        // Snapshot with no quakes
+        public static final Snapshot EMPTY = new Snapshot(new String[0], new long[0]);
+
+        private final String[] mIds;
+        private final long[] mVersions;
+
+        // Arrays must not be changed after the snapshot is created
+        public Snapshot(String[] ids, long[] versions) {
+            if (ids.length != versions.length) {
+                throw new IllegalArgumentException("Number of IDs and versions differ");
+            }
+            mIds = ids;
+            mVersions = versions;
+        }
+
+        public int size() {
+            return mIds.length;
+        }
+
+        public String getId(int position) {
+            return mIds[position];
+        }
+
+        public long getVersion(int position) {
+            return mVersions[position];
+        }
+    }
+
+    // Update types
+    private static final int INSERTED = 0;
+    private static final int REMOVED = 1;
+    private static final int CHANGED = 2;
+
+    private final Snapshot mOldSnapshot;
+    private final Snapshot mNewSnapshot;
+
+    // Updates in dispatch order (type, position, count)
+    private int[] mUpdates = new int[3 * 16];
+    private int mUpdateCount;
+
+    private QuakeListDiff(Snapshot oldSnapshot, Snapshot newSnapshot) {
+        mOldSnapshot = oldSnapshot;
+        mNewSnapshot = newSnapshot;
+    }
+
+    // Calculate updates, that transform old snapshot into new one
+    public static QuakeListDiff calculate(Snapshot oldSnapshot, Snapshot newSnapshot) {
+        QuakeListDiff diff = new QuakeListDiff(oldSnapshot, newSnapshot);
+
+        int oldSize = oldSnapshot.size();
+        int newSize = newSnapshot.size();
+
+        // Old position of every quake of the new snapshot (or -1 for new quakes)
+        Map<String, Integer> oldPositions = new HashMap<>(oldSize * 4 / 3 + 1);
+        for (int i = 0; i < oldSize; i++) {
+            oldPositions.put(oldSnapshot.getId(i), i);
+        }
+
+        int[] oldPositionsOfNew = new int[newSize];
+        for (int i = 0; i < newSize; i++) {
+            Integer oldPosition = oldPositions.get(newSnapshot.getId(i));
+            oldPositionsOfNew[i] = null == oldPosition ? -1 : oldPosition;
+        }
+
+        // New positions of quakes, that stay in place (ascending, their old positions are ascending too)
+        int[] kept = longestIncreasingSubsequence(oldPositionsOfNew);
+
+        // Walk from the end, so that positions before the current one are still old positions
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+
+        for (int k = kept.length - 1; k >= -1; k--) {
+            int newPosition = k >= 0 ? kept[k] : -1;
+            int oldPosition = k >= 0 ? oldPositionsOfNew[newPosition] : -1;
+
+            // Quakes between this kept quake and the next one are replaced
+            int removed = oldEnd - oldPosition - 1;
+            int inserted = newEnd - newPosition - 1;
+
+            if (removed > 0) {
+                diff.addUpdate(REMOVED, oldPosition + 1, removed);
+            }
+            if (inserted > 0) {
+                diff.addUpdate(INSERTED, oldPosition + 1, inserted);
+            }
+
+            // Kept quake was updated
+            if (k >= 0 && oldSnapshot.getVersion(oldPosition) != newSnapshot.getVersion(newPosition)) {
+                diff.addUpdate(CHANGED, oldPosition, 1);
+            }
+
+            oldEnd = oldPosition;
+            newEnd = newPosition;
+        }
+
+        return diff;
+    }
+
+    // Snapshot, that the updates are applied to
+    public Snapshot getOldSnapshot() {
+        return mOldSnapshot;
+    }
+
+    // Snapshot, that is the result of the updates
+    public Snapshot getNewSnapshot() {
+        return mNewSnapshot;
+    }
+
+    // Return number of updates (insert, remove and change ranges)
+    public int getUpdateCount() {
+        return mUpdateCount;
+    }
+
+    // Pass all updates to the callback (in main thread for RecyclerView adapter)
+    public void dispatchUpdatesTo(Callback callback) {
+        for (int i = 0; i < mUpdateCount; i++) {
+            int type = mUpdates[3 * i];
+            int position = mUpdates[3 * i + 1];
+            int count = mUpdates[3 * i + 2];
+
+            switch (type) {
+                case INSERTED:
+                    callback.onInserted(position, count);
+                    break;
+                case REMOVED:
+                    callback.onRemoved(position, count);
+                    break;
+                default:
+                    callback.onChanged(position, count);
+                    break;
+            }
+        }
+    }
+
+    // Add update (changes of neighbouring quakes are merged into one range)
+    private void addUpdate(int type, int position, int count) {
+        // Changes are added from the end, so the previous change may start right after this one
+        if (type == CHANGED && mUpdateCount > 0) {
+            int last = 3 * (mUpdateCount - 1);
+            if (mUpdates[last] == CHANGED && mUpdates[last + 1] == position + count) {
+                mUpdates[last + 1] = position;
+                mUpdates[last + 2] += count;
+                return;
+            }
+        }
+
+        if (3 * mUpdateCount == mUpdates.length) {
+            mUpdates = Arrays.copyOf(mUpdates, mUpdates.length * 2);
+        }
+
+        mUpdates[3 * mUpdateCount] = type;
+        mUpdates[3 * mUpdateCount + 1] = position;
+        mUpdates[3 * mUpdateCount + 2] = count;
+        mUpdateCount++;
+    }
+
+    // Return indices of the longest increasing subsequence of non-negative values (ascending).
+    // Negative values (new quakes) are skipped.
+    private static int[] longestIncreasingSubsequence(int[] values) {
+        // Index of the last element of the best subsequence of every length
+        int[] tails = new int[values.length];
+
+        // Index of the previous element in the subsequence for every element
+        int[] previous = new int[values.length];
+
+        int length = 0;
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0) {
+                continue;
+            }
+
+            // Find the first subsequence, which last value is not less than this value
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+
+            if (low == length) {
+                length++;
+            }
+        }
+
+        int[] result = new int[length];
+        for (int k = length - 1, i = length > 0 ? tails[length - 1] : -1; k >= 0; k--, i = previous[i]) {
+            result[k] = i;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.gpetuhov.android.yellowstone;
+
+// Maps rows of quake table to Quake objects.
+// Column indices are resolved once, when the mapper is created,
+// and then used for every row of the same result set.
+public class QuakeMapper {
+
+    // Row of quake table.
+    // Android Cursor has the same methods, so it is easily wrapped into this interface.
+    public interface Row {
+        // Return index of the column with given name (or -1, if there is no such column)
+        int getColumnIndex(String columnName);
+
+        String getString(int columnIndex);
+
+        double getDouble(int columnIndex);
+
+        long getLong(int columnIndex);
+    }
+
+    // Column indices
+    private final int mIds;
+    private final int mMagnitude;
+    private final int mLocation;
+    private final int mLatitude;
+    private final int mLongitude;
+    private final int mDepth;
+    private final int mTime;
+    private final int mUrl;
+    private final int mUpdated;
+
+    // Create mapper for rows with the same columns as the given row
+    public QuakeMapper(Row row) {
+        mIds = row.getColumnIndex(QuakeColumns.IDS);
+        mMagnitude = row.getColumnIndex(QuakeColumns.MAGNITUDE);
+        mLocation = row.getColumnIndex(QuakeColumns.LOCATION);
+        mLatitude = row.getColumnIndex(QuakeColumns.LATITUDE);
+        mLongitude = row.getColumnIndex(QuakeColumns.LONGITUDE);
+        mDepth = row.getColumnIndex(QuakeColumns.DEPTH);
+        mTime = row.getColumnIndex(QuakeColumns.TIME);
+        mUrl = row.getColumnIndex(QuakeColumns.URL);
+        mUpdated = row.getColumnIndex(QuakeColumns.UPDATED);
+    }
+
+    // Return Quake object with data extracted from the row
+    public Quake map(Row row) {
+        long time = row.getLong(mTime);
+
+        // If update time is not in the row, the earthquake is considered not updated since it happened
+        long updated = mUpdated == -1 ? time : row.getLong(mUpdated);
+
+        return new Quake(
+                row.getString(mIds),
+                row.getDouble(mMagnitude),
+                row.getString(mLocation),
+                time,
+                row.getString(mUrl),
+                row.getDouble(mLatitude),
+                row.getDouble(mLongitude),
+                row.getDouble(mDepth),
+                updated);
+    }
+}
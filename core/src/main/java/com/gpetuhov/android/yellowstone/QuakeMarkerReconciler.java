@@ -0,0 +1,125 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Keeps markers, that are displayed on the map, keyed by cluster key (USGS ID for a single quake).
+// When new clusters are displayed, only markers of added clusters are created,
+// markers of removed clusters are removed and markers of changed clusters are updated,
+// instead of clearing the map and creating all markers again.
+// Marker type is a parameter, so that reconciliation doesn't depend on Google Maps.
+// Must be used only in main thread.
+public class QuakeMarkerReconciler<M> {
+
+    // Creates, updates and removes markers on the map
+    public interface Markers<M> {
+        M add(QuakeCluster cluster);
+
+        void update(M marker, QuakeCluster cluster);
+
+        void remove(M marker);
+    }
+
+    // Marker and the cluster, that it displays
+    private static class Entry<M> {
+        final M mMarker;
+        QuakeCluster mCluster;
+
+        Entry(M marker, QuakeCluster cluster) {
+            mMarker = marker;
+            mCluster = cluster;
+        }
+    }
+
+    // Displayed markers by cluster key
+    private final Map<String, Entry<M>> mEntries = new HashMap<>();
+
+    // Number of markers added, updated and removed by the last reconciliation
+    private int mAddedCount;
+    private int mUpdatedCount;
+    private int mRemovedCount;
+
+    // Make displayed markers match the clusters
+    public void reconcile(List<QuakeCluster> clusters, Markers<M> markers) {
+        mAddedCount = 0;
+        mUpdatedCount = 0;
+        mRemovedCount = 0;
+
+        // Markers, that are not in the new clusters, will remain in this map
+        Map<String, Entry<M>> staleEntries = new HashMap<>(mEntries);
+
+        // Clusters, that are not displayed yet
+        List<QuakeCluster> addedClusters = new ArrayList<>();
+
+        for (QuakeCluster cluster : clusters) {
+            Entry<M> entry = staleEntries.remove(cluster.getKey());
+
+            if (null == entry) {
+                addedClusters.add(cluster);
+            } else if (!isDisplayedSame(entry.mCluster, cluster)) {
+                markers.update(entry.mMarker, cluster);
+                entry.mCluster = cluster;
+                mUpdatedCount++;
+            }
+        }
+
+        // Markers are removed before new ones are added, so that the map never holds both
+        for (Map.Entry<String, Entry<M>> staleEntry : staleEntries.entrySet()) {
+            markers.remove(staleEntry.getValue().mMarker);
+            mEntries.remove(staleEntry.getKey());
+            mRemovedCount++;
+        }
+
+        for (QuakeCluster cluster : addedClusters) {
+            mEntries.put(cluster.getKey(), new Entry<>(markers.add(cluster), cluster));
+            mAddedCount++;
+        }
+    }
+
+    // Remove all markers
+    public void clear(Markers<M> markers) {
+        Iterator<Entry<M>> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            markers.remove(iterator.next().mMarker);
+            iterator.remove();
+        }
+    }
+
+    // Forget all markers without removing them (when the map itself is destroyed)
+    public void reset() {
+        mEntries.clear();
+    }
+
+    // Return marker of the cluster with the key (null if it is not displayed)
+    public M getMarker(String key) {
+        Entry<M> entry = mEntries.get(key);
+        return null == entry ? null : entry.mMarker;
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public int getAddedCount() {
+        return mAddedCount;
+    }
+
+    public int getUpdatedCount() {
+        return mUpdatedCount;
+    }
+
+    public int getRemovedCount() {
+        return mRemovedCount;
+    }
+
+    // Return true, if the marker of the old cluster displays the new cluster as well
+    // (position and number of quakes are the same).
+    private static boolean isDisplayedSame(QuakeCluster oldCluster, QuakeCluster newCluster) {
+        return Double.compare(oldCluster.getLatitude(), newCluster.getLatitude()) == 0
+                && Double.compare(oldCluster.getLongitude(), newCluster.getLongitude()) == 0
+                && oldCluster.getCount() == newCluster.getCount();
+    }
+}
@@ -0,0 +1,263 @@
+package com.gpetuhov.android.yellowstone;
+
+import com.gpetuhov.android.yellowstone.utils.GeoMath;
+
+import java.util.Arrays;
+
+// Immutable coordinates of quakes for the map (USGS ID, coordinates, magnitude and update time).
+// Kept in parallel arrays instead of Quake objects, so that tens of thousands of quakes
+// take little memory and can be clustered quickly.
+// Points inside the map viewport are found with the grid index, so the map doesn't scan
+// the whole catalog on every camera move.
+public class QuakePoints {
+
+    // Zoom level of the grid index. Cells are the cells of QuakeClusterer grid
+    // (Web Mercator) at this zoom level, about 27 x 27 km near Yellowstone.
+    private static final int GRID_ZOOM = 10;
+
+    // No quakes
+    public static final QuakePoints EMPTY =
+            new QuakePoints(new String[0], new double[0], new double[0], new double[0], new long[0]);
+
+    private final String[] mIds;
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final double[] mMagnitudes;
+    private final long[] mVersions;
+
+    // Grid index of the points. Built on the first search (in background thread).
+    // Concurrent first searches may build it twice, which is harmless, because the index is immutable.
+    private volatile Grid mGrid;
+
+    // Arrays must have the same length and must not be changed after the points are created
+    public QuakePoints(String[] ids, double[] latitudes, double[] longitudes, double[] magnitudes, long[] versions) {
+        if (latitudes.length != ids.length || longitudes.length != ids.length
+                || magnitudes.length != ids.length || versions.length != ids.length) {
+            throw new IllegalArgumentException("Arrays of quake points have different length");
+        }
+
+        mIds = ids;
+        mLatitudes = latitudes;
+        mLongitudes = longitudes;
+        mMagnitudes = magnitudes;
+        mVersions = versions;
+    }
+
+    // Return points with only one quake
+    public static QuakePoints of(Quake quake) {
+        return new QuakePoints(
+                new String[] { quake.getId() },
+                new double[] { quake.getLatitude() },
+                new double[] { quake.getLongitude() },
+                new double[] { quake.getMagnitude() },
+                new long[] { quake.getUpdatedInMilliseconds() });
+    }
+
+    public int size() {
+        return mIds.length;
+    }
+
+    public String getId(int index) {
+        return mIds[index];
+    }
+
+    public double getLatitude(int index) {
+        return mLatitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return mLongitudes[index];
+    }
+
+    public double getMagnitude(int index) {
+        return mMagnitudes[index];
+    }
+
+    public long getVersion(int index) {
+        return mVersions[index];
+    }
+
+    // Return points, that are inside the viewport (in the same order).
+    // Only the points in the grid cells, that the viewport overlaps, are checked,
+    // so the time depends on the number of points near the viewport, not on the size of the catalog.
+    // Meant to be run in background thread.
+    public QuakePoints within(GeoMath.Viewport viewport) {
+        // Points of the overlapped cells, in the order of the points
+        int[] indexes = getGrid().find(viewport);
+        Arrays.sort(indexes);
+
+        // Cells at the edges of the viewport may contain points outside of it
+        int count = 0;
+        for (int i : indexes) {
+            if (viewport.contains(mLatitudes[i], mLongitudes[i])) {
+                indexes[count++] = i;
+            }
+        }
+
+        // All points are inside, nothing to copy
+        if (count == size()) {
+            return this;
+        }
+
+        String[] ids = new String[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] magnitudes = new double[count];
+        long[] versions = new long[count];
+
+        for (int j = 0; j < count; j++) {
+            int i = indexes[j];
+            ids[j] = mIds[i];
+            latitudes[j] = mLatitudes[i];
+            longitudes[j] = mLongitudes[i];
+            magnitudes[j] = mMagnitudes[i];
+            versions[j] = mVersions[i];
+        }
+
+        return new QuakePoints(ids, latitudes, longitudes, magnitudes, versions);
+    }
+
+    private Grid getGrid() {
+        Grid grid = mGrid;
+        if (null == grid) {
+            grid = new Grid(mLatitudes, mLongitudes);
+            mGrid = grid;
+        }
+        return grid;
+    }
+
+    // Grid index: indexes of the points grouped by the cells, that contain them.
+    // Occupied cells are sorted by their keys (row by row, west to east),
+    // so the cells of one row inside the viewport are a range, that is found by binary search,
+    // and their points are a range too.
+    private static class Grid {
+
+        // Number of cells along every side of the map
+        private static final int SIZE = 1 << GRID_ZOOM;
+
+        // Keys of occupied cells (ascending)
+        private final long[] mCellKeys;
+
+        // Position of the first point of every cell in mPointIndexes (and the number of points at the end)
+        private final int[] mCellStarts;
+
+        // Indexes of the points, cell by cell
+        private final int[] mPointIndexes;
+
+        // Takes O(n log n) time
+        Grid(double[] latitudes, double[] longitudes) {
+            int count = latitudes.length;
+
+            // Key of the cell in the high bits, index of the point in the low bits,
+            // so that one sort groups the points by cells
+            long[] entries = new long[count];
+            for (int i = 0; i < count; i++) {
+                entries[i] = getCellKey(getRow(latitudes[i]), getColumn(longitudes[i])) << 32 | i;
+            }
+            Arrays.sort(entries);
+
+            long[] cellKeys = new long[count];
+            int[] cellStarts = new int[count + 1];
+            int cellCount = 0;
+
+            mPointIndexes = new int[count];
+
+            for (int j = 0; j < count; j++) {
+                long cellKey = entries[j] >>> 32;
+                mPointIndexes[j] = (int) entries[j];
+
+                if (cellCount == 0 || cellKeys[cellCount - 1] != cellKey) {
+                    cellKeys[cellCount] = cellKey;
+                    cellStarts[cellCount] = j;
+                    cellCount++;
+                }
+            }
+
+            cellStarts[cellCount] = count;
+
+            mCellKeys = Arrays.copyOf(cellKeys, cellCount);
+            mCellStarts = Arrays.copyOf(cellStarts, cellCount + 1);
+        }
+
+        // Return indexes of the points in the cells, that the viewport overlaps (in no particular order)
+        int[] find(GeoMath.Viewport viewport) {
+            int firstRow = getRow(viewport.getNorth());
+            int lastRow = getRow(viewport.getSouth());
+            int westColumn = getColumn(viewport.getWest());
+            int eastColumn = getColumn(viewport.getEast());
+
+            // Viewport across 180th meridian consists of two column ranges,
+            // unless its edges are in the same column (then it covers the whole row)
+            boolean wholeRow = viewport.crossesAntimeridian() && westColumn <= eastColumn;
+            boolean twoRanges = viewport.crossesAntimeridian() && !wholeRow;
+
+            // Ranges of mPointIndexes (start and end), at most two per row
+            int[] ranges = new int[(lastRow - firstRow + 1) * 4];
+            int rangeCount = 0;
+            int pointCount = 0;
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                if (wholeRow) {
+                    rangeCount = addRange(ranges, rangeCount, row, 0, SIZE - 1);
+                } else if (twoRanges) {
+                    rangeCount = addRange(ranges, rangeCount, row, westColumn, SIZE - 1);
+                    rangeCount = addRange(ranges, rangeCount, row, 0, eastColumn);
+                } else {
+                    rangeCount = addRange(ranges, rangeCount, row, westColumn, eastColumn);
+                }
+            }
+
+            for (int r = 0; r < rangeCount; r += 2) {
+                pointCount += ranges[r + 1] - ranges[r];
+            }
+
+            int[] indexes = new int[pointCount];
+            int count = 0;
+
+            for (int r = 0; r < rangeCount; r += 2) {
+                int length = ranges[r + 1] - ranges[r];
+                System.arraycopy(mPointIndexes, ranges[r], indexes, count, length);
+                count += length;
+            }
+
+            return indexes;
+        }
+
+        // Add range of the points in the cells of the row between the columns (inclusive).
+        // Return new number of elements in ranges.
+        private int addRange(int[] ranges, int rangeCount, int row, int firstColumn, int lastColumn) {
+            int firstCell = findCell(getCellKey(row, firstColumn));
+            int endCell = findCell(getCellKey(row, lastColumn) + 1);
+
+            if (firstCell < endCell) {
+                ranges[rangeCount++] = mCellStarts[firstCell];
+                ranges[rangeCount++] = mCellStarts[endCell];
+            }
+
+            return rangeCount;
+        }
+
+        // Return position of the first occupied cell with key not less than the given one
+        private int findCell(long cellKey) {
+            int position = Arrays.binarySearch(mCellKeys, cellKey);
+            return position < 0 ? -position - 1 : position;
+        }
+
+        private static long getCellKey(int row, int column) {
+            return (long) row * SIZE + column;
+        }
+
+        private static int getRow(double latitude) {
+            return toCell(QuakeClusterer.projectY(latitude));
+        }
+
+        private static int getColumn(double longitude) {
+            return toCell(QuakeClusterer.projectX(longitude));
+        }
+
+        // Return cell of the coordinate on the map of size 1 (edges of the map belong to the edge cells)
+        private static int toCell(double coordinate) {
+            return Math.max(0, Math.min(SIZE - 1, (int) Math.floor(coordinate * SIZE)));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable snapshot of all quakes, that match one filter, shared by all screens.
+// Quakes are in the order of the quake list (most recent first), every quake has its
+// coordinates, magnitude and version, and position of the quake is found by USGS ID
+// in constant time. Snapshot is built in background thread and never changes,
+// so it can be used by any thread without synchronization.
+public class QuakeSnapshot {
+
+    // Snapshot with no quakes
+    public static final QuakeSnapshot EMPTY = new QuakeSnapshot("", QuakePoints.EMPTY);
+
+    // Filter, that the quakes match (minimum magnitude)
+    private final String mFilter;
+
+    // Quakes in the order of the quake list
+    private final QuakePoints mPoints;
+
+    // Positions of the quakes by USGS ID
+    private final Map<String, Integer> mPositions;
+
+    public QuakeSnapshot(String filter, QuakePoints points) {
+        mFilter = filter;
+        mPoints = points;
+
+        mPositions = new HashMap<>(points.size() * 4 / 3 + 1);
+        for (int position = 0; position < points.size(); position++) {
+            mPositions.put(points.getId(position), position);
+        }
+    }
+
+    public String getFilter() {
+        return mFilter;
+    }
+
+    public QuakePoints getPoints() {
+        return mPoints;
+    }
+
+    public int size() {
+        return mPoints.size();
+    }
+
+    public String getId(int position) {
+        return mPoints.getId(position);
+    }
+
+    // Return position of the quake with USGS ID (or -1, if there is no such quake)
+    public int getPositionOfQuake(String quakeId) {
+        Integer position = null == quakeId ? null : mPositions.get(quakeId);
+        return null == position ? -1 : position;
+    }
+}
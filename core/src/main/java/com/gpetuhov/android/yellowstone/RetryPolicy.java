@@ -0,0 +1,77 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.Random;
+
+// Bounded retries with exponential backoff and jitter.
+// Delay before retry number n (starting from 1) is random between half and full
+// of base delay * 2^(n-1), but not more than max delay.
+// Random part spreads retries of many clients, so that they don't hit
+// a recovering server at the same moment.
+// Thread-safe.
+public class RetryPolicy {
+
+    // Max number of attempts (the first attempt and retries)
+    private final int mMaxAttempts;
+
+    // Delay before the first retry (in milliseconds)
+    private final long mBaseDelayMillis;
+
+    // Max delay before retry (in milliseconds)
+    private final long mMaxDelayMillis;
+
+    // Source of jitter
+    private final Random mRandom;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this(maxAttempts, baseDelayMillis, maxDelayMillis, new Random());
+    }
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is needed: " + maxAttempts);
+        }
+
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("Wrong delays: " + baseDelayMillis + ", " + maxDelayMillis);
+        }
+
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mRandom = random;
+    }
+
+    // Return max number of attempts
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    // Return max delay before retry (in milliseconds)
+    public long getMaxDelayMillis() {
+        return mMaxDelayMillis;
+    }
+
+    // Return true, if one more attempt is allowed after given number of attempts
+    public boolean canRetry(int attempts) {
+        return attempts < mMaxAttempts;
+    }
+
+    // Return delay before retry number retry (starting from 1) in milliseconds
+    public long getDelayMillis(int retry) {
+        // Exponential part (doubled until it reaches max delay)
+        long delay = mBaseDelayMillis;
+        for (int i = 1; i < retry && delay < mMaxDelayMillis; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, mMaxDelayMillis);
+
+        // Jitter: random delay between half and full of the exponential delay
+        long half = delay / 2;
+        long jitter;
+        synchronized (mRandom) {
+            jitter = (long) (mRandom.nextDouble() * (delay - half + 1));
+        }
+
+        return Math.min(mMaxDelayMillis, half + jitter);
+    }
+}
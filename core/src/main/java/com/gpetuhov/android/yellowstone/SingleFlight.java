@@ -0,0 +1,72 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs only one call of a task at a time.
+// The first caller runs the task in its own thread. Callers, that come while it is running,
+// don't start the task again, they wait for it and get the same result (or exception).
+// Callers, that come after the task is finished, start a new run.
+// Thread-safe.
+public class SingleFlight<T> {
+
+    // Run, that is in flight now (null if there is none), guarded by this
+    private FutureTask<T> mInFlight;
+
+    // Number of runs of the task
+    private final AtomicInteger mRunCount = new AtomicInteger();
+
+    // Number of callers, that joined a run started by another caller
+    private final AtomicInteger mJoinCount = new AtomicInteger();
+
+    // Run the task or wait for the run in flight and return its result.
+    // Exception thrown by the task is rethrown to every caller of the run
+    // wrapped in ExecutionException.
+    public T run(Callable<T> task) throws ExecutionException, InterruptedException {
+        FutureTask<T> run;
+        boolean owner = false;
+
+        synchronized (this) {
+            if (null == mInFlight) {
+                mInFlight = new FutureTask<>(task);
+                owner = true;
+            }
+            run = mInFlight;
+        }
+
+        if (owner) {
+            mRunCount.incrementAndGet();
+
+            try {
+                // Task runs in the thread of the first caller
+                run.run();
+            } finally {
+                // Callers after this point start a new run
+                synchronized (this) {
+                    mInFlight = null;
+                }
+            }
+        } else {
+            mJoinCount.incrementAndGet();
+        }
+
+        return run.get();
+    }
+
+    // Return true, if the task is running now
+    public synchronized boolean isInFlight() {
+        return null != mInFlight;
+    }
+
+    // Return number of runs of the task
+    public int getRunCount() {
+        return mRunCount.get();
+    }
+
+    // Return number of callers, that joined a run started by another caller
+    public int getJoinCount() {
+        return mJoinCount.get();
+    }
+}
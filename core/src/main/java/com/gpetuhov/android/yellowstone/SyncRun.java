@@ -0,0 +1,159 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.util.Locale;
+
+// Record of one run of quake sync pipeline (request, parse, save) for sync journal.
+// Wall time of every stage is kept separately, so that regressions can be located.
+// Stage times are -1, if the stage was not reached.
+public class SyncRun {
+
+    // What started the sync
+    public enum Trigger { POLL_SERVICE, SYNC_ADAPTER, MANUAL_REFRESH }
+
+    // Columns of CSV export
+    private static final String CSV_HEADER = "start_time,trigger,outcome,request_ms,parse_ms,save_ms,total_ms,"
+            + "bytes_received,features_parsed,rows_inserted,rows_updated,rows_deleted";
+
+    // Start time of the run (in milliseconds since epoch)
+    private long mStartTime;
+
+    private Trigger mTrigger;
+
+    // Outcome of the run (status of the result)
+    private String mOutcome;
+
+    // Wall time of request (until response headers are received),
+    // parse (streaming of response body through the parser)
+    // and save (diff and write to storage) stages and of the whole run (in milliseconds)
+    private long mRequestMillis = -1;
+    private long mParseMillis = -1;
+    private long mSaveMillis = -1;
+    private long mTotalMillis = -1;
+
+    // Size of response body
+    private long mBytesReceived;
+
+    // Number of parsed GeoJSON features
+    private int mFeaturesParsed;
+
+    // Numbers of inserted, updated and deleted rows
+    private int mRowsInserted;
+    private int mRowsUpdated;
+    private int mRowsDeleted;
+
+    public SyncRun() {
+    }
+
+    public SyncRun(long startTime, Trigger trigger) {
+        mStartTime = startTime;
+        mTrigger = trigger;
+    }
+
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    public void setStartTime(long startTime) {
+        mStartTime = startTime;
+    }
+
+    public Trigger getTrigger() {
+        return mTrigger;
+    }
+
+    public void setTrigger(Trigger trigger) {
+        mTrigger = trigger;
+    }
+
+    public String getOutcome() {
+        return mOutcome;
+    }
+
+    public void setOutcome(String outcome) {
+        mOutcome = outcome;
+    }
+
+    public long getRequestMillis() {
+        return mRequestMillis;
+    }
+
+    public void setRequestMillis(long requestMillis) {
+        mRequestMillis = requestMillis;
+    }
+
+    public long getParseMillis() {
+        return mParseMillis;
+    }
+
+    public void setParseMillis(long parseMillis) {
+        mParseMillis = parseMillis;
+    }
+
+    public long getSaveMillis() {
+        return mSaveMillis;
+    }
+
+    public void setSaveMillis(long saveMillis) {
+        mSaveMillis = saveMillis;
+    }
+
+    public long getTotalMillis() {
+        return mTotalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        mTotalMillis = totalMillis;
+    }
+
+    public long getBytesReceived() {
+        return mBytesReceived;
+    }
+
+    public void setBytesReceived(long bytesReceived) {
+        mBytesReceived = bytesReceived;
+    }
+
+    public int getFeaturesParsed() {
+        return mFeaturesParsed;
+    }
+
+    public void setFeaturesParsed(int featuresParsed) {
+        mFeaturesParsed = featuresParsed;
+    }
+
+    public int getRowsInserted() {
+        return mRowsInserted;
+    }
+
+    public void setRowsInserted(int rowsInserted) {
+        mRowsInserted = rowsInserted;
+    }
+
+    public int getRowsUpdated() {
+        return mRowsUpdated;
+    }
+
+    public void setRowsUpdated(int rowsUpdated) {
+        mRowsUpdated = rowsUpdated;
+    }
+
+    public int getRowsDeleted() {
+        return mRowsDeleted;
+    }
+
+    public void setRowsDeleted(int rowsDeleted) {
+        mRowsDeleted = rowsDeleted;
+    }
+
+    // Return header of CSV export
+    public static String getCsvHeader() {
+        return CSV_HEADER;
+    }
+
+    // Return the run as CSV row (without line separator)
+    public String toCsvRow() {
+        return String.format(Locale.US, "%d,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                mStartTime, mTrigger, mOutcome, mRequestMillis, mParseMillis, mSaveMillis, mTotalMillis,
+                mBytesReceived, mFeaturesParsed, mRowsInserted, mRowsUpdated, mRowsDeleted);
+    }
+}
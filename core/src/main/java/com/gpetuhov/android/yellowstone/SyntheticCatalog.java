@@ -0,0 +1,239 @@
+package com.gpetuhov.android.yellowstone;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Synthetic earthquake catalog for benchmarks and load tests.
+// Events are generated around Yellowstone caldera with a fixed seed,
+// so every run works on exactly the same data.
+// Magnitudes follow Gutenberg-Richter distribution. Most events belong to swarms
+// (tight clusters around a few centers), the rest are scattered over the caldera.
+// Events are generated on the fly, so large catalogs can be written as GeoJSON
+// without keeping all quakes in memory.
+public class SyntheticCatalog {
+
+    // Default seed of the random generator (the same catalog for every run)
+    public static final long DEFAULT_SEED = 20161018L;
+
+    // Default time of the most recent event (2016-09-15 09:42:22 UTC)
+    private static final long DEFAULT_LATEST_TIME = 1473931342000L;
+
+    // Default average time between events (10 minutes)
+    private static final long DEFAULT_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    // Minimum magnitude of the catalog
+    private static final double MIN_MAGNITUDE = -0.5;
+
+    // Gutenberg-Richter b-value (number of events drops 10 times per magnitude unit)
+    private static final double B_VALUE = 1.0;
+
+    // Center of the caldera and spread of background events (in degrees)
+    private static final double CENTER_LATITUDE = 44.5;
+    private static final double CENTER_LONGITUDE = -110.6;
+    private static final double BACKGROUND_SPREAD_LATITUDE = 0.3;
+    private static final double BACKGROUND_SPREAD_LONGITUDE = 0.4;
+
+    // Number of swarms, share of events, that belong to swarms,
+    // and spread of events around the center of their swarm (in degrees, about 2 km)
+    private static final int SWARM_COUNT = 8;
+    private static final double SWARM_FRACTION = 0.7;
+    private static final double SWARM_SPREAD = 0.02;
+
+    // Max delay between event and its last update (1 day)
+    private static final long MAX_UPDATE_DELAY_MILLIS = 24 * 60 * 60 * 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] DIRECTIONS = { "N", "NE", "E", "SE", "S", "SW", "W", "NW" };
+
+    private static final String[] PLACES = { "West Yellowstone, Montana", "Old Faithful, Wyoming",
+            "Mammoth, Wyoming", "Lake, Wyoming", "Gardiner, Montana" };
+
+    // Number of events
+    private final int mEventCount;
+
+    // Seed of the random generator
+    private final long mSeed;
+
+    // Time of the most recent event
+    private final long mLatestTime;
+
+    // Time between the most recent event and the oldest one
+    private final long mSpanMillis;
+
+    // Catalog with default seed, where the most recent event happened on 2016-09-15
+    // and events are 10 minutes apart on average
+    public SyntheticCatalog(int eventCount) {
+        this(eventCount, DEFAULT_SEED, DEFAULT_LATEST_TIME, eventCount * DEFAULT_INTERVAL_MILLIS);
+    }
+
+    // Catalog with given seed, where events are spread over the span before the latest time
+    public SyntheticCatalog(int eventCount, long seed, long latestTime, long spanMillis) {
+        mEventCount = eventCount;
+        mSeed = seed;
+        mLatestTime = latestTime;
+        mSpanMillis = spanMillis;
+    }
+
+    // Return number of events
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    // Return generated quakes, most recent first
+    public List<Quake> getQuakes() {
+        List<Quake> quakes = new ArrayList<>(mEventCount);
+
+        Generator generator = new Generator();
+        for (int i = 0; i < mEventCount; i++) {
+            quakes.add(generator.next(i));
+        }
+
+        return quakes;
+    }
+
+    // Return USGS GeoJSON response with all quakes of the catalog (UTF-8 bytes)
+    public byte[] toGeoJson() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(mEventCount * 1100 + 200);
+
+        try {
+            writeGeoJson(outputStream);
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    // Write USGS GeoJSON response with all quakes of the catalog (UTF-8) into the stream.
+    // Quakes are generated while they are written. The stream is flushed, but not closed.
+    public void writeGeoJson(OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+
+        // One feature at a time is kept in memory
+        StringBuilder json = new StringBuilder(2048);
+
+        json.append("{\"type\":\"FeatureCollection\",\"metadata\":{\"generated\":")
+                .append(mLatestTime)
+                .append(",\"url\":\"http://earthquake.usgs.gov/fdsnws/event/1/query\"")
+                .append(",\"title\":\"USGS Earthquakes\",\"status\":200,\"api\":\"1.5.4\",\"count\":")
+                .append(mEventCount)
+                .append("},\"features\":[");
+
+        Generator generator = new Generator();
+
+        for (int i = 0; i < mEventCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendFeature(json, generator.next(i));
+
+            writer.append(json);
+            json.setLength(0);
+        }
+
+        json.append("],\"bbox\":[-111.8,43.5,0,-109.4,45.5,15]}");
+        writer.append(json);
+
+        writer.flush();
+    }
+
+    // Generates events of the catalog one by one in the same order for every call
+    private class Generator {
+
+        private final Random mRandom = new Random(mSeed);
+
+        // Centers of swarms (latitude and longitude)
+        private final double[][] mSwarmCenters = new double[SWARM_COUNT][];
+
+        Generator() {
+            for (int i = 0; i < SWARM_COUNT; i++) {
+                mSwarmCenters[i] = new double[] {
+                        CENTER_LATITUDE + mRandom.nextGaussian() * BACKGROUND_SPREAD_LATITUDE,
+                        CENTER_LONGITUDE + mRandom.nextGaussian() * BACKGROUND_SPREAD_LONGITUDE
+                };
+            }
+        }
+
+        // Return event number i (events must be requested in order)
+        Quake next(int i) {
+            // Magnitudes follow Gutenberg-Richter distribution, rounded like in USGS feed
+            double magnitude = round(MIN_MAGNITUDE - Math.log10(1 - mRandom.nextDouble()) / B_VALUE, 100);
+
+            double latitude;
+            double longitude;
+
+            if (mRandom.nextDouble() < SWARM_FRACTION) {
+                // Event belongs to one of the swarms
+                double[] center = mSwarmCenters[mRandom.nextInt(SWARM_COUNT)];
+                latitude = center[0] + mRandom.nextGaussian() * SWARM_SPREAD;
+                longitude = center[1] + mRandom.nextGaussian() * SWARM_SPREAD;
+            } else {
+                // Background event is scattered over the caldera and its surroundings
+                latitude = CENTER_LATITUDE + mRandom.nextGaussian() * BACKGROUND_SPREAD_LATITUDE;
+                longitude = CENTER_LONGITUDE + mRandom.nextGaussian() * BACKGROUND_SPREAD_LONGITUDE;
+            }
+
+            latitude = round(latitude, 10000);
+            longitude = round(longitude, 10000);
+            double depth = round(mRandom.nextDouble() * 15, 10);
+
+            // Every event falls into its own slot of the span, so events are ordered
+            // by time (most recent first) and never leave the span
+            long time = mLatestTime - (long) (mSpanMillis * (i + mRandom.nextDouble()) / Math.max(mEventCount, 1));
+            long updated = Math.min(time + (long) (mRandom.nextDouble() * MAX_UPDATE_DELAY_MILLIS), mLatestTime);
+
+            String id = "uu" + (60000000 + i);
+
+            return new Quake(id, magnitude, location(latitude, longitude), time,
+                    "http://earthquake.usgs.gov/earthquakes/eventpage/" + id,
+                    latitude, longitude, depth, updated);
+        }
+
+        // Return location name like in USGS feed (ex. 12km NE of West Yellowstone, Montana)
+        private String location(double latitude, double longitude) {
+            return String.format(Locale.US, "%dkm %s of %s",
+                    1 + mRandom.nextInt(40),
+                    DIRECTIONS[mRandom.nextInt(DIRECTIONS.length)],
+                    PLACES[(int) Math.abs((latitude + longitude) * 1000) % PLACES.length]);
+        }
+    }
+
+    // Round value to given precision (100 = 2 decimal places)
+    private static double round(double value, int precision) {
+        return Math.round(value * precision) / (double) precision;
+    }
+
+    // Append one feature in the same layout as USGS feed (including fields, that the app skips)
+    private static void appendFeature(StringBuilder json, Quake quake) {
+        json.append("{\"type\":\"Feature\",\"properties\":{\"mag\":").append(quake.getMagnitude())
+                .append(",\"place\":\"").append(quake.getLocation())
+                .append("\",\"time\":").append(quake.getTimeInMilliseconds())
+                .append(",\"updated\":").append(quake.getUpdatedInMilliseconds())
+                .append(",\"tz\":-420,\"url\":\"").append(quake.getUrl())
+                .append("\",\"detail\":\"http://earthquake.usgs.gov/fdsnws/event/1/query?eventid=")
+                .append(quake.getId())
+                .append("&format=geojson\",\"felt\":null,\"cdi\":null,\"mmi\":null,\"alert\":null")
+                .append(",\"status\":\"reviewed\",\"tsunami\":0,\"sig\":0,\"net\":\"uu\",\"code\":\"")
+                .append(quake.getId().substring(2))
+                .append("\",\"ids\":\",").append(quake.getId())
+                .append(",\",\"sources\":\",uu,\",\"types\":\",geoserve,origin,phase-data,\"")
+                .append(",\"nst\":12,\"dmin\":0.02,\"rms\":0.11,\"gap\":87,\"magType\":\"md\"")
+                .append(",\"type\":\"earthquake\",\"title\":\"M ").append(quake.getMagnitude())
+                .append(" - ").append(quake.getLocation())
+                .append("\"},\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+                .append(quake.getLongitude()).append(',')
+                .append(quake.getLatitude()).append(',')
+                .append(quake.getDepth())
+                .append("]},\"id\":\"").append(quake.getId()).append("\"}");
+    }
+}
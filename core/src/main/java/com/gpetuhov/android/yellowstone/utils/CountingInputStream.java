@@ -0,0 +1,61 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Input stream, that counts bytes read from the wrapped stream
+public class CountingInputStream extends FilterInputStream {
+
+    // Number of bytes read
+    private long mCount;
+
+    // Count at the mark
+    private long mMarkedCount;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    // Return number of bytes read
+    public long getCount() {
+        return mCount;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            mCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            mCount += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        mCount += skipped;
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        in.mark(readlimit);
+        mMarkedCount = mCount;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        in.reset();
+        mCount = mMarkedCount;
+    }
+}
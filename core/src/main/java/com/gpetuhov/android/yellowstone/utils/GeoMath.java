@@ -0,0 +1,174 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+// Geographic calculations on latitude and longitude in degrees
+public class GeoMath {
+
+    // Mean radius of the Earth (in kilometers)
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    private GeoMath() {
+    }
+
+    // Return great-circle distance between two points (in kilometers)
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double lat1 = Math.toRadians(latitude1);
+        double lat2 = Math.toRadians(latitude2);
+        double deltaLat = lat2 - lat1;
+        double deltaLng = Math.toRadians(longitude2 - longitude1);
+
+        // Haversine formula
+        double sinLat = Math.sin(deltaLat / 2);
+        double sinLng = Math.sin(deltaLng / 2);
+        double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLng * sinLng;
+
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Latitude and longitude bounds, that include all added points.
+    // Points near Yellowstone never cross 180th meridian, so longitudes are not wrapped.
+    public static class Bounds {
+
+        private double mSouth = Double.POSITIVE_INFINITY;
+        private double mWest = Double.POSITIVE_INFINITY;
+        private double mNorth = Double.NEGATIVE_INFINITY;
+        private double mEast = Double.NEGATIVE_INFINITY;
+
+        // Extend bounds to include the point. Return this object to chain calls.
+        public Bounds include(double latitude, double longitude) {
+            mSouth = Math.min(mSouth, latitude);
+            mNorth = Math.max(mNorth, latitude);
+            mWest = Math.min(mWest, longitude);
+            mEast = Math.max(mEast, longitude);
+            return this;
+        }
+
+        // True, if no points were added
+        public boolean isEmpty() {
+            return mSouth > mNorth;
+        }
+
+        // True, if the point is inside the bounds (including edges)
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= mSouth && latitude <= mNorth && longitude >= mWest && longitude <= mEast;
+        }
+
+        public double getSouth() {
+            return mSouth;
+        }
+
+        public double getWest() {
+            return mWest;
+        }
+
+        public double getNorth() {
+            return mNorth;
+        }
+
+        public double getEast() {
+            return mEast;
+        }
+    }
+
+    // Visible area of the map (or area of the map, that is loaded).
+    // Unlike Bounds, the user can scroll the map over 180th meridian,
+    // so the viewport crosses it, if west is greater than east.
+    public static class Viewport {
+
+        private final double mSouth;
+        private final double mWest;
+        private final double mNorth;
+        private final double mEast;
+
+        public Viewport(double south, double west, double north, double east) {
+            mSouth = south;
+            mWest = west;
+            mNorth = north;
+            mEast = east;
+        }
+
+        // Return viewport extended by the fraction of its size on every side
+        // (latitude is limited by poles, longitude covers the whole world at most).
+        public Viewport expand(double fraction) {
+            double latitudeMargin = getLatitudeSpan() * fraction;
+            double longitudeMargin = getLongitudeSpan() * fraction;
+
+            double south = Math.max(-90, mSouth - latitudeMargin);
+            double north = Math.min(90, mNorth + latitudeMargin);
+
+            if (getLongitudeSpan() + 2 * longitudeMargin >= 360) {
+                return new Viewport(south, -180, north, 180);
+            }
+
+            return new Viewport(south, wrapLongitude(mWest - longitudeMargin),
+                    north, wrapLongitude(mEast + longitudeMargin));
+        }
+
+        // True, if the other viewport is completely inside this one
+        public boolean contains(Viewport other) {
+            if (other.mSouth < mSouth || other.mNorth > mNorth) {
+                return false;
+            }
+
+            // Viewport, that covers all longitudes, contains any other one
+            if (getLongitudeSpan() >= 360) {
+                return true;
+            }
+
+            // Compare longitudes as distances eastwards from the west edge of this viewport
+            double otherWest = eastwardDistance(mWest, other.mWest);
+            return otherWest + other.getLongitudeSpan() <= getLongitudeSpan();
+        }
+
+        // True, if the point is inside the viewport (including edges)
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= mSouth && latitude <= mNorth
+                    && eastwardDistance(mWest, longitude) <= getLongitudeSpan();
+        }
+
+        // True, if the viewport crosses 180th meridian
+        public boolean crossesAntimeridian() {
+            return mWest > mEast;
+        }
+
+        public double getLatitudeSpan() {
+            return mNorth - mSouth;
+        }
+
+        public double getLongitudeSpan() {
+            return eastwardDistance(mWest, mEast);
+        }
+
+        public double getSouth() {
+            return mSouth;
+        }
+
+        public double getWest() {
+            return mWest;
+        }
+
+        public double getNorth() {
+            return mNorth;
+        }
+
+        public double getEast() {
+            return mEast;
+        }
+
+        // Return distance in degrees from the first longitude eastwards to the second one (0 - 360)
+        private static double eastwardDistance(double fromLongitude, double toLongitude) {
+            double distance = toLongitude - fromLongitude;
+            return distance < 0 ? distance + 360 : distance;
+        }
+
+        // Return longitude in the range -180 - 180
+        private static double wrapLongitude(double longitude) {
+            if (longitude > 180) {
+                return longitude - 360;
+            }
+            if (longitude < -180) {
+                return longitude + 360;
+            }
+            return longitude;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// Formats earthquake values for display.
+// DecimalFormat and SimpleDateFormat are expensive to create and not thread-safe,
+// so every thread gets its own instances, created once and reused for every call.
+// Display strings of the quake list are computed with this class at ingest time
+// (in sync thread) and stored in quake table, so the list doesn't format anything.
+public class QuakeFormatter {
+
+    // Date format (ex. 2016-09-15 09:42:22 (UTC))
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    // Suffix of the formatted date
+    private static final String DATE_SUFFIX = " (UTC)";
+
+    // Formatters of the current thread
+    private static final ThreadLocal<Formatters> sFormatters = new ThreadLocal<Formatters>() {
+        @Override
+        protected Formatters initialValue() {
+            return new Formatters();
+        }
+    };
+
+    // Set of formatters confined to one thread
+    private static class Formatters {
+        // Format for magnitude and depth (ex. 2.5)
+        final NumberFormat mOneDecimalFormat = createDecimalFormat("0.0");
+
+        // Format for latitude and longitude (ex. 44.428)
+        final NumberFormat mCoordinateFormat = createDecimalFormat("0.000");
+
+        // Format for date in UTC
+        final SimpleDateFormat mDateFormat = createDateFormat();
+
+        // Reused to format dates
+        final Date mDate = new Date();
+    }
+
+    private QuakeFormatter() {
+    }
+
+    // Return magnitude in String format (ex. 2.5)
+    public static String formatMagnitude(double magnitude) {
+        return sFormatters.get().mOneDecimalFormat.format(magnitude);
+    }
+
+    // Return depth in String format (ex. 7.2)
+    public static String formatDepth(double depth) {
+        return sFormatters.get().mOneDecimalFormat.format(depth);
+    }
+
+    // Return latitude or longitude in String format (ex. 44.428)
+    public static String formatCoordinate(double coordinate) {
+        return sFormatters.get().mCoordinateFormat.format(coordinate);
+    }
+
+    // Return date in String format (ex. 2016-09-15 09:42:22 (UTC))
+    public static String formatDate(long timeInMilliseconds) {
+        Formatters formatters = sFormatters.get();
+        formatters.mDate.setTime(timeInMilliseconds);
+        return formatters.mDateFormat.format(formatters.mDate) + DATE_SUFFIX;
+    }
+
+    // Numbers are formatted with US symbols (decimal point), like the rest of the app UI
+    private static NumberFormat createDecimalFormat(String pattern) {
+        return new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(Locale.US));
+    }
+
+    // Dates are formatted in UTC, so that stored display strings don't depend on device time zone
+    private static SimpleDateFormat createDateFormat() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
+    }
+}
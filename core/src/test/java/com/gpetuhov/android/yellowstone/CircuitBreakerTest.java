@@ -0,0 +1,100 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Tests for circuit breaker
+public class CircuitBreakerTest {
+
+    // Time of the first call in tests
+    private static final long NOW = 1000000000L;
+
+    private static final int FAILURE_THRESHOLD = 3;
+
+    private static final long OPEN_MILLIS = 1000;
+
+    private static final long MAX_OPEN_MILLIS = 3000;
+
+    private CircuitBreaker mCircuitBreaker;
+
+    @Before
+    public void setUp() throws Exception {
+        mCircuitBreaker = new CircuitBreaker(FAILURE_THRESHOLD, OPEN_MILLIS, MAX_OPEN_MILLIS);
+    }
+
+    @Test
+    public void consecutiveFailures_openBreaker() throws Exception {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertTrue(mCircuitBreaker.allowRequest(NOW));
+            mCircuitBreaker.onFailure(NOW);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getState(NOW));
+        assertFalse(mCircuitBreaker.allowRequest(NOW));
+        assertEquals(OPEN_MILLIS, mCircuitBreaker.getRemainingOpenMillis(NOW));
+        assertEquals(1, mCircuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void success_resetsFailureCount() throws Exception {
+        for (int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+            mCircuitBreaker.onFailure(NOW);
+        }
+        mCircuitBreaker.onSuccess();
+        mCircuitBreaker.onFailure(NOW);
+
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getState(NOW));
+        assertTrue(mCircuitBreaker.allowRequest(NOW));
+    }
+
+    @Test
+    public void afterOpenTime_oneTrialCallIsAllowed() throws Exception {
+        open();
+
+        long trialTime = NOW + OPEN_MILLIS;
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mCircuitBreaker.getState(trialTime));
+        assertTrue(mCircuitBreaker.allowRequest(trialTime));
+
+        // Other calls wait for the result of the trial
+        assertFalse(mCircuitBreaker.allowRequest(trialTime));
+
+        mCircuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getState(trialTime));
+        assertTrue(mCircuitBreaker.allowRequest(trialTime));
+        assertEquals(0, mCircuitBreaker.getRemainingOpenMillis(trialTime));
+    }
+
+    @Test
+    public void failedTrialCall_doublesOpenTimeUpToMax() throws Exception {
+        open();
+
+        long time = NOW + OPEN_MILLIS;
+        assertTrue(mCircuitBreaker.allowRequest(time));
+        mCircuitBreaker.onFailure(time);
+        assertEquals(2 * OPEN_MILLIS, mCircuitBreaker.getRemainingOpenMillis(time));
+
+        time += 2 * OPEN_MILLIS;
+        assertTrue(mCircuitBreaker.allowRequest(time));
+        mCircuitBreaker.onFailure(time);
+        assertEquals(MAX_OPEN_MILLIS, mCircuitBreaker.getRemainingOpenMillis(time));
+
+        // After recovery open time starts from the beginning
+        time += MAX_OPEN_MILLIS;
+        assertTrue(mCircuitBreaker.allowRequest(time));
+        mCircuitBreaker.onSuccess();
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            mCircuitBreaker.onFailure(time);
+        }
+        assertEquals(OPEN_MILLIS, mCircuitBreaker.getRemainingOpenMillis(time));
+    }
+
+    // Open the breaker at NOW
+    private void open() {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            mCircuitBreaker.onFailure(NOW);
+        }
+    }
+}
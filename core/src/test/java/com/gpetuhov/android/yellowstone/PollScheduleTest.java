@@ -0,0 +1,86 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Tests for adaptive poll schedule
+public class PollScheduleTest {
+
+    private static final long MIN_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+
+    private static final long MAX_INTERVAL = TimeUnit.HOURS.toMillis(4);
+
+    // Window of recent events (6 hours), so that 6 events are 1 event per hour
+    private static final long WINDOW = TimeUnit.HOURS.toMillis(6);
+
+    private PollSchedule mPollSchedule;
+
+    @Before
+    public void setUp() throws Exception {
+        mPollSchedule = new PollSchedule(MIN_INTERVAL, WINDOW, 1.0, 3.0);
+    }
+
+    @Test
+    public void quiet_pollsAtMaxInterval() throws Exception {
+        PollSchedule.Decision decision = mPollSchedule.decide(0, 0, MAX_INTERVAL, 0);
+
+        assertEquals(MAX_INTERVAL, decision.getIntervalMillis());
+        assertEquals(0, decision.getLevel());
+
+        // Few small events are background activity
+        decision = mPollSchedule.decide(2, 1.5, MAX_INTERVAL, MAX_INTERVAL);
+        assertEquals(MAX_INTERVAL, decision.getIntervalMillis());
+    }
+
+    @Test
+    public void rate_tightensInterval() throws Exception {
+        // 1 event per hour
+        assertEquals(MAX_INTERVAL / 2, mPollSchedule.decide(6, 1.0, MAX_INTERVAL, 0).getIntervalMillis());
+
+        // 4 events per hour
+        assertEquals(MAX_INTERVAL / 4, mPollSchedule.decide(24, 1.0, MAX_INTERVAL, 0).getIntervalMillis());
+    }
+
+    @Test
+    public void magnitude_tightensInterval() throws Exception {
+        assertEquals(MAX_INTERVAL / 2, mPollSchedule.decide(1, 3.0, MAX_INTERVAL, 0).getIntervalMillis());
+        assertEquals(MAX_INTERVAL / 4, mPollSchedule.decide(1, 4.2, MAX_INTERVAL, 0).getIntervalMillis());
+    }
+
+    @Test
+    public void swarm_pollsAtMinInterval() throws Exception {
+        PollSchedule.Decision decision = mPollSchedule.decide(600, 4.5, MAX_INTERVAL, MAX_INTERVAL);
+
+        assertEquals(MIN_INTERVAL, decision.getIntervalMillis());
+    }
+
+    @Test
+    public void spike_tightensAtOnce_andQuietRelaxesGradually() throws Exception {
+        long interval = mPollSchedule.decide(600, 4.5, MAX_INTERVAL, MAX_INTERVAL).getIntervalMillis();
+        assertEquals(MIN_INTERVAL, interval);
+
+        // Activity calms down: interval at most doubles per poll
+        long[] expected = { 30, 60, 120, 240, 240 };
+        for (long minutes : expected) {
+            PollSchedule.Decision decision = mPollSchedule.decide(0, 0, MAX_INTERVAL, interval);
+            assertEquals(MAX_INTERVAL, decision.getTargetIntervalMillis());
+
+            interval = decision.getIntervalMillis();
+            assertEquals(TimeUnit.MINUTES.toMillis(minutes), interval);
+        }
+    }
+
+    @Test
+    public void interval_staysBetweenBounds() throws Exception {
+        // Max interval was shortened in settings
+        long shorterMax = TimeUnit.HOURS.toMillis(1);
+        assertEquals(shorterMax, mPollSchedule.decide(0, 0, shorterMax, MAX_INTERVAL).getIntervalMillis());
+
+        // Max interval shorter than min interval
+        assertEquals(MIN_INTERVAL, mPollSchedule.decide(0, 0, 1000, 0).getIntervalMillis());
+    }
+}
@@ -0,0 +1,86 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Tests for grid clustering of quakes
+public class QuakeClustererTest {
+
+    @Test
+    public void nearbyQuakes_formOneCluster_andFarQuakesStaySingle() throws Exception {
+        QuakePoints points = new QuakePoints(
+                new String[] { "a", "b", "c", "far" },
+                new double[] { 44.4600, 44.4601, 44.4602, 45.5 },
+                new double[] { -110.8300, -110.8301, -110.8302, -109.0 },
+                new double[] { 1.0, 2.5, 0.5, 3.0 },
+                new long[4]);
+
+        List<QuakeCluster> clusters = new QuakeClusterer(64).cluster(points, 8);
+
+        assertEquals(2, clusters.size());
+
+        QuakeCluster cluster = clusters.get(0);
+        assertEquals(3, cluster.getCount());
+        assertNull(cluster.getQuakeId());
+        assertEquals(2.5, cluster.getMaxMagnitude(), 0);
+        assertEquals(44.4601, cluster.getLatitude(), 1e-9);
+        assertEquals(-110.8301, cluster.getLongitude(), 1e-9);
+
+        QuakeCluster single = clusters.get(1);
+        assertEquals(1, single.getCount());
+        assertEquals("far", single.getQuakeId());
+        assertEquals("far", single.getKey());
+    }
+
+    @Test
+    public void clusters_splitWhenZoomingIn_andKeepAllQuakes() throws Exception {
+        QuakePoints points = randomPoints(50000);
+        QuakeClusterer clusterer = new QuakeClusterer(64);
+
+        int previousClusterCount = 0;
+        for (int zoom = 3; zoom <= 16; zoom++) {
+            long start = System.nanoTime();
+            List<QuakeCluster> clusters = clusterer.cluster(points, zoom);
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+            int quakeCount = 0;
+            for (QuakeCluster cluster : clusters) {
+                quakeCount += cluster.getCount();
+            }
+
+            assertEquals(points.size(), quakeCount);
+            assertTrue(clusters.size() >= previousClusterCount);
+            assertTrue("Clustering took " + elapsedMillis + " ms", elapsedMillis < 2000);
+
+            previousClusterCount = clusters.size();
+        }
+    }
+
+    @Test
+    public void projection() throws Exception {
+        assertEquals(0.5, QuakeClusterer.projectX(0), 1e-12);
+        assertEquals(0.5, QuakeClusterer.projectY(0), 1e-12);
+        assertEquals(0, QuakeClusterer.projectX(-180), 1e-12);
+        assertTrue(QuakeClusterer.projectY(44.5) < 0.5);
+    }
+
+    // Quakes around Yellowstone caldera
+    private static QuakePoints randomPoints(int count) {
+        Random random = new Random(14);
+        String[] ids = new String[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] magnitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "uu" + i;
+            latitudes[i] = 44.5 + random.nextGaussian() * 0.3;
+            longitudes[i] = -110.6 + random.nextGaussian() * 0.4;
+            magnitudes[i] = random.nextDouble() * 4;
+        }
+        return new QuakePoints(ids, latitudes, longitudes, magnitudes, new long[count]);
+    }
+}
@@ -0,0 +1,177 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Tests for streaming GeoJSON parser.
+// Runs on the JVM, large responses are generated on the fly by SyntheticGeoJsonReader.
+public class QuakeJsonParserTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void parse_singleFeature_extractsAllFields() throws Exception {
+        String json = "{\"type\":\"FeatureCollection\","
+                + "\"metadata\":{\"generated\":1474000000000,\"count\":1},"
+                + "\"features\":[{\"type\":\"Feature\","
+                + "\"properties\":{\"mag\":2.5,\"place\":\"5km NE of Old Faithful\",\"time\":1473931342000,"
+                + "\"updated\":1473931500000,\"url\":\"http://earthquake.usgs.gov/earthquakes/eventpage/uu60166432\","
+                + "\"felt\":null,\"types\":\",origin,phase-data,\"},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-110.8,44.5,7.2]},"
+                + "\"id\":\"uu60166432\"}],"
+                + "\"bbox\":[-110.8,44.5,7.2,-110.8,44.5,7.2]}";
+
+        List<Quake> quakes = parse(new StringReader(json));
+
+        assertEquals(1, quakes.size());
+
+        Quake quake = quakes.get(0);
+        assertEquals("uu60166432", quake.getId());
+        assertEquals(2.5, quake.getMagnitude(), DELTA);
+        assertEquals("5km NE of Old Faithful", quake.getLocation());
+        assertEquals(1473931342000L, quake.getTimeInMilliseconds());
+        assertEquals(1473931500000L, quake.getUpdatedInMilliseconds());
+        assertEquals("http://earthquake.usgs.gov/earthquakes/eventpage/uu60166432", quake.getUrl());
+        assertEquals(44.5, quake.getLatitude(), DELTA);
+        assertEquals(-110.8, quake.getLongitude(), DELTA);
+        assertEquals(7.2, quake.getDepth(), DELTA);
+    }
+
+    @Test
+    public void parse_nullValues_usesDefaultsInsteadOfFailing() throws Exception {
+        String json = "{\"features\":["
+                + "{\"properties\":{\"mag\":null,\"place\":null,\"time\":1,\"url\":null},"
+                + "\"geometry\":{\"coordinates\":[-110.0,44.0,1.0]},\"id\":\"a\"},"
+                + "{\"properties\":{\"mag\":1.0,\"place\":\"b\",\"time\":2,\"url\":\"u\"},"
+                + "\"geometry\":null,\"id\":\"b\"},"
+                + "{\"properties\":{\"mag\":1.5,\"place\":\"c\",\"time\":3,\"url\":\"u\"},"
+                + "\"geometry\":{\"coordinates\":[-110.0,44.0,1.0]},\"id\":\"c\"}]}";
+
+        List<Quake> quakes = parse(new StringReader(json));
+
+        // Feature without geometry is skipped, features with null properties are kept
+        assertEquals(2, quakes.size());
+        assertEquals("a", quakes.get(0).getId());
+        assertEquals(0, quakes.get(0).getMagnitude(), DELTA);
+        assertEquals("", quakes.get(0).getLocation());
+        assertEquals("c", quakes.get(1).getId());
+    }
+
+    @Test
+    public void parse_emptyFeatureCollection_returnsZero() throws Exception {
+        int count = new QuakeJsonParser().parse(
+                new StringReader("{\"type\":\"FeatureCollection\",\"features\":[]}"),
+                quake -> fail("No quakes expected"));
+
+        assertEquals(0, count);
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_truncatedResponse_throws() throws Exception {
+        parse(new StringReader("{\"features\":[{\"properties\":{\"mag\":1.0,"));
+    }
+
+    @Test
+    public void parse_largeResponse_emitsEveryFeatureInOrder() throws Exception {
+        final int featureCount = 200000;
+
+        // Quakes are checked as they are emitted and not collected,
+        // so only one feature at a time is kept in memory.
+        final long[] expectedIndex = {0};
+
+        int count = new QuakeJsonParser().parse(new SyntheticGeoJsonReader(featureCount), quake -> {
+            long i = expectedIndex[0];
+            assertEquals("yl" + i, quake.getId());
+            assertEquals(SyntheticGeoJsonReader.magnitude(i), quake.getMagnitude(), DELTA);
+            assertEquals(SyntheticGeoJsonReader.time(i), quake.getTimeInMilliseconds());
+            expectedIndex[0]++;
+        });
+
+        assertEquals(featureCount, count);
+        assertEquals(featureCount, expectedIndex[0]);
+    }
+
+    private static List<Quake> parse(Reader reader) throws IOException {
+        List<Quake> quakes = new ArrayList<>();
+        new QuakeJsonParser().parse(reader, quakes::add);
+        return quakes;
+    }
+
+    // Reader that generates GeoJSON response with given number of features on the fly
+    private static class SyntheticGeoJsonReader extends Reader {
+
+        private static final String HEADER =
+                "{\"type\":\"FeatureCollection\",\"metadata\":{\"status\":200},\"features\":[";
+
+        private static final String FOOTER = "],\"bbox\":[-111.2,44.1,-3.0,-110.0,44.9,15.0]}";
+
+        private final int mFeatureCount;
+
+        private int mNextFeature;
+
+        private String mChunk = HEADER;
+
+        private int mChunkPosition;
+
+        private boolean mFooterWritten;
+
+        SyntheticGeoJsonReader(int featureCount) {
+            mFeatureCount = featureCount;
+        }
+
+        static double magnitude(long i) {
+            return (i % 50) / 10.0;
+        }
+
+        static long time(long i) {
+            return 1473931342000L - i * 1000;
+        }
+
+        private static String feature(long i) {
+            return "{\"type\":\"Feature\",\"properties\":{\"mag\":" + magnitude(i)
+                    + ",\"place\":\"" + (i % 97) + "km NE of West Yellowstone, Montana\""
+                    + ",\"time\":" + time(i) + ",\"updated\":" + (time(i) + 60000)
+                    + ",\"tz\":-420,\"url\":\"http://earthquake.usgs.gov/earthquakes/eventpage/yl" + i + "\""
+                    + ",\"detail\":\"http://earthquake.usgs.gov/fdsnws/event/1/query?eventid=yl" + i + "&format=geojson\""
+                    + ",\"felt\":null,\"cdi\":null,\"mmi\":null,\"alert\":null,\"status\":\"reviewed\""
+                    + ",\"tsunami\":0,\"sig\":" + (i % 100) + ",\"net\":\"uu\",\"code\":\"" + i + "\""
+                    + ",\"ids\":\",yl" + i + ",\",\"sources\":\",uu,\",\"types\":\",geoserve,origin,phase-data,\""
+                    + ",\"nst\":12,\"dmin\":0.02,\"rms\":0.11,\"gap\":87,\"magType\":\"md\",\"type\":\"earthquake\""
+                    + ",\"title\":\"M " + magnitude(i) + " - Yellowstone National Park, Wyoming\"}"
+                    + ",\"geometry\":{\"type\":\"Point\",\"coordinates\":[" + (-110.6 + (i % 11) / 100.0)
+                    + "," + (44.5 + (i % 13) / 100.0) + "," + (i % 15) + "]},\"id\":\"yl" + i + "\"}";
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (mChunkPosition == mChunk.length()) {
+                if (mNextFeature < mFeatureCount) {
+                    mChunk = (mNextFeature > 0 ? "," : "") + feature(mNextFeature);
+                    mNextFeature++;
+                } else if (!mFooterWritten) {
+                    mChunk = FOOTER;
+                    mFooterWritten = true;
+                } else {
+                    return -1;
+                }
+                mChunkPosition = 0;
+            }
+
+            int count = Math.min(length, mChunk.length() - mChunkPosition);
+            mChunk.getChars(mChunkPosition, mChunkPosition + count, buffer, offset);
+            mChunkPosition += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
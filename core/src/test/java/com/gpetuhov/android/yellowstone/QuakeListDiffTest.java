@@ -0,0 +1,222 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Tests for keyed diff of quake list snapshots.
+// Updates are applied to a copy of the old list, which must become equal to the new list.
+public class QuakeListDiffTest {
+
+    @Test
+    public void newQuakesOnTop_areInsertedOnly() throws Exception {
+        QuakeListDiff.Snapshot oldSnapshot = snapshot("c:1", "d:1", "e:1");
+        QuakeListDiff.Snapshot newSnapshot = snapshot("a:1", "b:1", "c:1", "d:1", "e:1");
+
+        RecordingCallback callback = applyAndCheck(oldSnapshot, newSnapshot);
+
+        assertEquals("+0,2", callback.toString());
+    }
+
+    @Test
+    public void updatedQuakes_areChangedInPlace() throws Exception {
+        QuakeListDiff.Snapshot oldSnapshot = snapshot("a:1", "b:1", "c:1", "d:1", "e:1");
+        QuakeListDiff.Snapshot newSnapshot = snapshot("a:1", "b:2", "c:2", "d:1", "e:2");
+
+        RecordingCallback callback = applyAndCheck(oldSnapshot, newSnapshot);
+
+        assertEquals("~4,1 ~1,2", callback.toString());
+    }
+
+    @Test
+    public void expiredQuakes_areRemoved() throws Exception {
+        QuakeListDiff.Snapshot oldSnapshot = snapshot("a:1", "b:1", "c:1", "d:1", "e:1");
+        QuakeListDiff.Snapshot newSnapshot = snapshot("x:1", "a:1", "b:1", "c:1");
+
+        RecordingCallback callback = applyAndCheck(oldSnapshot, newSnapshot);
+
+        assertEquals("-3,2 +0,1", callback.toString());
+    }
+
+    @Test
+    public void identicalSnapshots_haveNoUpdates() throws Exception {
+        QuakeListDiff.Snapshot snapshot = snapshot("a:1", "b:1", "c:1");
+
+        assertEquals(0, QuakeListDiff.calculate(snapshot, snapshot).getUpdateCount());
+        assertEquals(0, QuakeListDiff.calculate(QuakeListDiff.Snapshot.EMPTY, QuakeListDiff.Snapshot.EMPTY)
+                .getUpdateCount());
+    }
+
+    @Test
+    public void randomSnapshots_areTransformedCorrectly() throws Exception {
+        Random random = new Random(13);
+
+        for (int run = 0; run < 500; run++) {
+            // Old list of unique IDs
+            List<String> ids = new ArrayList<>();
+            int size = random.nextInt(60);
+            for (int i = 0; i < size; i++) {
+                ids.add("q" + run + "_" + i);
+            }
+            long[] oldVersions = new long[size];
+            QuakeListDiff.Snapshot oldSnapshot = new QuakeListDiff.Snapshot(ids.toArray(new String[size]), oldVersions);
+
+            // New list: some quakes removed, added, moved and updated
+            List<String> newIds = new ArrayList<>();
+            for (String id : ids) {
+                if (random.nextInt(5) != 0) {
+                    newIds.add(id);
+                }
+            }
+            for (int i = 0; i < random.nextInt(10); i++) {
+                newIds.add(random.nextInt(newIds.size() + 1), "new" + run + "_" + i);
+            }
+            if (newIds.size() > 1 && random.nextBoolean()) {
+                Collections.swap(newIds, random.nextInt(newIds.size()), random.nextInt(newIds.size()));
+            }
+            long[] newVersions = new long[newIds.size()];
+            for (int i = 0; i < newVersions.length; i++) {
+                newVersions[i] = random.nextInt(4) == 0 ? 1 : 0;
+            }
+            QuakeListDiff.Snapshot newSnapshot =
+                    new QuakeListDiff.Snapshot(newIds.toArray(new String[newIds.size()]), newVersions);
+
+            applyAndCheck(oldSnapshot, newSnapshot);
+        }
+    }
+
+    @Test
+    public void largeSnapshots_areDiffedQuickly() throws Exception {
+        int size = 100000;
+        String[] oldIds = new String[size];
+        String[] newIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            oldIds[i] = "uu" + i;
+            newIds[size - 1 - i] = "uu" + i;
+        }
+
+        // Completely reversed list is the worst case (everything is moved)
+        long start = System.nanoTime();
+        QuakeListDiff diff = QuakeListDiff.calculate(
+                new QuakeListDiff.Snapshot(oldIds, new long[size]),
+                new QuakeListDiff.Snapshot(newIds, new long[size]));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue(diff.getUpdateCount() > 0);
+        assertTrue("Diff took " + elapsedMillis + " ms", elapsedMillis < 2000);
+    }
+
+    // Apply updates of the diff to the copy of old snapshot and check, that it becomes new snapshot
+    private static RecordingCallback applyAndCheck(QuakeListDiff.Snapshot oldSnapshot,
+                                                   QuakeListDiff.Snapshot newSnapshot) {
+        QuakeListDiff diff = QuakeListDiff.calculate(oldSnapshot, newSnapshot);
+
+        RecordingCallback callback = new RecordingCallback(oldSnapshot, newSnapshot);
+        diff.dispatchUpdatesTo(callback);
+        callback.bindPending();
+
+        assertEquals(newSnapshot.size(), callback.mItems.size());
+        for (int i = 0; i < newSnapshot.size(); i++) {
+            String[] item = callback.mItems.get(i);
+
+            // Inserted and changed items are rebound from the new snapshot
+            if (null == item) {
+                fail("Item " + i + " was not inserted");
+            }
+            assertEquals(newSnapshot.getId(i), item[0]);
+            assertEquals(String.valueOf(newSnapshot.getVersion(i)), item[1]);
+        }
+
+        return callback;
+    }
+
+    // Return snapshot from "id:version" strings
+    private static QuakeListDiff.Snapshot snapshot(String... items) {
+        String[] ids = new String[items.length];
+        long[] versions = new long[items.length];
+        for (int i = 0; i < items.length; i++) {
+            String[] parts = items[i].split(":");
+            ids[i] = parts[0];
+            versions[i] = Long.parseLong(parts[1]);
+        }
+        return new QuakeListDiff.Snapshot(ids, versions);
+    }
+
+    // Applies updates to a list of (ID, version) items and records them.
+    // Inserted and changed items are bound from new snapshot after all updates,
+    // other items keep their old ID and version.
+    private static class RecordingCallback implements QuakeListDiff.Callback {
+
+        private final List<String[]> mItems = new ArrayList<>();
+        private final List<String> mUpdates = new ArrayList<>();
+        private final QuakeListDiff.Snapshot mNewSnapshot;
+
+        // Marker for items, that are inserted or changed (bound from new snapshot)
+        private final List<String[]> mPending = new ArrayList<>();
+
+        RecordingCallback(QuakeListDiff.Snapshot oldSnapshot, QuakeListDiff.Snapshot newSnapshot) {
+            mNewSnapshot = newSnapshot;
+            for (int i = 0; i < oldSnapshot.size(); i++) {
+                mItems.add(new String[] { oldSnapshot.getId(i), String.valueOf(oldSnapshot.getVersion(i)) });
+            }
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mUpdates.add("+" + position + "," + count);
+            for (int i = 0; i < count; i++) {
+                String[] item = new String[2];
+                mPending.add(item);
+                mItems.add(position, item);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mUpdates.add("-" + position + "," + count);
+            for (int i = 0; i < count; i++) {
+                mItems.remove(position);
+            }
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            mUpdates.add("~" + position + "," + count);
+            for (int i = 0; i < count; i++) {
+                String[] item = mItems.get(position + i);
+                mPending.add(item);
+            }
+        }
+
+        // Like RecyclerView, bind inserted and changed items, when all updates are applied
+        void bindPending() {
+            if (mItems.size() != mNewSnapshot.size()) {
+                return;
+            }
+            for (int i = 0; i < mItems.size(); i++) {
+                String[] item = mItems.get(i);
+                if (mPending.contains(item)) {
+                    item[0] = mNewSnapshot.getId(i);
+                    item[1] = String.valueOf(mNewSnapshot.getVersion(i));
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            for (String update : mUpdates) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(update);
+            }
+            return result.toString();
+        }
+    }
+}
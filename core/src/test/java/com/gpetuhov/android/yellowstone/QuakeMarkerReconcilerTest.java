@@ -0,0 +1,140 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Tests for reconciliation of markers on the map
+public class QuakeMarkerReconcilerTest {
+
+    // Marker, that records what it displays
+    private static class FakeMarker {
+        QuakeCluster mCluster;
+        boolean mRemoved;
+    }
+
+    // Records calls instead of changing the map
+    private static class FakeMarkers implements QuakeMarkerReconciler.Markers<FakeMarker> {
+        final List<FakeMarker> mAdded = new ArrayList<>();
+        final List<FakeMarker> mUpdated = new ArrayList<>();
+        final List<FakeMarker> mRemoved = new ArrayList<>();
+
+        @Override
+        public FakeMarker add(QuakeCluster cluster) {
+            FakeMarker marker = new FakeMarker();
+            marker.mCluster = cluster;
+            mAdded.add(marker);
+            return marker;
+        }
+
+        @Override
+        public void update(FakeMarker marker, QuakeCluster cluster) {
+            assertFalse(marker.mRemoved);
+            marker.mCluster = cluster;
+            mUpdated.add(marker);
+        }
+
+        @Override
+        public void remove(FakeMarker marker) {
+            assertFalse(marker.mRemoved);
+            marker.mRemoved = true;
+            mRemoved.add(marker);
+        }
+    }
+
+    private QuakeMarkerReconciler<FakeMarker> mReconciler;
+
+    @Before
+    public void setUp() throws Exception {
+        mReconciler = new QuakeMarkerReconciler<>();
+    }
+
+    @Test
+    public void firstReconcile_addsAllMarkers() throws Exception {
+        FakeMarkers markers = new FakeMarkers();
+
+        mReconciler.reconcile(Arrays.asList(single("a", 44.5), single("b", 44.6), group("8/1/2", 5)), markers);
+
+        assertEquals(3, markers.mAdded.size());
+        assertEquals(3, mReconciler.size());
+        assertEquals(3, mReconciler.getAddedCount());
+        assertSame(markers.mAdded.get(0), mReconciler.getMarker("a"));
+    }
+
+    @Test
+    public void sameClusters_changeNothing() throws Exception {
+        List<QuakeCluster> clusters = Arrays.asList(single("a", 44.5), group("8/1/2", 5));
+        mReconciler.reconcile(clusters, new FakeMarkers());
+
+        FakeMarkers markers = new FakeMarkers();
+        mReconciler.reconcile(Arrays.asList(single("a", 44.5), group("8/1/2", 5)), markers);
+
+        assertTrue(markers.mAdded.isEmpty());
+        assertTrue(markers.mUpdated.isEmpty());
+        assertTrue(markers.mRemoved.isEmpty());
+    }
+
+    @Test
+    public void onlyAddedRemovedAndChangedMarkers_areApplied() throws Exception {
+        mReconciler.reconcile(
+                Arrays.asList(single("a", 44.5), single("b", 44.6), group("8/1/2", 5)), new FakeMarkers());
+        FakeMarker markerOfA = mReconciler.getMarker("a");
+        FakeMarker markerOfGroup = mReconciler.getMarker("8/1/2");
+
+        FakeMarkers markers = new FakeMarkers();
+        mReconciler.reconcile(
+                Arrays.asList(single("a", 44.5), group("8/1/2", 6), single("c", 44.7)), markers);
+
+        // "c" is added, "b" is removed, group has one more quake
+        assertEquals(1, markers.mAdded.size());
+        assertEquals("c", markers.mAdded.get(0).mCluster.getKey());
+        assertEquals(1, markers.mRemoved.size());
+        assertEquals("b", markers.mRemoved.get(0).mCluster.getKey());
+        assertEquals(Collections.singletonList(markerOfGroup), markers.mUpdated);
+        assertEquals(6, markerOfGroup.mCluster.getCount());
+
+        // Unchanged marker is kept
+        assertSame(markerOfA, mReconciler.getMarker("a"));
+        assertNull(mReconciler.getMarker("b"));
+        assertEquals(3, mReconciler.size());
+        assertEquals(1, mReconciler.getAddedCount());
+        assertEquals(1, mReconciler.getUpdatedCount());
+        assertEquals(1, mReconciler.getRemovedCount());
+    }
+
+    @Test
+    public void movedQuake_updatesItsMarker() throws Exception {
+        mReconciler.reconcile(Collections.singletonList(single("a", 44.5)), new FakeMarkers());
+
+        FakeMarkers markers = new FakeMarkers();
+        mReconciler.reconcile(Collections.singletonList(single("a", 44.55)), markers);
+
+        assertEquals(1, markers.mUpdated.size());
+        assertEquals(44.55, mReconciler.getMarker("a").mCluster.getLatitude(), 0);
+    }
+
+    @Test
+    public void clear_removesAllMarkers() throws Exception {
+        mReconciler.reconcile(Arrays.asList(single("a", 44.5), single("b", 44.6)), new FakeMarkers());
+
+        FakeMarkers markers = new FakeMarkers();
+        mReconciler.clear(markers);
+
+        assertEquals(2, markers.mRemoved.size());
+        assertEquals(0, mReconciler.size());
+    }
+
+    private static QuakeCluster single(String id, double latitude) {
+        return new QuakeCluster(id, id, latitude, -110.6, 1, 2.0);
+    }
+
+    private static QuakeCluster group(String key, int count) {
+        return new QuakeCluster(key, null, 44.5, -110.6, count, 2.0);
+    }
+}
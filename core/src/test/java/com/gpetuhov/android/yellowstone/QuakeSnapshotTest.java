@@ -0,0 +1,107 @@
+package com.gpetuhov.android.yellowstone;
+
+import com.gpetuhov.android.yellowstone.utils.GeoMath;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Tests for shared quake snapshot
+public class QuakeSnapshotTest {
+
+    private static final QuakePoints POINTS = new QuakePoints(
+            new String[] { "a", "b", "c", "d" },
+            new double[] { 44.5, 44.6, 46.0, 44.4 },
+            new double[] { -110.6, -110.7, -110.6, -108.0 },
+            new double[] { 1.0, 2.0, 3.0, 4.0 },
+            new long[] { 10, 20, 30, 40 });
+
+    @Test
+    public void positionsOfQuakes_areFoundById() throws Exception {
+        QuakeSnapshot snapshot = new QuakeSnapshot("1", POINTS);
+
+        assertEquals(4, snapshot.size());
+        assertEquals("1", snapshot.getFilter());
+        assertEquals("c", snapshot.getId(2));
+        assertEquals(0, snapshot.getPositionOfQuake("a"));
+        assertEquals(3, snapshot.getPositionOfQuake("d"));
+        assertEquals(-1, snapshot.getPositionOfQuake("unknown"));
+        assertEquals(-1, snapshot.getPositionOfQuake(null));
+        assertEquals(-1, QuakeSnapshot.EMPTY.getPositionOfQuake("a"));
+    }
+
+    @Test
+    public void pointsWithinViewport_keepOrderAndValues() throws Exception {
+        QuakePoints within = POINTS.within(new GeoMath.Viewport(44.0, -111.0, 45.0, -110.0));
+
+        assertEquals(2, within.size());
+        assertEquals("a", within.getId(0));
+        assertEquals("b", within.getId(1));
+        assertEquals(44.6, within.getLatitude(1), 0);
+        assertEquals(-110.7, within.getLongitude(1), 0);
+        assertEquals(2.0, within.getMagnitude(1), 0);
+        assertEquals(20, within.getVersion(1));
+
+        // Nothing is copied, if all points are inside
+        assertSame(POINTS, POINTS.within(new GeoMath.Viewport(-90, -180, 90, 180)));
+    }
+
+    @Test
+    public void pointsWithinViewport_matchFullScan() throws Exception {
+        Random random = new Random(17);
+
+        // Points all over the world, half of them in a dense swarm
+        int count = 5000;
+        String[] ids = new String[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "q" + i;
+            if (i % 2 == 0) {
+                latitudes[i] = 44.5 + random.nextGaussian() * 0.05;
+                longitudes[i] = -110.6 + random.nextGaussian() * 0.05;
+            } else {
+                latitudes[i] = random.nextDouble() * 180 - 90;
+                longitudes[i] = random.nextDouble() * 360 - 180;
+            }
+        }
+        QuakePoints points = new QuakePoints(ids, latitudes, longitudes, new double[count], new long[count]);
+
+        for (int v = 0; v < 300; v++) {
+            // Small and large viewports, some of them across 180th meridian
+            double span = v % 3 == 0 ? random.nextDouble() * 2 : random.nextDouble() * 120;
+            double south = random.nextDouble() * 160 - 80;
+            double west = v % 5 == 0 ? 179 - random.nextDouble() : random.nextDouble() * 360 - 180;
+            double east = west + span > 180 ? west + span - 360 : west + span;
+            GeoMath.Viewport viewport = new GeoMath.Viewport(south, west, Math.min(90, south + span), east);
+
+            assertSameIds(fullScan(points, viewport), points.within(viewport));
+        }
+
+        // Viewports around the swarm and the whole world
+        GeoMath.Viewport swarm = new GeoMath.Viewport(44.4, -110.7, 44.6, -110.5);
+        assertSameIds(fullScan(points, swarm), points.within(swarm));
+        assertSame(points, points.within(new GeoMath.Viewport(-90, -180, 90, 180)));
+    }
+
+    // Return IDs of the points inside the viewport, checking every point
+    private static String fullScan(QuakePoints points, GeoMath.Viewport viewport) {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < points.size(); i++) {
+            if (viewport.contains(points.getLatitude(i), points.getLongitude(i))) {
+                ids.append(points.getId(i)).append(',');
+            }
+        }
+        return ids.toString();
+    }
+
+    private static void assertSameIds(String expected, QuakePoints actual) {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < actual.size(); i++) {
+            ids.append(actual.getId(i)).append(',');
+        }
+        assertEquals(expected, ids.toString());
+    }
+}
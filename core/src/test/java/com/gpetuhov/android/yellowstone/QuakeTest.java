@@ -0,0 +1,40 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+// Tests for Quake model
+public class QuakeTest {
+
+    @Test
+    public void equalQuakes_haveEqualHashCodes() throws Exception {
+        Quake quake = new Quake("uu60166432", 2.5, "5km NE of Old Faithful", 1473931342000L,
+                "http://earthquake.usgs.gov/earthquakes/eventpage/uu60166432", 44.5, -110.8, 7.2);
+        Quake sameQuake = new Quake("uu60166432", 2.5, "5km NE of Old Faithful", 1473931342000L,
+                "http://earthquake.usgs.gov/earthquakes/eventpage/uu60166432", 44.5, -110.8, 7.2, 1473931500000L);
+
+        assertEquals(quake, sameQuake);
+        assertEquals(quake.hashCode(), sameQuake.hashCode());
+
+        // 0.0 == -0.0, so such quakes are equal too
+        Quake zeroDepth = new Quake("a", 1, "b", 1, "c", 0, 0, 0.0);
+        Quake negativeZeroDepth = new Quake("a", 1, "b", 1, "c", 0, 0, -0.0);
+        assertEquals(zeroDepth, negativeZeroDepth);
+        assertEquals(zeroDepth.hashCode(), negativeZeroDepth.hashCode());
+    }
+
+    @Test
+    public void quakes_canBeFoundInHashSet() throws Exception {
+        Set<Quake> quakes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            quakes.add(new Quake("uu" + i, i / 100.0, "Test location", 1000000 - i, "Some URL address", 44, -110, 5));
+        }
+
+        assertTrue(quakes.contains(new Quake("uu500", 5.0, "Test location", 999500, "Some URL address", 44, -110, 5)));
+        assertFalse(quakes.contains(new Quake("uu500", 5.1, "Test location", 999500, "Some URL address", 44, -110, 5)));
+    }
+}
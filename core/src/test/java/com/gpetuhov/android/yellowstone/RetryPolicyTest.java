@@ -0,0 +1,68 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Tests for retry policy with exponential backoff and jitter
+public class RetryPolicyTest {
+
+    @Test
+    public void attempts_areBounded() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000);
+
+        assertTrue(retryPolicy.canRetry(1));
+        assertTrue(retryPolicy.canRetry(2));
+        assertFalse(retryPolicy.canRetry(3));
+    }
+
+    @Test
+    public void delay_growsExponentiallyWithJitter() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 100, 100000, new Random(42));
+
+        for (int i = 0; i < 1000; i++) {
+            assertInRange(50, 100, retryPolicy.getDelayMillis(1));
+            assertInRange(100, 200, retryPolicy.getDelayMillis(2));
+            assertInRange(200, 400, retryPolicy.getDelayMillis(3));
+            assertInRange(400, 800, retryPolicy.getDelayMillis(4));
+        }
+    }
+
+    @Test
+    public void delay_isCappedByMaxDelay() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(100, 100, 1000, new Random(42));
+
+        for (int retry = 5; retry < 100; retry++) {
+            assertInRange(500, 1000, retryPolicy.getDelayMillis(retry));
+        }
+    }
+
+    @Test
+    public void delay_isSpreadByJitter() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1000, 1000, new Random(42));
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = retryPolicy.getDelayMillis(1);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        // Clients don't retry at the same moment
+        assertTrue(min < 600);
+        assertTrue(max > 900);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroAttempts_areNotAllowed() throws Exception {
+        new RetryPolicy(0, 100, 1000);
+    }
+
+    private static void assertInRange(long min, long max, long value) {
+        assertTrue(value + " is not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
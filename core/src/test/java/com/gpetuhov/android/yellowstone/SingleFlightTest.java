@@ -0,0 +1,195 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// Tests for single-flight execution of sync
+public class SingleFlightTest {
+
+    // Max time to wait for threads in tests (in seconds)
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private SingleFlight<Integer> mSingleFlight;
+
+    @Before
+    public void setUp() throws Exception {
+        mSingleFlight = new SingleFlight<>();
+    }
+
+    @Test
+    public void sequentialCalls_runTaskEveryTime() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, (int) mSingleFlight.run(calls::incrementAndGet));
+        assertEquals(2, (int) mSingleFlight.run(calls::incrementAndGet));
+
+        assertEquals(2, mSingleFlight.getRunCount());
+        assertEquals(0, mSingleFlight.getJoinCount());
+        assertFalse(mSingleFlight.isInFlight());
+    }
+
+    @Test
+    public void concurrentCalls_shareOneRun() throws Exception {
+        int callers = 16;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Task blocks until all callers have joined it
+        Callable<Integer> task = () -> {
+            started.countDown();
+            assertTrue(release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return calls.incrementAndGet();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        results.add(executor.submit(() -> mSingleFlight.run(task)));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        for (int i = 1; i < callers; i++) {
+            results.add(executor.submit(() -> mSingleFlight.run(task)));
+        }
+
+        // Wait until all late callers are waiting for the run in flight
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (mSingleFlight.getJoinCount() < callers - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        release.countDown();
+
+        // Every caller gets the result of the same run
+        for (Future<Integer> result : results) {
+            assertEquals(1, (int) result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, mSingleFlight.getRunCount());
+        assertEquals(callers - 1, mSingleFlight.getJoinCount());
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void exception_isRethrownToAllCallersOfTheRun() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Callable<Integer> task = () -> {
+            started.countDown();
+            release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            throw new IllegalStateException("Network failed");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Integer> first = executor.submit(() -> mSingleFlight.run(task));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Future<Integer> second = executor.submit(() -> mSingleFlight.run(task));
+
+        while (mSingleFlight.getJoinCount() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        for (Future<Integer> result : Arrays.asList(first, second)) {
+            try {
+                result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                fail("Exception expected");
+            } catch (ExecutionException e) {
+                // run() throws ExecutionException, which executor wraps once more
+                assertTrue(e.getCause() instanceof ExecutionException);
+                assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+            }
+        }
+
+        // Failed run doesn't block next runs
+        assertFalse(mSingleFlight.isInFlight());
+        assertEquals(7, (int) mSingleFlight.run(() -> 7));
+
+        executor.shutdown();
+    }
+
+    // Stress test: many threads request sync in bursts.
+    // Task must never run concurrently with itself, and every caller must get the result
+    // of the run in flight or of a newer run, never of an older one.
+    @Test
+    public void stress_runsNeverOverlap() throws Exception {
+        int threads = 32;
+        int callsPerThread = 200;
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger runNumber = new AtomicInteger();
+
+        Callable<Integer> task = () -> {
+            int nowRunning = running.incrementAndGet();
+            maxRunning.accumulateAndGet(nowRunning, Math::max);
+
+            // Simulate network and database work, so that callers overlap
+            int number = runNumber.incrementAndGet();
+            Thread.sleep(0, 200000);
+
+            running.decrementAndGet();
+            return number;
+        };
+
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> workers = new ArrayList<>();
+        AtomicInteger staleResults = new AtomicInteger();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                for (int i = 0; i < callsPerThread; i++) {
+                    // Threads start bursts together
+                    if (i % 20 == 0) {
+                        barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    }
+
+                    // Result of a run older than the latest run started before this call
+                    // must not be returned
+                    int startedBefore = runNumber.get();
+                    int result = mSingleFlight.run(task);
+                    if (result < startedBefore) {
+                        staleResults.incrementAndGet();
+                    }
+                }
+                return 0;
+            }));
+        }
+
+        for (Future<Integer> worker : workers) {
+            worker.get(TIMEOUT_SECONDS * 6, TimeUnit.SECONDS);
+        }
+
+        executor.shutdown();
+
+        int totalCalls = threads * callsPerThread;
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, staleResults.get());
+        assertEquals(runNumber.get(), mSingleFlight.getRunCount());
+        assertEquals(totalCalls, mSingleFlight.getRunCount() + mSingleFlight.getJoinCount());
+
+        // Concurrent calls were deduplicated
+        assertTrue(mSingleFlight.getRunCount() < totalCalls);
+        assertFalse(mSingleFlight.isInFlight());
+    }
+}
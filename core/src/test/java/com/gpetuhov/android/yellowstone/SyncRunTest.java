@@ -0,0 +1,36 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Tests for sync run record
+public class SyncRunTest {
+
+    @Test
+    public void csvRow_matchesHeader() throws Exception {
+        SyncRun syncRun = new SyncRun(1000L, SyncRun.Trigger.SYNC_ADAPTER);
+        syncRun.setOutcome("SUCCESS");
+        syncRun.setRequestMillis(120);
+        syncRun.setParseMillis(45);
+        syncRun.setSaveMillis(30);
+        syncRun.setTotalMillis(200);
+        syncRun.setBytesReceived(4096);
+        syncRun.setFeaturesParsed(12);
+        syncRun.setRowsInserted(2);
+        syncRun.setRowsUpdated(1);
+        syncRun.setRowsDeleted(3);
+
+        assertEquals("1000,SYNC_ADAPTER,SUCCESS,120,45,30,200,4096,12,2,1,3", syncRun.toCsvRow());
+        assertEquals(SyncRun.getCsvHeader().split(",").length, syncRun.toCsvRow().split(",").length);
+    }
+
+    @Test
+    public void stagesNotReached_areMarked() throws Exception {
+        SyncRun syncRun = new SyncRun(1000L, SyncRun.Trigger.POLL_SERVICE);
+        syncRun.setOutcome("IO_ERROR");
+        syncRun.setRequestMillis(5000);
+
+        assertEquals("1000,POLL_SERVICE,IO_ERROR,5000,-1,-1,-1,0,0,0,0,0", syncRun.toCsvRow());
+    }
+}
@@ -0,0 +1,105 @@
+package com.gpetuhov.android.yellowstone;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Tests for synthetic catalog used by benchmarks and sync load tests
+public class SyntheticCatalogTest {
+
+    private static final long LATEST_TIME = 1480000000000L;
+
+    private static final long SPAN_MILLIS = 28L * 24 * 60 * 60 * 1000;
+
+    @Test
+    public void sameSeed_generatesSameCatalog() throws Exception {
+        byte[] first = new SyntheticCatalog(500, 1, LATEST_TIME, SPAN_MILLIS).toGeoJson();
+        byte[] second = new SyntheticCatalog(500, 1, LATEST_TIME, SPAN_MILLIS).toGeoJson();
+        byte[] other = new SyntheticCatalog(500, 2, LATEST_TIME, SPAN_MILLIS).toGeoJson();
+
+        assertTrue(Arrays.equals(first, second));
+        assertFalse(Arrays.equals(first, other));
+    }
+
+    @Test
+    public void geoJson_isParsedIntoGeneratedQuakes() throws Exception {
+        SyntheticCatalog catalog = new SyntheticCatalog(1000, 3, LATEST_TIME, SPAN_MILLIS);
+        List<Quake> generated = catalog.getQuakes();
+
+        List<Quake> parsed = new ArrayList<>();
+        int count = new QuakeJsonParser().parse(new ByteArrayInputStream(catalog.toGeoJson()), parsed::add);
+
+        assertEquals(1000, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(generated.get(i).getId(), parsed.get(i).getId());
+            assertEquals(generated.get(i).getMagnitude(), parsed.get(i).getMagnitude(), 1e-9);
+            assertEquals(generated.get(i).getLatitude(), parsed.get(i).getLatitude(), 1e-9);
+            assertEquals(generated.get(i).getUpdatedInMilliseconds(), parsed.get(i).getUpdatedInMilliseconds());
+        }
+    }
+
+    @Test
+    public void events_areOrderedInsideSpan() throws Exception {
+        List<Quake> quakes = new SyntheticCatalog(2000, 4, LATEST_TIME, SPAN_MILLIS).getQuakes();
+
+        long previousTime = LATEST_TIME;
+        for (Quake quake : quakes) {
+            assertTrue(quake.getTimeInMilliseconds() <= previousTime);
+            assertTrue(quake.getTimeInMilliseconds() >= LATEST_TIME - SPAN_MILLIS);
+            assertTrue(quake.getUpdatedInMilliseconds() >= quake.getTimeInMilliseconds());
+            assertTrue(quake.getUpdatedInMilliseconds() <= LATEST_TIME);
+            previousTime = quake.getTimeInMilliseconds();
+        }
+    }
+
+    @Test
+    public void magnitudes_followGutenbergRichter() throws Exception {
+        List<Quake> quakes = new SyntheticCatalog(20000).getQuakes();
+
+        // With b-value 1 every magnitude unit has 10 times fewer events
+        int aboveHalf = 0;
+        int aboveOneAndHalf = 0;
+        for (Quake quake : quakes) {
+            if (quake.getMagnitude() >= 0.5) {
+                aboveHalf++;
+            }
+            if (quake.getMagnitude() >= 1.5) {
+                aboveOneAndHalf++;
+            }
+        }
+
+        assertEquals(0.1, aboveHalf / (double) quakes.size(), 0.01);
+        assertEquals(0.1, aboveOneAndHalf / (double) aboveHalf, 0.03);
+    }
+
+    @Test
+    public void events_areClusteredInSwarms() throws Exception {
+        List<Quake> quakes = new SyntheticCatalog(20000).getQuakes();
+
+        // Count events in cells of 0.1 x 0.1 degrees
+        Map<String, Integer> cells = new HashMap<>();
+        for (Quake quake : quakes) {
+            String cell = Math.floor(quake.getLatitude() * 10) + ":" + Math.floor(quake.getLongitude() * 10);
+            Integer count = cells.get(cell);
+            cells.put(cell, null == count ? 1 : count + 1);
+        }
+
+        List<Integer> counts = new ArrayList<>(cells.values());
+        counts.sort((first, second) -> second - first);
+
+        // Most events fall into a few dense cells (background alone spreads them over hundreds)
+        int densest = 0;
+        for (int i = 0; i < 20 && i < counts.size(); i++) {
+            densest += counts.get(i);
+        }
+
+        assertTrue(densest > quakes.size() / 2);
+    }
+}
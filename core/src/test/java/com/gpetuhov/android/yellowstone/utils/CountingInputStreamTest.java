@@ -0,0 +1,43 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+// Tests for input stream, that counts read bytes
+public class CountingInputStreamTest {
+
+    @Test
+    public void countsAllReadAndSkippedBytes() throws Exception {
+        CountingInputStream countingInputStream = new CountingInputStream(new ByteArrayInputStream(new byte[100]));
+
+        assertEquals(0, countingInputStream.read());
+        assertEquals(10, countingInputStream.read(new byte[10], 0, 10));
+        assertEquals(20, countingInputStream.skip(20));
+
+        // Read until the end
+        byte[] buffer = new byte[64];
+        while (countingInputStream.read(buffer) != -1) {
+        }
+
+        assertEquals(100, countingInputStream.getCount());
+        assertEquals(-1, countingInputStream.read());
+        assertEquals(100, countingInputStream.getCount());
+    }
+
+    @Test
+    public void reset_restoresCount() throws Exception {
+        InputStream in = new ByteArrayInputStream(new byte[10]);
+        CountingInputStream countingInputStream = new CountingInputStream(in);
+
+        countingInputStream.read(new byte[3], 0, 3);
+        countingInputStream.mark(10);
+        countingInputStream.read(new byte[5], 0, 5);
+        countingInputStream.reset();
+
+        assertEquals(3, countingInputStream.getCount());
+    }
+}
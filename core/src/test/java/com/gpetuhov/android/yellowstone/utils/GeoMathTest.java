@@ -0,0 +1,83 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Tests for geographic calculations
+public class GeoMathTest {
+
+    @Test
+    public void distanceKm() throws Exception {
+        assertEquals(0, GeoMath.distanceKm(44.5, -110.6, 44.5, -110.6), 1e-9);
+
+        // One degree of latitude is about 111.2 km
+        assertEquals(111.2, GeoMath.distanceKm(44.0, -110.6, 45.0, -110.6), 0.1);
+
+        // Caldera center to West Yellowstone (about 44 km)
+        assertEquals(43.8, GeoMath.distanceKm(44.5, -110.6, 44.662, -111.104), 0.1);
+    }
+
+    @Test
+    public void bounds() throws Exception {
+        GeoMath.Bounds bounds = new GeoMath.Bounds();
+        assertTrue(bounds.isEmpty());
+
+        bounds.include(44.5, -110.6).include(45.0, -111.0).include(44.1, -110.2);
+
+        assertFalse(bounds.isEmpty());
+        assertEquals(44.1, bounds.getSouth(), 0);
+        assertEquals(-111.0, bounds.getWest(), 0);
+        assertEquals(45.0, bounds.getNorth(), 0);
+        assertEquals(-110.2, bounds.getEast(), 0);
+
+        assertTrue(bounds.contains(44.5, -110.6));
+        assertTrue(bounds.contains(45.0, -111.0));
+        assertFalse(bounds.contains(45.1, -110.6));
+        assertFalse(bounds.contains(44.5, -110.1));
+    }
+
+    @Test
+    public void viewport_expand_andContains() throws Exception {
+        GeoMath.Viewport visible = new GeoMath.Viewport(44.0, -111.0, 45.0, -110.0);
+        GeoMath.Viewport loaded = visible.expand(0.5);
+
+        assertEquals(43.5, loaded.getSouth(), 1e-9);
+        assertEquals(-111.5, loaded.getWest(), 1e-9);
+        assertEquals(45.5, loaded.getNorth(), 1e-9);
+        assertEquals(-109.5, loaded.getEast(), 1e-9);
+
+        assertTrue(loaded.contains(visible));
+        assertTrue(loaded.contains(new GeoMath.Viewport(44.2, -111.4, 45.2, -110.4)));
+        assertFalse(loaded.contains(new GeoMath.Viewport(44.2, -111.6, 45.2, -110.6)));
+        assertFalse(loaded.contains(new GeoMath.Viewport(43.0, -111.0, 44.0, -110.0)));
+
+        assertTrue(loaded.contains(44.5, -110.6));
+        assertFalse(loaded.contains(44.5, -108.0));
+    }
+
+    @Test
+    public void viewport_acrossAntimeridian() throws Exception {
+        GeoMath.Viewport viewport = new GeoMath.Viewport(-10, 170, 10, -170);
+
+        assertTrue(viewport.crossesAntimeridian());
+        assertEquals(20, viewport.getLongitudeSpan(), 1e-9);
+        assertTrue(viewport.contains(0, 179));
+        assertTrue(viewport.contains(0, -179));
+        assertFalse(viewport.contains(0, 0));
+
+        GeoMath.Viewport expanded = viewport.expand(0.5);
+        assertEquals(160, expanded.getWest(), 1e-9);
+        assertEquals(-160, expanded.getEast(), 1e-9);
+        assertTrue(expanded.contains(viewport));
+        assertFalse(viewport.contains(expanded));
+
+        // Viewport, that is wider than the world, covers all longitudes
+        GeoMath.Viewport world = new GeoMath.Viewport(-60, -150, 60, 150).expand(0.5);
+        assertEquals(-180, world.getWest(), 0);
+        assertEquals(180, world.getEast(), 0);
+        assertEquals(-90, world.getSouth(), 0);
+        assertEquals(90, world.getNorth(), 0);
+        assertTrue(world.contains(viewport));
+    }
+}
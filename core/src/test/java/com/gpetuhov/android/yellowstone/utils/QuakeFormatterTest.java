@@ -0,0 +1,80 @@
+package com.gpetuhov.android.yellowstone.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+// Tests for quake display formatting
+public class QuakeFormatterTest {
+
+    @Test
+    public void formatNumbers() throws Exception {
+        assertEquals("2.5", QuakeFormatter.formatMagnitude(2.46));
+        assertEquals("-0.3", QuakeFormatter.formatMagnitude(-0.31));
+        assertEquals("0.0", QuakeFormatter.formatMagnitude(0));
+        assertEquals("7.2", QuakeFormatter.formatDepth(7.2));
+        assertEquals("44.428", QuakeFormatter.formatCoordinate(44.4281));
+        assertEquals("-110.600", QuakeFormatter.formatCoordinate(-110.6));
+    }
+
+    @Test
+    public void formatDate_isUtcAndIndependentOfDefaultTimeZoneAndLocale() throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        Locale defaultLocale = Locale.getDefault();
+
+        try {
+            // Result must not depend on default time zone and locale
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Denver"));
+            Locale.setDefault(Locale.GERMANY);
+
+            assertEquals("2016-09-15 09:22:22 (UTC)", QuakeFormatter.formatDate(1473931342000L));
+            assertEquals("2.5", QuakeFormatter.formatMagnitude(2.5));
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void formatFromManyThreads_givesSameResults() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        // Shared formatters would mix up results of concurrent calls
+                        for (int i = 0; i < 10000; i++) {
+                            long time = 1473931342000L + i * 86400000L;
+                            if (!QuakeFormatter.formatDate(time).equals(QuakeFormatter.formatDate(time))) {
+                                return false;
+                            }
+                            if (!QuakeFormatter.formatMagnitude(i / 10.0).equals((i / 10) + "." + (i % 10))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}